@@ -0,0 +1,229 @@
+package edu.riccardomori.wordle.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import edu.riccardomori.wordle.protocol.Action;
+
+// @formatter:off
+/**
+ * Message handling of a client session, one benchmark for each action.
+ * The sessions run without a socket: the completion handler runs the asynchronous tasks inline.
+ * The passwords are verified once in the setup so that the LOGIN benchmark measures the cached
+ * path of the authentication.
+ * The sessions that change state (LOGIN, PLAY, SEND_WORD, LOGOUT) are prepared before every
+ * invocation.
+ */
+// @formatter:on
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClientSessionBenchmark {
+    // Number of registered users. The full leaderboard must fit in a single message
+    private static final int USERS = 32;
+
+    @State(Scope.Benchmark)
+    public static class Server {
+        public WordleServer server;
+        public String guess; // A valid word that is not the secret word
+        private AtomicInteger nextUser = new AtomicInteger();
+
+        @Setup
+        public void setup() throws IOException {
+            this.server = SyntheticData
+                    .server(SyntheticData.stateFile(ClientSessionBenchmark.USERS, 42));
+            String secret = this.server.getCurrentWord().first;
+            this.guess = SyntheticData.words().stream().filter(w -> !w.equals(secret))
+                    .findFirst().get();
+        }
+
+        /**
+         * Reserve a user for a single state, warming up its password verification
+         */
+        public String reserveUser() throws InterruptedException {
+            String username = SyntheticData.username(this.nextUser.getAndIncrement());
+            ClientSessionBenchmark.login(username).close();
+            return username;
+        }
+    }
+
+    /**
+     * A session that stays logged in for the whole trial
+     */
+    @State(Scope.Thread)
+    public static class Logged {
+        public ClientSession session;
+
+        @Setup
+        public void setup(Server server) throws InterruptedException {
+            this.session = ClientSessionBenchmark.login(server.reserveUser());
+        }
+
+        @TearDown
+        public void tearDown() {
+            this.session.close();
+        }
+    }
+
+    /**
+     * A new anonymous session for every invocation
+     */
+    @State(Scope.Thread)
+    public static class Anonymous {
+        public ClientSession session;
+        public String username;
+
+        @Setup
+        public void setupTrial(Server server) throws InterruptedException {
+            this.username = server.reserveUser();
+        }
+
+        @Setup(Level.Invocation)
+        public void setup() {
+            this.session = new ClientSession();
+            this.session.setCompletionHandler(Runnable::run);
+        }
+
+        @TearDown(Level.Invocation)
+        public void tearDown() {
+            this.session.close();
+        }
+    }
+
+    /**
+     * A new logged session, which did not play the current game yet, for every invocation
+     */
+    @State(Scope.Thread)
+    public static class Ready {
+        public ClientSession session;
+        public String username;
+
+        @Setup
+        public void setupTrial(Server server) throws InterruptedException {
+            this.username = server.reserveUser();
+        }
+
+        @Setup(Level.Invocation)
+        public void setup() throws InterruptedException {
+            this.session = ClientSessionBenchmark.login(this.username);
+            WordleServer.getInstance().getAuthService().lookup(this.username, "")
+                    .getSession().gameId = -1;
+        }
+
+        @TearDown(Level.Invocation)
+        public void tearDown() {
+            this.session.close();
+        }
+    }
+
+    /**
+     * A new session that is playing the current game for every invocation
+     */
+    @State(Scope.Thread)
+    public static class Playing extends Ready {
+        @Setup(Level.Invocation)
+        public void play() {
+            this.session.handleMessage(ClientSessionBenchmark.message(Action.PLAY));
+        }
+    }
+
+    /**
+     * Log in synchronously
+     */
+    private static ClientSession login(String username) throws InterruptedException {
+        ClientSession session = new ClientSession();
+        CountDownLatch done = new CountDownLatch(1);
+        session.setCompletionHandler(task -> {
+            task.run();
+            done.countDown();
+        });
+        session.handleMessage(ClientSessionBenchmark.loginMessage(username));
+        done.await();
+        return session;
+    }
+
+    private static ByteBuffer message(Action action) {
+        ByteBuffer msg = ByteBuffer.allocate(1);
+        msg.put(action.getValue());
+        return msg.flip();
+    }
+
+    private static ByteBuffer loginMessage(String username) {
+        byte[] usernameRaw = username.getBytes(StandardCharsets.US_ASCII);
+        byte[] passwordRaw = SyntheticData.PASSWORD.getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer msg = ByteBuffer.allocate(3 + usernameRaw.length + passwordRaw.length);
+        msg.put(Action.LOGIN.getValue());
+        msg.put((byte) usernameRaw.length);
+        msg.put((byte) passwordRaw.length);
+        msg.put(usernameRaw);
+        msg.put(passwordRaw);
+        return msg.flip();
+    }
+
+    private static ByteBuffer wordMessage(String word) {
+        byte[] wordRaw = word.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer msg = ByteBuffer.allocate(1 + wordRaw.length);
+        msg.put(Action.SEND_WORD.getValue());
+        msg.put(wordRaw);
+        return msg.flip();
+    }
+
+    @Benchmark
+    public int login(Anonymous state) {
+        return state.session.handleMessage(ClientSessionBenchmark.loginMessage(state.username));
+    }
+
+    @Benchmark
+    public int logout(Ready state) {
+        return state.session.handleMessage(ClientSessionBenchmark.message(Action.LOGOUT));
+    }
+
+    @Benchmark
+    public int play(Ready state) {
+        return state.session.handleMessage(ClientSessionBenchmark.message(Action.PLAY));
+    }
+
+    @Benchmark
+    public int sendWord(Server server, Playing state) {
+        return state.session.handleMessage(ClientSessionBenchmark.wordMessage(server.guess));
+    }
+
+    @Benchmark
+    public int stats(Logged state) {
+        return state.session.handleMessage(ClientSessionBenchmark.message(Action.STATS));
+    }
+
+    @Benchmark
+    public int topLeaderboard(Logged state) {
+        return state.session
+                .handleMessage(ClientSessionBenchmark.message(Action.TOP_LEADERBOARD));
+    }
+
+    @Benchmark
+    public int fullLeaderboard(Logged state) {
+        return state.session
+                .handleMessage(ClientSessionBenchmark.message(Action.FULL_LEADERBOARD));
+    }
+
+    @Benchmark
+    public int share(Logged state) {
+        return state.session.handleMessage(ClientSessionBenchmark.message(Action.SHARE));
+    }
+}
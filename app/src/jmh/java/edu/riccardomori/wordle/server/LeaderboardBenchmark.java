@@ -0,0 +1,71 @@
+package edu.riccardomori.wordle.server;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import edu.riccardomori.wordle.utils.Pair;
+
+/**
+ * Leaderboard updates and reads on leaderboards of different sizes
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LeaderboardBenchmark {
+    private static final int SAMPLES = 4096; // Must be a power of 2
+
+    @Param({"10000", "100000", "1000000", "10000000"})
+    public int users;
+
+    private Leaderboard leaderboard;
+    private String[] usernames = new String[LeaderboardBenchmark.SAMPLES];
+    private int[] scores = new int[LeaderboardBenchmark.SAMPLES];
+    private int next = 0;
+
+    @Setup
+    public void setup() {
+        this.leaderboard = new Leaderboard(SyntheticData.users(this.users, 42));
+
+        // The updates pick random users and give them a random score in the valid range
+        Random random = new Random(43);
+        for (int k = 0; k < LeaderboardBenchmark.SAMPLES; ++k) {
+            this.usernames[k] = SyntheticData.username(random.nextInt(this.users));
+            double score = 1 + random.nextDouble() * WordleServer.WORD_TRIES;
+            this.scores[k] = (int) (score * Leaderboard.SCORE_SCALE);
+        }
+    }
+
+    @Benchmark
+    public int update() {
+        int k = this.next++ & (LeaderboardBenchmark.SAMPLES - 1);
+        return this.leaderboard.update(this.usernames[k], this.scores[k]);
+    }
+
+    @Benchmark
+    public List<Pair<String, Double>> getTop() {
+        return this.leaderboard.get(WordleServer.SUBS_THRESHOLD);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public List<Pair<String, Double>> getFull() {
+        return this.leaderboard.get();
+    }
+}
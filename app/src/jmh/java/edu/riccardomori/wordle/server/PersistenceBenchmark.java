@@ -0,0 +1,46 @@
+package edu.riccardomori.wordle.server;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Saving and loading the server state on datasets of different sizes
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PersistenceBenchmark {
+    @Param({"10000", "100000", "1000000", "10000000"})
+    public int users;
+
+    private WordleServer server;
+
+    @Setup
+    public void setup() throws IOException {
+        this.server = SyntheticData.server(SyntheticData.stateFile(this.users, 42));
+    }
+
+    @Benchmark
+    public void flush() {
+        this.server.flush();
+    }
+
+    @Benchmark
+    public void loadPrevState() {
+        this.server.loadPrevState();
+    }
+}
@@ -0,0 +1,153 @@
+package edu.riccardomori.wordle.server;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import com.google.gson.stream.JsonWriter;
+import edu.riccardomori.wordle.server.auth.Pbkdf2PasswordHasher;
+
+/**
+ * Synthetic datasets shared by the benchmarks. Everything is generated from a seed so that the
+ * runs are reproducible
+ */
+final class SyntheticData {
+    // File that contains the secret words. Set by the jmh gradle task
+    public static final String WORDS_FILE = System.getProperty("wordle.words", "words.txt");
+    public static final String PASSWORD = "password"; // Password of every synthetic user
+    // Its hash, computed once and shared by all the synthetic users
+    private static final String PASSWORD_HASH =
+            new Pbkdf2PasswordHasher(WordleServer.PBKDF2_ITERATIONS).hash(SyntheticData.PASSWORD);
+
+    private SyntheticData() {}
+
+    /**
+     * Returns the username of the {@code k}-th synthetic user
+     */
+    public static String username(int k) {
+        return "user" + k;
+    }
+
+    /**
+     * Load the list of words
+     */
+    public static List<String> words() throws IOException {
+        return Files.readAllLines(Path.of(SyntheticData.WORDS_FILE), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Create a user that played {@code games} games. Roughly one game out of four is lost
+     *
+     * @param username The username
+     * @param random The source of randomness
+     * @param games The number of games played
+     * @return The new user
+     */
+    public static User user(String username, Random random, int games) {
+        User user = new User(username, SyntheticData.PASSWORD_HASH);
+        UserSession session = new UserSession();
+        session.secretWord = "abcdefghij";
+        user.setSession(session);
+
+        for (int g = 0; g < games; ++g) {
+            int tries = 1 + random.nextInt(WordleServer.WORD_TRIES);
+            session.gameId = g;
+            session.triesLeft = WordleServer.WORD_TRIES - tries;
+            session.resetHints();
+            session.addHint(session.secretWord);
+            if (random.nextInt(4) == 0)
+                user.loseGame();
+            else
+                user.winGame(tries);
+        }
+
+        session.isActive = false;
+        return user;
+    }
+
+    /**
+     * Create {@code n} users named {@code user0 ... user<n-1>}
+     */
+    public static List<User> users(int n, long seed) {
+        Random random = new Random(seed);
+        List<User> ret = new ArrayList<>(n);
+        for (int k = 0; k < n; ++k)
+            ret.add(SyntheticData.user(SyntheticData.username(k), random, 1 + random.nextInt(20)));
+        return ret;
+    }
+
+    /**
+     * Write a server state file with {@code n} users. The users are streamed to the file so that
+     * even the largest datasets do not need to fit in memory twice
+     *
+     * @param n The number of users
+     * @param seed The seed
+     * @return The temporary state file. It is deleted on exit
+     */
+    public static String stateFile(int n, long seed) throws IOException {
+        File file = File.createTempFile("wordle-state", ".json");
+        file.deleteOnExit();
+
+        Random random = new Random(seed);
+        try (JsonWriter writer = new JsonWriter(
+                new BufferedWriter(new FileWriter(file, StandardCharsets.UTF_8)))) {
+            writer.beginObject();
+            writer.name("lastGameID");
+            writer.value(0);
+            writer.name("users");
+            writer.beginObject();
+            for (int k = 0; k < n; ++k) {
+                User user = SyntheticData.user(SyntheticData.username(k), random,
+                        1 + random.nextInt(20));
+                writer.name(user.getUsername());
+                UserCodec.writeUser(writer, user);
+            }
+            writer.endObject();
+            writer.endObject();
+        }
+
+        return file.getPath();
+    }
+
+    /**
+     * Returns the path of a state file that does not exist, so that the server starts empty
+     */
+    public static String emptyStateFile() throws IOException {
+        File file = File.createTempFile("wordle-state", ".json");
+        file.delete();
+        file.deleteOnExit();
+        return file.getPath();
+    }
+
+    /**
+     * Configure the singleton server and load its state from {@code stateFile} without opening
+     * any socket. The logging and the rate limits are disabled, and the games are archived in a
+     * temporary directory
+     *
+     * @param stateFile The state file
+     * @return The server instance
+     */
+    public static WordleServer server(String stateFile) throws IOException {
+        WordleServer server = WordleServer.getInstance();
+        // The server holds a reference to the logger, so the level is not lost
+        Logger.getLogger("Wordle").setLevel(Level.OFF);
+        server.configure("239.0.0.1", 0, 0, 0, 60, SyntheticData.WORDS_FILE);
+        // The benchmarks send requests as fast as possible
+        server.configureRateLimits(0, 0, 0, 0);
+        server.setStateFile(stateFile);
+        Path dir = Files.createTempDirectory("wordle-games");
+        server.setArchiveDir(dir.toString());
+        server.setHistoryFile(dir.resolve("game_history.bin").toString());
+        server.initState();
+        server.updateSecretWord();
+        return server;
+    }
+}
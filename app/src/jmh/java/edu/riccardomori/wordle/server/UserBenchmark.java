@@ -0,0 +1,41 @@
+package edu.riccardomori.wordle.server;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Score computation of a user
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserBenchmark {
+    private static final int USERS = 1024; // Must be a power of 2
+
+    private User[] users;
+    private int next = 0;
+
+    @Setup
+    public void setup() {
+        List<User> list = SyntheticData.users(UserBenchmark.USERS, 42);
+        this.users = list.toArray(new User[0]);
+    }
+
+    @Benchmark
+    public double score() {
+        return this.users[this.next++ & (UserBenchmark.USERS - 1)].score();
+    }
+}
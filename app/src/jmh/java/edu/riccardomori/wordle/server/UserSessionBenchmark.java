@@ -0,0 +1,55 @@
+package edu.riccardomori.wordle.server;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Hint generation for a guessed word
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserSessionBenchmark {
+    private static final int GUESSES = 1024; // Must be a power of 2
+
+    private UserSession session;
+    private String[] guesses = new String[UserSessionBenchmark.GUESSES];
+    private int next = 0;
+
+    @Setup
+    public void setup() throws IOException {
+        List<String> words = SyntheticData.words();
+        Random random = new Random(42);
+        this.session = new UserSession();
+        this.session.secretWord = words.get(random.nextInt(words.size()));
+        for (int k = 0; k < this.guesses.length; ++k)
+            this.guesses[k] = words.get(random.nextInt(words.size()));
+    }
+
+    @Benchmark
+    public void addHint(Blackhole bh) {
+        // Keep the hints bounded as in a real game
+        if (this.session.correctHints.size() == WordleServer.WORD_TRIES)
+            this.session.resetHints();
+
+        this.session.addHint(this.guesses[this.next++ & (UserSessionBenchmark.GUESSES - 1)]);
+        bh.consume(this.session.getLastCorrectHint());
+        bh.consume(this.session.getLastPartialHint());
+    }
+}
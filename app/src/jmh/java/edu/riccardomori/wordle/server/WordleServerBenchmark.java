@@ -0,0 +1,60 @@
+package edu.riccardomori.wordle.server;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Validation of the guessed words
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WordleServerBenchmark {
+    private static final int SAMPLES = 1024; // Must be a power of 2
+
+    private WordleServer server;
+    private String[] valid = new String[WordleServerBenchmark.SAMPLES];
+    private String[] invalid = new String[WordleServerBenchmark.SAMPLES];
+    private int next = 0;
+
+    @Setup
+    public void setup() throws IOException {
+        this.server = SyntheticData.server(SyntheticData.emptyStateFile());
+
+        // The invalid words are valid ones with the last letter swapped with a digit
+        List<String> words = SyntheticData.words();
+        Random random = new Random(42);
+        for (int k = 0; k < WordleServerBenchmark.SAMPLES; ++k) {
+            String word = words.get(random.nextInt(words.size()));
+            this.valid[k] = word;
+            this.invalid[k] = word.substring(0, word.length() - 1) + (k % 10);
+        }
+    }
+
+    @Benchmark
+    public boolean isValidWord() {
+        return this.server
+                .isValidWord(this.valid[this.next++ & (WordleServerBenchmark.SAMPLES - 1)]);
+    }
+
+    @Benchmark
+    public boolean isInvalidWord() {
+        return this.server
+                .isValidWord(this.invalid[this.next++ & (WordleServerBenchmark.SAMPLES - 1)]);
+    }
+}
@@ -0,0 +1,271 @@
+package edu.riccardomori.wordle.loadgen;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import org.HdrHistogram.Histogram;
+
+// @formatter:off
+/**
+ * Closed-loop load generator. It simulates a number of concurrent players that speak the real
+ * protocol through the client backend, and reports the throughput and the latency percentiles of
+ * every operation.
+ * The server address is read from the client configuration file, the load is configured through
+ * the command line:
+ *   --players=N      Number of concurrent players (default 100)
+ *   --duration=S     Duration of the test in seconds, ramp up included (default 60)
+ *   --ramp=S         The players are started evenly over this time (default 10)
+ *   --think=MS       Mean think time between two requests of a player (default 100)
+ *   --interval=S     Reporting interval (default 5)
+ *   --mix=MIX        Operation mix (default game:70,stats:10,top:10,full:0,share:10)
+ *   --invalid=R      Fraction of invalid guessed words (default 0.1)
+ *   --prefix=P       Prefix of the usernames of the players (default lg)
+ *   --words=FILE     Words file (default words.txt)
+ * The full leaderboard is disabled by default because it does not fit in a single message once
+ * there are more than a few dozens users.
+ * Every player runs on its own thread.
+ * A player sends about 1000/think requests per second, well below the default rate limits of the
+ * server. With a shorter think time set rate_limit=0 and user_rate_limit=0 in the configuration
+ * of the server, otherwise the throttled requests are counted as errors.
+ */
+// @formatter:on
+public class LoadGenerator {
+    private static final String CONFIG_FILE = "ClientMain.properties";
+
+    private String host = "127.0.0.1";
+    private int tcpPort = 12345;
+    private int rmiPort = 12346;
+    private int players = 100;
+    private int duration = 60;
+    private int ramp = 10;
+    private long thinkTime = 100;
+    private int interval = 5;
+    private Mix mix = new Mix("game:70,stats:10,top:10,full:0,share:10");
+    private double invalidRate = 0.1;
+    private String prefix = "lg";
+    private String wordsFile = "words.txt";
+
+    private Player.Words words;
+    private volatile boolean running = true;
+    private final Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+
+    public LoadGenerator() {
+        for (Operation operation : Operation.values())
+            this.stats.put(operation, new OperationStats());
+    }
+
+    public String getHost() {
+        return this.host;
+    }
+
+    public int getTcpPort() {
+        return this.tcpPort;
+    }
+
+    public int getRmiPort() {
+        return this.rmiPort;
+    }
+
+    public long getThinkTime() {
+        return this.thinkTime;
+    }
+
+    public Mix getMix() {
+        return this.mix;
+    }
+
+    public String getPrefix() {
+        return this.prefix;
+    }
+
+    public Player.Words getWords() {
+        return this.words;
+    }
+
+    public boolean isRunning() {
+        return this.running;
+    }
+
+    public OperationStats getStats(Operation operation) {
+        return this.stats.get(operation);
+    }
+
+    /**
+     * Read the server address from the client configuration file, if present
+     */
+    private void loadConfig() throws IOException {
+        if (!Files.exists(Path.of(LoadGenerator.CONFIG_FILE)))
+            return;
+
+        try (InputStream input = new FileInputStream(LoadGenerator.CONFIG_FILE)) {
+            Properties prop = new Properties();
+            prop.load(input);
+            this.host = prop.getProperty("server_host", this.host);
+            this.tcpPort = Integer.parseInt(
+                    prop.getProperty("server_port", Integer.toString(this.tcpPort)));
+            this.rmiPort =
+                    Integer.parseInt(prop.getProperty("rmi_port", Integer.toString(this.rmiPort)));
+        }
+    }
+
+    /**
+     * Parse the command line options
+     * 
+     * @throws IllegalArgumentException if an option is unknown or malformed
+     */
+    private void parseArgs(String[] args) {
+        for (String arg : args) {
+            if (!arg.startsWith("--") || arg.indexOf('=') < 0)
+                throw new IllegalArgumentException(String.format("Malformed option `%s`", arg));
+            String name = arg.substring(2, arg.indexOf('='));
+            String value = arg.substring(arg.indexOf('=') + 1);
+
+            switch (name) {
+                case "players":
+                    this.players = Integer.parseInt(value);
+                    break;
+                case "duration":
+                    this.duration = Integer.parseInt(value);
+                    break;
+                case "ramp":
+                    this.ramp = Integer.parseInt(value);
+                    break;
+                case "think":
+                    this.thinkTime = Long.parseLong(value);
+                    break;
+                case "interval":
+                    this.interval = Integer.parseInt(value);
+                    break;
+                case "mix":
+                    this.mix = new Mix(value);
+                    break;
+                case "invalid":
+                    this.invalidRate = Double.parseDouble(value);
+                    break;
+                case "prefix":
+                    this.prefix = value;
+                    break;
+                case "words":
+                    this.wordsFile = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException(String.format("Unknown option `%s`", name));
+            }
+        }
+    }
+
+    /**
+     * Print the throughput and the latency of the last interval
+     */
+    private void report(long elapsed) {
+        StringBuilder operations = new StringBuilder();
+        long total = 0;
+        for (Map.Entry<Operation, OperationStats> entry : this.stats.entrySet()) {
+            Histogram histogram = entry.getValue().collect();
+            total += histogram.getTotalCount();
+            if (histogram.getTotalCount() > 0)
+                operations.append(String.format(" %s %d (p99 %.1fms)", entry.getKey(),
+                        histogram.getTotalCount(), histogram.getValueAtPercentile(99) / 1000.0));
+        }
+        String line = String.format("[%4ds] %.0f ops/s%s", elapsed / 1000,
+                (double) total / this.interval, operations);
+        System.out.println(line);
+    }
+
+    /**
+     * Print the summary of the whole run
+     */
+    private void summary(long elapsed) {
+        System.out.println();
+        System.out.format("%-17s %9s %7s %9s %9s %9s %9s %9s %9s %9s\n", "Operation", "Count",
+                "Errors", "ops/s", "mean(ms)", "p50(ms)", "p90(ms)", "p99(ms)", "p99.9(ms)",
+                "max(ms)");
+        for (Map.Entry<Operation, OperationStats> entry : this.stats.entrySet()) {
+            entry.getValue().collect();
+            Histogram h = entry.getValue().getTotal();
+            System.out.format("%-17s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f %9.2f\n",
+                    entry.getKey(), h.getTotalCount(), entry.getValue().getErrors(),
+                    h.getTotalCount() * 1000.0 / elapsed, h.getMean() / 1000,
+                    h.getValueAtPercentile(50) / 1000.0, h.getValueAtPercentile(90) / 1000.0,
+                    h.getValueAtPercentile(99) / 1000.0, h.getValueAtPercentile(99.9) / 1000.0,
+                    h.getMaxValue() / 1000.0);
+        }
+    }
+
+    /**
+     * Run the test
+     */
+    public void run() throws InterruptedException {
+        System.out.format("%d players against %s:%d (RMI %d) for %ds, mix %s\n", this.players,
+                this.host, this.tcpPort, this.rmiPort, this.duration, this.mix);
+
+        long start = System.currentTimeMillis();
+        long end = start + this.duration * 1000L;
+        long nextReport = start + this.interval * 1000L;
+        List<Thread> threads = new ArrayList<>(this.players);
+        for (int k = 0; k < this.players; ++k) {
+            // Ramp up
+            long startAt = start + this.ramp * 1000L * k / this.players;
+            while (System.currentTimeMillis() < startAt) {
+                Thread.sleep(Math.max(1,
+                        Math.min(startAt, nextReport) - System.currentTimeMillis()));
+                if (System.currentTimeMillis() >= nextReport) {
+                    this.report(nextReport - start);
+                    nextReport += this.interval * 1000L;
+                }
+            }
+
+            Thread thread = new Thread(new Player(this, k), "player-" + k);
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+
+        // Steady state
+        while (System.currentTimeMillis() < end) {
+            Thread.sleep(Math.max(0, Math.min(end, nextReport) - System.currentTimeMillis()));
+            if (System.currentTimeMillis() >= nextReport) {
+                this.report(nextReport - start);
+                nextReport += this.interval * 1000L;
+            }
+        }
+
+        // Stop the players and wait for the last requests
+        this.running = false;
+        for (Thread thread : threads)
+            thread.interrupt();
+        for (Thread thread : threads)
+            thread.join(this.thinkTime + 10000);
+
+        this.summary(System.currentTimeMillis() - start);
+    }
+
+    public static void main(String[] args) {
+        LoadGenerator generator = new LoadGenerator();
+        try {
+            generator.loadConfig();
+            generator.parseArgs(args);
+            generator.words = new Player.Words(
+                    Files.readAllLines(Path.of(generator.wordsFile), StandardCharsets.UTF_8),
+                    generator.invalidRate);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+
+        try {
+            generator.run();
+        } catch (InterruptedException e) {
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+}
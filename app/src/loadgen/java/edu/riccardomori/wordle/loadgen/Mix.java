@@ -0,0 +1,83 @@
+package edu.riccardomori.wordle.loadgen;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * The operation mix of the players once logged in, as relative weights. The game steps (PLAY and
+ * SEND_WORD) share the weight of {@code SEND_WORD}
+ */
+public class Mix {
+    private final Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+    private int total = 0;
+
+    /**
+     * Parse a mix in the format {@code game:70,stats:10,top:10,full:0,share:10}
+     * 
+     * @param mix The mix
+     * @throws IllegalArgumentException if the mix is malformed
+     */
+    public Mix(String mix) {
+        for (String entry : mix.split(",")) {
+            String[] pair = entry.split(":");
+            if (pair.length != 2)
+                throw new IllegalArgumentException(
+                        String.format("Malformed mix entry `%s`", entry));
+
+            Operation operation;
+            switch (pair[0].trim()) {
+                case "game":
+                    operation = Operation.SEND_WORD;
+                    break;
+                case "stats":
+                    operation = Operation.STATS;
+                    break;
+                case "top":
+                    operation = Operation.TOP_LEADERBOARD;
+                    break;
+                case "full":
+                    operation = Operation.FULL_LEADERBOARD;
+                    break;
+                case "share":
+                    operation = Operation.SHARE;
+                    break;
+                default:
+                    throw new IllegalArgumentException(
+                            String.format("Unknown operation `%s`", pair[0]));
+            }
+            int weight = Integer.parseInt(pair[1].trim());
+            this.weights.put(operation, weight);
+            this.total += weight;
+        }
+    }
+
+    /**
+     * Choose the next operation
+     * 
+     * @param random The source of randomness
+     * @param canPlay Whether the game steps can be chosen
+     * @return The next operation or {@code null} if there is none to choose from
+     */
+    public Operation next(Random random, boolean canPlay) {
+        int game = this.weights.getOrDefault(Operation.SEND_WORD, 0);
+        int total = canPlay ? this.total : this.total - game;
+        if (total <= 0)
+            return null;
+
+        int r = random.nextInt(total);
+        for (Map.Entry<Operation, Integer> entry : this.weights.entrySet()) {
+            if (!canPlay && entry.getKey() == Operation.SEND_WORD)
+                continue;
+            r -= entry.getValue();
+            if (r < 0)
+                return entry.getKey();
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return this.weights.toString();
+    }
+}
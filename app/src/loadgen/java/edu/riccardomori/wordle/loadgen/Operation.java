@@ -0,0 +1,17 @@
+package edu.riccardomori.wordle.loadgen;
+
+/**
+ * All the operations that a simulated player performs. They are the protocol actions plus the
+ * registration through RMI
+ */
+public enum Operation {
+    REGISTER,
+    LOGIN,
+    PLAY,
+    SEND_WORD,
+    STATS,
+    TOP_LEADERBOARD,
+    FULL_LEADERBOARD,
+    SHARE,
+    LOGOUT;
+}
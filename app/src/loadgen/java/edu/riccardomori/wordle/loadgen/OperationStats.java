@@ -0,0 +1,56 @@
+package edu.riccardomori.wordle.loadgen;
+
+import java.util.concurrent.atomic.LongAdder;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Latency and error statistics of a single operation. It is thread-safe: the players record the
+ * samples while the reporter periodically collects them
+ */
+public class OperationStats {
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final Recorder recorder = new Recorder(OperationStats.SIGNIFICANT_DIGITS);
+    private final LongAdder errors = new LongAdder();
+    private Histogram interval; // Samples of the last interval. Recycled by the recorder
+    private final Histogram total = new Histogram(OperationStats.SIGNIFICANT_DIGITS);
+
+    /**
+     * Record a completed operation
+     * 
+     * @param latency The latency in microseconds
+     */
+    public void record(long latency) {
+        this.recorder.recordValue(latency);
+    }
+
+    /**
+     * Record a failed operation. Its latency is not recorded
+     */
+    public void error() {
+        this.errors.increment();
+    }
+
+    /**
+     * Collect the samples recorded since the last call
+     * 
+     * @return The histogram of the interval, in microseconds. It is valid until the next call
+     */
+    public synchronized Histogram collect() {
+        this.interval = this.recorder.getIntervalHistogram(this.interval);
+        this.total.add(this.interval);
+        return this.interval;
+    }
+
+    /**
+     * Returns the histogram of all the samples collected so far, in microseconds
+     */
+    public synchronized Histogram getTotal() {
+        return this.total;
+    }
+
+    public long getErrors() {
+        return this.errors.sum();
+    }
+}
@@ -0,0 +1,189 @@
+package edu.riccardomori.wordle.loadgen;
+
+import java.util.List;
+import java.util.Random;
+import edu.riccardomori.wordle.client.backend.ClientBackend;
+import edu.riccardomori.wordle.client.backend.GuessDescriptor;
+import edu.riccardomori.wordle.client.backend.exceptions.AlreadyPlayedException;
+import edu.riccardomori.wordle.client.backend.exceptions.BackendException;
+import edu.riccardomori.wordle.client.backend.exceptions.IOError;
+import edu.riccardomori.wordle.client.backend.exceptions.InvalidWordException;
+import edu.riccardomori.wordle.client.backend.exceptions.NoGameException;
+import edu.riccardomori.wordle.client.backend.exceptions.UserTakenException;
+
+// @formatter:off
+/**
+ * A simulated player. It runs a closed loop: it sends a request, waits for the response and then
+ * thinks for a random time before the next request.
+ * A game step either starts a new game or guesses a word, depending on the state of the player.
+ * When the player already played the current secret word the game steps are replaced by the other
+ * operations until the next secret word.
+ */
+// @formatter:on
+public class Player implements Runnable {
+    private static final String PASSWORD = "loadgen";
+
+    // A request to the server, as performed by the backend
+    @FunctionalInterface
+    private interface Request {
+        void run() throws BackendException;
+    }
+
+    private final LoadGenerator generator;
+    private final String username;
+    private final ClientBackend backend;
+    private final Random random = new Random(); // Owned by the player thread
+
+    private boolean loggedIn = false;
+    private boolean playing = false;
+    private long nextGame = 0; // Time of the next secret word, when the current one was played
+
+    public Player(LoadGenerator generator, int id) {
+        this.generator = generator;
+        this.username = generator.getPrefix() + id;
+        this.backend = new ClientBackend(generator.getHost(), generator.getTcpPort(),
+                generator.getRmiPort());
+    }
+
+    /**
+     * Time the request and record it in the stats of {@code operation}. The exceptions that
+     * represent a valid answer of the server count as a success
+     * 
+     * @return True if the server answered
+     */
+    private boolean timed(Operation operation, Request request) {
+        OperationStats stats = this.generator.getStats(operation);
+        long start = System.nanoTime();
+        try {
+            request.run();
+        } catch (AlreadyPlayedException e) {
+            this.nextGame = e.getResult();
+        } catch (InvalidWordException | NoGameException | UserTakenException e) {
+            // Valid answers
+        } catch (IOError e) {
+            // The connection is broken. Start over with a new one
+            stats.error();
+            this.backend.close();
+            this.loggedIn = false;
+            this.playing = false;
+            return false;
+        } catch (BackendException e) {
+            stats.error();
+            return false;
+        }
+        stats.record((System.nanoTime() - start) / 1000);
+        return true;
+    }
+
+    /**
+     * Wait for a random think time, exponentially distributed
+     */
+    private void think() throws InterruptedException {
+        long mean = this.generator.getThinkTime();
+        if (mean > 0)
+            Thread.sleep((long) (-mean * Math.log(1 - this.random.nextDouble())));
+    }
+
+    /**
+     * Play one step of the game: start a new game or guess a word
+     */
+    private void gameStep() {
+        if (this.playing) {
+            String word = this.generator.getWords().next(this.random);
+            this.timed(Operation.SEND_WORD, () -> {
+                GuessDescriptor guess = this.backend.sendWord(word);
+                this.playing = !guess.gameWon && guess.triesLeft > 0;
+            });
+        } else {
+            this.timed(Operation.PLAY, () -> {
+                this.backend.startGame();
+                this.playing = true;
+            });
+        }
+    }
+
+    /**
+     * Perform an operation of the mix
+     */
+    private void perform(Operation operation) {
+        switch (operation) {
+            case PLAY:
+            case SEND_WORD:
+                this.gameStep();
+                break;
+            case STATS:
+                this.timed(Operation.STATS, () -> this.backend.getStats());
+                break;
+            case TOP_LEADERBOARD:
+                this.timed(Operation.TOP_LEADERBOARD, () -> this.backend.getLeaderboard());
+                break;
+            case FULL_LEADERBOARD:
+                this.timed(Operation.FULL_LEADERBOARD, () -> this.backend.getFullLeaderboard());
+                break;
+            case SHARE:
+                // The server does not allow sharing during a game
+                if (this.playing)
+                    this.gameStep();
+                else
+                    this.timed(Operation.SHARE, () -> this.backend.shareLastGame());
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public void run() {
+        this.timed(Operation.REGISTER, () -> this.backend.register(this.username, Player.PASSWORD));
+
+        try {
+            while (this.generator.isRunning()) {
+                if (!this.loggedIn) {
+                    this.loggedIn = this.timed(Operation.LOGIN,
+                            () -> this.backend.login(this.username, Player.PASSWORD));
+                } else {
+                    boolean canPlay = this.playing || System.currentTimeMillis() >= this.nextGame;
+                    Operation operation = this.generator.getMix().next(this.random, canPlay);
+                    if (operation != null)
+                        this.perform(operation);
+                }
+                this.think();
+            }
+        } catch (InterruptedException e) {
+            // Stop
+        }
+
+        if (this.loggedIn)
+            this.timed(Operation.LOGOUT, () -> this.backend.logout());
+        this.backend.close();
+    }
+
+    /**
+     * Guessed words, sampled from the words file. A fraction of them is made invalid by shuffling
+     * the letters
+     */
+    public static class Words {
+        private final String[] words;
+        private final double invalidRate;
+
+        public Words(List<String> words, double invalidRate) {
+            this.words = words.toArray(new String[0]);
+            this.invalidRate = invalidRate;
+        }
+
+        public String next(Random random) {
+            String word = this.words[random.nextInt(this.words.length)];
+            if (random.nextDouble() >= this.invalidRate)
+                return word;
+
+            char[] letters = word.toCharArray();
+            for (int k = letters.length - 1; k > 0; --k) {
+                int j = random.nextInt(k + 1);
+                char c = letters[k];
+                letters[k] = letters[j];
+                letters[j] = c;
+            }
+            return new String(letters);
+        }
+    }
+}
@@ -17,6 +17,8 @@ public class ClientMain {
     private static int rmiPort;
     private static String multicastAddress;
     private static int multicastPort;
+    private static String leaderboardHost; // The leaderboard replica. null if there is none
+    private static int leaderboardPort;
 
     public static void main(String args[]) {
         // Load the configuration
@@ -30,9 +32,11 @@ public class ClientMain {
 
         // Load frontend
         // ClientFrontend client = new ClientGUI(ClientMain.serverHost, ClientMain.serverPort,
-        //         ClientMain.rmiPort, ClientMain.multicastAddress, ClientMain.multicastPort);
+        //         ClientMain.rmiPort, ClientMain.multicastAddress, ClientMain.multicastPort,
+        //         ClientMain.leaderboardHost, ClientMain.leaderboardPort);
         ClientFrontend client = new ClientCLI(ClientMain.serverHost, ClientMain.serverPort,
-                ClientMain.rmiPort, ClientMain.multicastAddress, ClientMain.multicastPort);
+                ClientMain.rmiPort, ClientMain.multicastAddress, ClientMain.multicastPort,
+                ClientMain.leaderboardHost, ClientMain.leaderboardPort);
 
         client.run();
     }
@@ -52,6 +56,9 @@ public class ClientMain {
         ClientMain.serverHost = prop.getProperty("server_host");
         ClientMain.multicastAddress = prop.getProperty("multicast_address");
         ClientMain.multicastPort = Integer.parseInt(prop.getProperty("multicast_port"));
+        String leaderboardHost = prop.getProperty("leaderboard_host", "");
+        ClientMain.leaderboardHost = leaderboardHost.isBlank() ? null : leaderboardHost.trim();
+        ClientMain.leaderboardPort = Integer.parseInt(prop.getProperty("leaderboard_port", "0"));
         input.close();
     }
 }
@@ -14,7 +14,9 @@ import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
 import java.rmi.server.UnicastRemoteObject;
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import edu.riccardomori.wordle.client.backend.exceptions.AlreadyLoggedException;
 import edu.riccardomori.wordle.client.backend.exceptions.AlreadyPlayedException;
 import edu.riccardomori.wordle.client.backend.exceptions.GenericError;
@@ -23,11 +25,14 @@ import edu.riccardomori.wordle.client.backend.exceptions.InvalidUserException;
 import edu.riccardomori.wordle.client.backend.exceptions.InvalidWordException;
 import edu.riccardomori.wordle.client.backend.exceptions.NoGameException;
 import edu.riccardomori.wordle.client.backend.exceptions.ServerError;
+import edu.riccardomori.wordle.client.backend.exceptions.ThrottledException;
 import edu.riccardomori.wordle.client.backend.exceptions.UnknownHostException;
 import edu.riccardomori.wordle.client.backend.exceptions.UserTakenException;
 import edu.riccardomori.wordle.protocol.Action;
 import edu.riccardomori.wordle.protocol.Constants;
+import edu.riccardomori.wordle.protocol.LeaderboardWindow;
 import edu.riccardomori.wordle.protocol.MessageStatus;
+import edu.riccardomori.wordle.rmi.LeaderboardDelta;
 import edu.riccardomori.wordle.rmi.RMIConstants;
 import edu.riccardomori.wordle.rmi.RMIStatus;
 import edu.riccardomori.wordle.rmi.clientRMI;
@@ -40,12 +45,21 @@ import edu.riccardomori.wordle.utils.Pair;
  */
 public class ClientBackend {
     private final int socketTimeout = 10000; // Timeout for reading on the socket
+    private final int maxRedirects = 3; // Redirects followed by a login in cluster mode
     private String serverHost; // The server host
     private int serverPort; // The port of the server socket
     private int rmiPort; // The port of the RMI server
 
     private Socket socket; // The socket for communicating with the server
+    private String replicaHost = null; // The leaderboard replica. null to ask the server
+    private int replicaPort;
+    private Socket replicaSocket; // The socket for communicating with the leaderboard replica
+    // Logs the user in the leaderboard replica. null if the server gave none
+    private ByteBuffer replicaTicket;
     private clientRMI clientStub; // The stub of the client in case of a subscription
+    // Local copies of the top leaderboards kept up to date by the notifications
+    private Map<LeaderboardWindow, LeaderboardMirror> topLeaderboards =
+            new EnumMap<>(LeaderboardWindow.class);
 
     /**
      * Simple utility class that holds a message status code and the optional message
@@ -73,9 +87,8 @@ public class ClientBackend {
      * @param client The {@code clientRMI} object that is sent to server
      */
     public ClientBackend(String host, int serverPort, int rmiPort, clientRMI client) {
-        this.serverHost = host;
+        this(host, serverPort, rmiPort);
         this.serverPort = serverPort;
-        this.rmiPort = rmiPort;
         try {
             this.clientStub = (clientRMI) UnicastRemoteObject.exportObject(client, 0);
         } catch (RemoteException e) {
@@ -83,6 +96,73 @@ public class ClientBackend {
         }
     }
 
+    /**
+     * Backend without the notifications about the leaderboard. It cannot subscribe
+     * 
+     * @param host Server hostname
+     * @param serverPort Server port
+     * @param rmiPort RMI server port
+     */
+    public ClientBackend(String host, int serverPort, int rmiPort) {
+        this.serverHost = host;
+        this.serverPort = serverPort;
+        this.rmiPort = rmiPort;
+        for (LeaderboardWindow window : LeaderboardWindow.values())
+            this.topLeaderboards.put(window, new LeaderboardMirror());
+    }
+
+    /**
+     * Close the connection with the server. The next request opens a new one
+     */
+    public void close() {
+        if (this.socket == null)
+            return;
+        try {
+            this.socket.close();
+        } catch (IOException e) {
+            // Nothing to do, the socket is discarded anyway
+        }
+        this.socket = null;
+        this.closeReplica();
+    }
+
+    /**
+     * Steer the all-time leaderboard requests to a read replica of the leaderboard. When the
+     * replica is not available they are sent to the server
+     * 
+     * @param host Replica hostname
+     * @param port Replica port
+     */
+    public void setLeaderboardReplica(String host, int port) {
+        this.closeReplica();
+        this.replicaHost = host;
+        this.replicaPort = port;
+    }
+
+    private void closeReplica() {
+        if (this.replicaSocket == null)
+            return;
+        try {
+            this.replicaSocket.close();
+        } catch (IOException e) {
+            // Nothing to do, the socket is discarded anyway
+        }
+        this.replicaSocket = null;
+    }
+
+    /**
+     * Returns the exception for a status code that the request does not expect
+     * 
+     * @param status The status code
+     * @return {@code ThrottledException} if the server throttled the request, otherwise
+     *         {@code GenericError}
+     */
+    private static GenericError statusError(MessageStatus status) {
+        if (status == MessageStatus.THROTTLED)
+            return new ThrottledException();
+        return new GenericError();
+    }
+
     /**
      * Read from the socket a message and returns just the status code
      * 
@@ -104,8 +184,15 @@ public class ClientBackend {
      * @throws IOException
      */
     private Message socketGetMessage() throws IOException {
+        return ClientBackend.socketGetMessage(this.socket);
+    }
+
+    /**
+     * Same as {@code socketGetMessage()} but on {@code socket}
+     */
+    private static Message socketGetMessage(Socket socket) throws IOException {
         DataInputStream input =
-                new DataInputStream(new BufferedInputStream(this.socket.getInputStream()));
+                new DataInputStream(new BufferedInputStream(socket.getInputStream()));
         int fullSize = input.readInt();
 
         // Read the status code (1 byte)
@@ -131,44 +218,115 @@ public class ClientBackend {
             this.socket = new Socket(this.serverHost, this.serverPort);
             this.socket.setSoTimeout(this.socketTimeout);
         }
+        ClientBackend.socketWrite(this.socket, data);
+    }
 
+    /**
+     * Same as {@code socketWrite(data)} but on an open {@code socket}
+     */
+    private static void socketWrite(Socket socket, ByteBuffer data) throws IOException {
         // Write data as [SIZE] [MESSAGE]
-        OutputStream out = new BufferedOutputStream(this.socket.getOutputStream());
+        OutputStream out = new BufferedOutputStream(socket.getOutputStream());
         out.write(ByteBuffer.allocate(Integer.BYTES).putInt(data.limit()).array());
         out.write(data.array(), 0, data.limit());
         out.flush();
     }
 
     /**
-     * Subscribe to the server sending the {@code clientRMI} object for the callback
+     * Subscribe to the server sending the {@code clientRMI} object for the callback. Only the
+     * all-time leaderboard is notified
      * 
      * @throws GenericError
      */
     public void subscribe() throws GenericError {
+        this.subscribe(LeaderboardWindow.ALL_TIME);
+    }
+
+    /**
+     * Subscribe to the notifications of the leaderboard of {@code window}
+     * 
+     * @param window The leaderboard window
+     * @throws GenericError
+     */
+    public void subscribe(LeaderboardWindow window) throws GenericError {
         try {
             Registry registry = LocateRegistry.getRegistry(this.serverHost, this.rmiPort);
             serverRMI service = (serverRMI) registry.lookup(RMIConstants.SERVER_NAME);
-            service.subscribe(this.clientStub);
+            service.subscribe(this.clientStub, window);
         } catch (NotBoundException | RemoteException e) {
             throw new GenericError();
         }
     }
 
     /**
-     * Unsubscribe from the callback system
+     * Unsubscribe from the callback system of the all-time leaderboard
      * 
      * @throws GenericError
      */
     public void unsubscribe() throws GenericError {
+        this.unsubscribe(LeaderboardWindow.ALL_TIME);
+    }
+
+    /**
+     * Unsubscribe from the notifications of the leaderboard of {@code window}
+     * 
+     * @param window The leaderboard window
+     * @throws GenericError
+     */
+    public void unsubscribe(LeaderboardWindow window) throws GenericError {
         try {
             Registry registry = LocateRegistry.getRegistry(this.serverHost, this.rmiPort);
             serverRMI service = (serverRMI) registry.lookup(RMIConstants.SERVER_NAME);
-            service.cancelSubscription(this.clientStub);
+            service.cancelSubscription(this.clientStub, window);
         } catch (NotBoundException | RemoteException e) {
             throw new GenericError();
+        } finally {
+            this.topLeaderboards.get(window).reset();
         }
     }
 
+    /**
+     * Apply a leaderboard notification on the local copy of the top leaderboard of its window. If
+     * a version has been missed then a full snapshot is requested to the server
+     * 
+     * @param delta The delta notified by the server
+     */
+    public void updateLeaderboard(LeaderboardDelta delta) {
+        LeaderboardMirror mirror = this.topLeaderboards.get(delta.window);
+        if (mirror == null || mirror.apply(delta))
+            return;
+
+        // Missed a version, resync
+        try {
+            Registry registry = LocateRegistry.getRegistry(this.serverHost, this.rmiPort);
+            serverRMI service = (serverRMI) registry.lookup(RMIConstants.SERVER_NAME);
+            mirror.apply(service.getLeaderboardSnapshot(delta.window));
+        } catch (NotBoundException | RemoteException e) {
+            mirror.reset();
+        }
+    }
+
+    /**
+     * Returns the local copy of the top all-time leaderboard, as notified by the server
+     * 
+     * @return The list of pairs (username, score) in the order they appear in the leaderboard, or
+     *         {@code null} if no notification has been received yet
+     */
+    public List<Pair<String, Double>> getCachedLeaderboard() {
+        return this.getCachedLeaderboard(LeaderboardWindow.ALL_TIME);
+    }
+
+    /**
+     * Returns the local copy of the top leaderboard of {@code window}, as notified by the server
+     * 
+     * @param window The leaderboard window
+     * @return The list of pairs (username, score) in the order they appear in the leaderboard, or
+     *         {@code null} if no notification has been received yet
+     */
+    public List<Pair<String, Double>> getCachedLeaderboard(LeaderboardWindow window) {
+        return this.topLeaderboards.get(window).get();
+    }
+
     /**
      * Register the pair (username, password) to the server.
      * 
@@ -220,19 +378,29 @@ public class ClientBackend {
         data.flip();
 
         try {
-            this.socketWrite(data);
-
-            // Wait for the response
-            MessageStatus status = this.socketGetStatus();
-
-            if (status == MessageStatus.SUCCESS)
-                return;
-            else if (status == MessageStatus.INVALID_USER)
-                throw new InvalidUserException();
-            else if (status == MessageStatus.ALREADY_LOGGED)
-                throw new AlreadyLoggedException();
-            else
-                throw new GenericError();
+            for (int redirects = 0;; ++redirects) {
+                this.socketWrite(data);
+
+                // Wait for the response
+                Message message = this.socketGetMessage();
+                MessageStatus status = message.status;
+
+                if (status == MessageStatus.SUCCESS) {
+                    // The ticket of the leaderboard replica, if the server has replicas
+                    this.closeReplica();
+                    this.replicaTicket = message.message.hasRemaining() ? message.message : null;
+                    return;
+                } else if (status == MessageStatus.INVALID_USER)
+                    throw new InvalidUserException();
+                else if (status == MessageStatus.ALREADY_LOGGED)
+                    throw new AlreadyLoggedException();
+                else if (status != MessageStatus.REDIRECT || redirects == this.maxRedirects)
+                    throw ClientBackend.statusError(status);
+
+                // The user lives on another node of the cluster. Move there and try again
+                this.redirect(message.message);
+                data.rewind();
+            }
         } catch (java.net.UnknownHostException e) {
             throw new UnknownHostException();
         } catch (IOException e) {
@@ -240,6 +408,21 @@ public class ClientBackend {
         }
     }
 
+    /**
+     * Move the connection to the node of the cluster in a REDIRECT response. The next request,
+     * the registrations and the subscriptions go to that node
+     * 
+     * @param msg The payload of the response
+     */
+    private void redirect(ByteBuffer msg) {
+        byte[] host = new byte[msg.getInt()];
+        msg.get(host);
+        this.close();
+        this.serverHost = new String(host, StandardCharsets.UTF_8);
+        this.serverPort = msg.getInt();
+        this.rmiPort = msg.getInt();
+    }
+
     /**
      * Sends the PLAY message to server to start a new game. It returns a game descriptor
      * 
@@ -266,14 +449,29 @@ public class ClientBackend {
                 // Parse the message
                 int wordSize = message.message.get();
                 int nTries = message.message.get();
+                if (!message.message.hasRemaining())
+                    return new GameDescriptor(wordSize, nTries);
+
+                // The game has been resumed, parse the hints of the tries already spent
+                int hintsN = message.message.get();
+                int[][] correct = new int[hintsN][];
+                int[][] partial = new int[hintsN][];
+                for (int k = 0; k < hintsN; ++k) {
+                    correct[k] = new int[message.message.get()];
+                    partial[k] = new int[message.message.get()];
+                    for (int j = 0; j < correct[k].length; ++j)
+                        correct[k][j] = message.message.get();
+                    for (int j = 0; j < partial[k].length; ++j)
+                        partial[k][j] = message.message.get();
+                }
 
-                return new GameDescriptor(wordSize, nTries);
+                return new GameDescriptor(wordSize, nTries, correct, partial);
             } else if (message.status == MessageStatus.ALREADY_PLAYED) {
                 // fetch the next date
                 long nextGameTime = message.message.getLong();
                 throw new AlreadyPlayedException(nextGameTime);
             } else {
-                throw new GenericError();
+                throw ClientBackend.statusError(message.status);
             }
         } catch (IOException e) {
             throw new IOError();
@@ -299,10 +497,13 @@ public class ClientBackend {
             MessageStatus status = this.socketGetStatus();
 
             // Success
-            if (status == MessageStatus.SUCCESS)
+            if (status == MessageStatus.SUCCESS) {
+                // The replica session ends with the one on the server
+                this.replicaTicket = null;
+                this.closeReplica();
                 return;
-            else
-                throw new GenericError();
+            } else
+                throw ClientBackend.statusError(status);
         } catch (IOException e) {
             throw new IOError();
         }
@@ -365,7 +566,7 @@ public class ClientBackend {
             } else if (message.status == MessageStatus.INVALID_WORD) {
                 throw new InvalidWordException();
             } else
-                throw new GenericError();
+                throw ClientBackend.statusError(message.status);
         } catch (IOException e) {
             throw new IOError();
         }
@@ -404,12 +605,107 @@ public class ClientBackend {
 
                 return new UserStats(totGames, wonGames, currStrak, bestStreak, score, guessDist);
             } else
-                throw new GenericError();
+                throw ClientBackend.statusError(msg.status);
         } catch (IOException e) {
             throw new IOError();
         }
     }
 
+    /**
+     * Send a leaderboard request and parse the response
+     * 
+     * @param data The request
+     * @return The list of pairs (username, score) in the order they appear in the leaderboard
+     * @throws GenericError
+     * @throws IOError
+     */
+    private List<Pair<String, Double>> requestLeaderboard(ByteBuffer data)
+            throws GenericError, IOError {
+        try {
+            this.socketWrite(data);
+
+            // Wait for the response
+            Message msg = this.socketGetMessage();
+
+            if (msg.status == MessageStatus.SUCCESS)
+                return ClientBackend.parseLeaderboard(msg.message);
+            else
+                throw ClientBackend.statusError(msg.status);
+        } catch (IOException e) {
+            throw new IOError();
+        }
+    }
+
+    /**
+     * Send an all-time leaderboard request to the leaderboard replica, if any, and parse the
+     * response. The replica is logged in with the ticket given by the server at the login. If the
+     * replica fails the request is sent to the server
+     * 
+     * @param data The request
+     * @return The list of pairs (username, score) in the order they appear in the leaderboard
+     * @throws GenericError
+     * @throws IOError
+     */
+    private List<Pair<String, Double>> requestReplicatedLeaderboard(ByteBuffer data)
+            throws GenericError, IOError {
+        if (this.replicaHost != null && this.replicaTicket != null) {
+            try {
+                if (this.replicaSocket == null) {
+                    this.replicaSocket = new Socket(this.replicaHost, this.replicaPort);
+                    this.replicaSocket.setSoTimeout(this.socketTimeout);
+                    this.replicaLogin();
+                }
+                ClientBackend.socketWrite(this.replicaSocket, data);
+                Message msg = ClientBackend.socketGetMessage(this.replicaSocket);
+                if (msg.status == MessageStatus.SUCCESS)
+                    return ClientBackend.parseLeaderboard(msg.message);
+            } catch (IOException e) {
+                // Reconnect at the next request
+                this.closeReplica();
+            }
+        }
+        return this.requestLeaderboard(data);
+    }
+
+    /**
+     * Log in the leaderboard replica that has just been connected
+     * 
+     * @throws IOException If the replica cannot be reached or rejects the ticket
+     */
+    private void replicaLogin() throws IOException {
+        ByteBuffer data = ByteBuffer.allocate(1 + this.replicaTicket.remaining());
+        data.put(Action.REPLICA_LOGIN.getValue());
+        data.put(this.replicaTicket.duplicate());
+        data.flip();
+        ClientBackend.socketWrite(this.replicaSocket, data);
+
+        MessageStatus status = ClientBackend.socketGetMessage(this.replicaSocket).status;
+        if (status == MessageStatus.INVALID_USER) // Expired: use the server until the next login
+            this.replicaTicket = null;
+        if (status != MessageStatus.SUCCESS)
+            throw new IOException(String.format("Replica login rejected: %s", status));
+    }
+
+    /**
+     * Parse the payload of a leaderboard response
+     * 
+     * @param msg The payload
+     * @return The list of pairs (username, score) in the order they appear in the leaderboard
+     */
+    private static List<Pair<String, Double>> parseLeaderboard(ByteBuffer msg) {
+        List<Pair<String, Double>> leaderboard = new ArrayList<>();
+        int size = msg.getInt();
+        for (int k = 0; k < size; ++k) {
+            int usernameLen = msg.getInt();
+            byte[] encUsername = new byte[usernameLen];
+            msg.get(encUsername);
+            String username = new String(encUsername, StandardCharsets.UTF_8);
+            double score = msg.getDouble();
+            leaderboard.add(new Pair<String, Double>(username, score));
+        }
+        return leaderboard;
+    }
+
     /**
      * Get the top leaderboard
      * 
@@ -423,44 +719,110 @@ public class ClientBackend {
         data.put(Action.TOP_LEADERBOARD.getValue());
         data.flip();
 
+        return this.requestReplicatedLeaderboard(data);
+    }
+
+    /**
+     * Get the full leaderboard
+     * 
+     * @return The list of pairs (username, score) in the order they appear in the leaderboard
+     * @throws GenericError
+     * @throws IOError
+     */
+    public List<Pair<String, Double>> getFullLeaderboard() throws GenericError, IOError {
+        // Prepare the FULL_LEADERBOARD message
+        ByteBuffer data = ByteBuffer.allocate(1);
+        data.put(Action.FULL_LEADERBOARD.getValue());
+        data.flip();
+
+        return this.requestReplicatedLeaderboard(data);
+    }
+
+    /**
+     * Get the top leaderboard of {@code window}
+     * 
+     * @param window The leaderboard window
+     * @return The list of pairs (username, score) in the order they appear in the leaderboard
+     * @throws GenericError
+     * @throws IOError
+     */
+    public List<Pair<String, Double>> getLeaderboard(LeaderboardWindow window)
+            throws GenericError, IOError {
+        // Prepare the WINDOW_TOP_LEADERBOARD message
+        ByteBuffer data = ByteBuffer.allocate(2);
+        data.put(Action.WINDOW_TOP_LEADERBOARD.getValue());
+        data.put(window.getValue());
+        data.flip();
+
+        return this.requestLeaderboard(data);
+    }
+
+    /**
+     * Get the full leaderboard of {@code window}
+     * 
+     * @param window The leaderboard window
+     * @return The list of pairs (username, score) in the order they appear in the leaderboard
+     * @throws GenericError
+     * @throws IOError
+     */
+    public List<Pair<String, Double>> getFullLeaderboard(LeaderboardWindow window)
+            throws GenericError, IOError {
+        // Prepare the WINDOW_FULL_LEADERBOARD message
+        ByteBuffer data = ByteBuffer.allocate(2);
+        data.put(Action.WINDOW_FULL_LEADERBOARD.getValue());
+        data.put(window.getValue());
+        data.flip();
+
+        return this.requestLeaderboard(data);
+    }
+
+    /**
+     * Get the statistics of the current secret word
+     * 
+     * @return The statistics
+     * @throws GenericError
+     * @throws IOError
+     * @throws NoGameException If there are no statistics available
+     */
+    public GameStats getGameStats() throws GenericError, IOError, NoGameException {
+        // Prepare the GAME_STATS message
+        ByteBuffer data = ByteBuffer.allocate(1);
+        data.put(Action.GAME_STATS.getValue());
+        data.flip();
+
         try {
             this.socketWrite(data);
 
             // Wait for the response
             Message msg = this.socketGetMessage();
 
-            if (msg.status == MessageStatus.SUCCESS) {
-                // Parse message
-                List<Pair<String, Double>> leaderboard = new ArrayList<>();
-                int size = msg.message.getInt();
-                for (int k = 0; k < size; ++k) {
-                    int usernameLen = msg.message.getInt();
-                    byte[] encUsername = new byte[usernameLen];
-                    msg.message.get(encUsername);
-                    String username = new String(encUsername, StandardCharsets.UTF_8);
-                    double score = msg.message.getDouble();
-                    leaderboard.add(new Pair<String, Double>(username, score));
-                }
-
-                return leaderboard;
-            } else
-                throw new GenericError();
+            if (msg.status == MessageStatus.SUCCESS)
+                return GameStats.parse(msg.message);
+            else if (msg.status == MessageStatus.NO_GAME)
+                throw new NoGameException();
+            else
+                throw ClientBackend.statusError(msg.status);
         } catch (IOException e) {
             throw new IOError();
         }
     }
 
     /**
-     * Get the full leaderboard
+     * Get a page of the games completed by the user, from the most recent one. The server might
+     * return fewer games than requested if they do not fit in a message
      * 
-     * @return The list of pairs (username, score) in the order they appear in the leaderboard
+     * @param skip The number of most recent games to skip
+     * @param count The maximum number of games, at most 255
+     * @return The page
      * @throws GenericError
      * @throws IOError
      */
-    public List<Pair<String, Double>> getFullLeaderboard() throws GenericError, IOError {
-        // Prepare the FULL_LEADERBOARD message
-        ByteBuffer data = ByteBuffer.allocate(1);
-        data.put(Action.FULL_LEADERBOARD.getValue());
+    public GameHistory getHistory(int skip, int count) throws GenericError, IOError {
+        // Prepare the HISTORY message
+        ByteBuffer data = ByteBuffer.allocate(1 + Integer.BYTES + 1);
+        data.put(Action.HISTORY.getValue());
+        data.putInt(skip);
+        data.put((byte) count);
         data.flip();
 
         try {
@@ -471,38 +833,31 @@ public class ClientBackend {
 
             if (msg.status == MessageStatus.SUCCESS) {
                 // Parse message
-                List<Pair<String, Double>> leaderboard = new ArrayList<>();
-                int size = msg.message.getInt();
+                int total = msg.message.getInt();
+                int size = msg.message.get() & 0xff;
+                List<GameShared> games = new ArrayList<>(size);
                 for (int k = 0; k < size; ++k) {
-                    int usernameLen = msg.message.getInt();
-                    byte[] encUsername = new byte[usernameLen];
-                    msg.message.get(encUsername);
-                    String username = new String(encUsername, StandardCharsets.UTF_8);
-                    double score = msg.message.getDouble();
-                    leaderboard.add(new Pair<String, Double>(username, score));
+                    long gameId = msg.message.getLong();
+                    games.add(GameShared.parse(msg.message, gameId));
                 }
 
-                return leaderboard;
+                return new GameHistory(total, games);
             } else
-                throw new GenericError();
+                throw ClientBackend.statusError(msg.status);
         } catch (IOException e) {
             throw new IOError();
         }
     }
 
     /**
-     * Share the last game completed
+     * Send a share request
      * 
+     * @param data The request
      * @throws GenericError
      * @throws IOError
      * @throws NoGameException
      */
-    public void shareLastGame() throws GenericError, IOError, NoGameException {
-        // Prepare the SHARE message
-        ByteBuffer data = ByteBuffer.allocate(1);
-        data.put(Action.SHARE.getValue());
-        data.flip();
-
+    private void share(ByteBuffer data) throws GenericError, IOError, NoGameException {
         try {
             this.socketWrite(data);
 
@@ -514,9 +869,43 @@ public class ClientBackend {
             else if (status == MessageStatus.NO_GAME)
                 throw new NoGameException();
             else
-                throw new GenericError();
+                throw ClientBackend.statusError(status);
         } catch (IOException e) {
             throw new IOError();
         }
     }
+
+    /**
+     * Share the last game completed
+     * 
+     * @throws GenericError
+     * @throws IOError
+     * @throws NoGameException
+     */
+    public void shareLastGame() throws GenericError, IOError, NoGameException {
+        // Prepare the SHARE message
+        ByteBuffer data = ByteBuffer.allocate(1);
+        data.put(Action.SHARE.getValue());
+        data.flip();
+
+        this.share(data);
+    }
+
+    /**
+     * Share a game completed in the past
+     * 
+     * @param gameId The game ID
+     * @throws GenericError
+     * @throws IOError
+     * @throws NoGameException If the user did not complete the game
+     */
+    public void shareGame(long gameId) throws GenericError, IOError, NoGameException {
+        // Prepare the SHARE message
+        ByteBuffer data = ByteBuffer.allocate(1 + Long.BYTES);
+        data.put(Action.SHARE.getValue());
+        data.putLong(gameId);
+        data.flip();
+
+        this.share(data);
+    }
 }
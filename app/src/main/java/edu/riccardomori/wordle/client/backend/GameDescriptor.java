@@ -1,14 +1,25 @@
 package edu.riccardomori.wordle.client.backend;
 
 /**
- * Descriptor of a new game
+ * Descriptor of a new game, or of a game in progress that has been resumed
  */
 public class GameDescriptor {
     public int wordSize;
     public int tries;
 
+    // The hints of the tries already spent. Empty for a new game.
+    // correct[k] -> the correct hints after the k-th try.
+    public int[][] correct;
+    public int[][] partial;
+
     public GameDescriptor(int wordSize, int tries) {
+        this(wordSize, tries, new int[0][], new int[0][]);
+    }
+
+    public GameDescriptor(int wordSize, int tries, int[][] correct, int[][] partial) {
         this.wordSize = wordSize;
         this.tries = tries;
+        this.correct = correct;
+        this.partial = partial;
     }
 }
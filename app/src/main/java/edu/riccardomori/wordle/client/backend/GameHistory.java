@@ -0,0 +1,16 @@
+package edu.riccardomori.wordle.client.backend;
+
+import java.util.List;
+
+/**
+ * A page of the games completed by the user
+ */
+public class GameHistory {
+    public int total; // Number of games completed by the user
+    public List<GameShared> games; // The games of the page, from the most recent one
+
+    public GameHistory(int total, List<GameShared> games) {
+        this.total = total;
+        this.games = games;
+    }
+}
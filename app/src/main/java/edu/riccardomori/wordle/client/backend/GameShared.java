@@ -1,9 +1,13 @@
 package edu.riccardomori.wordle.client.backend;
 
+import java.nio.ByteBuffer;
+
 /**
  * Represents a game shared by other users
  */
 public class GameShared {
+    public String username; // The user that shared the game
+    public long gameId; // The ID of the game
     public int tries; // Number of tries needed. -1 if game was lost
     public int maxTries; // Number of tries allowed
     public int wordLen; // Length of the secret word
@@ -13,11 +17,46 @@ public class GameShared {
     public int[][] correct;
     public int[][] partial;
 
-    public GameShared(int tries, int maxTries, int wordLen, int[][] correct, int[][] partial) {
+    public GameStats stats; // Statistics of the secret word when shared. null if not available
+
+    public GameShared(String username, long gameId, int tries, int maxTries, int wordLen,
+            int[][] correct, int[][] partial, GameStats stats) {
+        this.username = username;
+        this.gameId = gameId;
         this.tries = tries;
         this.maxTries = maxTries;
         this.wordLen = wordLen;
         this.correct = correct;
         this.partial = partial;
+        this.stats = stats;
+    }
+
+    /**
+     * Parse a game sent by the server, starting right after the gameId. The username and the
+     * statistics are not part of the game
+     * 
+     * @param msg The message positioned after the gameId
+     * @param gameId The game ID
+     * @return The game parsed
+     */
+    static GameShared parse(ByteBuffer msg, long gameId) {
+        int tries = msg.get();
+        int maxTries = msg.get();
+        int wordLen = msg.get();
+        int hintsN = msg.get();
+        int[][] correct = new int[hintsN][];
+        int[][] partial = new int[hintsN][];
+        for (int k = 0; k < hintsN; ++k) {
+            int correctSize = msg.get();
+            int partialSize = msg.get();
+            correct[k] = new int[correctSize];
+            partial[k] = new int[partialSize];
+            for (int j = 0; j < correctSize; ++j)
+                correct[k][j] = msg.get();
+            for (int j = 0; j < partialSize; ++j)
+                partial[k][j] = msg.get();
+        }
+
+        return new GameShared(null, gameId, tries, maxTries, wordLen, correct, partial, null);
     }
 }
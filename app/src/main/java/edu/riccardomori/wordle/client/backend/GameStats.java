@@ -0,0 +1,61 @@
+package edu.riccardomori.wordle.client.backend;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Describes the statistics of all the games played with a secret word
+ */
+public class GameStats {
+    public long gameId;
+    public int players; // Players that started the game
+    public int wonGames;
+    public int lostGames;
+    public int[] guessDist; // guessDist[k] = games won in k + 1 tries
+
+    public GameStats(long gameId, int players, int wonGames, int lostGames, int[] guessDist) {
+        this.gameId = gameId;
+        this.players = players;
+        this.wonGames = wonGames;
+        this.lostGames = lostGames;
+        this.guessDist = guessDist;
+    }
+
+    /**
+     * Parse the statistics sent by the server
+     * 
+     * @param msg The message positioned at the beginning of the statistics
+     * @return The statistics
+     */
+    static GameStats parse(ByteBuffer msg) {
+        long gameId = msg.getLong();
+        int players = msg.getInt();
+        int wonGames = msg.getInt();
+        int lostGames = msg.getInt();
+        int size = msg.get();
+        int[] guessDist = new int[size];
+        for (int k = 0; k < size; ++k)
+            guessDist[k] = msg.getInt();
+        return new GameStats(gameId, players, wonGames, lostGames, guessDist);
+    }
+
+    /**
+     * Returns the percentage of the completed games that have been won
+     * 
+     * @return The win rate in [0, 100], NaN if no game has been completed
+     */
+    public double winRate() {
+        return 100.0 * this.wonGames / (this.wonGames + this.lostGames);
+    }
+
+    /**
+     * Returns the average tries of the won games
+     * 
+     * @return The average tries, NaN if no game has been won
+     */
+    public double averageTries() {
+        long sum = 0;
+        for (int k = 0; k < this.guessDist.length; ++k)
+            sum += (long) (k + 1) * this.guessDist[k];
+        return (double) sum / this.wonGames;
+    }
+}
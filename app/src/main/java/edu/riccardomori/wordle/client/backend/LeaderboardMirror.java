@@ -0,0 +1,77 @@
+package edu.riccardomori.wordle.client.backend;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import edu.riccardomori.wordle.rmi.LeaderboardDelta;
+import edu.riccardomori.wordle.utils.Pair;
+
+/**
+ * Local copy of the top positions of the leaderboard, kept up to date by applying the deltas
+ * notified by the server. It is thread-safe.
+ */
+public class LeaderboardMirror {
+    private long epoch; // The epoch of the server the versions come from
+    private long version = -1; // -1 means that the mirror has never been synchronized
+    private int size;
+    private String[] usernames = new String[0];
+    private double[] scores = new double[0];
+
+    /**
+     * Apply {@code delta} on the local copy. A snapshot is always applied unless it is older than
+     * the local copy. A delta from another epoch of the server, that restarted or failed over,
+     * always requires a full resync.
+     *
+     * @param delta The delta or snapshot to apply
+     * @return True if the local copy is up to date, false if a version has been missed and a full
+     *         resync is needed
+     */
+    public synchronized boolean apply(LeaderboardDelta delta) {
+        boolean sameEpoch = this.version >= 0 && delta.epoch == this.epoch;
+        if (delta.isSnapshot()) {
+            if (sameEpoch && delta.version < this.version)
+                return true; // Stale snapshot, the local copy is already newer
+        } else if (!sameEpoch || delta.baseVersion != this.version) {
+            // Missed a version unless this one is stale
+            return sameEpoch && delta.version <= this.version;
+        }
+
+        if (this.usernames.length < delta.size) {
+            this.usernames = Arrays.copyOf(this.usernames, delta.size);
+            this.scores = Arrays.copyOf(this.scores, delta.size);
+        }
+        for (int k = 0; k < delta.ranks.length; ++k) {
+            this.usernames[delta.ranks[k]] = delta.usernames[k];
+            this.scores[delta.ranks[k]] = delta.scores[k];
+        }
+        this.size = delta.size;
+        this.epoch = delta.epoch;
+        this.version = delta.version;
+
+        return true;
+    }
+
+    /**
+     * Forget the local copy. The next delta will require a full resync
+     */
+    public synchronized void reset() {
+        this.version = -1;
+        this.size = 0;
+    }
+
+    /**
+     * Returns the local copy of the top leaderboard
+     *
+     * @return List of pairs {@code <Username, Score>} in the order they appear in the leaderboard,
+     *         {@code null} if the mirror has never been synchronized
+     */
+    public synchronized List<Pair<String, Double>> get() {
+        if (this.version < 0)
+            return null;
+
+        List<Pair<String, Double>> ret = new ArrayList<>(this.size);
+        for (int k = 0; k < this.size; ++k)
+            ret.add(new Pair<String, Double>(this.usernames[k], this.scores[k]));
+        return ret;
+    }
+}
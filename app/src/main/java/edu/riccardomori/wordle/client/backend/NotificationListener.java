@@ -6,10 +6,8 @@ import java.net.InetSocketAddress;
 import java.net.MulticastSocket;
 import java.net.NetworkInterface;
 import java.net.SocketException;
+import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
-import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.NoSuchElementException;
 import edu.riccardomori.wordle.client.backend.exceptions.IOError;
 import edu.riccardomori.wordle.client.backend.exceptions.IfaceExcpetion;
@@ -24,9 +22,8 @@ public class NotificationListener {
     private NetworkInterface iface; // multicast interface
     private MulticastSocket socket; // multicast socket
 
-    // Map containing all the games shared by other players
-    // It has the following format: { username : { gameID : GAME, ... }, ... }
-    private volatile Map<String, Map<Long, GameShared>> gamesShared;
+    // Bounded storage of all the games shared by other players
+    private volatile SharedGamesStore gamesShared;
     private Thread daemonListener; // background thread listening for new messages
 
     public NotificationListener(String address, int port) {
@@ -73,15 +70,19 @@ public class NotificationListener {
         this.initSocket();
 
         // Clean all the previous notifications
-        this.gamesShared = new HashMap<String, Map<Long, GameShared>>();
+        SharedGamesStore store = new SharedGamesStore();
+        this.gamesShared = store;
 
         // Start a background thread that handles the multicast socket packets
         this.daemonListener = new Thread(() -> {
+            // The packet and the buffer are reused for every message
             byte[] buffer = new byte[Constants.UDP_MSG_MAX_SIZE];
+            DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+            ByteBuffer msg = ByteBuffer.wrap(buffer);
 
             // Listen passively until an interrupt happens
             while (!Thread.currentThread().isInterrupted()) {
-                DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                packet.setLength(buffer.length);
 
                 try {
                     this.socket.receive(packet);
@@ -89,46 +90,26 @@ public class NotificationListener {
                     break; // Might have been interrupted. Stop listening
                 }
 
-                // Parse the gameId and username
-                ByteBuffer msg =
-                        ByteBuffer.wrap(packet.getData(), packet.getOffset(), packet.getLength());
-                int usernameSize = msg.getInt();
-                byte[] usernameRaw = new byte[usernameSize];
-                msg.get(usernameRaw);
-                String username = new String(usernameRaw, StandardCharsets.UTF_8);
-                long gameId = msg.getLong();
-
-                // If this message has already been received then ignore it
-                synchronized (this.gamesShared) {
-                    if (this.gamesShared.containsKey(username)
-                            && this.gamesShared.get(username).containsKey(gameId))
-                        continue;
-                }
+                try {
+                    msg.clear();
+                    msg.limit(packet.getLength());
 
-                // Parse the rest of the message
-                int tries = msg.get();
-                int maxTries = msg.get();
-                int wordLen = msg.get();
-                int hintsN = msg.get();
-                int[][] correct = new int[hintsN][];
-                int[][] partial = new int[hintsN][];
-                for (int k = 0; k < hintsN; ++k) {
-                    int correctSize = msg.get();
-                    int partialSize = msg.get();
-                    correct[k] = new int[correctSize];
-                    partial[k] = new int[partialSize];
-                    for (int j = 0; j < correctSize; ++j)
-                        correct[k][j] = msg.get();
-                    for (int j = 0; j < partialSize; ++j)
-                        partial[k][j] = msg.get();
-                }
+                    // Locate the username and the gameId without decoding them
+                    int usernameSize = msg.getInt();
+                    int usernameOffset = msg.position();
+                    msg.position(usernameOffset + usernameSize);
+                    long gameId = msg.getLong();
 
-                // Store it for later
-                GameShared game = new GameShared(tries, maxTries, wordLen, correct, partial);
-                synchronized (this.gamesShared) {
-                    this.gamesShared.computeIfAbsent(username,
-                            key -> new HashMap<Long, GameShared>());
-                    this.gamesShared.get(username).computeIfAbsent(gameId, key -> game);
+                    // If this message has already been received then ignore it
+                    if (store.contains(buffer, usernameOffset, usernameSize, gameId))
+                        continue;
+
+                    // Store it and publish it to the subscribers
+                    store.add(buffer, usernameOffset, usernameSize,
+                            NotificationListener.parseGame(msg, gameId));
+                } catch (BufferUnderflowException | IllegalArgumentException
+                        | NegativeArraySizeException e) {
+                    continue; // Malformed packet
                 }
             }
         });
@@ -136,6 +117,24 @@ public class NotificationListener {
         this.daemonListener.start();
     }
 
+    /**
+     * Parse the game from a notification message, starting right after the gameId. The username
+     * is filled in by the {@code SharedGamesStore}
+     * 
+     * @param msg The message positioned after the gameId
+     * @param gameId The game ID
+     * @return The game parsed
+     */
+    private static GameShared parseGame(ByteBuffer msg, long gameId) {
+        GameShared game = GameShared.parse(msg, gameId);
+
+        // The statistics of the secret word are optional
+        if (msg.hasRemaining() && msg.get() == 1)
+            game.stats = GameStats.parse(msg);
+
+        return game;
+    }
+
     /**
      * Stop listening
      */
@@ -145,23 +144,18 @@ public class NotificationListener {
         this.daemonListener.interrupt();
     }
 
-    // @formatter:off
     /**
-     * Returns all the previously stored games and clean them from the internal storage
+     * Subscribe to the games shared by other users. The subscription starts with all the games
+     * stored so far, then it receives the new ones as they arrive. The subscription is valid until
+     * the listener is restarted
      * 
-     * @return All the games shared by other users in the following format:
-     *         { username : { gameID : GAME, ... }, ... }
+     * @return The subscription, or {@code null} if the listener has never been started
      */
-    // @formatter:on
-    public Map<String, Map<Long, GameShared>> getAllData() {
-        if (this.gamesShared == null)
+    public SharedGamesSubscription subscribe() {
+        SharedGamesStore store = this.gamesShared;
+        if (store == null)
             return null;
 
-        Map<String, Map<Long, GameShared>> games;
-        synchronized (this.gamesShared) {
-            games = this.gamesShared;
-            this.gamesShared = new HashMap<String, Map<Long, GameShared>>();
-        }
-        return games;
+        return store.subscribe();
     }
 }
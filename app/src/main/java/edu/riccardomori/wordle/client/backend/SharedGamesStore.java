@@ -0,0 +1,191 @@
+package edu.riccardomori.wordle.client.backend;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// @formatter:off
+/**
+ * Bounded storage for the games shared by other users. It is thread-safe.
+ * The games are stored in a global ring of {@code MAX_GAMES} slots, so the oldest game is evicted
+ * when the ring is full. Every user also owns a ring of at most {@code MAX_GAMES_PER_USER} slots,
+ * so a single user cannot take over the global ring.
+ * Users are identified by the raw bytes of their username, which allows checking for duplicates
+ * before decoding the packet.
+ * Every new game is also published to all the subscriptions.
+ */
+// @formatter:on
+class SharedGamesStore {
+    public static final int MAX_GAMES = 1024; // Maximum number of games stored
+    public static final int MAX_GAMES_PER_USER = 16; // Maximum number of games stored per user
+
+    // Games stored by a single user. The slots are kept in arrival order
+    private static class UserGames {
+        public final byte[] usernameRaw;
+        public final String username;
+        public final int[] slots = new int[SharedGamesStore.MAX_GAMES_PER_USER];
+        public int head = 0; // Position of the oldest slot in slots
+        public int count = 0;
+        public UserGames next; // Next user with the same hash
+
+        public UserGames(byte[] usernameRaw) {
+            this.usernameRaw = usernameRaw;
+            this.username = new String(usernameRaw, StandardCharsets.UTF_8);
+        }
+
+        public int slot(int k) {
+            return this.slots[(this.head + k) % this.slots.length];
+        }
+    }
+
+    // Global ring. A slot is free when slotUser[slot] is null
+    private final UserGames[] slotUser = new UserGames[SharedGamesStore.MAX_GAMES];
+    private final long[] slotGameId = new long[SharedGamesStore.MAX_GAMES];
+    private final GameShared[] slotGame = new GameShared[SharedGamesStore.MAX_GAMES];
+    private int nextSlot = 0; // The next slot to be written, which is also the oldest one
+
+    // Map { hash(username) -> user games }
+    private final Map<Long, UserGames> users = new HashMap<>();
+
+    private final List<SharedGamesSubscription> subscriptions = new ArrayList<>();
+
+    /**
+     * FNV-1a hash of a byte range
+     */
+    private static long hash(byte[] data, int offset, int length) {
+        long h = 0xcbf29ce484222325L;
+        for (int k = offset; k < offset + length; ++k) {
+            h ^= data[k] & 0xff;
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    /**
+     * Find the games of the user whose raw username is the given byte range
+     *
+     * @return The user games or {@code null} if the user is not stored
+     */
+    private UserGames find(long hash, byte[] data, int offset, int length) {
+        for (UserGames u = this.users.get(hash); u != null; u = u.next)
+            if (Arrays.equals(u.usernameRaw, 0, u.usernameRaw.length, data, offset,
+                    offset + length))
+                return u;
+        return null;
+    }
+
+    /**
+     * Remove the user's oldest slot from its ring and drop the user if it has no games left
+     */
+    private void popOldest(UserGames user, long hash) {
+        user.head = (user.head + 1) % user.slots.length;
+        user.count--;
+        if (user.count > 0)
+            return;
+
+        // Unlink the user from the hash chain
+        UserGames first = this.users.get(hash);
+        if (first == user) {
+            if (user.next == null)
+                this.users.remove(hash);
+            else
+                this.users.put(hash, user.next);
+            return;
+        }
+        for (UserGames u = first; u.next != null; u = u.next) {
+            if (u.next == user) {
+                u.next = user.next;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Tells whether the game {@code gameId} of the user, whose raw username is the given byte
+     * range, has already been stored
+     *
+     * @param data The raw data
+     * @param offset Offset of the username in {@code data}
+     * @param length Length of the username in {@code data}
+     * @param gameId The game ID
+     * @return True if the game is already stored
+     */
+    public synchronized boolean contains(byte[] data, int offset, int length, long gameId) {
+        long hash = SharedGamesStore.hash(data, offset, length);
+        UserGames user = this.find(hash, data, offset, length);
+        if (user == null)
+            return false;
+        for (int k = 0; k < user.count; ++k)
+            if (this.slotGameId[user.slot(k)] == gameId)
+                return true;
+        return false;
+    }
+
+    /**
+     * Store a new game, possibly evicting the oldest ones, and publish it to the subscriptions.
+     * The username of the game is set by the store
+     *
+     * @param data The raw data
+     * @param offset Offset of the username in {@code data}
+     * @param length Length of the username in {@code data}
+     * @param game The game
+     */
+    public synchronized void add(byte[] data, int offset, int length, GameShared game) {
+        // Global eviction. The slot is necessarily the oldest one of its owner
+        int slot = this.nextSlot;
+        this.nextSlot = (this.nextSlot + 1) % SharedGamesStore.MAX_GAMES;
+        UserGames owner = this.slotUser[slot];
+        if (owner != null) {
+            this.popOldest(owner,
+                    SharedGamesStore.hash(owner.usernameRaw, 0, owner.usernameRaw.length));
+            this.slotGame[slot] = null;
+        }
+
+        long hash = SharedGamesStore.hash(data, offset, length);
+        UserGames user = this.find(hash, data, offset, length);
+        if (user == null) {
+            user = new UserGames(Arrays.copyOfRange(data, offset, offset + length));
+            user.next = this.users.get(hash);
+            this.users.put(hash, user);
+        }
+
+        // Per user eviction. The slot is freed in the global ring
+        if (user.count == user.slots.length) {
+            int oldest = user.slot(0);
+            this.slotUser[oldest] = null;
+            this.slotGame[oldest] = null;
+            user.head = (user.head + 1) % user.slots.length;
+            user.count--;
+        }
+
+        user.slots[(user.head + user.count) % user.slots.length] = slot;
+        user.count++;
+        this.slotUser[slot] = user;
+        this.slotGameId[slot] = game.gameId;
+        this.slotGame[slot] = game;
+
+        game.username = user.username;
+        for (SharedGamesSubscription subscription : this.subscriptions)
+            subscription.offer(game);
+    }
+
+    /**
+     * Create a new subscription that starts with all the games currently stored, in arrival order
+     *
+     * @return The new subscription
+     */
+    public synchronized SharedGamesSubscription subscribe() {
+        SharedGamesSubscription subscription = new SharedGamesSubscription();
+        for (int k = 0; k < SharedGamesStore.MAX_GAMES; ++k) {
+            int slot = (this.nextSlot + k) % SharedGamesStore.MAX_GAMES;
+            if (this.slotUser[slot] != null)
+                subscription.offer(this.slotGame[slot]);
+        }
+        this.subscriptions.add(subscription);
+
+        return subscription;
+    }
+}
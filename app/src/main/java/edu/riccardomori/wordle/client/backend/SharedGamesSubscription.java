@@ -0,0 +1,45 @@
+package edu.riccardomori.wordle.client.backend;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cursor over the games shared by other users. Every call to {@code poll} returns only the games
+ * received after the previous call. The games are buffered in a lock-free queue that holds at most
+ * {@code SharedGamesStore.MAX_GAMES} games, the oldest ones are dropped first. It is thread-safe.
+ */
+public class SharedGamesSubscription {
+    private final Queue<GameShared> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger(0);
+
+    SharedGamesSubscription() {}
+
+    /**
+     * Publish a new game on this subscription
+     * 
+     * @param game The game received
+     */
+    void offer(GameShared game) {
+        this.queue.offer(game);
+        if (this.size.incrementAndGet() > SharedGamesStore.MAX_GAMES && this.queue.poll() != null)
+            this.size.decrementAndGet();
+    }
+
+    /**
+     * Returns the games received since the last call, in arrival order
+     * 
+     * @return The new games. The list is empty if there are none
+     */
+    public List<GameShared> poll() {
+        List<GameShared> ret = new ArrayList<>();
+        GameShared game;
+        while ((game = this.queue.poll()) != null) {
+            this.size.decrementAndGet();
+            ret.add(game);
+        }
+        return ret;
+    }
+}
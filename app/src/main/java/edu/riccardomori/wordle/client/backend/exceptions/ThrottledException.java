@@ -0,0 +1,7 @@
+package edu.riccardomori.wordle.client.backend.exceptions;
+
+// The server rejected the request because the client sent too many of them. It can be retried
+// later
+public class ThrottledException extends GenericError {
+    private static final long serialVersionUID = 1;
+}
@@ -4,19 +4,23 @@ import java.io.PrintStream;
 import java.rmi.RemoteException;
 import java.time.Duration;
 import java.util.List;
-import java.util.Map;
 import java.util.Scanner;
 import java.util.function.Predicate;
 import edu.riccardomori.wordle.client.backend.ClientBackend;
 import edu.riccardomori.wordle.client.backend.GameDescriptor;
+import edu.riccardomori.wordle.client.backend.GameHistory;
 import edu.riccardomori.wordle.client.backend.GameShared;
+import edu.riccardomori.wordle.client.backend.GameStats;
 import edu.riccardomori.wordle.client.backend.GuessDescriptor;
 import edu.riccardomori.wordle.client.backend.NotificationListener;
+import edu.riccardomori.wordle.client.backend.SharedGamesSubscription;
 import edu.riccardomori.wordle.client.backend.UserStats;
 import edu.riccardomori.wordle.client.backend.exceptions.*;
 import edu.riccardomori.wordle.client.frontend.ClientFrontend;
 import edu.riccardomori.wordle.client.frontend.Command;
 import edu.riccardomori.wordle.client.frontend.SessionState;
+import edu.riccardomori.wordle.protocol.LeaderboardWindow;
+import edu.riccardomori.wordle.rmi.LeaderboardDelta;
 import edu.riccardomori.wordle.rmi.clientRMI;
 import edu.riccardomori.wordle.utils.Pair;
 
@@ -24,6 +28,8 @@ import edu.riccardomori.wordle.utils.Pair;
  * Command line frontend
  */
 public class ClientCLI implements ClientFrontend, clientRMI {
+    private static final int HISTORY_PAGE = 5; // Past games shown at once
+
     private final PrintStream out = System.out;
     private final Scanner in = new Scanner(System.in);
 
@@ -31,16 +37,18 @@ public class ClientCLI implements ClientFrontend, clientRMI {
     private ClientBackend backend; // The backend implementation of the client
     // Listen for the notifications shared by the server
     private NotificationListener notificationListener;
+    // Cursor over the games shared by other users
+    private SharedGamesSubscription sharedGames;
 
     private String serverHost; // The server host
     private int triesLeft;
     private int wordLen;
-    // The top positions of the leaderboard
-    private volatile List<Pair<String, Double>> topLeaderboard;
 
     public ClientCLI(String host, int serverPort, int rmiPort, String multicastAddress,
-            int multicastPort) {
+            int multicastPort, String leaderboardHost, int leaderboardPort) {
         this.backend = new ClientBackend(host, serverPort, rmiPort, this);
+        if (leaderboardHost != null)
+            this.backend.setLeaderboardReplica(leaderboardHost, leaderboardPort);
         this.notificationListener = new NotificationListener(multicastAddress, multicastPort);
         this.serverHost = host;
     }
@@ -71,10 +79,18 @@ public class ClientCLI implements ClientFrontend, clientRMI {
         switch (c) {
             case SHOW_STATS:
                 return "Show my stats";
+            case SHOW_GAME_STATS:
+                return "Show the stats of today's word";
             case SHOW_LEADERBOARD:
                 return "Show the top of leaderboard";
             case SHOW_FULL_LEADERBOARD:
                 return "Show the full leaderboard";
+            case SHOW_DAILY_LEADERBOARD:
+                return "Show the leaderboard of the last 24 hours";
+            case SHOW_WEEKLY_LEADERBOARD:
+                return "Show the leaderboard of the last 7 days";
+            case SHOW_HISTORY:
+                return "Show my past games";
             case SHOW_SHARED:
                 return "Show all the shared games";
             case SHARE:
@@ -186,8 +202,8 @@ public class ClientCLI implements ClientFrontend, clientRMI {
     }
 
     @Override
-    public void updateLeaderboard(List<Pair<String, Double>> leaderboard) throws RemoteException {
-        this.topLeaderboard = leaderboard;
+    public void updateLeaderboard(LeaderboardDelta delta) throws RemoteException {
+        this.backend.updateLeaderboard(delta);
     }
 
     /**
@@ -196,6 +212,7 @@ public class ClientCLI implements ClientFrontend, clientRMI {
     private void startNotificationListener() {
         try {
             this.notificationListener.start();
+            this.sharedGames = this.notificationListener.subscribe();
         } catch (IfaceExcpetion e) {
             this.out.println("**Cannot find a valid interface for multicast notifications**");
         } catch (IOError e) {
@@ -313,13 +330,28 @@ public class ClientCLI implements ClientFrontend, clientRMI {
         try {
             GameDescriptor descriptor = this.backend.startGame();
 
-            this.out.println("Starting the game");
-
             // Update the session state
             this.session.startGame();
             this.wordLen = descriptor.wordSize;
             this.triesLeft = descriptor.tries;
 
+            if (descriptor.correct.length == 0) {
+                this.out.println("Starting the game");
+            } else {
+                // A game interrupted by a restart of the server. Show what has been played
+                this.out.println("Resuming your game");
+                for (int k = 0; k < descriptor.correct.length; ++k) {
+                    StringBuilder sb = new StringBuilder(" ");
+                    for (int j = 0; j < this.wordLen; ++j)
+                        sb.append(" _");
+                    for (int p : descriptor.correct[k])
+                        sb.setCharAt(2 * (p + 1), '*');
+                    for (int p : descriptor.partial[k])
+                        sb.setCharAt(2 * (p + 1), '?');
+                    this.out.format("%s\n", sb.toString());
+                }
+            }
+
             return true;
 
         } catch (AlreadyPlayedException e) {
@@ -398,6 +430,8 @@ public class ClientCLI implements ClientFrontend, clientRMI {
 
             } catch (InvalidWordException e) {
                 this.out.println("Invalid word\n");
+            } catch (ThrottledException e) {
+                this.out.println("Too many attempts. Slow down and try again\n");
             } catch (GenericError e) {
                 e.printStackTrace();
             } catch (IOError e) {
@@ -446,13 +480,53 @@ public class ClientCLI implements ClientFrontend, clientRMI {
         }
     }
 
+    /**
+     * Print the statistics of a secret word
+     * 
+     * @param stats The statistics
+     * @param indent The indentation of every line
+     */
+    private void printGameStats(GameStats stats, String indent) {
+        this.out.format("%splayers: %d\n", indent, stats.players);
+        if (stats.wonGames + stats.lostGames == 0) {
+            this.out.format("%snobody completed the game yet\n", indent);
+            return;
+        }
+        this.out.format("%sgames won: %.0f%%\n", indent, stats.winRate());
+        if (stats.wonGames > 0)
+            this.out.format("%saverage tries: %.2f\n", indent, stats.averageTries());
+    }
+
+    /**
+     * Show the stats of the current secret word
+     */
+    private void showGameStats() {
+        try {
+            GameStats stats = this.backend.getGameStats();
+            this.out.format("Stats of Wordle %d:\n", stats.gameId);
+            this.printGameStats(stats, "  ");
+            this.out.println("  guess distribution:");
+            for (int k = 0; k < stats.guessDist.length; ++k) {
+                if (stats.guessDist[k] == 0)
+                    this.out.format("   %d: -\n", k + 1);
+                else
+                    this.out.format("   %d: %d\n", k + 1, stats.guessDist[k]);
+            }
+        } catch (NoGameException e) {
+            this.out.println("**There are no stats for the current word**");
+        } catch (GenericError | IOError e) {
+            this.out.println("**Cannot retrieve stats from server**");
+        }
+    }
+
     /**
      * Show the top positions of the leaderboard
      */
     private void showLeaderboard() {
-        if (this.topLeaderboard == null) {
+        List<Pair<String, Double>> leaderboard = this.backend.getCachedLeaderboard();
+        if (leaderboard == null) {
             try {
-                this.topLeaderboard = this.backend.getLeaderboard();
+                leaderboard = this.backend.getLeaderboard();
             } catch (GenericError | IOError e) {
                 this.out.println("**Cannot retrieve the leaderboard from the server**");
                 return;
@@ -460,7 +534,7 @@ public class ClientCLI implements ClientFrontend, clientRMI {
         }
         this.out.println("Leaderboard:");
         int k = 1;
-        for (Pair<String, Double> curr : this.topLeaderboard) {
+        for (Pair<String, Double> curr : leaderboard) {
             this.out.format(" %d.   %.2f\t%s\n", k, curr.second, curr.first);
             ++k;
         }
@@ -483,6 +557,25 @@ public class ClientCLI implements ClientFrontend, clientRMI {
         }
     }
 
+    /**
+     * Show the top positions of the leaderboard of {@code window}
+     * 
+     * @param window The leaderboard window
+     */
+    private void showLeaderboard(LeaderboardWindow window) {
+        try {
+            List<Pair<String, Double>> leaderboard = this.backend.getLeaderboard(window);
+            this.out.println("Leaderboard:");
+            int k = 1;
+            for (Pair<String, Double> curr : leaderboard) {
+                this.out.format(" %d.   %.2f\t%s\n", k, curr.second, curr.first);
+                ++k;
+            }
+        } catch (GenericError | IOError e) {
+            this.out.println("**Cannot retrieve the leaderboard from the server**");
+        }
+    }
+
     /**
      * Share the last game played with everybody
      */
@@ -498,50 +591,113 @@ public class ClientCLI implements ClientFrontend, clientRMI {
     }
 
     /**
-     * Show all the games shared with us
+     * Print the result and the hints of a game
+     * 
+     * @param game The game
      */
-    private void showShared() {
+    private void printGame(GameShared game) {
+        if (game.tries < 0)
+            this.out.format("    Wordle %d X/%d\n", game.gameId, game.maxTries);
+        else
+            this.out.format("    Wordle %d %d/%d\n", game.gameId, game.tries, game.maxTries);
+
+        // Print all the hints
+        for (int k = 0; k < game.correct.length; ++k) {
+            StringBuilder sb = new StringBuilder(" ");
+            for (int j = 0; j < game.wordLen; ++j)
+                sb.append(" _");
+            for (int j = 0; j < game.correct[k].length; ++j)
+                sb.setCharAt(2 * (game.correct[k][j] + 1), '*');
+            for (int j = 0; j < game.partial[k].length; ++j)
+                sb.setCharAt(2 * (game.partial[k][j] + 1), '?');
+            this.out.format("%s\n", sb.toString());
+        }
+    }
 
-        Map<String, Map<Long, GameShared>> games = this.notificationListener.getAllData();
+    /**
+     * Show the past games of the user, one page at a time. Any game can be shared
+     */
+    private void showHistory() {
+        int skip = 0;
+        while (true) {
+            GameHistory history;
+            try {
+                history = this.backend.getHistory(skip, ClientCLI.HISTORY_PAGE);
+            } catch (GenericError | IOError e) {
+                this.out.println("**Cannot retrieve the games from the server**");
+                return;
+            }
+            if (history.total == 0) {
+                this.out.println("You have not completed any game yet");
+                return;
+            }
 
-        if (games == null) {
+            this.out.format("Games %d-%d of %d\n\n", skip + 1, skip + history.games.size(),
+                    history.total);
+            for (GameShared game : history.games) {
+                this.printGame(game);
+                this.out.println("");
+            }
+            skip += history.games.size();
+            boolean hasMore = skip < history.total && !history.games.isEmpty();
+
+            String choice = this.readUntil(
+                    s -> s.isEmpty() || (hasMore && s.equals("n")) || s.matches("\\d{1,18}"),
+                    "Invalid choice", hasMore
+                            ? "Game ID to share, `n` for the next games or nothing to go back: "
+                            : "Game ID to share or nothing to go back: ");
+            if (choice.isEmpty())
+                return;
+            if (choice.equals("n"))
+                continue;
+
+            try {
+                this.backend.shareGame(Long.parseLong(choice));
+                this.out.println("The result has been shared");
+            } catch (NoGameException e) {
+                this.out.println("**You did not complete that game**");
+            } catch (GenericError | IOError e) {
+                this.out.println("**Cannot share the result with the server. Maybe it's down?**");
+            }
+            return;
+        }
+    }
+
+    /**
+     * Show all the games shared with us since the last time
+     */
+    private void showShared() {
+        if (this.sharedGames == null) {
             this.out.println("There are no games");
             return;
         }
 
+        List<GameShared> games = this.sharedGames.poll();
+        if (games.isEmpty()) {
+            this.out.println("There are no new games");
+            return;
+        }
+
         this.out.println("These are all the games that have been shared\n");
-        for (String username : games.keySet()) { // For every user
+        String lastUsername = null;
+        for (GameShared game : games) { // For every game
             // Ignore our own shared games
-            if (this.session.getUsername().equals(username))
+            if (this.session.getUsername().equals(game.username))
                 continue;
 
-            this.out.format("[%s]\n", username);
-            Map<Long, GameShared> userGames = games.get(username);
-
-            // Print each game
-            for (long gameId : userGames.keySet()) { // For every game
-                GameShared game = userGames.get(gameId);
-                if (game.tries < 0)
-                    this.out.format("    Wordle %d X/%d\n", gameId, game.maxTries);
-                else
-                    this.out.format("    Wordle %d %d/%d\n", gameId, game.tries, game.maxTries);
-
-                // Print all the hints
-                for (int k = 0; k < game.correct.length; ++k) {
-                    StringBuilder sb = new StringBuilder(" ");
-                    for (int j = 0; j < game.wordLen; ++j)
-                        sb.append(" _");
-                    for (int j = 0; j < game.correct[k].length; ++j)
-                        sb.setCharAt(2 * (game.correct[k][j] + 1), '*');
-                    for (int j = 0; j < game.partial[k].length; ++j)
-                        sb.setCharAt(2 * (game.partial[k][j] + 1), '?');
-                    this.out.format("%s\n", sb.toString());
-                }
-                this.out.println("");
-            } // game
+            // Group consecutive games of the same user
+            if (!game.username.equals(lastUsername)) {
+                if (lastUsername != null)
+                    this.out.println("");
+                this.out.format("[%s]\n", game.username);
+                lastUsername = game.username;
+            }
 
+            this.printGame(game);
+            if (game.stats != null)
+                this.printGameStats(game.stats, "    ");
             this.out.println("");
-        } // user
+        } // game
     }
 
     private void handleCommand(Command command) {
@@ -558,12 +714,24 @@ public class ClientCLI implements ClientFrontend, clientRMI {
             case SHOW_STATS:
                 this.showStats();
                 break;
+            case SHOW_GAME_STATS:
+                this.showGameStats();
+                break;
             case SHOW_LEADERBOARD:
                 this.showLeaderboard();
                 break;
             case SHOW_FULL_LEADERBOARD:
                 this.showFullLeaderboard();
                 break;
+            case SHOW_DAILY_LEADERBOARD:
+                this.showLeaderboard(LeaderboardWindow.DAILY);
+                break;
+            case SHOW_WEEKLY_LEADERBOARD:
+                this.showLeaderboard(LeaderboardWindow.WEEKLY);
+                break;
+            case SHOW_HISTORY:
+                this.showHistory();
+                break;
             case SHOW_SHARED:
                 this.showShared();
                 break;
@@ -8,8 +8,10 @@ import java.util.stream.Collectors;
  * A user command
  */
 public enum Command {
-    REGISTER(1), LOGIN(2), PLAY(3), SHOW_STATS(4), SHOW_LEADERBOARD(5), SHOW_FULL_LEADERBOARD(
-            6), SHOW_SHARED(7), SHARE(8), LOGOUT(9), EXIT(10), INVALID(-1);
+    REGISTER(1), LOGIN(2), PLAY(3), SHOW_STATS(4), SHOW_GAME_STATS(13), SHOW_LEADERBOARD(
+            5), SHOW_FULL_LEADERBOARD(6), SHOW_DAILY_LEADERBOARD(11), SHOW_WEEKLY_LEADERBOARD(
+                    12), SHOW_HISTORY(14), SHOW_SHARED(7), SHARE(8), LOGOUT(9), EXIT(
+                            10), INVALID(-1);
 
     private final int value;
     private final static Map<Integer, Command> map = Arrays.stream(Command.values())
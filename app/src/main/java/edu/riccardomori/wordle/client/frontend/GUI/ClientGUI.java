@@ -2,18 +2,19 @@ package edu.riccardomori.wordle.client.frontend.GUI;
 
 import java.rmi.RemoteException;
 import java.util.List;
-import java.util.Map;
 import javax.swing.JOptionPane;
 import javax.swing.SwingUtilities;
 import edu.riccardomori.wordle.client.backend.ClientBackend;
 import edu.riccardomori.wordle.client.backend.GameShared;
 import edu.riccardomori.wordle.client.backend.NotificationListener;
+import edu.riccardomori.wordle.client.backend.SharedGamesSubscription;
 import edu.riccardomori.wordle.client.backend.exceptions.GenericError;
 import edu.riccardomori.wordle.client.backend.exceptions.IOError;
 import edu.riccardomori.wordle.client.backend.exceptions.IfaceExcpetion;
 import edu.riccardomori.wordle.client.frontend.ClientFrontend;
 import edu.riccardomori.wordle.client.frontend.SessionState;
 import edu.riccardomori.wordle.client.frontend.GUI.utils.Utils;
+import edu.riccardomori.wordle.rmi.LeaderboardDelta;
 import edu.riccardomori.wordle.rmi.clientRMI;
 import edu.riccardomori.wordle.utils.Pair;
 
@@ -25,17 +26,19 @@ public class ClientGUI implements ClientFrontend, ClientSession, clientRMI {
 
     // Listen for the notifications shared by the server
     private NotificationListener notificationListener;
-    // The top positions of the leaderboard
-    private volatile List<Pair<String, Double>> topLeaderboard;
+    // Cursor over the games shared by other users
+    private SharedGamesSubscription sharedGames;
 
     public ClientGUI(String host, int serverPort, int rmiPort, String multicastAddress,
-            int multicastPort) {
+            int multicastPort, String leaderboardHost, int leaderboardPort) {
 
         // Create the main window
         this.viewManager = new ViewManager("Wordle");
 
         // Initialize the backend
         this.backend = new ClientBackend(host, serverPort, rmiPort, this);
+        if (leaderboardHost != null)
+            this.backend.setLeaderboardReplica(leaderboardHost, leaderboardPort);
 
         this.notificationListener = new NotificationListener(multicastAddress, multicastPort);
     }
@@ -46,6 +49,7 @@ public class ClientGUI implements ClientFrontend, ClientSession, clientRMI {
     private void startNotificationListener() {
         try {
             this.notificationListener.start();
+            this.sharedGames = this.notificationListener.subscribe();
         } catch (IfaceExcpetion e) {
             Utils.errorPopup("Cannot find a valid interface for multicast notifications");
         } catch (IOError e) {
@@ -64,8 +68,8 @@ public class ClientGUI implements ClientFrontend, ClientSession, clientRMI {
     }
 
     @Override
-    public void updateLeaderboard(List<Pair<String, Double>> leaderboard) throws RemoteException {
-        this.topLeaderboard = leaderboard;
+    public void updateLeaderboard(LeaderboardDelta delta) throws RemoteException {
+        this.backend.updateLeaderboard(delta);
     }
 
     @Override
@@ -131,13 +135,13 @@ public class ClientGUI implements ClientFrontend, ClientSession, clientRMI {
 
     @Override
     public List<Pair<String, Double>> getTopLeaderboard() {
-        return this.topLeaderboard;
+        return this.backend.getCachedLeaderboard();
     }
 
     @Override
-    public Map<String, Map<Long, GameShared>> getNotifications() {
-        if (this.notificationListener == null)
+    public List<GameShared> getNotifications() {
+        if (this.sharedGames == null)
             return null;
-        return this.notificationListener.getAllData();
+        return this.sharedGames.poll();
     }
 }
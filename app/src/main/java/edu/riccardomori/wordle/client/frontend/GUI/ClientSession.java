@@ -1,7 +1,6 @@
 package edu.riccardomori.wordle.client.frontend.GUI;
 
 import java.util.List;
-import java.util.Map;
 import edu.riccardomori.wordle.client.backend.GameShared;
 import edu.riccardomori.wordle.utils.Pair;
 
@@ -20,5 +19,5 @@ public interface ClientSession {
 
     public List<Pair<String, Double>> getTopLeaderboard();
 
-    public Map<String, Map<Long, GameShared>> getNotifications();
+    public List<GameShared> getNotifications();
 }
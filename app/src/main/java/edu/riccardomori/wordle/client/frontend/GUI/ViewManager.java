@@ -3,7 +3,6 @@ package edu.riccardomori.wordle.client.frontend.GUI;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.List;
-import java.util.Map;
 import java.awt.Dimension;
 import java.awt.Font;
 import java.awt.FontFormatException;
@@ -37,6 +36,8 @@ public class ViewManager {
 
     private ClientSession session;
     private ClientBackend backend;
+    // Games shared by other users. Rows are appended as new games arrive
+    private SharedGamesPanel sharedGamesPanel;
 
     public ViewManager(String title) {
         // Initialize the main frame
@@ -103,9 +104,12 @@ public class ViewManager {
         // Shared games
         JMenuItem sharedGamesItem = new JMenuItem("Shared games");
         sharedGamesItem.addActionListener(event -> {
-            Map<String, Map<Long, GameShared>> games = this.session.getNotifications();
-            JPanel panel = new SharedGamesPanel(games, this.session.getUsername());
-            JOptionPane.showMessageDialog(null, panel, "Shared games",
+            if (this.sharedGamesPanel == null)
+                this.sharedGamesPanel = new SharedGamesPanel(this.session.getUsername());
+            List<GameShared> games = this.session.getNotifications();
+            if (games != null)
+                this.sharedGamesPanel.append(games);
+            JOptionPane.showMessageDialog(null, this.sharedGamesPanel, "Shared games",
                     JOptionPane.PLAIN_MESSAGE);
         });
         showMenu.add(sharedGamesItem);
@@ -140,6 +144,7 @@ public class ViewManager {
 
             case ViewManager.LOGIN_VIEW:
                 this.logoutItem.setEnabled(false);
+                this.sharedGamesPanel = null; // The next user starts from scratch
                 this.frame.setContentPane(new LoginPanel(this, this.session, this.backend));
                 this.resync();
                 break;
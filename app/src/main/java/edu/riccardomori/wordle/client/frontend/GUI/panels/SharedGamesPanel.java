@@ -5,81 +5,132 @@ import java.awt.Font;
 import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.Insets;
-import java.util.Map;
+import java.util.ArrayDeque;
+import java.util.List;
 import javax.swing.JComponent;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import edu.riccardomori.wordle.client.backend.GameShared;
 
+/**
+ * Panel listing the games shared by other users. The panel is built incrementally: every call to
+ * {@code append} adds only the new rows. Only the last {@code MAX_GAMES} games are kept, the
+ * oldest ones are removed
+ */
 public class SharedGamesPanel extends JPanel {
-    public SharedGamesPanel(Map<String, Map<Long, GameShared>> games, String ignoreUsername) {
-        super();
+    private static final int MAX_GAMES = 100; // Maximum number of games in the panel
+
+    // The components of a game in the panel
+    private static class GameRows {
+        public final String username;
+        public JLabel header; // The username heading its group. null if not the first of it
+        public final JComponent title;
+        public final JComponent game;
+
+        public GameRows(String username, JLabel header, JComponent title, JComponent game) {
+            this.username = username;
+            this.header = header;
+            this.title = title;
+            this.game = game;
+        }
+    }
 
-        if (games == null)
-            return;
+    private final Font boldFont = new Font("Dialog", Font.BOLD, 18);
+    private GridBagConstraints gbc = new GridBagConstraints();
 
-        this.setLayout(new GridBagLayout());
+    private String ignoreUsername; // Games shared by this user are not shown
+    private String lastUsername; // The user of the last row appended
+    private int p = 0; // The next row
+    private ArrayDeque<GameRows> games = new ArrayDeque<>(); // The games shown, the oldest first
 
-        GridBagConstraints gbc = new GridBagConstraints();
-
-        // Useful style
-        Font boldFont = new Font("Dialog", Font.BOLD, 18);
+    public SharedGamesPanel(String ignoreUsername) {
+        super();
 
-        int p = 0;
+        this.ignoreUsername = ignoreUsername;
+        this.setLayout(new GridBagLayout());
+    }
 
-        for (String username : games.keySet()) { // For every user
+    /**
+     * Append the games at the bottom of the panel, in order
+     * 
+     * @param games The new games
+     */
+    public void append(List<GameShared> games) {
+        for (GameShared game : games) { // For every game
             // Ignore our own shared games
-            if (ignoreUsername.equals(username))
+            if (this.ignoreUsername.equals(game.username))
                 continue;
 
-            JLabel usernameLabel = new JLabel(username);
-            usernameLabel.setFont(boldFont);
-            this.addComponent(usernameLabel, gbc, 0, p, 0, 0, GridBagConstraints.LINE_START, 0, 0,
-                    1, 1, new Insets(0, 0, 20, 0));
-
-            ++p;
-            Map<Long, GameShared> userGames = games.get(username);
-
-            // Print each game
-            for (long gameId : userGames.keySet()) { // For every game
-                GameShared game = userGames.get(gameId);
-
-                // Title
-                JLabel title;
-                if (game.tries < 0)
-                    title = new JLabel(String.format("Wordle %d X/%d\n", gameId, game.maxTries));
-                else
-                    title = new JLabel(
-                            String.format("Wordle %d %d/%d\n", gameId, game.tries, game.maxTries));
-                title.setAlignmentX(Component.CENTER_ALIGNMENT);
-                this.addComponent(title, gbc, 0, p, 0, 0, GridBagConstraints.PAGE_START, 0, 0, 1, 1,
-                        new Insets(0, 0, 10, 0));
-                ++p;
-
-                JPanel gamePanel = new SingleSharedGamePanel(game, gameId);
-                gamePanel.setAlignmentX(Component.CENTER_ALIGNMENT);
-                this.addComponent(gamePanel, gbc, 0, p, 0, 0, GridBagConstraints.PAGE_START, 0, 0,
-                        1, 1, new Insets(0, 0, 20, 0));
-                ++p;
-            } // game
-
-        } // user
+            // Group consecutive games of the same user
+            JLabel usernameLabel = null;
+            if (!game.username.equals(this.lastUsername)) {
+                usernameLabel = new JLabel(game.username);
+                usernameLabel.setFont(this.boldFont);
+                this.addComponent(usernameLabel, 0, this.p, 0, 0, GridBagConstraints.LINE_START,
+                        0, 0, 1, 1, new Insets(0, 0, 20, 0));
+                ++this.p;
+                this.lastUsername = game.username;
+            }
+
+            // Title
+            JLabel title;
+            if (game.tries < 0)
+                title = new JLabel(
+                        String.format("Wordle %d X/%d\n", game.gameId, game.maxTries));
+            else
+                title = new JLabel(String.format("Wordle %d %d/%d\n", game.gameId, game.tries,
+                        game.maxTries));
+            title.setAlignmentX(Component.CENTER_ALIGNMENT);
+            this.addComponent(title, 0, this.p, 0, 0, GridBagConstraints.PAGE_START, 0, 0, 1, 1,
+                    new Insets(0, 0, 10, 0));
+            ++this.p;
+
+            JPanel gamePanel = new SingleSharedGamePanel(game, game.gameId);
+            gamePanel.setAlignmentX(Component.CENTER_ALIGNMENT);
+            this.addComponent(gamePanel, 0, this.p, 0, 0, GridBagConstraints.PAGE_START, 0, 0, 1,
+                    1, new Insets(0, 0, 20, 0));
+            ++this.p;
+
+            this.games.addLast(new GameRows(game.username, usernameLabel, title, gamePanel));
+            if (this.games.size() > SharedGamesPanel.MAX_GAMES)
+                this.removeOldest();
+        } // game
+
+        this.revalidate();
+        this.repaint();
+    }
+
+    /**
+     * Remove the rows of the oldest game. Its username heading moves to the next game of the same
+     * group, if any
+     */
+    private void removeOldest() {
+        GameRows oldest = this.games.removeFirst();
+        GameRows next = this.games.peekFirst();
+        if (oldest.header != null) {
+            if (next != null && next.header == null && next.username.equals(oldest.username))
+                next.header = oldest.header;
+            else
+                this.remove(oldest.header);
+        }
+        this.remove(oldest.title);
+        this.remove(oldest.game);
     }
 
-    private void addComponent(JComponent component, GridBagConstraints gbc, int gridx, int gridy,
-            double weightx, double weighty, int anchor, int ipadx, int ipady, int width, int height,
+    private void addComponent(JComponent component, int gridx, int gridy, double weightx,
+            double weighty, int anchor, int ipadx, int ipady, int width, int height,
             Insets insets) {
-        gbc.gridx = gridx;
-        gbc.gridy = gridy;
-        gbc.weightx = weightx;
-        gbc.weighty = weighty;
-        gbc.ipadx = ipadx;
-        gbc.ipady = ipady;
-        gbc.anchor = anchor;
-        gbc.insets = insets;
-        gbc.gridwidth = width;
-        gbc.gridheight = height;
-
-        this.add(component, gbc);
+        this.gbc.gridx = gridx;
+        this.gbc.gridy = gridy;
+        this.gbc.weightx = weightx;
+        this.gbc.weighty = weighty;
+        this.gbc.ipadx = ipadx;
+        this.gbc.ipady = ipady;
+        this.gbc.anchor = anchor;
+        this.gbc.insets = insets;
+        this.gbc.gridwidth = width;
+        this.gbc.gridheight = height;
+
+        this.add(component, this.gbc);
     }
 }
@@ -78,8 +78,12 @@ public class SessionState {
         this.commandSet.add(Command.LOGOUT);
         this.commandSet.add(Command.PLAY);
         this.commandSet.add(Command.SHOW_STATS);
+        this.commandSet.add(Command.SHOW_GAME_STATS);
         this.commandSet.add(Command.SHOW_LEADERBOARD);
         this.commandSet.add(Command.SHOW_FULL_LEADERBOARD);
+        this.commandSet.add(Command.SHOW_DAILY_LEADERBOARD);
+        this.commandSet.add(Command.SHOW_WEEKLY_LEADERBOARD);
+        this.commandSet.add(Command.SHOW_HISTORY);
         this.commandSet.add(Command.SHOW_SHARED);
         this.commandSet.add(Command.SHARE);
     }
@@ -104,8 +108,12 @@ public class SessionState {
         this.commandSet.remove(Command.LOGOUT);
         this.commandSet.remove(Command.PLAY);
         this.commandSet.remove(Command.SHOW_STATS);
+        this.commandSet.remove(Command.SHOW_GAME_STATS);
         this.commandSet.remove(Command.SHOW_LEADERBOARD);
         this.commandSet.remove(Command.SHOW_FULL_LEADERBOARD);
+        this.commandSet.remove(Command.SHOW_DAILY_LEADERBOARD);
+        this.commandSet.remove(Command.SHOW_WEEKLY_LEADERBOARD);
+        this.commandSet.remove(Command.SHOW_HISTORY);
         this.commandSet.remove(Command.SHOW_SHARED);
         this.commandSet.remove(Command.SHARE);
     }
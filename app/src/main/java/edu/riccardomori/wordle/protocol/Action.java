@@ -12,7 +12,12 @@ public enum Action {
     STATS((byte) 4),
     TOP_LEADERBOARD((byte) 5),
     FULL_LEADERBOARD((byte) 6),
-    SHARE((byte) 7),
+    SHARE((byte) 7), // Optionally followed by the game ID, the last game if missing
+    WINDOW_TOP_LEADERBOARD((byte) 8), // Followed by the LeaderboardWindow byte
+    WINDOW_FULL_LEADERBOARD((byte) 9), // Followed by the LeaderboardWindow byte
+    GAME_STATS((byte) 10), // Optionally followed by the game ID, the current game if missing
+    HISTORY((byte) 11), // Followed by the games to skip (int) and the page size (byte)
+    REPLICA_LOGIN((byte) 12), // Followed by the ticket of the login, on a leaderboard replica
     UNKNOWN((byte) 0xff);
     // @formatter:on
 
@@ -40,6 +45,16 @@ public enum Action {
                 return FULL_LEADERBOARD;
             case 7:
                 return SHARE;
+            case 8:
+                return WINDOW_TOP_LEADERBOARD;
+            case 9:
+                return WINDOW_FULL_LEADERBOARD;
+            case 10:
+                return GAME_STATS;
+            case 11:
+                return HISTORY;
+            case 12:
+                return REPLICA_LOGIN;
             default:
                 return UNKNOWN;
         }
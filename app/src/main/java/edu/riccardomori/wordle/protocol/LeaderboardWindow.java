@@ -0,0 +1,37 @@
+package edu.riccardomori.wordle.protocol;
+
+/**
+ * The time windows of the leaderboards. The all-time leaderboard ranks every game ever played,
+ * the others only the games completed in the last day or week
+ */
+public enum LeaderboardWindow {
+    // @formatter:off
+    ALL_TIME((byte) 0),
+    DAILY((byte) 1),
+    WEEKLY((byte) 2),
+    UNKNOWN((byte) 0xff);
+    // @formatter:on
+
+    private final byte value;
+
+    private LeaderboardWindow(byte value) {
+        this.value = value;
+    }
+
+    public static LeaderboardWindow fromByte(byte value) {
+        switch (value) {
+            case 0:
+                return ALL_TIME;
+            case 1:
+                return DAILY;
+            case 2:
+                return WEEKLY;
+            default:
+                return UNKNOWN;
+        }
+    }
+
+    public byte getValue() {
+        return this.value;
+    }
+}
@@ -15,6 +15,8 @@ public enum MessageStatus {
     ALREADY_LOGGED((byte) 7),
     GAME_WON((byte) 8),
     NO_GAME((byte) 9),
+    THROTTLED((byte) 10),
+    REDIRECT((byte) 11), // Followed by the address of the node that owns the user
     GENERIC_ERROR((byte) 0xff);
     // @formatter:on
 
@@ -44,6 +46,10 @@ public enum MessageStatus {
                 return GAME_WON;
             case 9:
                 return NO_GAME;
+            case 10:
+                return THROTTLED;
+            case 11:
+                return REDIRECT;
             default:
                 return GENERIC_ERROR;
         }
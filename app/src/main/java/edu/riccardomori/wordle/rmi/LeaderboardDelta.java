@@ -0,0 +1,48 @@
+package edu.riccardomori.wordle.rmi;
+
+import java.io.Serializable;
+import edu.riccardomori.wordle.protocol.LeaderboardWindow;
+
+/**
+ * Describes a change in the top positions of the leaderboard. Only the ranks that changed are
+ * carried, tagged with the version they lead to. A delta can be applied only on a local copy that
+ * is at version {@code baseVersion}. A snapshot (full resync) has {@code baseVersion == -1} and
+ * carries all the ranks. Every leaderboard window is a separate topic with its own versions.
+ * The versions restart when the server restarts or a follower takes over, so they are tagged with
+ * the {@code epoch} of the server that numbered them: versions of different epochs are unrelated.
+ */
+public class LeaderboardDelta implements Serializable {
+    private static final long serialVersionUID = 1;
+
+    public LeaderboardWindow window; // The leaderboard this delta refers to
+    public long epoch; // Random ID of the server instance that numbered the versions
+    public long version; // The version of the leaderboard after applying this delta
+    public long baseVersion; // The version this delta applies to. -1 for a snapshot
+    public int size; // Number of ranks in the top leaderboard after applying this delta
+
+    // The changed ranks. ranks[k] is the position that now holds (usernames[k], scores[k])
+    public int[] ranks;
+    public String[] usernames;
+    public double[] scores;
+
+    public LeaderboardDelta(LeaderboardWindow window, long epoch, long version, long baseVersion,
+            int size, int[] ranks, String[] usernames, double[] scores) {
+        this.window = window;
+        this.epoch = epoch;
+        this.version = version;
+        this.baseVersion = baseVersion;
+        this.size = size;
+        this.ranks = ranks;
+        this.usernames = usernames;
+        this.scores = scores;
+    }
+
+    /**
+     * Tells whether this is a full snapshot of the top leaderboard
+     *
+     * @return True if it is a snapshot, false if it is a delta
+     */
+    public boolean isSnapshot() {
+        return this.baseVersion < 0;
+    }
+}
@@ -6,6 +6,8 @@ package edu.riccardomori.wordle.rmi;
 public abstract class RMIConstants {
     // Name on the RMI registry
     public static final String SERVER_NAME = "Wordle";
+    // Name on the cluster registry of the methods reserved to the nodes of a cluster
+    public static final String CLUSTER_NAME = "WordleCluster";
 
     private RMIConstants() {}
 }
@@ -2,18 +2,18 @@ package edu.riccardomori.wordle.rmi;
 
 import java.rmi.Remote;
 import java.rmi.RemoteException;
-import java.util.List;
-import edu.riccardomori.wordle.utils.Pair;
 
 /**
  * Interface for a client that supports RMI
  */
 public interface clientRMI extends Remote {
     /**
-     * Update the leaderboard top positions with the new one {@code leaderboard}
+     * Update the leaderboard top positions by applying {@code delta}. If the local copy is not at
+     * version {@code delta.baseVersion} the client must request a full resync
      * 
-     * @param leaderboard The new leaderboard for the top positions
+     * @param delta The changed ranks in the top positions
      * @throws RemoteException
+     * @see serverRMI#getLeaderboardSnapshot()
      */
-    public void updateLeaderboard(List<Pair<String, Double>> leaderboard) throws RemoteException;
+    public void updateLeaderboard(LeaderboardDelta delta) throws RemoteException;
 }
@@ -0,0 +1,54 @@
+package edu.riccardomori.wordle.rmi;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import edu.riccardomori.wordle.protocol.LeaderboardWindow;
+
+/**
+ * The remote methods that the nodes of a cluster call on each other. They are exported on the
+ * cluster port of a node, apart from its public registry. Every call carries the time it was made
+ * (ms since epoch) and a proof that the caller knows the replication secret of the cluster, an
+ * HMAC of the method, its arguments and the time. A call with a wrong proof, or made more than
+ * {@code CALL_SKEW} ms away from the clock of the node, is rejected with an
+ * {@code AccessException}
+ */
+public interface clusterRMI extends Remote {
+    public static final int CALL_SKEW = 30000;
+
+    /**
+     * Returns the first positions of the leaderboard of {@code window} restricted to the users of
+     * this node
+     * 
+     * @param window The leaderboard window
+     * @param ranks The number of positions. Negative for the full leaderboard
+     * @param time When the call was made
+     * @param proof The proof of the call
+     * @return The partial leaderboard as a snapshot
+     * @throws RemoteException
+     */
+    public LeaderboardDelta getLeaderboardPartial(LeaderboardWindow window, int ranks, long time,
+            byte[] proof) throws RemoteException;
+
+    /**
+     * Returns a fingerprint of the secret word schedule of this node. The nodes of a cluster play
+     * the same secret words only if their fingerprints are equal
+     * 
+     * @param time When the call was made
+     * @param proof The proof of the call
+     * @return The fingerprint
+     * @throws RemoteException
+     */
+    public long getScheduleFingerprint(long time, byte[] proof) throws RemoteException;
+
+    /**
+     * Returns the statistics of a secret word restricted to the games of the users of this node
+     * 
+     * @param gameId The game ID of the secret word
+     * @param time When the call was made
+     * @param proof The proof of the call
+     * @return The statistics in the wire format of the GAME_STATS response, or {@code null} if the
+     *         node has no statistics of the word
+     * @throws RemoteException
+     */
+    public byte[] getGameStats(long gameId, long time, byte[] proof) throws RemoteException;
+}
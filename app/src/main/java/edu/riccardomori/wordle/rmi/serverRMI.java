@@ -2,6 +2,7 @@ package edu.riccardomori.wordle.rmi;
 
 import java.rmi.Remote;
 import java.rmi.RemoteException;
+import edu.riccardomori.wordle.protocol.LeaderboardWindow;
 
 /**
  * This is the interface that defines which remote methods are available
@@ -18,7 +19,8 @@ public interface serverRMI extends Remote {
     public RMIStatus register(String username, String password) throws RemoteException;
 
     /**
-     * Subscribe to the notification callbacks for the updates on the leaderboard top positions
+     * Subscribe to the notification callbacks for the updates on the top positions of the all-time
+     * leaderboard
      * 
      * @param client The client remote object for the callback
      * @throws RemoteException
@@ -32,4 +34,44 @@ public interface serverRMI extends Remote {
      * @throws RemoteException
      */
     public void cancelSubscription(clientRMI client) throws RemoteException;
+
+    /**
+     * Returns a full snapshot of the top positions of the all-time leaderboard, at the last version
+     * that has been notified to the subscribers
+     * 
+     * @return The snapshot of the top leaderboard
+     * @throws RemoteException
+     */
+    public LeaderboardDelta getLeaderboardSnapshot() throws RemoteException;
+
+    /**
+     * Subscribe to the notification callbacks for the updates on the top positions of the
+     * leaderboard of {@code window}
+     * 
+     * @param client The client remote object for the callback
+     * @param window The leaderboard window
+     * @throws RemoteException
+     */
+    public void subscribe(clientRMI client, LeaderboardWindow window) throws RemoteException;
+
+    /**
+     * Unsubscribe the {@code client} from the notifications of the leaderboard of {@code window}
+     * 
+     * @param client The client remote object that needs to be unsubscribed
+     * @param window The leaderboard window
+     * @throws RemoteException
+     */
+    public void cancelSubscription(clientRMI client, LeaderboardWindow window)
+            throws RemoteException;
+
+    /**
+     * Returns a full snapshot of the top positions of the leaderboard of {@code window}, at the
+     * last version that has been notified to its subscribers
+     * 
+     * @param window The leaderboard window
+     * @return The snapshot of the top leaderboard
+     * @throws RemoteException
+     */
+    public LeaderboardDelta getLeaderboardSnapshot(LeaderboardWindow window)
+            throws RemoteException;
 }
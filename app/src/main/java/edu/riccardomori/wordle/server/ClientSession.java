@@ -5,12 +5,17 @@ import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
 import edu.riccardomori.wordle.protocol.Action;
 import edu.riccardomori.wordle.protocol.ClientState;
 import edu.riccardomori.wordle.protocol.Constants;
+import edu.riccardomori.wordle.protocol.LeaderboardWindow;
 import edu.riccardomori.wordle.protocol.MessageStatus;
+import edu.riccardomori.wordle.server.cluster.ClusterNode;
+import edu.riccardomori.wordle.server.metrics.ServerMetrics;
 import edu.riccardomori.wordle.utils.Pair;
+import edu.riccardomori.wordle.utils.TokenBucket;
 
 /**
  * Class that handles a client session. The client is solely identified by the tcp session. During a
@@ -21,12 +26,22 @@ public class ClientSession {
     private ClientState state = new ClientState(); // The current state of the client
     private Logger logger;
 
+    // Runs the completion of an asynchronous request on the selector thread
+    private Consumer<Runnable> completionHandler;
     private User user; // The user who is running this session
     private ByteBuffer writeBuf; // The buffer holding the writable data
+    // The buffer of the usual responses. A larger one gets a buffer of its own
+    private final ByteBuffer defaultWriteBuf;
+    private TokenBucket rateLimit; // Rate limit of the connection. null if disabled
+    private String source = ""; // Address of the client. The failed logins are counted per address
+    private final ServerMetrics metrics;
 
     public ClientSession() {
         this.interestOps = SelectionKey.OP_READ;
-        this.writeBuf = ByteBuffer.allocate(Constants.SOCKET_MSG_MAX_SIZE);
+        this.defaultWriteBuf = ByteBuffer.allocate(Constants.SOCKET_MSG_MAX_SIZE);
+        this.writeBuf = this.defaultWriteBuf;
+        this.rateLimit = WordleServer.getInstance().newConnectionRateLimit();
+        this.metrics = ServerMetrics.getInstance();
 
         this.logger = Logger.getLogger("Wordle");
     }
@@ -39,6 +54,34 @@ public class ClientSession {
         return this.writeBuf;
     }
 
+    /**
+     * Returns the username of the user logged in this session
+     * 
+     * @return The username or {@code null} if no user is logged in
+     */
+    public String getUsername() {
+        return this.user == null ? null : this.user.getUsername();
+    }
+
+    /**
+     * Set the handler that completes the asynchronous requests. The handler must run the task it
+     * receives on the selector thread and then resume the connection
+     * 
+     * @param completionHandler The completion handler
+     */
+    public void setCompletionHandler(Consumer<Runnable> completionHandler) {
+        this.completionHandler = completionHandler;
+    }
+
+    /**
+     * Set the address of the client
+     * 
+     * @param source The address, without the port
+     */
+    public void setSource(String source) {
+        this.source = source;
+    }
+
     /**
      * Close the session
      */
@@ -47,8 +90,11 @@ public class ClientSession {
             // If user was playing then lose the game
             if (this.state.isPlaying()) {
                 this.user.loseGame();
-                WordleServer.getInstance().updateLeaderboard(this.user.getUsername(),
-                        this.user.score());
+                WordleServer.getInstance().recordGame(this.user.getUsername(),
+                        this.user.fixedScore(), this.user.rawLastGame());
+            } else if (!this.user.getSession().resumable && this.user.dropCheckpoint()) {
+                // Logged out in the middle of a game: it is abandoned, as without a checkpoint
+                WordleServer.getInstance().replicate(this.user);
             }
 
             // Close the user session
@@ -57,6 +103,42 @@ public class ClientSession {
         }
     }
 
+    /**
+     * Take a token from the rate limit of the connection and from the one of the user, if logged
+     * in. A request rejected by the connection does not consume a token of the user
+     * 
+     * @return True if the request must be rejected
+     */
+    private boolean isThrottled() {
+        if (this.rateLimit != null && !this.rateLimit.tryAcquire()) {
+            this.metrics.connectionThrottled.increment();
+            this.logger.fine("Connection throttled");
+            return true;
+        }
+
+        if (this.user == null)
+            return false;
+        TokenBucket userLimit = this.user.getSession().rateLimit;
+        if (userLimit != null && !userLimit.tryAcquire()) {
+            this.metrics.userThrottled.increment();
+            this.logger.fine(
+                    () -> String.format("User `%s` throttled", this.user.getUsername()));
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Clear the write buffer so that it fits a response of {@code size} bytes
+     * 
+     * @param size The size of the response, status included
+     */
+    private void prepareWrite(int size) {
+        this.writeBuf = size > this.defaultWriteBuf.capacity() ? ByteBuffer.allocate(size)
+                : this.defaultWriteBuf;
+        this.writeBuf.clear();
+    }
+
     /**
      * Utility function to prepare a message to send to the client and set the interestOps to
      * OP_WRITE
@@ -65,7 +147,7 @@ public class ClientSession {
      * @param message An additional message to send
      */
     private void sendMessage(MessageStatus code, ByteBuffer message) {
-        this.writeBuf.clear();
+        this.prepareWrite(1 + message.remaining());
         this.writeBuf.put(code.getValue());
         this.writeBuf.put(message);
         this.writeBuf.flip();
@@ -88,7 +170,7 @@ public class ClientSession {
      * @param code The return code that is set in the message
      */
     private void sendMessage(MessageStatus code, byte value) {
-        this.writeBuf.clear();
+        this.prepareWrite(1 + 1);
         this.writeBuf.put(code.getValue());
         this.writeBuf.put(value);
         this.writeBuf.flip();
@@ -102,7 +184,7 @@ public class ClientSession {
      * @param code The return code that is set in the message
      */
     private void sendMessage(MessageStatus code, long value) {
-        this.writeBuf.clear();
+        this.prepareWrite(1 + Long.BYTES);
         this.writeBuf.put(code.getValue());
         this.writeBuf.putLong(value);
         this.writeBuf.flip();
@@ -135,13 +217,52 @@ public class ClientSession {
             return;
         }
 
-        this.logger.finest(String.format("user %s pass %s", username, password));
+        this.logger.finest(() -> String.format("Login attempt of user `%s`", username));
 
-        // Authenticate
+        // In cluster mode the user might live on another node
         WordleServer serverInstance = WordleServer.getInstance();
-        User user = serverInstance.getUser(username, password);
+        ClusterNode owner = serverInstance.getRemoteOwner(username);
+        if (owner != null) {
+            this.logger.finer(() -> String.format("User `%s` redirected to %s", username, owner));
+            ByteBuffer sMsg = ByteBuffer.allocate(Constants.SOCKET_MSG_MAX_SIZE);
+            owner.put(sMsg);
+            sMsg.flip();
+            this.sendMessage(MessageStatus.REDIRECT, sMsg);
+            return;
+        }
+
+        // Authenticate
+        User user = serverInstance.getAuthService().lookup(username, this.source);
         if (user == null) {
-            this.logger.finer(String.format("Authentication of user `%s` rejected", username));
+            this.logger.finer(
+                    () -> String.format("Authentication of user `%s` rejected", username));
+            // Prepare the auth rejected message
+            this.sendMessage(MessageStatus.INVALID_USER);
+            return;
+        }
+
+        // The password is verified asynchronously. Stop listening on the socket until the result
+        // is posted back on the selector thread
+        this.interestOps = 0;
+        boolean scheduled = serverInstance.getAuthService().verify(user, password, this.source,
+                ok -> this.completionHandler.accept(() -> this.completeLogin(user, ok)));
+        if (!scheduled) {
+            this.logger.warning("Authentication pool saturated. Login rejected");
+            this.sendMessage(MessageStatus.GENERIC_ERROR);
+        }
+    }
+
+    /**
+     * Complete the login once the password has been verified. It runs on the selector thread
+     * 
+     * @param user The user that is logging in
+     * @param passwordMatch Whether the password is correct
+     */
+    private void completeLogin(User user, boolean passwordMatch) {
+        String username = user.getUsername();
+        if (!passwordMatch) {
+            this.logger.finer(
+                    () -> String.format("Authentication of user `%s` rejected", username));
             // Prepare the auth rejected message
             this.sendMessage(MessageStatus.INVALID_USER);
             return;
@@ -156,7 +277,7 @@ public class ClientSession {
                 // Cannot login more than once at the same time
                 if (previousSession.isActive) {
                     this.logger.finer(
-                            String.format("User `%s` already logged in. Rejected", username));
+                            () -> String.format("User `%s` already logged in. Rejected", username));
                     this.sendMessage(MessageStatus.ALREADY_LOGGED);
                     return;
                 }
@@ -164,8 +285,25 @@ public class ClientSession {
                 // Restore the previous session. The other attributes can safely be ignored
                 newSession.secretWord = previousSession.secretWord;
                 newSession.gameId = previousSession.gameId;
+                newSession.rateLimit = previousSession.rateLimit;
+                newSession.resumable = previousSession.resumable;
+            } else if (user.rawLastGame() != null) {
+                // First login since the server started. The last game tells whether the user
+                // already played the current word
+                newSession.gameId = PackedGame.gameId(user.rawLastGame());
             }
 
+            // A game in progress survived a restart of the server. Restore it lazily, at the
+            // first login since the restart or until it is resumed
+            GameCheckpoint checkpoint = user.getCheckpoint();
+            if (checkpoint != null && (previousSession == null || newSession.resumable)) {
+                checkpoint.restore(newSession,
+                        WordleServer.getInstance().secretWord(checkpoint.gameId()));
+                newSession.resumable = true;
+            }
+            if (newSession.rateLimit == null)
+                newSession.rateLimit = WordleServer.getInstance().newUserRateLimit();
+
             // Update the session
             user.setSession(newSession);
         }
@@ -175,9 +313,38 @@ public class ClientSession {
         this.state.login();
         this.user = user;
 
-        this.logger.finer(String.format("User `%s` logged in", username));
+        this.logger.finer(() -> String.format("User `%s` logged in", username));
 
-        // Prepare the success message
+        // Prepare the success message, with the ticket of the leaderboard replicas if any
+        ByteBuffer ticket = WordleServer.getInstance().getReplicaTicket(username);
+        if (ticket == null)
+            this.sendMessage(MessageStatus.SUCCESS);
+        else
+            this.sendMessage(MessageStatus.SUCCESS, ticket);
+    }
+
+    /**
+     * Handler for the login on a leaderboard replica, with the ticket issued by the login on the
+     * primary. The replica has no users: the session gets a user of its own, that only reads the
+     * leaderboard
+     * 
+     * @param msg The message containing the ticket
+     */
+    private void replicaLoginHandler(ByteBuffer msg) {
+        String username = WordleServer.getInstance().checkReplicaTicket(msg);
+        if (username == null) {
+            this.logger.finer("Replica ticket rejected");
+            this.sendMessage(MessageStatus.INVALID_USER);
+            return;
+        }
+        this.logger.info(() -> String.format("User `%s`: action Replica login", username));
+
+        User user = new User(username, null);
+        UserSession session = new UserSession();
+        session.rateLimit = WordleServer.getInstance().newUserRateLimit();
+        user.setSession(session);
+        this.state.login();
+        this.user = user;
         this.sendMessage(MessageStatus.SUCCESS);
     }
 
@@ -185,7 +352,7 @@ public class ClientSession {
      * Logout the user
      */
     private void logoutHandler() {
-        this.logger.info(String.format("User `%s`: action Logout", this.user.getUsername()));
+        this.logger.info(() -> String.format("User `%s`: action Logout", this.user.getUsername()));
 
         // Clean the state
         this.state.logout();
@@ -199,7 +366,8 @@ public class ClientSession {
      * Start a new game.
      */
     private void startGameHandler() {
-        this.logger.info(String.format("User `%s`: action playWORDLE", this.user.getUsername()));
+        this.logger.info(
+                () -> String.format("User `%s`: action playWORDLE", this.user.getUsername()));
 
         // Get the current word from server
         Pair<String, Long> p = WordleServer.getInstance().getCurrentWord();
@@ -207,6 +375,14 @@ public class ClientSession {
         long gameId = p.second;
         UserSession session = this.user.getSession();
 
+        // Resume the game restored from a checkpoint, even if the word changed meanwhile
+        if (session.resumable) {
+            session.resumable = false;
+            this.state.play();
+            this.sendGame(session);
+            return;
+        }
+
         // Check if player already played with that word
         if (gameId == session.gameId) {
             // Send the time to the next secret word
@@ -221,11 +397,37 @@ public class ClientSession {
         session.gameId = gameId;
         session.triesLeft = WordleServer.WORD_TRIES;
         session.resetHints();
+        this.user.checkpointGame();
+        WordleServer.getInstance().replicate(this.user);
+        GameStats stats = WordleServer.getInstance().getGameStats(gameId);
+        if (stats != null)
+            stats.start();
+
+        this.sendGame(session);
+    }
 
+    /**
+     * Send the game in progress: the word length, the tries left and the hints of the tries
+     * already spent, that are there only if the game has been resumed
+     * 
+     * @param session The session of the game
+     */
+    private void sendGame(UserSession session) {
         // Prepare the success message
-        ByteBuffer msg = ByteBuffer.allocate(Integer.BYTES * 2);
-        msg.put((byte) secretWord.length());
+        ByteBuffer msg = ByteBuffer.allocate(Constants.SOCKET_MSG_MAX_SIZE - Integer.BYTES - 1);
+        msg.put((byte) session.secretWord.length());
         msg.put((byte) session.triesLeft);
+        msg.put((byte) session.correctHints.size());
+        for (int k = 0; k < session.correctHints.size(); ++k) {
+            List<Integer> correct = session.correctHints.get(k);
+            List<Integer> partial = session.partialHints.get(k);
+            msg.put((byte) correct.size());
+            msg.put((byte) partial.size());
+            for (int p : correct)
+                msg.put((byte) p);
+            for (int p : partial)
+                msg.put((byte) p);
+        }
         msg.flip();
         this.sendMessage(MessageStatus.SUCCESS, msg);
     }
@@ -251,8 +453,8 @@ public class ClientSession {
         // Read the guessed word
         String guessWord = StandardCharsets.UTF_8.decode(msg).toString();
 
-        this.logger.info(String.format("User `%s` guessed word `%s` (secret `%s`)",
-                this.user.getUsername(), guessWord, session.secretWord));
+        this.logger.info(() -> String.format("User `%s` guessed word `%s`",
+                this.user.getUsername(), guessWord));
 
         // Invalid word
         if (!WordleServer.getInstance().isValidWord(guessWord)) {
@@ -268,9 +470,10 @@ public class ClientSession {
         if (session.secretWord.equals(guessWord)) {
             // Update state
             this.state.stopPlaying();
-            this.user.winGame(WordleServer.WORD_TRIES - session.triesLeft);
-            WordleServer.getInstance().updateLeaderboard(this.user.getUsername(),
-                    this.user.score());
+            int tries = WordleServer.WORD_TRIES - session.triesLeft;
+            this.user.winGame(tries);
+            WordleServer.getInstance().recordGame(this.user.getUsername(),
+                    this.user.fixedScore(), this.user.rawLastGame());
 
             // Send the secret word translation
             byte[] encTranslation = TranslationServer.getInstance().get(session.secretWord)
@@ -302,8 +505,8 @@ public class ClientSession {
             // Update the state. Since there are no more tries left the game is lost
             this.state.stopPlaying();
             this.user.loseGame();
-            WordleServer.getInstance().updateLeaderboard(this.user.getUsername(),
-                    this.user.score());
+            WordleServer.getInstance().recordGame(this.user.getUsername(),
+                    this.user.fixedScore(), this.user.rawLastGame());
 
             // No more tries left. Send the secret word alongside its translation
             byte[] encWord = session.secretWord.getBytes(StandardCharsets.UTF_8);
@@ -311,6 +514,9 @@ public class ClientSession {
             sMsg.put(encWord);
             sMsg.put(TranslationServer.getInstance().get(session.secretWord)
                     .getBytes(StandardCharsets.UTF_8));
+        } else {
+            this.user.checkpointGame();
+            WordleServer.getInstance().replicate(this.user);
         }
 
         sMsg.flip();
@@ -322,7 +528,7 @@ public class ClientSession {
      * Sends the user stats
      */
     private void statsHandler() {
-        this.logger.info(String.format("User %s action STATS", this.user.getUsername()));
+        this.logger.info(() -> String.format("User %s action STATS", this.user.getUsername()));
 
         // Prepare the message
         ByteBuffer msg = ByteBuffer.allocate(Constants.SOCKET_MSG_MAX_SIZE);
@@ -343,26 +549,62 @@ public class ClientSession {
     }
 
     /**
-     * Sends the top of the leaderboard
+     * Send a leaderboard as a list of (username, score)
+     * 
+     * @param leaderboard The leaderboard
      */
-    private void topLeaderboardHandler() {
-        this.logger.info(String.format("User %s action TOP_LEADERBOARD", this.user.getUsername()));
+    private void sendLeaderboard(List<Pair<String, Double>> leaderboard) {
+        this.sendMessage(MessageStatus.SUCCESS, ClientSession.encodeLeaderboard(leaderboard));
+    }
 
-        // Get the top leaderboard
-        List<Pair<String, Double>> leaderboard = WordleServer.getInstance().getTopLeaderboard();
+    /**
+     * Encode a leaderboard in the format of the leaderboard responses:
+     * {@code size (4) | [usernameLen (4) | username (UTF-8) | score (8)] * size}
+     * 
+     * @param leaderboard The leaderboard
+     * @return The encoded leaderboard, ready to be read
+     */
+    static ByteBuffer encodeLeaderboard(List<Pair<String, Double>> leaderboard) {
+        // The full leaderboard can be far larger than a usual response: size it exactly
+        byte[][] usernames = new byte[leaderboard.size()][];
+        int size = Integer.BYTES;
+        for (int k = 0; k < usernames.length; ++k) {
+            usernames[k] = leaderboard.get(k).first.getBytes(StandardCharsets.UTF_8);
+            size += Integer.BYTES + usernames[k].length + Double.BYTES;
+        }
 
-        // Prepare the message
-        ByteBuffer msg = ByteBuffer.allocate(Constants.SOCKET_MSG_MAX_SIZE);
-        msg.putInt(leaderboard.size());
-        for (Pair<String, Double> p : leaderboard) {
-            ByteBuffer enc = StandardCharsets.UTF_8.encode(p.first);
-            msg.putInt(enc.limit());
-            msg.put(enc);
-            msg.putDouble(p.second);
+        ByteBuffer msg = ByteBuffer.allocate(size);
+        msg.putInt(usernames.length);
+        for (int k = 0; k < usernames.length; ++k) {
+            msg.putInt(usernames[k].length);
+            msg.put(usernames[k]);
+            msg.putDouble(leaderboard.get(k).second);
         }
         msg.flip();
+        return msg;
+    }
 
-        this.sendMessage(MessageStatus.SUCCESS, msg);
+    /**
+     * Read the leaderboard window requested by the client
+     * 
+     * @param msg The message
+     * @return The window or {@code null} if the message is malformed
+     */
+    private LeaderboardWindow readWindow(ByteBuffer msg) {
+        if (!msg.hasRemaining())
+            return null;
+        LeaderboardWindow window = LeaderboardWindow.fromByte(msg.get());
+        return window == LeaderboardWindow.UNKNOWN ? null : window;
+    }
+
+    /**
+     * Sends the top of the leaderboard
+     */
+    private void topLeaderboardHandler() {
+        this.logger.info(
+                () -> String.format("User %s action TOP_LEADERBOARD", this.user.getUsername()));
+
+        this.sendLeaderboard(WordleServer.getInstance().getTopLeaderboard());
     }
 
     // TODO add pagination
@@ -370,39 +612,193 @@ public class ClientSession {
      * Sends the full leaderboard
      */
     private void fullLeaderboardHandler() {
-        this.logger.info(String.format("User %s action FULL_LEADERBOARD", this.user.getUsername()));
+        this.logger.info(
+                () -> String.format("User %s action FULL_LEADERBOARD", this.user.getUsername()));
 
-        // Get the full leaderboard
-        List<Pair<String, Double>> leaderboard = WordleServer.getInstance().getFullLeaderboard();
+        this.sendFullLeaderboard(LeaderboardWindow.ALL_TIME);
+    }
 
-        // Prepare the message
-        ByteBuffer msg = ByteBuffer.allocate(Constants.SOCKET_MSG_MAX_SIZE);
-        msg.putInt(leaderboard.size());
-        for (Pair<String, Double> p : leaderboard) {
-            ByteBuffer enc = StandardCharsets.UTF_8.encode(p.first);
-            msg.putInt(enc.limit());
-            msg.put(enc);
-            msg.putDouble(p.second);
+    /**
+     * Sends the top of the leaderboard of the requested window
+     * 
+     * @param msg The message containing the window
+     */
+    private void windowTopLeaderboardHandler(ByteBuffer msg) {
+        LeaderboardWindow window = this.readWindow(msg);
+        this.logger.info(() -> String.format("User %s action WINDOW_TOP_LEADERBOARD %s",
+                this.user.getUsername(), window));
+        if (window == null) {
+            this.sendMessage(MessageStatus.GENERIC_ERROR);
+            return;
         }
-        msg.flip();
 
-        this.sendMessage(MessageStatus.SUCCESS, msg);
+        this.sendLeaderboard(WordleServer.getInstance().getTopLeaderboard(window));
     }
 
     /**
-     * Share the user's last game
+     * Sends the full leaderboard of the requested window
+     * 
+     * @param msg The message containing the window
      */
-    private void shareHandler() {
-        this.logger.info(String.format("User %s action SHARE", this.user.getUsername()));
+    private void windowFullLeaderboardHandler(ByteBuffer msg) {
+        LeaderboardWindow window = this.readWindow(msg);
+        this.logger.info(() -> String.format("User %s action WINDOW_FULL_LEADERBOARD %s",
+                this.user.getUsername(), window));
+        if (window == null) {
+            this.sendMessage(MessageStatus.GENERIC_ERROR);
+            return;
+        }
+
+        this.sendFullLeaderboard(window);
+    }
+
+    /**
+     * Sends the full leaderboard of {@code window}. In cluster mode the partials of the other nodes
+     * are pulled first, and the response is completed asynchronously
+     */
+    private void sendFullLeaderboard(LeaderboardWindow window) {
+        WordleServer server = WordleServer.getInstance();
+        if (!server.isClustered()) {
+            this.sendLeaderboard(server.getFullLeaderboard(window));
+            return;
+        }
+
+        // Stop listening on the socket until the leaderboard is posted back on the selector thread
+        this.interestOps = 0;
+        server.pullFullLeaderboard(window, leaderboard -> this.completionHandler
+                .accept(() -> this.sendLeaderboard(leaderboard)));
+    }
 
-        GameDescriptor lastGame = this.user.getLastGame();
-        if (lastGame == null) {
+    /**
+     * Sends the statistics of a secret word. The message might contain the game ID, otherwise the
+     * current game is used. In cluster mode they are merged with the ones of the other nodes
+     * 
+     * @param msg The message
+     */
+    private void gameStatsHandler(ByteBuffer msg) {
+        long gameId = msg.remaining() >= Long.BYTES ? msg.getLong()
+                : WordleServer.getInstance().getCurrentWord().second;
+        this.logger.info(() -> String.format("User %s action GAME_STATS %d",
+                this.user.getUsername(), gameId));
+
+        WordleServer server = WordleServer.getInstance();
+        GameStats stats = server.getGameStats(gameId);
+        if (stats == null) {
+            this.sendMessage(MessageStatus.NO_GAME);
+            return;
+        }
+        if (!server.isClustered()) {
+            this.sendGameStats(stats.snapshot());
+            return;
+        }
+
+        // The other nodes played the same word: stop listening on the socket until their
+        // statistics are merged and posted back on the selector thread
+        this.interestOps = 0;
+        server.pullGameStats(stats.snapshot(),
+                merged -> this.completionHandler.accept(() -> this.sendGameStats(merged)));
+    }
+
+    /**
+     * Send the statistics of a secret word
+     * 
+     * @param stats The statistics
+     */
+    private void sendGameStats(GameStatsSnapshot stats) {
+        ByteBuffer sMsg = ByteBuffer.allocate(GameStatsSnapshot.BYTES);
+        stats.put(sMsg);
+        sMsg.flip();
+        this.sendMessage(MessageStatus.SUCCESS, sMsg);
+    }
+
+    /**
+     * Sends a page of the games completed by the user, from the most recent one. The page is cut
+     * short if the games do not fit in a message
+     * 
+     * @param msg The message containing the games to skip and the page size
+     */
+    private void historyHandler(ByteBuffer msg) {
+        if (msg.remaining() < Integer.BYTES + 1) {
+            this.sendMessage(MessageStatus.GENERIC_ERROR);
+            return;
+        }
+        int skip = msg.getInt();
+        int count = msg.get() & 0xff;
+        this.logger.info(() -> String.format("User %s action HISTORY %d %d",
+                this.user.getUsername(), skip, count));
+        if (skip < 0) {
+            this.sendMessage(MessageStatus.GENERIC_ERROR);
+            return;
+        }
+
+        WordleServer server = WordleServer.getInstance();
+        String username = this.user.getUsername();
+        List<byte[]> games = server.getHistory(username, skip, count);
+
+        // Room for the length of the message and the status
+        ByteBuffer sMsg =
+                ByteBuffer.allocate(Constants.SOCKET_MSG_MAX_SIZE - Integer.BYTES - 1);
+        sMsg.putInt(server.getHistorySize(username));
+        int sizePos = sMsg.position();
+        sMsg.put((byte) 0);
+        int sent = 0;
+        for (byte[] game : games) {
+            if (PackedGame.encodedSize(game) > sMsg.remaining())
+                break;
+            PackedGame.encode(game, sMsg);
+            sent++;
+        }
+        sMsg.put(sizePos, (byte) sent);
+        sMsg.flip();
+
+        this.sendMessage(MessageStatus.SUCCESS, sMsg);
+    }
+
+    /**
+     * Share a game of the user. The message might contain the game ID, otherwise the last game is
+     * shared
+     * 
+     * @param msg The message
+     */
+    private void shareHandler(ByteBuffer msg) {
+        this.logger.info(() -> String.format("User %s action SHARE", this.user.getUsername()));
+
+        GameDescriptor game;
+        if (msg.remaining() >= Long.BYTES)
+            game = WordleServer.getInstance().getArchivedGame(this.user.getUsername(),
+                    msg.getLong());
+        else
+            game = this.user.getLastGame();
+
+        if (game == null) {
             this.sendMessage(MessageStatus.NO_GAME);
         } else {
             this.sendMessage(MessageStatus.SUCCESS);
 
             // Actually share
-            WordleServer.getInstance().shareGame(lastGame, this.user.getUsername());
+            WordleServer.getInstance().shareGame(game, this.user.getUsername());
+        }
+    }
+
+    /**
+     * Same as {@code handleMessage} on a leaderboard replica. It serves only the login with a
+     * ticket, the all-time leaderboards and the logout
+     * 
+     * @param buffer The buffer containing the message coming from the client
+     */
+    private void handleReplicaMessage(ByteBuffer buffer) {
+        Action action = Action.fromByte(buffer.get());
+        if (this.state.isAnonymous() && action == Action.REPLICA_LOGIN) {
+            this.replicaLoginHandler(buffer);
+        } else if (this.state.isLogged() && action == Action.TOP_LEADERBOARD) {
+            this.topLeaderboardHandler();
+        } else if (this.state.isLogged() && action == Action.FULL_LEADERBOARD) {
+            this.fullLeaderboardHandler();
+        } else if (this.state.isLogged() && action == Action.LOGOUT) {
+            this.logoutHandler();
+        } else {
+            this.logger.info(() -> String.format("Action %s not served by the replica", action));
+            this.sendMessage(MessageStatus.ACTION_UNAUTHORIZED);
         }
     }
 
@@ -416,7 +812,18 @@ public class ClientSession {
      * @return The interest set of operations
      */
     public int handleMessage(ByteBuffer buffer) {
-        this.logger.finest(String.format("Received a message of size %d", buffer.limit()));
+        this.logger.finest(() -> String.format("Received a message of size %d", buffer.limit()));
+
+        // Reject the request before doing any work on it if the client is too fast
+        if (this.isThrottled()) {
+            this.sendMessage(MessageStatus.THROTTLED);
+            return this.interestOps;
+        }
+
+        if (WordleServer.getInstance().isLeaderboardReplica()) {
+            this.handleReplicaMessage(buffer);
+            return this.interestOps;
+        }
 
         if (this.state.isAnonymous()) { // Anonymous
             switch (Action.fromByte(buffer.get())) {
@@ -452,12 +859,29 @@ public class ClientSession {
                     this.fullLeaderboardHandler();
                     break;
 
+                case WINDOW_TOP_LEADERBOARD:
+                    this.windowTopLeaderboardHandler(buffer);
+                    break;
+
+                case WINDOW_FULL_LEADERBOARD:
+                    this.windowFullLeaderboardHandler(buffer);
+                    break;
+
+                case GAME_STATS:
+                    this.gameStatsHandler(buffer);
+                    break;
+
+                case HISTORY:
+                    this.historyHandler(buffer);
+                    break;
+
                 case SHARE:
-                    this.shareHandler();
+                    this.shareHandler(buffer);
                     break;
 
                 default:
-                    this.logger.info(String.format("User `%s` not allowed to perform this action",
+                    this.logger.info(() -> String.format(
+                            "User `%s` not allowed to perform this action",
                             this.user.getUsername()));
                     this.sendMessage(MessageStatus.ACTION_UNAUTHORIZED);
                     break;
@@ -485,8 +909,25 @@ public class ClientSession {
                     this.fullLeaderboardHandler();
                     break;
 
+                case WINDOW_TOP_LEADERBOARD:
+                    this.windowTopLeaderboardHandler(buffer);
+                    break;
+
+                case WINDOW_FULL_LEADERBOARD:
+                    this.windowFullLeaderboardHandler(buffer);
+                    break;
+
+                case GAME_STATS:
+                    this.gameStatsHandler(buffer);
+                    break;
+
+                case HISTORY:
+                    this.historyHandler(buffer);
+                    break;
+
                 default:
-                    this.logger.info(String.format("User `%s` not allowed to perform this action",
+                    this.logger.info(() -> String.format(
+                            "User `%s` not allowed to perform this action",
                             this.user.getUsername()));
                     this.sendMessage(MessageStatus.ACTION_UNAUTHORIZED);
                     break;
@@ -0,0 +1,60 @@
+package edu.riccardomori.wordle.server;
+
+import java.nio.ByteBuffer;
+import java.rmi.AccessException;
+import edu.riccardomori.wordle.protocol.LeaderboardWindow;
+import edu.riccardomori.wordle.rmi.LeaderboardDelta;
+import edu.riccardomori.wordle.rmi.clusterRMI;
+
+/**
+ * The remote methods that the other nodes of the cluster call on this one. It is exported apart
+ * from the server, on the cluster port, so the stub of the public registry cannot reach it. Every
+ * call is checked with the replication secret, see clusterRMI
+ */
+final class ClusterService implements clusterRMI {
+    private final WordleServer server;
+    private final ReplicationAuth auth;
+
+    /**
+     * @param server The server of this node
+     * @param auth The replication secret of the cluster
+     */
+    public ClusterService(WordleServer server, ReplicationAuth auth) {
+        this.server = server;
+        this.auth = auth;
+    }
+
+    @Override
+    public LeaderboardDelta getLeaderboardPartial(LeaderboardWindow window, int ranks, long time,
+            byte[] proof) throws AccessException {
+        this.check(proof, "getLeaderboardPartial", time, window.getValue(), ranks);
+        return this.server.getLeaderboardPartial(window, ranks);
+    }
+
+    @Override
+    public long getScheduleFingerprint(long time, byte[] proof) throws AccessException {
+        this.check(proof, "getScheduleFingerprint", time);
+        return this.server.getScheduleFingerprint();
+    }
+
+    @Override
+    public byte[] getGameStats(long gameId, long time, byte[] proof) throws AccessException {
+        this.check(proof, "getGameStats", time, gameId);
+        GameStats stats = this.server.getGameStats(gameId);
+        if (stats == null)
+            return null;
+        ByteBuffer msg = ByteBuffer.allocate(GameStatsSnapshot.BYTES);
+        stats.snapshot().put(msg);
+        return msg.array();
+    }
+
+    /**
+     * Reject a call whose proof is wrong or that is not recent
+     */
+    private void check(byte[] proof, String method, long time, long... args)
+            throws AccessException {
+        if (Math.abs(System.currentTimeMillis() - time) > clusterRMI.CALL_SKEW
+                || !this.auth.checkCall(proof, method, time, args))
+            throw new AccessException(String.format("Call %s not authenticated", method));
+    }
+}
@@ -0,0 +1,425 @@
+package edu.riccardomori.wordle.server;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// @formatter:off
+/**
+ * Append-only archive of the games completed by all the users. The games are stored in segment
+ * files of {@code SEGMENT_SIZE} bytes that are memory-mapped, so both appending and reading are
+ * plain memory copies and the archive itself is never on the heap.
+ * Layout of a record:
+ *    [length: 4][usernameLen: 2][username: UTF-8][packed game, see PackedGame]
+ * where length counts the bytes after itself. A zero length marks the end of the records of a
+ * segment: every append writes it after its record before committing the record with its length,
+ * so a process that dies in the middle of an append leaves no partial record, since the page cache
+ * keeps every write of a dead process. There is no such order on the storage device, which writes
+ * the dirty pages back in any order: after a crash of the whole machine only the records before
+ * the last {@code force} are durable, and the ones after it might be lost or torn.
+ * Every game is addressed by its offset in the archive: (segment << SEGMENT_BITS) | position. The
+ * only thing on the heap is the index {username -> offsets of its games}, 8 bytes per game. A user
+ * plays every game ID at most once and in increasing order, so its offsets are sorted by game ID
+ * and a game is found by (username, gameId) with a binary search. This is checked when a game is
+ * indexed: the games of a user that were archived out of order, because the clock went back, are
+ * searched linearly.
+ * The records are also numbered in the order they have been appended, from 0, so that a follower
+ * can ask for the ones it misses (see ReplicationPrimary) with a {@code Cursor}.
+ * The index is rebuilt at startup with a sequential scan of the segments. Every access is
+ * mutually exclusive, except the writes to the storage device: the appends run on the selector
+ * thread, so they never wait for an msync. A full segment is written by a background thread, which
+ * also maps the next segment before it is needed, and {@code force} holds no lock.
+ */
+// @formatter:on
+public class GameArchive {
+    private static final int SEGMENT_BITS = 24;
+    private static final int SEGMENT_SIZE = 1 << GameArchive.SEGMENT_BITS; // 16 MiB
+    private static final String SEGMENT_NAME = "games-%06d.seg";
+    private static final int RECORD_HEADER = Integer.BYTES + Short.BYTES;
+    // Fill of the last segment after which the next one is mapped in background
+    private static final int PREPARE_THRESHOLD = GameArchive.SEGMENT_SIZE / 2;
+
+    // The offsets of the games of a user, in the order they have been completed
+    private static class UserIndex {
+        public long[] offsets = new long[4];
+        public int size = 0;
+        public boolean sorted = true; // Whether the games are in increasing game ID order
+
+        public void add(long offset) {
+            if (this.size == this.offsets.length)
+                this.offsets = Arrays.copyOf(this.offsets, this.size * 2);
+            this.offsets[this.size++] = offset;
+        }
+    }
+
+    // A record read by a cursor
+    public static class Entry {
+        public final String username;
+        public final byte[] game;
+
+        public Entry(String username, byte[] game) {
+            this.username = username;
+            this.game = game;
+        }
+    }
+
+    /**
+     * Sequential reader of the records, from a given number on. It sees the records appended after
+     * its creation too
+     */
+    public class Cursor {
+        private int segment = 0;
+        private int pos = 0;
+
+        /**
+         * Returns the next record, or {@code null} if there are no more
+         */
+        public Entry next() {
+            synchronized (GameArchive.this) {
+                int last = GameArchive.this.segments.size() - 1;
+                while (this.segment <= last) {
+                    MappedByteBuffer buf = GameArchive.this.segments.get(this.segment);
+                    int len = GameArchive.recordLength(buf, this.pos);
+                    if (len > 0 && (this.segment < last || this.pos < GameArchive.this.writePos)) {
+                        byte[] encUsername = new byte[buf.getShort(this.pos + Integer.BYTES)
+                                & 0xffff];
+                        buf.get(this.pos + GameArchive.RECORD_HEADER, encUsername);
+                        byte[] game = GameArchive.this
+                                .read(GameArchive.offset(this.segment, this.pos));
+                        this.pos += Integer.BYTES + len;
+                        return new Entry(new String(encUsername, StandardCharsets.UTF_8), game);
+                    }
+                    if (this.segment == last)
+                        return null;
+                    this.segment++;
+                    this.pos = 0;
+                }
+                return null;
+            }
+        }
+    }
+
+    private final Path dir;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    // The number of the first record of every segment
+    private final List<Long> segmentStarts = new ArrayList<>();
+    private long size = 0; // Number of records
+    private int writePos = 0; // Position of the next record in the last segment
+    private final Map<String, UserIndex> index = new HashMap<>();
+    // Writes the full segments and maps the next one, off the appending thread
+    private final ExecutorService syncer = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "archive-sync");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Future<MappedByteBuffer> nextSegment = null; // The next segment, once requested
+
+    /**
+     * Open the archive in {@code dir}, creating it if it does not exist
+     *
+     * @param dir The directory of the segments
+     * @throws IOException
+     */
+    public GameArchive(Path dir) throws IOException {
+        this.dir = dir;
+        Files.createDirectories(dir);
+        for (int k = 0;; ++k) {
+            Path file = dir.resolve(String.format(GameArchive.SEGMENT_NAME, k));
+            if (!Files.exists(file))
+                break;
+            MappedByteBuffer segment = GameArchive.map(file);
+            // The next segment is mapped before it is needed: if it has not been used, the
+            // appends continue in the previous one, and it is mapped again once that is full
+            if (k > 0 && GameArchive.recordLength(segment, 0) == 0)
+                break;
+            this.segments.add(segment);
+            this.segmentStarts.add(this.size);
+            this.writePos = this.scan(k);
+        }
+        if (this.segments.isEmpty())
+            this.newSegment();
+    }
+
+    private static MappedByteBuffer map(Path file) throws IOException {
+        // The mapping stays valid after the channel is closed
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, GameArchive.SEGMENT_SIZE);
+        }
+    }
+
+    private void newSegment() throws IOException {
+        if (!this.segments.isEmpty()) {
+            MappedByteBuffer full = this.segments.get(this.segments.size() - 1);
+            this.syncer.execute(full::force);
+        }
+        this.prepareSegment();
+        try {
+            this.segments.add(this.nextSegment.get());
+            this.segmentStarts.add(this.size);
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IOException("Cannot map a new segment", e);
+        } finally {
+            this.nextSegment = null;
+        }
+        this.writePos = 0;
+    }
+
+    /**
+     * Start mapping the segment after the last one, if not already started
+     */
+    private void prepareSegment() {
+        if (this.nextSegment != null)
+            return;
+        Path file = this.dir.resolve(String.format(GameArchive.SEGMENT_NAME, this.segments.size()));
+        this.nextSegment = this.syncer.submit(() -> GameArchive.map(file));
+    }
+
+    private static long offset(int segment, int pos) {
+        return ((long) segment << GameArchive.SEGMENT_BITS) | pos;
+    }
+
+    /**
+     * Returns the length of the record at {@code pos}, or 0 if there is none
+     */
+    private static int recordLength(MappedByteBuffer buf, int pos) {
+        if (pos + GameArchive.RECORD_HEADER > GameArchive.SEGMENT_SIZE)
+            return 0;
+        int len = buf.getInt(pos);
+        if (len <= 0 || len > GameArchive.SEGMENT_SIZE - pos - Integer.BYTES)
+            return 0; // End of the records, or a record that has not been completed
+        return len;
+    }
+
+    /**
+     * Index the records of a segment
+     *
+     * @return The position after the last record
+     */
+    private int scan(int segment) {
+        MappedByteBuffer buf = this.segments.get(segment);
+        int pos = 0;
+        int len;
+        while ((len = GameArchive.recordLength(buf, pos)) > 0) {
+            byte[] encUsername = new byte[buf.getShort(pos + Integer.BYTES) & 0xffff];
+            buf.get(pos + GameArchive.RECORD_HEADER, encUsername);
+            String username = new String(encUsername, StandardCharsets.UTF_8);
+            this.indexRecord(username, GameArchive.offset(segment, pos));
+            pos += Integer.BYTES + len;
+            this.size++;
+        }
+        return pos;
+    }
+
+    /**
+     * Add the record at {@code offset} to the index of {@code username}
+     */
+    private void indexRecord(String username, long offset) {
+        UserIndex userIndex = this.index.computeIfAbsent(username, u -> new UserIndex());
+        if (userIndex.sorted && userIndex.size > 0
+                && this.gameId(userIndex.offsets[userIndex.size - 1]) >= this.gameId(offset))
+            userIndex.sorted = false;
+        userIndex.add(offset);
+    }
+
+    /**
+     * Append a completed game
+     *
+     * @param username The player
+     * @param game The packed game
+     * @return The number of the record
+     * @throws IOException If a new segment cannot be created
+     */
+    public synchronized long append(String username, byte[] game) throws IOException {
+        byte[] encUsername = username.getBytes(StandardCharsets.UTF_8);
+        int size = GameArchive.RECORD_HEADER + encUsername.length + game.length;
+        if (this.writePos + size > GameArchive.SEGMENT_SIZE)
+            this.newSegment();
+
+        int segment = this.segments.size() - 1;
+        MappedByteBuffer buf = this.segments.get(segment);
+        int pos = this.writePos;
+        if (pos + size + Integer.BYTES <= GameArchive.SEGMENT_SIZE)
+            buf.putInt(pos + size, 0); // End of the records
+        buf.putShort(pos + Integer.BYTES, (short) encUsername.length);
+        buf.put(pos + GameArchive.RECORD_HEADER, encUsername);
+        buf.put(pos + GameArchive.RECORD_HEADER + encUsername.length, game);
+        buf.putInt(pos, size - Integer.BYTES); // Commit the record
+
+        this.indexRecord(username, GameArchive.offset(segment, pos));
+        this.writePos += size;
+        if (this.writePos > GameArchive.PREPARE_THRESHOLD)
+            this.prepareSegment();
+        return this.size++;
+    }
+
+    /**
+     * Returns the number of segment files in use
+     */
+    synchronized int segmentCount() {
+        return this.segments.size();
+    }
+
+    /**
+     * Returns the number of records
+     */
+    public synchronized long size() {
+        return this.size;
+    }
+
+    /**
+     * Returns a cursor positioned on the record number {@code from}
+     *
+     * @param from The number of the first record to read. At most {@code size()}
+     */
+    public synchronized Cursor cursor(long from) {
+        Cursor cursor = new Cursor();
+        // The last segment that starts before the record
+        int lo = 0, hi = this.segmentStarts.size() - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (this.segmentStarts.get(mid) <= from)
+                lo = mid;
+            else
+                hi = mid - 1;
+        }
+        cursor.segment = lo;
+        for (long k = this.segmentStarts.get(lo); k < from; ++k)
+            cursor.next();
+        return cursor;
+    }
+
+    /**
+     * Returns a cursor positioned at the start of the last segment that starts with a game older
+     * than {@code gameId}. The games are archived when they are completed, so the game IDs grow
+     * along the archive, and the cursor reaches all the games with that ID or a later one, except
+     * the few that were completed long after their secret word changed
+     *
+     * @param gameId The oldest game ID to reach
+     */
+    public synchronized Cursor cursorFromGame(long gameId) {
+        Cursor cursor = new Cursor();
+        int lo = 0, hi = this.segments.size() - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (GameArchive.recordLength(this.segments.get(mid), 0) > 0
+                    && this.gameId(GameArchive.offset(mid, 0)) < gameId)
+                lo = mid;
+            else
+                hi = mid - 1;
+        }
+        cursor.segment = lo;
+        return cursor;
+    }
+
+    /**
+     * Copy the packed game of the record at {@code offset}
+     */
+    private byte[] read(long offset) {
+        MappedByteBuffer buf = this.segments.get((int) (offset >>> GameArchive.SEGMENT_BITS));
+        int pos = (int) (offset & (GameArchive.SEGMENT_SIZE - 1));
+        int len = buf.getInt(pos);
+        int usernameLen = buf.getShort(pos + Integer.BYTES) & 0xffff;
+        byte[] game = new byte[len - Short.BYTES - usernameLen];
+        buf.get(pos + GameArchive.RECORD_HEADER + usernameLen, game);
+        return game;
+    }
+
+    /**
+     * Returns the game ID of the record at {@code offset}, without copying the game
+     */
+    private long gameId(long offset) {
+        MappedByteBuffer buf = this.segments.get((int) (offset >>> GameArchive.SEGMENT_BITS));
+        int pos = (int) (offset & (GameArchive.SEGMENT_SIZE - 1));
+        int start = pos + GameArchive.RECORD_HEADER + (buf.getShort(pos + Integer.BYTES) & 0xffff);
+        // The game ID is little endian, see PackedGame
+        long v = 0;
+        for (int i = 7; i >= 0; --i)
+            v = (v << 8) | (buf.get(start + i) & 0xff);
+        return v;
+    }
+
+    /**
+     * Returns the number of games completed by {@code username}
+     *
+     * @param username
+     * @return The number of games
+     */
+    public synchronized int count(String username) {
+        UserIndex userIndex = this.index.get(username);
+        return userIndex == null ? 0 : userIndex.size;
+    }
+
+    /**
+     * Returns a page of the games completed by {@code username}, from the most recent one
+     *
+     * @param username
+     * @param skip The number of most recent games to skip
+     * @param count The maximum number of games
+     * @return The packed games, from the most recent one
+     */
+    public synchronized List<byte[]> history(String username, int skip, int count) {
+        UserIndex userIndex = this.index.get(username);
+        List<byte[]> ret = new ArrayList<>();
+        if (userIndex == null)
+            return ret;
+        for (int k = userIndex.size - 1 - skip; k >= 0 && ret.size() < count; --k)
+            ret.add(this.read(userIndex.offsets[k]));
+        return ret;
+    }
+
+    /**
+     * Returns the game {@code gameId} completed by {@code username}
+     *
+     * @param username
+     * @param gameId
+     * @return The packed game or {@code null} if it is not in the archive
+     */
+    public synchronized byte[] get(String username, long gameId) {
+        UserIndex userIndex = this.index.get(username);
+        if (userIndex == null)
+            return null;
+        if (!userIndex.sorted) {
+            for (int k = userIndex.size - 1; k >= 0; --k)
+                if (this.gameId(userIndex.offsets[k]) == gameId)
+                    return this.read(userIndex.offsets[k]);
+            return null;
+        }
+        int lo = 0, hi = userIndex.size - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            long curr = this.gameId(userIndex.offsets[mid]);
+            if (curr < gameId)
+                lo = mid + 1;
+            else if (curr > gameId)
+                hi = mid - 1;
+            else
+                return this.read(userIndex.offsets[mid]);
+        }
+        return null;
+    }
+
+    /**
+     * Write the last segment to the storage device. The appends are not blocked meanwhile
+     */
+    public void force() {
+        MappedByteBuffer last;
+        synchronized (this) {
+            last = this.segments.get(this.segments.size() - 1);
+        }
+        last.force();
+    }
+}
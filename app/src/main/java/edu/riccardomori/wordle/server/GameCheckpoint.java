@@ -0,0 +1,64 @@
+package edu.riccardomori.wordle.server;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// @formatter:off
+/**
+ * Immutable checkpoint of a game in progress, so that it survives a restart of the server. It is
+ * the game packed as in {@code PackedGame}, where the tries field holds the tries left instead of
+ * the tries needed. The secret word is not part of it, so it never reaches the state file or the
+ * replication stream: it is computed again from the game ID when the game is restored.
+ * A checkpoint is taken after every guess by the thread that owns the session, and it replaces
+ * the previous one. The flush reads it without touching the session, so the two never race.
+ */
+// @formatter:on
+final class GameCheckpoint {
+    public final byte[] game; // Packed, must never be modified
+
+    GameCheckpoint(byte[] game) {
+        this.game = game;
+    }
+
+    /**
+     * Take a checkpoint of the game in progress in {@code session}
+     *
+     * @param session The session
+     * @return The checkpoint
+     */
+    public static GameCheckpoint of(UserSession session) {
+        return new GameCheckpoint(PackedGame.pack(session, session.triesLeft));
+    }
+
+    public long gameId() {
+        return PackedGame.gameId(this.game);
+    }
+
+    public int triesLeft() {
+        return PackedGame.tries(this.game);
+    }
+
+    /**
+     * Restore the game in {@code session}
+     *
+     * @param session The session
+     * @param secretWord The secret word of the game, see {@code WordleServer.secretWord}
+     */
+    public void restore(UserSession session, String secretWord) {
+        session.secretWord = secretWord;
+        session.gameId = this.gameId();
+        session.triesLeft = this.triesLeft();
+        session.resetHints();
+        for (int k = 0; k < PackedGame.rounds(this.game); ++k) {
+            session.correctHints.add(GameCheckpoint.toList(PackedGame.correctMask(this.game, k)));
+            session.partialHints.add(GameCheckpoint.toList(PackedGame.partialMask(this.game, k)));
+        }
+    }
+
+    private static List<Integer> toList(long mask) {
+        List<Integer> ret = new ArrayList<>(Long.bitCount(mask));
+        for (int p : PackedGame.positions(mask))
+            ret.add(p);
+        return ret;
+    }
+}
@@ -0,0 +1,79 @@
+package edu.riccardomori.wordle.server;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// @formatter:off
+/**
+ * Real time statistics of the games played with a secret word: how many players started it, how
+ * many won or lost it and the distribution of the tries of the won games.
+ * Every figure is a {@code LongAdder}, whose cells are striped by thread, so recording a result is
+ * a couple of uncontended additions and never blocks the request handlers. The figures are summed
+ * only when a snapshot is taken.
+ * They live only in memory: after a restart, or when a follower takes over, they are rebuilt from
+ * the game archive. In a cluster every node counts the games of its own users, and the partials
+ * are merged when the statistics are requested or shared.
+ */
+// @formatter:on
+public class GameStats {
+    private final long gameId;
+    private final long startTime; // When the secret word was generated (ms since epoch)
+    private final LongAdder players = new LongAdder();
+    private final LongAdder won = new LongAdder();
+    private final LongAdder lost = new LongAdder();
+    private final LongAdder[] guessDist; // guessDist[k] = games won in k + 1 tries
+
+    /**
+     * @param gameId The game ID of the secret word
+     * @param startTime When the secret word was generated (ms since epoch)
+     */
+    public GameStats(long gameId, long startTime) {
+        this.gameId = gameId;
+        this.startTime = startTime;
+        this.guessDist = new LongAdder[WordleServer.WORD_TRIES];
+        for (int k = 0; k < this.guessDist.length; ++k)
+            this.guessDist[k] = new LongAdder();
+    }
+
+    public long getGameId() {
+        return this.gameId;
+    }
+
+    /**
+     * Record a player starting the game
+     */
+    public void start() {
+        this.players.increment();
+    }
+
+    /**
+     * Record a won game
+     *
+     * @param tries The tries needed to win the game
+     */
+    public void win(int tries) {
+        this.won.increment();
+        if (tries >= 1 && tries <= this.guessDist.length)
+            this.guessDist[tries - 1].increment();
+    }
+
+    /**
+     * Record a lost game
+     */
+    public void lose() {
+        this.lost.increment();
+    }
+
+    /**
+     * Take a snapshot of the statistics. The snapshot is not atomic: the games recorded while it
+     * is being taken might be partially included
+     *
+     * @return The snapshot
+     */
+    public GameStatsSnapshot snapshot() {
+        int[] dist = new int[this.guessDist.length];
+        for (int k = 0; k < dist.length; ++k)
+            dist[k] = this.guessDist[k].intValue();
+        return new GameStatsSnapshot(this.gameId, this.startTime, this.players.intValue(),
+                this.won.intValue(), this.lost.intValue(), dist);
+    }
+}
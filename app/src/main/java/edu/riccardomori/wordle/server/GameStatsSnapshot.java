@@ -0,0 +1,125 @@
+package edu.riccardomori.wordle.server;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+// @formatter:off
+/**
+ * Immutable copy of the statistics of a secret word.
+ * Format on the wire (TCP response and share payload):
+ *    gameId (8) | players (4) | won (4) | lost (4) | n (1) | guessDist (4 * n)
+ * Format of a record of the history file, that has a fixed size of {@code RECORD_BYTES}:
+ *    gameId (8) | startTime (8) | players (4) | won (4) | lost (4) | guessDist (4 * WORD_TRIES)
+ */
+// @formatter:on
+public class GameStatsSnapshot {
+    // Size of the snapshot on the wire
+    public static final int BYTES = Long.BYTES + 3 * Integer.BYTES + 1
+            + WordleServer.WORD_TRIES * Integer.BYTES;
+    // Size of a record of the history file
+    public static final int RECORD_BYTES = 2 * Long.BYTES + 3 * Integer.BYTES
+            + WordleServer.WORD_TRIES * Integer.BYTES;
+
+    public final long gameId;
+    public final long startTime; // When the secret word was generated (ms since epoch)
+    public final int players; // Players that started the game
+    public final int won;
+    public final int lost;
+    private final int[] guessDist; // guessDist[k] = games won in k + 1 tries
+
+    GameStatsSnapshot(long gameId, long startTime, int players, int won, int lost,
+            int[] guessDist) {
+        this.gameId = gameId;
+        this.startTime = startTime;
+        this.players = players;
+        this.won = won;
+        this.lost = lost;
+        this.guessDist = guessDist;
+    }
+
+    /**
+     * Returns the fraction of the completed games that have been won
+     *
+     * @return The win rate, NaN if no game has been completed
+     */
+    public double winRate() {
+        return (double) this.won / (this.won + this.lost);
+    }
+
+    /**
+     * Returns the average tries of the won games
+     *
+     * @return The average tries, NaN if no game has been won
+     */
+    public double averageTries() {
+        long sum = 0;
+        for (int k = 0; k < this.guessDist.length; ++k)
+            sum += (long) (k + 1) * this.guessDist[k];
+        return (double) sum / this.won;
+    }
+
+    /**
+     * Put the snapshot in {@code msg} in the wire format. The buffer must have at least
+     * {@code BYTES} bytes remaining
+     *
+     * @param msg The buffer
+     */
+    public void put(ByteBuffer msg) {
+        msg.putLong(this.gameId);
+        msg.putInt(this.players);
+        msg.putInt(this.won);
+        msg.putInt(this.lost);
+        msg.put((byte) this.guessDist.length);
+        for (int v : this.guessDist)
+            msg.putInt(v);
+    }
+
+    /**
+     * Read a snapshot in the wire format, see {@code put}
+     *
+     * @param msg The buffer
+     * @return The snapshot. Its start time is not on the wire, so it is 0
+     */
+    public static GameStatsSnapshot get(ByteBuffer msg) {
+        long gameId = msg.getLong();
+        int players = msg.getInt();
+        int won = msg.getInt();
+        int lost = msg.getInt();
+        int[] guessDist = new int[msg.get()];
+        for (int k = 0; k < guessDist.length; ++k)
+            guessDist[k] = msg.getInt();
+        return new GameStatsSnapshot(gameId, 0, players, won, lost, guessDist);
+    }
+
+    /**
+     * Returns the sum of this snapshot and {@code other}, the one of the same secret word on
+     * another node of the cluster
+     *
+     * @param other The other snapshot
+     * @return The merged snapshot, with the start time of this one
+     */
+    public GameStatsSnapshot merge(GameStatsSnapshot other) {
+        int[] guessDist = this.guessDist.clone();
+        for (int k = 0; k < Math.min(guessDist.length, other.guessDist.length); ++k)
+            guessDist[k] += other.guessDist[k];
+        return new GameStatsSnapshot(this.gameId, this.startTime, this.players + other.players,
+                this.won + other.won, this.lost + other.lost, guessDist);
+    }
+
+    /**
+     * Write the snapshot as a record of the history file
+     *
+     * @param out The output
+     * @throws IOException
+     */
+    public void writeRecord(DataOutput out) throws IOException {
+        out.writeLong(this.gameId);
+        out.writeLong(this.startTime);
+        out.writeInt(this.players);
+        out.writeInt(this.won);
+        out.writeInt(this.lost);
+        for (int v : this.guessDist)
+            out.writeInt(v);
+    }
+}
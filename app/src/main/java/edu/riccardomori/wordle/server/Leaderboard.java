@@ -1,99 +1,252 @@
 package edu.riccardomori.wordle.server;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.TreeMap;
 import edu.riccardomori.wordle.utils.Pair;
+import edu.riccardomori.wordle.utils.SortedLongSet;
+import edu.riccardomori.wordle.utils.StringIntMap;
 
-// TODO consider using order statistic tree to make update O(log(n))
+// @formatter:off
 /**
- * Leadebord implementation. All the operations are O(n)
- * Every access if mutually exclusive.
+ * Leadebord implementation. Every access if mutually exclusive.
+ * The scores are fixed-point numbers (see {@code fixedScore}) so that they are primitive and an
+ * unchanged score is detected exactly. Every username is interned to a dense user ID, and the
+ * ranking is a {@code SortedLongSet} of packed keys:
+ *    key = (score << 32) | userId
+ * ordered by score and then by username, like the leaderboard has always been: a key is compared
+ * as a long unless the scores are equal, which is common with the fixed-point scores. There is no
+ * object per user besides the username itself.
+ * With n users: update and getRank are O(log n + n / B) (see {@code SortedLongSet}), get(k) is
+ * O(k).
  */
+// @formatter:on
 public class Leaderboard {
-    // The BST ordered by score. The boolean value can safely be ignored
-    // The key (score, username) are lexicographically ordered
-    private TreeMap<Pair<Double, String>, Boolean> leaderboard;
+    public static final int SCORE_SCALE = 1000000; // Fixed-point scale of the scores
+    public static final int NO_SCORE = Integer.MAX_VALUE; // Score of a user with no games
+    private static final int ABSENT = -1; // Score of a user that has been removed
 
-    // Map { username -> key in the BST }
-    private Map<String, Pair<Double, String>> userKeys;
+    private final SortedLongSet ranking; // The packed keys in order
+    private final StringIntMap ids; // Map {username -> userId}
+    private String[] usernames; // userId -> username
+    private int[] scores; // userId -> current score, ABSENT if not in the ranking
+    private int nUsers = 0;
 
     public Leaderboard(Collection<User> users) {
-        this.leaderboard = new TreeMap<Pair<Double, String>, Boolean>();
-        this.userKeys = new HashMap<String, Pair<Double, String>>();
-
-        // Add all the users
-        for (User user : users) {
-            Pair<Double, String> p = new Pair<>(user.score(), user.getUsername());
-            this.leaderboard.put(p, true);
-            this.userKeys.put(user.getUsername(), p);
+        int n = users.size();
+        this.ids = new StringIntMap(n);
+        this.usernames = new String[Math.max(n, 16)];
+        this.scores = new int[Math.max(n, 16)];
+
+        // Add all the users and sort them at once
+        long[] keys = new long[n];
+        int k = 0;
+        for (User user : users)
+            keys[k++] = this.add(user.getUsername(), user.fixedScore());
+        this.ranking = this.sort(keys, k);
+    }
+
+    /**
+     * @param usernames The users
+     * @param scores The fixed-point score of every user in {@code usernames}
+     */
+    public Leaderboard(String[] usernames, int[] scores) {
+        int n = usernames.length;
+        this.ids = new StringIntMap(n);
+        this.usernames = new String[Math.max(n, 16)];
+        this.scores = new int[Math.max(n, 16)];
+
+        long[] keys = new long[n];
+        for (int i = 0; i < n; ++i)
+            keys[i] = this.add(usernames[i], scores[i]);
+        this.ranking = this.sort(keys, n);
+    }
+
+    /**
+     * Add a user while building the leaderboard
+     *
+     * @return Its key
+     */
+    private long add(String username, int score) {
+        int id = this.intern(username);
+        this.scores[id] = score;
+        return Leaderboard.key(score, id);
+    }
+
+    /**
+     * Sort the first {@code k} keys into the ranking. The keys with different scores are ordered
+     * as longs, so they are sorted as primitives and only the runs of equal scores are then sorted
+     * by username
+     */
+    private SortedLongSet sort(long[] keys, int k) {
+        long[] sorted = k == keys.length ? keys : Arrays.copyOf(keys, k);
+        Arrays.sort(sorted);
+        int i = 0;
+        while (i < k) {
+            int score = Leaderboard.keyScore(sorted[i]);
+            int j = i + 1;
+            while (j < k && Leaderboard.keyScore(sorted[j]) == score)
+                ++j;
+            SortedLongSet.sort(sorted, i, j, this::compare);
+            i = j;
+        }
+        return new SortedLongSet(sorted, this::compare);
+    }
+
+    /**
+     * Compute the fixed-point WAS. The WAS is at most {@code WORD_TRIES + 1}, so it always fits in
+     * an int
+     *
+     * @param triesSum The sum of the tries of all the games
+     * @param totGames The number of games
+     * @return The WAS scaled by {@code SCORE_SCALE}, rounded down. {@code NO_SCORE} if there are no
+     *         games
+     */
+    public static int fixedScore(long triesSum, int totGames) {
+        if (totGames == 0)
+            return Leaderboard.NO_SCORE;
+        return (int) (triesSum * Leaderboard.SCORE_SCALE / totGames);
+    }
+
+    /**
+     * Convert a fixed-point score to the WAS
+     *
+     * @param fixedScore The fixed-point score
+     * @return The WAS. NaN for {@code NO_SCORE}
+     */
+    public static double toScore(int fixedScore) {
+        if (fixedScore == Leaderboard.NO_SCORE)
+            return Double.NaN;
+        return (double) fixedScore / Leaderboard.SCORE_SCALE;
+    }
+
+    private static long key(int score, int id) {
+        return ((long) score << 32) | id;
+    }
+
+    /**
+     * The order of the keys: by score and then by username. The scores are non-negative, so the
+     * keys with different scores are ordered as longs
+     */
+    private int compare(long a, long b) {
+        if (Leaderboard.keyScore(a) != Leaderboard.keyScore(b))
+            return Long.compare(a, b);
+        return this.usernames[Leaderboard.keyId(a)]
+                .compareTo(this.usernames[Leaderboard.keyId(b)]);
+    }
+
+    private static int keyId(long key) {
+        return (int) key;
+    }
+
+    private static int keyScore(long key) {
+        return (int) (key >>> 32);
+    }
+
+    /**
+     * Returns the ID of {@code username}, assigning a new one if needed
+     */
+    private int intern(String username) {
+        int id = this.ids.get(username);
+        if (id != StringIntMap.MISSING)
+            return id;
+
+        id = this.nUsers++;
+        if (id == this.usernames.length) {
+            this.usernames = Arrays.copyOf(this.usernames, id * 2);
+            this.scores = Arrays.copyOf(this.scores, id * 2);
         }
+        this.usernames[id] = username;
+        this.ids.put(username, id);
+        return id;
+    }
+
+    /**
+     * Convert the keys to the public representation
+     */
+    private List<Pair<String, Double>> toList(long[] keys) {
+        List<Pair<String, Double>> ret = new ArrayList<>(keys.length);
+        for (long key : keys)
+            ret.add(new Pair<String, Double>(this.usernames[Leaderboard.keyId(key)],
+                    Leaderboard.toScore(Leaderboard.keyScore(key))));
+        return ret;
     }
 
     /**
      * Returns the first {@code ranks} positions of the leaderboard
-     * 
+     *
      * @param ranks
      * @return List of pairs {@code <Username, Score>} in the order they appear in the leaderboard
      */
     public synchronized List<Pair<String, Double>> get(int ranks) {
-        List<Pair<String, Double>> ret = new ArrayList<>();
-        for (Pair<Double, String> curr : this.leaderboard.navigableKeySet()) {
-            ret.add(new Pair<String, Double>(curr.second, curr.first));
-            if (ret.size() == ranks)
-                return ret;
-        }
-
-        return ret;
+        return this.toList(this.ranking.head(ranks));
     }
 
     /**
      * Returns the full leaderboard
-     * 
+     *
      * @return List of pairs {@code <Username, Score>} in the order they appear in the leaderboard
      */
     public synchronized List<Pair<String, Double>> get() {
-        List<Pair<String, Double>> ret = new ArrayList<>();
-        for (Pair<Double, String> curr : this.leaderboard.navigableKeySet())
-            ret.add(new Pair<String, Double>(curr.second, curr.first));
+        return this.toList(this.ranking.toArray());
+    }
 
-        return ret;
+    /**
+     * Returns the current rank of {@code username}
+     *
+     * @param username
+     * @return The rank or -1 if the user is not in the leaderboard
+     */
+    public synchronized int getRank(String username) {
+        int id = this.ids.get(username);
+        if (id == StringIntMap.MISSING || this.scores[id] == Leaderboard.ABSENT)
+            return -1;
+        return this.ranking.rank(Leaderboard.key(this.scores[id], id));
     }
 
     /**
      * Update the rank of {@code username} in the leaderboard and returns it's new position in the
      * leaderboard
-     * 
+     *
      * @param username
-     * @param score
+     * @param score The fixed-point score
+     * @return The new position or -1 if the score did not change
      */
-    public synchronized int update(String username, Double score) {
-        Pair<Double, String> p = this.userKeys.get(username);
-        if (p != null) {
-            if (p.first == score)
+    public synchronized int update(String username, int score) {
+        int id = this.ids.get(username);
+        if (id != StringIntMap.MISSING) {
+            if (this.scores[id] == score)
                 return -1; // Nothing changed, do not update the leaderboard
 
-            // Remove the previous node and add the new one afterward
-            this.leaderboard.remove(p);
+            // Remove the previous key and add the new one afterward
+            if (this.scores[id] != Leaderboard.ABSENT)
+                this.ranking.remove(Leaderboard.key(this.scores[id], id));
+        } else {
+            id = this.intern(username);
         }
 
-        // New node
-        p = new Pair<Double, String>(score, username);
-        this.leaderboard.put(p, true);
-        this.userKeys.put(username, p);
+        this.scores[id] = score;
+        long key = Leaderboard.key(score, id);
+        this.ranking.add(key);
+        return this.ranking.rank(key);
+    }
 
-        // Find the new position
-        int k = 0;
-        for (Pair<Double, String> curr : this.leaderboard.navigableKeySet()) {
-            if (curr.second.equals(username))
-                return k;
-            k++;
-        }
+    /**
+     * Remove {@code username} from the leaderboard. Its user ID is kept for when it comes back
+     *
+     * @param username
+     * @return The position it had or -1 if it was not in the leaderboard
+     */
+    public synchronized int remove(String username) {
+        int id = this.ids.get(username);
+        if (id == StringIntMap.MISSING || this.scores[id] == Leaderboard.ABSENT)
+            return -1;
 
-        // This never happens
-        throw new RuntimeException();
+        long key = Leaderboard.key(this.scores[id], id);
+        int rank = this.ranking.rank(key);
+        this.ranking.remove(key);
+        this.scores[id] = Leaderboard.ABSENT;
+        return rank;
     }
 }
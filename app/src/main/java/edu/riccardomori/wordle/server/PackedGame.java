@@ -0,0 +1,221 @@
+package edu.riccardomori.wordle.server;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+// @formatter:off
+/**
+ * Compact, immutable encoding of a completed game. A {@code GameDescriptor} holds two arrays of
+ * int arrays, that is a couple of dozens of objects per game. Here every hint is a bitmask of the
+ * positions of the word, so the whole game fits in a single byte array.
+ * Layout:
+ *    [gameId: 8 bytes][tries: 1][maxTries: 1][wordLen: 1][rounds: 1]
+ *    rounds x ([correct mask: maskSize bytes][partial mask: maskSize bytes])
+ * where maskSize = ceil(wordLen / 8) and the masks are little endian. Bit k of a mask is set if
+ * position k is in the hint. The words are at most WORD_MAX_SIZE characters, so a mask always
+ * fits in a long.
+ * The arrays returned by the {@code pack} functions must never be modified.
+ */
+// @formatter:on
+final class PackedGame {
+    private static final int HEADER_SIZE = 12;
+
+    private PackedGame() {}
+
+    private static int maskSize(int wordLen) {
+        return (wordLen + 7) >>> 3;
+    }
+
+    /**
+     * Pack the game just completed in a session
+     *
+     * @param session The session
+     * @param tries Number of tries needed. -1 if the game was lost
+     * @return The packed game
+     */
+    public static byte[] pack(UserSession session, int tries) {
+        int wordLen = session.secretWord.length();
+        int rounds = session.correctHints.size();
+        byte[] game = PackedGame.header(session.gameId, tries, WordleServer.WORD_TRIES, wordLen,
+                rounds);
+        for (int k = 0; k < rounds; ++k) {
+            PackedGame.putMask(game, k, 0, PackedGame.mask(session.correctHints.get(k)));
+            PackedGame.putMask(game, k, 1, PackedGame.mask(session.partialHints.get(k)));
+        }
+        return game;
+    }
+
+    /**
+     * Pack a game descriptor
+     *
+     * @param desc The game
+     * @return The packed game
+     */
+    public static byte[] pack(GameDescriptor desc) {
+        int rounds = Math.min(desc.correct.length, desc.partial.length);
+        byte[] game =
+                PackedGame.header(desc.gameId, desc.tries, desc.maxTries, desc.wordLen, rounds);
+        for (int k = 0; k < rounds; ++k) {
+            PackedGame.putMask(game, k, 0, PackedGame.mask(desc.correct[k]));
+            PackedGame.putMask(game, k, 1, PackedGame.mask(desc.partial[k]));
+        }
+        return game;
+    }
+
+    /**
+     * Unpack a game
+     *
+     * @param game The packed game
+     * @return A new descriptor of the game
+     */
+    public static GameDescriptor unpack(byte[] game) {
+        int rounds = PackedGame.rounds(game);
+        int[][] correct = new int[rounds][];
+        int[][] partial = new int[rounds][];
+        for (int k = 0; k < rounds; ++k) {
+            correct[k] = PackedGame.positions(PackedGame.correctMask(game, k));
+            partial[k] = PackedGame.positions(PackedGame.partialMask(game, k));
+        }
+        return new GameDescriptor(PackedGame.gameId(game), PackedGame.tries(game),
+                PackedGame.maxTries(game), PackedGame.wordLen(game), correct, partial);
+    }
+
+    /**
+     * Returns the size of the game in the protocol format, see {@code encode}
+     *
+     * @param game The packed game
+     * @return The size in bytes
+     */
+    public static int encodedSize(byte[] game) {
+        int rounds = PackedGame.rounds(game);
+        int size = Long.BYTES + 4 + 2 * rounds;
+        for (int k = 0; k < rounds; ++k)
+            size += Long.bitCount(PackedGame.correctMask(game, k))
+                    + Long.bitCount(PackedGame.partialMask(game, k));
+        return size;
+    }
+
+    /**
+     * Put the game in {@code msg} in the protocol format, the same one of the shared games:
+     * gameId, tries, maxTries, wordLen, rounds and then for every round the number of correct and
+     * partial positions followed by the positions
+     *
+     * @param game The packed game
+     * @param msg The buffer. It must have at least {@code encodedSize(game)} bytes remaining
+     */
+    public static void encode(byte[] game, ByteBuffer msg) {
+        int rounds = PackedGame.rounds(game);
+        msg.putLong(PackedGame.gameId(game));
+        msg.put((byte) PackedGame.tries(game));
+        msg.put((byte) PackedGame.maxTries(game));
+        msg.put((byte) PackedGame.wordLen(game));
+        msg.put((byte) rounds);
+        for (int k = 0; k < rounds; ++k) {
+            long correct = PackedGame.correctMask(game, k);
+            long partial = PackedGame.partialMask(game, k);
+            msg.put((byte) Long.bitCount(correct));
+            msg.put((byte) Long.bitCount(partial));
+            for (; correct != 0; correct &= correct - 1)
+                msg.put((byte) Long.numberOfTrailingZeros(correct));
+            for (; partial != 0; partial &= partial - 1)
+                msg.put((byte) Long.numberOfTrailingZeros(partial));
+        }
+    }
+
+    public static long gameId(byte[] game) {
+        long v = 0;
+        for (int i = 7; i >= 0; --i)
+            v = (v << 8) | (game[i] & 0xff);
+        return v;
+    }
+
+    public static int tries(byte[] game) {
+        return game[8]; // Signed, a lost game has -1
+    }
+
+    public static int maxTries(byte[] game) {
+        return game[9] & 0xff;
+    }
+
+    public static int wordLen(byte[] game) {
+        return game[10] & 0xff;
+    }
+
+    public static int rounds(byte[] game) {
+        return game[11] & 0xff;
+    }
+
+    /**
+     * Returns the mask of the correct positions after the {@code k}-th try
+     */
+    public static long correctMask(byte[] game, int k) {
+        return PackedGame.getMask(game, k, 0);
+    }
+
+    /**
+     * Returns the mask of the partial positions after the {@code k}-th try
+     */
+    public static long partialMask(byte[] game, int k) {
+        return PackedGame.getMask(game, k, 1);
+    }
+
+    /**
+     * Convert a mask to the sorted array of its positions
+     */
+    public static int[] positions(long mask) {
+        int[] ret = new int[Long.bitCount(mask)];
+        for (int i = 0; mask != 0; ++i) {
+            ret[i] = Long.numberOfTrailingZeros(mask);
+            mask &= mask - 1;
+        }
+        return ret;
+    }
+
+    private static byte[] header(long gameId, int tries, int maxTries, int wordLen, int rounds) {
+        int size = PackedGame.HEADER_SIZE + 2 * rounds * PackedGame.maskSize(wordLen);
+        byte[] game = new byte[size];
+        for (int i = 0; i < 8; ++i)
+            game[i] = (byte) (gameId >>> (8 * i));
+        game[8] = (byte) tries;
+        game[9] = (byte) maxTries;
+        game[10] = (byte) wordLen;
+        game[11] = (byte) rounds;
+        return game;
+    }
+
+    private static long mask(List<Integer> positions) {
+        long mask = 0;
+        for (int p : positions)
+            mask |= 1L << p;
+        return mask;
+    }
+
+    private static long mask(int[] positions) {
+        long mask = 0;
+        for (int p : positions)
+            mask |= 1L << p;
+        return mask;
+    }
+
+    // Offset of the mask `which` (0 correct, 1 partial) of the round k
+    private static int offset(byte[] game, int k, int which) {
+        int maskSize = PackedGame.maskSize(PackedGame.wordLen(game));
+        return PackedGame.HEADER_SIZE + (2 * k + which) * maskSize;
+    }
+
+    private static void putMask(byte[] game, int k, int which, long mask) {
+        int off = PackedGame.offset(game, k, which);
+        int maskSize = PackedGame.maskSize(PackedGame.wordLen(game));
+        for (int i = 0; i < maskSize; ++i)
+            game[off + i] = (byte) (mask >>> (8 * i));
+    }
+
+    private static long getMask(byte[] game, int k, int which) {
+        int off = PackedGame.offset(game, k, which);
+        int maskSize = PackedGame.maskSize(PackedGame.wordLen(game));
+        long mask = 0;
+        for (int i = maskSize - 1; i >= 0; --i)
+            mask = (mask << 8) | (game[off + i] & 0xff);
+        return mask;
+    }
+}
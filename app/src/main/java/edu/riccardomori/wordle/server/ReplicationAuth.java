@@ -0,0 +1,187 @@
+package edu.riccardomori.wordle.server;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+// @formatter:off
+/**
+ * Mutual authentication of the two ends of a replication connection with a shared secret. Both
+ * ends send a random challenge and prove that they know the secret with an HMAC of the challenge
+ * of the other end, so the secret never travels on the network and a recorded handshake cannot be
+ * replayed. The handshake is:
+ *    primary  -> follower   challenge (16)
+ *    follower -> primary    request op (1) | value (8) | challenge (16) | proof (32)
+ *    primary  -> follower   proof (32)
+ * where the proof of the follower also covers its request. The primary sends nothing else before
+ * it has verified the follower. The stream itself is not encrypted.
+ * The same secret signs the tickets that log the users of the primary in its leaderboard replicas,
+ * which do not have the password hashes:
+ *    expiry (8) | usernameLen (1) | username (UTF-8) | proof (32)
+ * where the proof is an HMAC of the rest of the ticket, and the calls between the nodes of a
+ * cluster, see clusterRMI.
+ */
+// @formatter:on
+final class ReplicationAuth {
+    public static final int CHALLENGE_SIZE = 16;
+    public static final int PROOF_SIZE = 32;
+    public static final int HANDSHAKE_TIMEOUT = 5000; // Milliseconds to complete the handshake
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+    private static final byte PRIMARY = 'P';
+    private static final byte FOLLOWER = 'F';
+    private static final byte TICKET = 'T';
+    private static final byte CALL = 'C';
+    private static final SecureRandom random = new SecureRandom();
+
+    private final SecretKeySpec key;
+
+    /**
+     * @param secret The secret shared by the primary and its followers. It must not be empty
+     */
+    public ReplicationAuth(String secret) {
+        this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8),
+                ReplicationAuth.MAC_ALGORITHM);
+    }
+
+    public static byte[] challenge() {
+        byte[] challenge = new byte[ReplicationAuth.CHALLENGE_SIZE];
+        ReplicationAuth.random.nextBytes(challenge);
+        return challenge;
+    }
+
+    /**
+     * The proof of the follower for the challenge of the primary and its request
+     */
+    public byte[] followerProof(byte[] challenge, byte op, long value) {
+        Mac mac = this.mac(ReplicationAuth.FOLLOWER, challenge);
+        mac.update(op);
+        ReplicationAuth.update(mac, value);
+        return mac.doFinal();
+    }
+
+    /**
+     * The proof of the primary for the challenge of the follower
+     */
+    public byte[] primaryProof(byte[] challenge) {
+        return this.mac(ReplicationAuth.PRIMARY, challenge).doFinal();
+    }
+
+    /**
+     * A ticket that logs {@code username} in the leaderboard replicas until {@code expiry}
+     *
+     * @param username The user
+     * @param expiry When the ticket expires (ms since epoch)
+     * @return The ticket, or {@code null} if the username is too long to fit
+     */
+    public byte[] ticket(String username, long expiry) {
+        byte[] name = username.getBytes(StandardCharsets.UTF_8);
+        if (name.length > 0xff)
+            return null;
+        ByteBuffer ticket =
+                ByteBuffer.allocate(Long.BYTES + 1 + name.length + ReplicationAuth.PROOF_SIZE);
+        ticket.putLong(expiry);
+        ticket.put((byte) name.length);
+        ticket.put(name);
+        byte[] body = new byte[ticket.position()];
+        ticket.get(0, body);
+        ticket.put(this.mac(ReplicationAuth.TICKET, body).doFinal());
+        return ticket.array();
+    }
+
+    /**
+     * Check a ticket. The proof is checked in constant time
+     *
+     * @param ticket The ticket, ready to be read
+     * @param now The current time (ms since epoch)
+     * @return The username, or {@code null} if the ticket is malformed, forged or expired
+     */
+    public String checkTicket(ByteBuffer ticket, long now) {
+        try {
+            int start = ticket.position();
+            long expiry = ticket.getLong();
+            byte[] name = new byte[ticket.get() & 0xff];
+            ticket.get(name);
+            byte[] body = new byte[ticket.position() - start];
+            ticket.get(start, body);
+            byte[] proof = new byte[ReplicationAuth.PROOF_SIZE];
+            ticket.get(proof);
+            if (!MessageDigest.isEqual(proof, this.mac(ReplicationAuth.TICKET, body).doFinal())
+                    || expiry < now)
+                return null;
+            return new String(name, StandardCharsets.UTF_8);
+        } catch (BufferUnderflowException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The proof of a call between the nodes of a cluster
+     *
+     * @param method The name of the remote method
+     * @param time When the call is made (ms since epoch)
+     * @param args The arguments of the call
+     * @return The proof
+     */
+    public byte[] callProof(String method, long time, long... args) {
+        byte[] name = method.getBytes(StandardCharsets.UTF_8);
+        Mac mac = this.mac(ReplicationAuth.CALL, new byte[] {(byte) name.length});
+        mac.update(name);
+        ReplicationAuth.update(mac, time);
+        for (long arg : args)
+            ReplicationAuth.update(mac, arg);
+        return mac.doFinal();
+    }
+
+    /**
+     * Check the proof of a call between the nodes of a cluster in constant time
+     *
+     * @param proof The proof sent by the caller
+     * @param method The name of the remote method
+     * @param time When the call was made (ms since epoch)
+     * @param args The arguments of the call
+     * @return True if the proof is right
+     */
+    public boolean checkCall(byte[] proof, String method, long time, long... args) {
+        return proof != null
+                && MessageDigest.isEqual(proof, this.callProof(method, time, args));
+    }
+
+    /**
+     * Read a proof and check it in constant time
+     *
+     * @param in The stream
+     * @param expected The expected proof
+     * @throws IOException If the proof cannot be read or is wrong
+     */
+    public static void verify(DataInputStream in, byte[] expected) throws IOException {
+        byte[] proof = new byte[ReplicationAuth.PROOF_SIZE];
+        in.readFully(proof);
+        if (!MessageDigest.isEqual(proof, expected))
+            throw new IOException("Wrong replication secret");
+    }
+
+    private static void update(Mac mac, long value) {
+        for (int shift = 56; shift >= 0; shift -= 8)
+            mac.update((byte) (value >>> shift));
+    }
+
+    private Mac mac(byte role, byte[] challenge) {
+        try {
+            Mac mac = Mac.getInstance(ReplicationAuth.MAC_ALGORITHM);
+            mac.init(this.key);
+            mac.update(role);
+            mac.update(challenge);
+            return mac;
+        } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,367 @@
+package edu.riccardomori.wordle.server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.logging.Logger;
+import com.google.gson.stream.JsonReader;
+
+// @formatter:off
+/**
+ * Follower side of the replication stream, see ReplicationOp. It keeps the in-memory state of the
+ * server up to date with the one of the primary, so that it can take over as soon as the primary
+ * fails, with no state to reload.
+ * Until the first snapshot is received it keeps trying to connect to the primary. After that, when
+ * the stream ends or nothing arrives for {@code FAILOVER_TIMEOUT} ms, which is five heartbeats,
+ * the follower connects again. If the primary accepts the connection it is alive (for example it
+ * was in a long GC pause, or it dropped this follower) and the follower syncs again from a new
+ * snapshot. Only when the primary cannot be reached anymore it is considered failed, at most
+ * {@code FAILOVER_TIMEOUT + CONNECT_TIMEOUT} ms after its last heartbeat. A primary that is alive
+ * but unreachable, because of a network partition, is fenced when it can be reached again: see
+ * {@code fence}.
+ * The records are applied to a {@code Replica}, the server itself for a hot standby, or to a
+ * {@code ScoresReplica}, a read-only copy of the leaderboard that follows only the scores (see
+ * WordleServer.configureLeaderboardReplica).
+ */
+// @formatter:on
+public class ReplicationFollower {
+    public static final int FAILOVER_TIMEOUT = 500; // Milliseconds of silence of a lost stream
+    public static final int CONNECT_TIMEOUT = 300; // Milliseconds to connect to the primary
+    public static final int RETRY_INTERVAL = 1000; // Milliseconds between two connection attempts
+    public static final int SNAPSHOT_TIMEOUT = 60000; // Milliseconds to receive the snapshot
+
+    private final String host;
+    private final int port;
+    private final ReplicationAuth auth;
+    private final Replica replica; // null if following the scores
+    private final ScoresReplica scoresReplica; // null if following the whole state
+    private final Logger logger = Logger.getLogger("Wordle");
+
+    /**
+     * The state that follows the primary. The methods are called by the follower thread only
+     */
+    public interface Replica {
+        /**
+         * Start loading a snapshot. Its users follow with {@code applyReplicatedUser}, then
+         * {@code endSnapshot} is called. The users are never removed, so the ones of an interrupted
+         * snapshot are kept
+         *
+         * @param epoch The epoch of the primary
+         * @param schedule The secret word schedule of the primary
+         */
+        void beginSnapshot(long epoch, WordSchedule schedule);
+
+        /**
+         * All the users of the snapshot have been loaded
+         */
+        void endSnapshot();
+
+        /**
+         * Replace a user with its current state
+         *
+         * @param user The user
+         */
+        void applyReplicatedUser(User user);
+
+        /**
+         * Returns the number of games in the archive, or -1 if the replica keeps no archive. The
+         * primary streams the archived games from there
+         */
+        long getArchivedGames();
+
+        /**
+         * Archive a game that was archived on the primary before this follower attached
+         *
+         * @param seq The number of the game in the archive of the primary
+         * @param username The player
+         * @param game The packed game
+         * @throws IOException If the game cannot be archived, or some games are missing before
+         */
+        void archiveReplicatedGame(long seq, String username, byte[] game) throws IOException;
+
+        /**
+         * Record a game completed on the primary
+         *
+         * @param seq The number of the game in the archive of the primary
+         * @param username The player
+         * @param score The new all-time fixed-point score of the player
+         * @param game The packed game
+         * @throws IOException If the game cannot be archived, or some games are missing before
+         */
+        void recordReplicatedGame(long seq, String username, int score, byte[] game)
+                throws IOException;
+    }
+
+    /**
+     * The scores of the users that follow the primary. The methods are called by the follower
+     * thread only
+     */
+    public interface ScoresReplica {
+        /**
+         * Replace all the scores with a snapshot
+         *
+         * @param usernames The users of the primary
+         * @param scores The all-time fixed-point score of every user in {@code usernames}
+         */
+        void loadScores(String[] usernames, int[] scores);
+
+        /**
+         * Update the score of a user
+         *
+         * @param username The user
+         * @param score The new all-time fixed-point score
+         */
+        void applyScore(String username, int score);
+    }
+
+    /**
+     * @param host The host of the primary
+     * @param port The replication port of the primary
+     * @param secret The secret shared with the primary
+     * @param replica The state to keep up to date
+     */
+    public ReplicationFollower(String host, int port, String secret, Replica replica) {
+        this.host = host;
+        this.port = port;
+        this.auth = new ReplicationAuth(secret);
+        this.replica = replica;
+        this.scoresReplica = null;
+    }
+
+    /**
+     * @param host The host of the primary
+     * @param port The replication port of the primary
+     * @param secret The secret shared with the primary
+     * @param scoresReplica The scores to keep up to date
+     */
+    public ReplicationFollower(String host, int port, String secret,
+            ScoresReplica scoresReplica) {
+        this.host = host;
+        this.port = port;
+        this.auth = new ReplicationAuth(secret);
+        this.replica = null;
+        this.scoresReplica = scoresReplica;
+    }
+
+    /**
+     * Follow the primary. It returns only when the primary cannot be reached anymore, after it has
+     * sent a snapshot
+     */
+    public void follow() {
+        boolean synced = false;
+        while (true) {
+            boolean reached = false; // The primary accepted the connection
+            boolean accepted = false; // The primary accepted the request
+            boolean streaming = false; // The stream was live
+            try (Socket socket = new Socket()) {
+                socket.connect(new InetSocketAddress(this.host, this.port),
+                        ReplicationFollower.CONNECT_TIMEOUT);
+                reached = true;
+                DataInputStream in =
+                        new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                if (this.replica != null)
+                    this.authenticate(socket, in, ReplicationOp.FOLLOW,
+                            this.replica.getArchivedGames());
+                else
+                    this.authenticate(socket, in, ReplicationOp.FOLLOW_SCORES, 0);
+                accepted = true;
+                socket.setSoTimeout(ReplicationFollower.SNAPSHOT_TIMEOUT);
+                int nUsers = this.replica != null ? this.loadSnapshot(in) : this.loadScores(in);
+                synced = true;
+                streaming = true;
+                this.logger.info(() -> String.format("Replica synced: %d users", nUsers));
+
+                socket.setSoTimeout(ReplicationFollower.FAILOVER_TIMEOUT);
+                this.apply(in);
+            } catch (IOException e) {
+                if (synced && !reached) {
+                    this.logger.warning(() -> String.format("Primary lost: %s", e));
+                    return;
+                }
+                if (streaming) {
+                    // Check right away whether the primary is still there
+                    this.logger.warning(() -> String.format("Stream interrupted: %s", e));
+                    continue;
+                }
+                if (accepted)
+                    this.logger.warning(() -> String.format("Rejected by the primary: %s", e));
+                else
+                    this.logger.fine(() -> String.format("Primary not available: %s", e));
+                try {
+                    Thread.sleep(ReplicationFollower.RETRY_INTERVAL);
+                } catch (InterruptedException e1) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Fence the primary this follower took over from: if it is still running, with an older
+     * epoch, it steps down. If it has a newer epoch this server is the stale one, and it exits.
+     * Nothing happens if it cannot be reached
+     *
+     * @param epoch The epoch of this server, as a primary
+     */
+    public void fence(long epoch) {
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(this.host, this.port),
+                    ReplicationFollower.CONNECT_TIMEOUT);
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            this.authenticate(socket, in, ReplicationOp.FENCE, epoch);
+            long remoteEpoch = in.readLong();
+            if (remoteEpoch > epoch) {
+                this.logger.severe(() -> String.format(
+                        "The primary %s:%d is at epoch %d, newer than %d. Stepping down",
+                        this.host, this.port, remoteEpoch, epoch));
+                System.exit(1);
+            } else if (remoteEpoch < epoch) {
+                this.logger.warning(() -> String.format("Fenced the old primary %s:%d",
+                        this.host, this.port));
+            }
+        } catch (IOException e) {
+            this.logger.fine(() -> String.format("Old primary not reachable: %s", e));
+        }
+    }
+
+    /**
+     * Run the handshake with the primary and send a request, see ReplicationAuth
+     *
+     * @param op The request
+     * @param value The value of the request
+     * @throws IOException If the primary does not answer or fails the authentication
+     */
+    private void authenticate(Socket socket, DataInputStream in, ReplicationOp op, long value)
+            throws IOException {
+        socket.setSoTimeout(ReplicationAuth.HANDSHAKE_TIMEOUT);
+        byte[] challenge = new byte[ReplicationAuth.CHALLENGE_SIZE];
+        in.readFully(challenge);
+
+        byte[] ownChallenge = ReplicationAuth.challenge();
+        DataOutputStream out =
+                new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        out.writeByte(op.getValue());
+        out.writeLong(value);
+        out.write(ownChallenge);
+        out.write(this.auth.followerProof(challenge, op.getValue(), value));
+        out.flush();
+        ReplicationAuth.verify(in, this.auth.primaryProof(ownChallenge));
+    }
+
+    /**
+     * Read the SNAPSHOT record and load it in the replica
+     *
+     * @return The number of users
+     */
+    private int loadSnapshot(DataInputStream in) throws IOException {
+        if (ReplicationOp.fromByte(in.readByte()) != ReplicationOp.SNAPSHOT)
+            throw new IOException("The stream does not start with a snapshot");
+        this.replica.beginSnapshot(in.readLong(), WordSchedule.read(in));
+        int count = 0;
+        for (int length = in.readInt(); length > 0; length = in.readInt()) {
+            for (User user : ReplicationFollower.decode(in, length).values()) {
+                this.replica.applyReplicatedUser(user);
+                ++count;
+            }
+        }
+        this.replica.endSnapshot();
+        return count;
+    }
+
+    /**
+     * Read the SCORES record and load it in the scores replica
+     *
+     * @return The number of users
+     */
+    private int loadScores(DataInputStream in) throws IOException {
+        if (ReplicationOp.fromByte(in.readByte()) != ReplicationOp.SCORES)
+            throw new IOException("The stream does not start with the scores");
+        String[] usernames = new String[ReplicationPrimary.SNAPSHOT_CHUNK];
+        int[] scores = new int[ReplicationPrimary.SNAPSHOT_CHUNK];
+        int count = 0;
+        for (int chunk = in.readInt(); chunk != 0; chunk = in.readInt()) {
+            if (chunk < 0 || chunk > ReplicationPrimary.SNAPSHOT_CHUNK)
+                throw new IOException(String.format("Invalid number of users %d", chunk));
+            if (count + chunk > usernames.length) {
+                usernames = Arrays.copyOf(usernames, usernames.length * 2);
+                scores = Arrays.copyOf(scores, scores.length * 2);
+            }
+            for (int i = 0; i < chunk; ++i, ++count) {
+                usernames[count] = ReplicationFollower.readString(in);
+                scores[count] = in.readInt();
+            }
+        }
+        this.scoresReplica.loadScores(Arrays.copyOf(usernames, count),
+                Arrays.copyOf(scores, count));
+        return count;
+    }
+
+    /**
+     * Read a length-prefixed UTF-8 string
+     */
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] data = new byte[in.readInt()];
+        in.readFully(data);
+        return new String(data, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Apply the records of the stream until it fails
+     */
+    private void apply(DataInputStream in) throws IOException {
+        while (true) {
+            ReplicationOp op = ReplicationOp.fromByte(in.readByte());
+            switch (op) {
+                case USER:
+                    for (User user : ReplicationFollower.decode(in, in.readInt()).values())
+                        this.replica.applyReplicatedUser(user);
+                    break;
+
+                case GAME:
+                case ARCHIVE:
+                    long seq = in.readLong();
+                    String username = ReplicationFollower.readString(in);
+                    int score = op == ReplicationOp.GAME ? in.readInt() : 0;
+                    byte[] game = new byte[in.readInt()];
+                    in.readFully(game);
+                    if (op == ReplicationOp.GAME)
+                        this.replica.recordReplicatedGame(seq, username, score, game);
+                    else
+                        this.replica.archiveReplicatedGame(seq, username, game);
+                    break;
+
+                case SCORE:
+                    String scoreUsername = ReplicationFollower.readString(in);
+                    this.scoresReplica.applyScore(scoreUsername, in.readInt());
+                    break;
+
+                case HEARTBEAT:
+                    break;
+
+                default:
+                    throw new IOException(String.format("Unknown replication record %s", op));
+            }
+        }
+    }
+
+    /**
+     * Read a JSON object {username -> user} of {@code length} bytes
+     */
+    private static Map<String, User> decode(DataInputStream in, int length) throws IOException {
+        byte[] data = new byte[length];
+        in.readFully(data);
+        try (JsonReader reader = new JsonReader(new InputStreamReader(
+                new ByteArrayInputStream(data), StandardCharsets.UTF_8))) {
+            return UserCodec.readUsers(reader);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package edu.riccardomori.wordle.server;
+
+// @formatter:off
+/**
+ * The records of the replication stream from the primary to its followers. A follower opens the
+ * connection with a FOLLOW request, see ReplicationAuth. Then every record is the op byte followed
+ * by its payload:
+ *    SNAPSHOT   epoch (8) | schedule (28) | chunks of users, then a length 0:
+ *                   length (4) | up to SNAPSHOT_CHUNK users (UTF-8 JSON {username -> user})
+ *    USER       length (4) | the changed user (UTF-8 JSON object {username -> user})
+ *    GAME       seq (8) | length (4) | username (UTF-8) | score (4) | length (4) | packed game
+ *    HEARTBEAT  nothing
+ *    ARCHIVE    seq (8) | length (4) | username (UTF-8) | length (4) | packed game
+ * The schedule is the word seed, the anchor of the game IDs and the rate, see WordSchedule. The
+ * users are in the format of the state file, see UserCodec. The seq of a game is its number in
+ * the archive of the primary, see GameArchive. The ARCHIVE records follow the snapshot, and carry
+ * the archived games that the follower misses.
+ * A read replica of the leaderboard opens the connection with a FOLLOW_SCORES request instead, and
+ * receives only the scores, never the users, the games or the word seed:
+ *    SCORES     chunks of up to SNAPSHOT_CHUNK scores, then a count 0:
+ *                   count (4) | count times: length (4) | username (UTF-8) | score (4)
+ *    SCORE      length (4) | username (UTF-8) | score (4)
+ *    HEARTBEAT  nothing
+ * where the scores are the all-time fixed-point scores, see Leaderboard.
+ */
+// @formatter:on
+public enum ReplicationOp {
+    // @formatter:off
+    SNAPSHOT((byte) 1),
+    USER((byte) 2),
+    GAME((byte) 3),
+    HEARTBEAT((byte) 4),
+    // Request of a follower, its value is the size of its archive, or -1 if it keeps none
+    FOLLOW((byte) 5),
+    FENCE((byte) 6), // Request of a newer primary, its value is its epoch. Answered with the epoch
+    ARCHIVE((byte) 7),
+    FOLLOW_SCORES((byte) 8), // Request of a read replica of the leaderboard. Its value is unused
+    SCORES((byte) 9),
+    SCORE((byte) 10),
+    UNKNOWN((byte) 0xff);
+    // @formatter:on
+
+    private final byte value;
+
+    private ReplicationOp(byte value) {
+        this.value = value;
+    }
+
+    public static ReplicationOp fromByte(byte value) {
+        switch (value) {
+            case 1:
+                return SNAPSHOT;
+            case 2:
+                return USER;
+            case 3:
+                return GAME;
+            case 4:
+                return HEARTBEAT;
+            case 5:
+                return FOLLOW;
+            case 6:
+                return FENCE;
+            case 7:
+                return ARCHIVE;
+            case 8:
+                return FOLLOW_SCORES;
+            case 9:
+                return SCORES;
+            case 10:
+                return SCORE;
+            default:
+                return UNKNOWN;
+        }
+    }
+
+    public byte getValue() {
+        return this.value;
+    }
+}
@@ -0,0 +1,493 @@
+package edu.riccardomori.wordle.server;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import com.google.gson.stream.JsonWriter;
+
+// @formatter:off
+/**
+ * Streams the mutations of the users to the followers (hot standbys) over TCP, see ReplicationOp.
+ * A new follower first receives a snapshot of all the users and the archived games it misses, then
+ * every change of a user and every completed game, in the order they happened.
+ * The request handlers only enqueue the mutations: the replication thread encodes them and hands
+ * the records to every follower. Every follower has its own thread, which writes its snapshot, a
+ * chunk of users at a time, and then its records, or a heartbeat every {@code HEARTBEAT_INTERVAL}
+ * ms when there are none.
+ * So a snapshot, or a follower that reads slowly, never delays the heartbeats of the others. A
+ * changed user is serialized when its record is encoded, so it carries its latest state and the
+ * records that are repeated while the queue is backed up are idempotent.
+ * The queues are bounded by {@code MAX_PENDING} records. A follower that falls that much behind is
+ * dropped, and if the replication thread itself falls behind every follower is dropped. A dropped
+ * follower finds the primary alive and attaches again, see ReplicationFollower.
+ * The stream carries the password hashes and the word seed, so a follower must authenticate with
+ * the shared secret before it receives anything, see ReplicationAuth. Only one follower at a time
+ * can be the hot standby: a new one replaces the previous one, so two standbys never take over
+ * together.
+ * The read replicas of the leaderboard receive only the scores of the users, see ReplicationOp, and
+ * are never standbys. A node of a cluster rejects them: its leaderboard is only a partial.
+ * Every primary has an epoch, incremented by every takeover. A primary steps down, by exiting, when
+ * a primary with a newer epoch fences it.
+ */
+// @formatter:on
+public class ReplicationPrimary {
+    public static final int HEARTBEAT_INTERVAL = 100; // Milliseconds between two heartbeats
+    public static final int MAX_PENDING = 10000; // Records queued before a follower is dropped
+    public static final int SNAPSHOT_CHUNK = 1000; // Users in a chunk of a snapshot
+    private static final byte[] HEARTBEAT = new byte[] {ReplicationOp.HEARTBEAT.getValue()};
+
+    private final String address;
+    private final int port;
+    private final ReplicationAuth auth;
+    private final Collection<User> users; // Live view of the users of the server
+    private final GameArchive archive; // The games completed on the server
+    private final WordSchedule schedule;
+    private final long epoch;
+    private final boolean serveScores; // Whether the read replicas of the leaderboard are accepted
+    private final Logger logger = Logger.getLogger("Wordle");
+    // The mutations to encode. Only the replication thread runs them
+    private final ArrayBlockingQueue<Runnable> events =
+            new ArrayBlockingQueue<>(ReplicationPrimary.MAX_PENDING);
+    private volatile boolean overflow = false; // An event could not be queued
+    // The attached followers. Only the replication thread uses them
+    private final List<Follower> followers = new ArrayList<>();
+    private Follower standby;
+
+    // An attached follower and the records it still has to receive
+    private class Follower {
+        public final Socket socket;
+        public final ArrayBlockingQueue<byte[]> records =
+                new ArrayBlockingQueue<>(ReplicationPrimary.MAX_PENDING);
+        public final CountDownLatch attached = new CountDownLatch(1);
+        public volatile boolean closed = false;
+        public final long archived; // The size of the archive of the follower. -1 if it has none
+        public final boolean scoresOnly; // A read replica of the leaderboard
+        // The size of the archive when it attached: the later games are in the records
+        public long attachedArchive;
+
+        public Follower(Socket socket, long archived, boolean scoresOnly) {
+            this.socket = socket;
+            this.archived = archived;
+            this.scoresOnly = scoresOnly;
+        }
+
+        /**
+         * Send the snapshot and then the records, until the follower is closed or fails
+         */
+        public void run() {
+            try {
+                if (!this.attached.await(ReplicationAuth.HANDSHAKE_TIMEOUT,
+                        TimeUnit.MILLISECONDS))
+                    throw new IOException("Not attached in time");
+                DataOutputStream out = new DataOutputStream(
+                        new BufferedOutputStream(this.socket.getOutputStream()));
+                if (this.scoresOnly)
+                    ReplicationPrimary.this.writeScores(out);
+                else
+                    ReplicationPrimary.this.writeSnapshot(out);
+                if (this.archived >= 0) {
+                    GameArchive.Cursor cursor =
+                            ReplicationPrimary.this.archive.cursor(this.archived);
+                    for (long seq = this.archived; seq < this.attachedArchive; ++seq) {
+                        GameArchive.Entry entry = cursor.next();
+                        out.write(ReplicationPrimary.gameRecord(ReplicationOp.ARCHIVE, seq,
+                                entry.username, null, entry.game));
+                    }
+                }
+                out.flush();
+                ReplicationPrimary.this.logger.info(() -> String.format("Follower %s attached",
+                        this.socket.getRemoteSocketAddress()));
+
+                while (!this.closed) {
+                    byte[] record = this.records.poll(ReplicationPrimary.HEARTBEAT_INTERVAL,
+                            TimeUnit.MILLISECONDS);
+                    out.write(record == null ? ReplicationPrimary.HEARTBEAT : record);
+                    // Flush once the queue is drained, so a burst is sent in few packets
+                    if (this.records.isEmpty())
+                        out.flush();
+                }
+            } catch (IOException | InterruptedException e) {
+                this.close(e.toString());
+            }
+        }
+
+        /**
+         * Close the connection. Its thread stops at its next write
+         */
+        public void close(String reason) {
+            if (this.closed)
+                return;
+            this.closed = true;
+            ReplicationPrimary.this.logger.warning(() -> String.format(
+                    "Follower %s detached: %s", this.socket.getRemoteSocketAddress(), reason));
+            try {
+                this.socket.close();
+            } catch (IOException e) {
+                // Nothing to do, the follower is gone anyway
+            }
+        }
+    }
+
+    /**
+     * @param address The address where the followers connect
+     * @param port The port where the followers connect
+     * @param secret The secret shared with the followers
+     * @param users The users of the server
+     * @param archive The archive of the completed games
+     * @param schedule The secret word schedule, so the followers play the same games
+     * @param epoch The epoch of this primary
+     * @param serveScores Whether the read replicas of the leaderboard are accepted
+     */
+    public ReplicationPrimary(String address, int port, String secret, Collection<User> users,
+            GameArchive archive, WordSchedule schedule, long epoch, boolean serveScores) {
+        this.address = address;
+        this.port = port;
+        this.auth = new ReplicationAuth(secret);
+        this.users = users;
+        this.archive = archive;
+        this.schedule = schedule;
+        this.epoch = epoch;
+        this.serveScores = serveScores;
+    }
+
+    /**
+     * Start accepting the followers and streaming the mutations
+     *
+     * @throws IOException If the port cannot be bound
+     */
+    public void start() throws IOException {
+        ServerSocket socket = new ServerSocket();
+        socket.bind(new InetSocketAddress(this.address, this.port));
+        Thread acceptor = new Thread(() -> {
+            while (true) {
+                try {
+                    Socket follower = socket.accept();
+                    follower.setTcpNoDelay(true);
+                    Thread thread = new Thread(() -> this.serve(follower), "replication-follower");
+                    thread.setDaemon(true);
+                    thread.start();
+                } catch (IOException e) {
+                    this.logger.warning(() -> String.format("Replication accept failed: %s", e));
+                }
+            }
+        }, "replication-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+
+        Thread sender = new Thread(this::encodeLoop, "replication");
+        sender.setDaemon(true);
+        sender.start();
+        this.logger.info(() -> String.format("Streaming the state on %s:%d at epoch %d",
+                this.address, this.port, this.epoch));
+    }
+
+    /**
+     * Stream the current state of {@code user}
+     *
+     * @param user The user that changed
+     */
+    public void userChanged(User user) {
+        this.enqueue(() -> {
+            try {
+                this.broadcast(ReplicationPrimary.record(ReplicationOp.USER,
+                        ReplicationPrimary.withLength(ReplicationPrimary.encode(List.of(user)))),
+                        null);
+            } catch (IOException e) {
+                this.logger.warning(() -> String.format("Cannot encode user `%s`: %s",
+                        user.getUsername(), e));
+            }
+        });
+    }
+
+    /**
+     * Stream a completed game. The games must be streamed in the order they are archived
+     *
+     * @param seq The number of the game in the archive
+     * @param username The player
+     * @param score The new all-time fixed-point score of the player
+     * @param game The packed game
+     */
+    public void gameRecorded(long seq, String username, int score, byte[] game) {
+        this.enqueue(() -> this.broadcast(
+                ReplicationPrimary.gameRecord(ReplicationOp.GAME, seq, username, score, game),
+                ReplicationPrimary.scoreRecord(username, score)));
+    }
+
+    /**
+     * Encode a SCORE record
+     */
+    private static byte[] scoreRecord(String username, int score) {
+        byte[] encUsername = username.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(1 + 2 * Integer.BYTES + encUsername.length)
+                .put(ReplicationOp.SCORE.getValue()).putInt(encUsername.length).put(encUsername)
+                .putInt(score).array();
+    }
+
+    /**
+     * Encode a GAME record, or an ARCHIVE record when {@code score} is {@code null}
+     */
+    private static byte[] gameRecord(ReplicationOp op, long seq, String username, Integer score,
+            byte[] game) {
+        byte[] encUsername = username.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(op.getValue());
+            out.writeLong(seq);
+            out.writeInt(encUsername.length);
+            out.write(encUsername);
+            if (score != null)
+                out.writeInt(score);
+            out.writeInt(game.length);
+            out.write(game);
+        } catch (IOException e) {
+            // Cannot happen on a byte array
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Queue an event for the replication thread. When the queue is full the event is lost, so all
+     * the followers are dropped and attach again
+     */
+    private void enqueue(Runnable event) {
+        if (!this.events.offer(event))
+            this.overflow = true;
+    }
+
+    private void encodeLoop() {
+        while (true) {
+            Runnable event;
+            try {
+                event = this.events.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (this.overflow) {
+                // The lost events are older than the ones in the queue: discard them all
+                this.overflow = false;
+                this.events.clear();
+                for (Follower follower : this.followers)
+                    follower.close("the replication queue is full");
+                this.followers.clear();
+                this.standby = null;
+                continue;
+            }
+            event.run();
+        }
+    }
+
+    /**
+     * Authenticate a new follower and serve its request, see ReplicationAuth. It runs on its own
+     * thread
+     */
+    private void serve(Socket follower) {
+        try {
+            follower.setSoTimeout(ReplicationAuth.HANDSHAKE_TIMEOUT);
+            DataInputStream in = new DataInputStream(follower.getInputStream());
+            DataOutputStream out = new DataOutputStream(follower.getOutputStream());
+            byte[] challenge = ReplicationAuth.challenge();
+            out.write(challenge);
+            out.flush();
+
+            byte op = in.readByte();
+            long value = in.readLong();
+            byte[] followerChallenge = new byte[ReplicationAuth.CHALLENGE_SIZE];
+            in.readFully(followerChallenge);
+            ReplicationAuth.verify(in, this.auth.followerProof(challenge, op, value));
+            switch (ReplicationOp.fromByte(op)) {
+                case FOLLOW:
+                    out.write(this.auth.primaryProof(followerChallenge));
+                    out.flush();
+                    // Its games are not a prefix of the archive: it was the primary of another
+                    // history, and it must start from an empty data directory
+                    if (value > this.archive.size())
+                        throw new IOException(String.format(
+                                "The follower has %d archived games, more than the primary",
+                                value));
+                    follower.setSoTimeout(0);
+                    Follower attached = new Follower(follower, value, false);
+                    this.enqueue(() -> this.attach(attached));
+                    attached.run();
+                    break;
+
+                case FOLLOW_SCORES:
+                    if (!this.serveScores)
+                        throw new IOException("A node of a cluster has only a partial "
+                                + "leaderboard, it does not serve the leaderboard replicas");
+                    out.write(this.auth.primaryProof(followerChallenge));
+                    out.flush();
+                    follower.setSoTimeout(0);
+                    Follower replica = new Follower(follower, -1, true);
+                    this.enqueue(() -> this.attach(replica));
+                    replica.run();
+                    break;
+
+                case FENCE:
+                    out.write(this.auth.primaryProof(followerChallenge));
+                    out.writeLong(this.epoch);
+                    out.flush();
+                    follower.close();
+                    if (value > this.epoch) {
+                        this.logger.severe(() -> String.format(
+                                "A primary at epoch %d took over, stepping down. Restart this "
+                                        + "server as its follower",
+                                value));
+                        System.exit(1);
+                    }
+                    break;
+
+                default:
+                    throw new IOException(String.format("Unknown request %d", op));
+            }
+        } catch (IOException e) {
+            this.logger.warning(() -> String.format("Replication connection from %s rejected: %s",
+                    follower.getRemoteSocketAddress(), e.getMessage()));
+            try {
+                follower.close();
+            } catch (IOException e1) {
+                // Nothing to do, the follower is discarded anyway
+            }
+        }
+    }
+
+    /**
+     * Add a follower. It receives every record encoded from now on, and its snapshot is taken
+     * after this, so it misses nothing. A follower that keeps an archive is a hot standby, and it
+     * replaces the previous one
+     */
+    private void attach(Follower follower) {
+        if (follower.archived >= 0) {
+            if (this.standby != null) {
+                this.standby.close("replaced by a new follower");
+                this.followers.remove(this.standby);
+            }
+            this.standby = follower;
+        }
+        this.followers.add(follower);
+        follower.attachedArchive = this.archive.size();
+        follower.attached.countDown();
+    }
+
+    /**
+     * Hand a record to all the followers. The ones that are closed, or too far behind, are dropped
+     *
+     * @param record The record for the followers
+     * @param scoreRecord The record for the read replicas of the leaderboard. {@code null} if the
+     *        mutation does not change a score
+     */
+    private void broadcast(byte[] record, byte[] scoreRecord) {
+        Iterator<Follower> it = this.followers.iterator();
+        while (it.hasNext()) {
+            Follower follower = it.next();
+            byte[] own = follower.scoresOnly ? scoreRecord : record;
+            if (!follower.closed && own != null && !follower.records.offer(own))
+                follower.close("too slow");
+            if (follower.closed) {
+                it.remove();
+                if (follower == this.standby)
+                    this.standby = null;
+            }
+        }
+    }
+
+    /**
+     * Write the SNAPSHOT record, a chunk of {@code SNAPSHOT_CHUNK} users at a time, so that the
+     * snapshot is never entirely on the heap
+     */
+    private void writeSnapshot(DataOutputStream out) throws IOException {
+        out.writeByte(ReplicationOp.SNAPSHOT.getValue());
+        out.writeLong(this.epoch);
+        this.schedule.write(out);
+        List<User> chunk = new ArrayList<>(ReplicationPrimary.SNAPSHOT_CHUNK);
+        for (User user : this.users) {
+            chunk.add(user);
+            if (chunk.size() == ReplicationPrimary.SNAPSHOT_CHUNK) {
+                out.write(ReplicationPrimary.withLength(ReplicationPrimary.encode(chunk)));
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty())
+            out.write(ReplicationPrimary.withLength(ReplicationPrimary.encode(chunk)));
+        out.writeInt(0);
+    }
+
+    /**
+     * Write the SCORES record, a chunk of {@code SNAPSHOT_CHUNK} users at a time, locking the
+     * users one at a time
+     */
+    private void writeScores(DataOutputStream out) throws IOException {
+        out.writeByte(ReplicationOp.SCORES.getValue());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream chunk = new DataOutputStream(bytes);
+        int count = 0;
+        for (User user : this.users) {
+            byte[] encUsername = user.getUsername().getBytes(StandardCharsets.UTF_8);
+            chunk.writeInt(encUsername.length);
+            chunk.write(encUsername);
+            synchronized (user) {
+                chunk.writeInt(user.fixedScore());
+            }
+            if (++count == ReplicationPrimary.SNAPSHOT_CHUNK) {
+                out.writeInt(count);
+                bytes.writeTo(out);
+                bytes.reset();
+                count = 0;
+            }
+        }
+        if (count > 0) {
+            out.writeInt(count);
+            bytes.writeTo(out);
+        }
+        out.writeInt(0);
+    }
+
+    /**
+     * Encode users as a JSON object {username -> user}, locking them one at a time
+     */
+    private static byte[] encode(Collection<User> users) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (JsonWriter writer =
+                new JsonWriter(new OutputStreamWriter(bytes, StandardCharsets.UTF_8))) {
+            writer.beginObject();
+            for (User user : users) {
+                synchronized (user) {
+                    writer.name(user.getUsername());
+                    UserCodec.writeUser(writer, user);
+                }
+            }
+            writer.endObject();
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Prepend the length to {@code data}
+     */
+    private static byte[] withLength(byte[] data) {
+        return ByteBuffer.allocate(Integer.BYTES + data.length).putInt(data.length).put(data)
+                .array();
+    }
+
+    /**
+     * Prepend the op to {@code payload}
+     */
+    private static byte[] record(ReplicationOp op, byte[] payload) {
+        return ByteBuffer.allocate(1 + payload.length).put(op.getValue()).put(payload).array();
+    }
+}
@@ -4,11 +4,19 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 import java.util.logging.Handler;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import edu.riccardomori.wordle.server.cluster.ClusterNode;
+import edu.riccardomori.wordle.server.jfr.Jfr;
 import edu.riccardomori.wordle.server.logging.ConsoleHandler;
+import edu.riccardomori.wordle.server.metrics.MetricsRegistry;
+import edu.riccardomori.wordle.server.metrics.MetricsServer;
 
 /**
  * This is the entry point for the server
@@ -22,8 +30,31 @@ public class ServerMain {
     private static int verbosity;
     private static int swRate;
     private static String wordsDb;
+    private static Long wordSeed; // Key of the word schedule. null to use the saved one
     private static String multicastAddress;
     private static int multicastPort;
+    private static int metricsPort; // 0 disables the metrics endpoint
+    private static String metricsHost; // Address where the metrics endpoint listens
+    private static int idleTimeout; // Seconds a connection may stay idle. 0 disables it
+    private static int writeTimeout; // Seconds a response may take to be sent. 0 disables it
+    private static int maxConnections; // Maximum number of open connections
+    private static double rateLimit; // Requests per second of a connection. 0 disables it
+    private static int rateBurst; // Maximum burst of requests of a connection
+    private static double userRateLimit; // Requests per second of a user. 0 disables it
+    private static int userRateBurst; // Maximum burst of requests of a user
+    private static boolean jfrEvents; // Whether the custom JFR events are enabled
+    private static boolean jfrRecording; // Whether to start a continuous JFR recording
+    private static String jfrFile; // Where the recording is dumped on exit
+    private static int jfrMaxAge; // How long the recording keeps the data (in minutes)
+    private static List<ClusterNode> clusterNodes; // All the nodes of the cluster. Empty if none
+    private static int clusterNode; // The index of this node in clusterNodes
+    private static int replicationPort; // Where the followers connect. 0 disables it
+    private static String replicationAddress; // The address where the followers connect
+    private static String replicationSecret; // Shared by the primary and its followers
+    private static String dataDir; // The directory of the files of the server
+    private static String replicaOf; // host:port of the primary to follow. null if primary
+    // host:port of the primary whose leaderboard is served. null if this is a server
+    private static String leaderboardReplicaOf;
 
     public static void main(String args[]) {
         // Load the configuration
@@ -78,6 +109,53 @@ public class ServerMain {
         WordleServer server = WordleServer.getInstance();
         server.configure(ServerMain.multicastAddress, ServerMain.multicastPort,
                 ServerMain.serverPort, ServerMain.rmiPort, ServerMain.swRate, ServerMain.wordsDb);
+        server.configureLimits(ServerMain.idleTimeout, ServerMain.writeTimeout,
+                ServerMain.maxConnections);
+        server.configureRateLimits(ServerMain.rateLimit, ServerMain.rateBurst,
+                ServerMain.userRateLimit, ServerMain.userRateBurst);
+        if (ServerMain.leaderboardReplicaOf != null) {
+            // Only a read replica of the leaderboard of the primary, on the server port
+            server.configureReplication(ServerMain.replicationAddress, 0,
+                    ServerMain.replicationSecret);
+            int sep = ServerMain.leaderboardReplicaOf.lastIndexOf(':');
+            server.configureLeaderboardReplica(ServerMain.leaderboardReplicaOf.substring(0, sep),
+                    Integer.parseInt(ServerMain.leaderboardReplicaOf.substring(sep + 1)));
+        } else {
+            if (ServerMain.wordSeed != null)
+                server.configureWordSeed(ServerMain.wordSeed);
+            if (!ServerMain.clusterNodes.isEmpty())
+                server.configureCluster(ServerMain.clusterNodes, ServerMain.clusterNode);
+            server.configureDataDir(ServerMain.dataDir);
+            server.configureReplication(ServerMain.replicationAddress,
+                    ServerMain.replicationPort, ServerMain.replicationSecret);
+            if (ServerMain.replicaOf != null) {
+                int sep = ServerMain.replicaOf.lastIndexOf(':');
+                server.configureFollower(ServerMain.replicaOf.substring(0, sep),
+                        Integer.parseInt(ServerMain.replicaOf.substring(sep + 1)));
+            }
+        }
+
+        // Flight recorder
+        Jfr.setEnabled(ServerMain.jfrEvents);
+        if (ServerMain.jfrRecording) {
+            try {
+                Jfr.startRecording(Path.of(ServerMain.jfrFile),
+                        Duration.ofMinutes(ServerMain.jfrMaxAge));
+            } catch (IOException | IllegalStateException | SecurityException e) {
+                logger.severe("Cannot start the flight recording");
+            }
+        }
+
+        // Expose the metrics on a side port
+        if (ServerMain.metricsPort > 0) {
+            try {
+                new MetricsServer(ServerMain.metricsHost, ServerMain.metricsPort,
+                        MetricsRegistry.getInstance()).start();
+            } catch (IOException e) {
+                logger.severe(String.format("Cannot expose the metrics on %s:%d",
+                        ServerMain.metricsHost, ServerMain.metricsPort));
+            }
+        }
 
         // Run the server
         server.run();
@@ -98,8 +176,46 @@ public class ServerMain {
             ServerMain.verbosity = Integer.parseInt(prop.getProperty("verbose"));
             ServerMain.swRate = Integer.parseInt(prop.getProperty("secret_word_rate"));
             ServerMain.wordsDb = prop.getProperty("words_db");
+            String wordSeed = prop.getProperty("word_seed");
+            ServerMain.wordSeed = wordSeed == null ? null : Long.parseLong(wordSeed);
             ServerMain.multicastAddress = prop.getProperty("multicast_address");
             ServerMain.multicastPort = Integer.parseInt(prop.getProperty("multicast_port"));
+            ServerMain.metricsPort = Integer.parseInt(prop.getProperty("metrics_port", "0"));
+            ServerMain.metricsHost = prop.getProperty("metrics_host", "127.0.0.1");
+            ServerMain.idleTimeout = Integer.parseInt(prop.getProperty("idle_timeout",
+                    String.valueOf(WordleServer.IDLE_TIMEOUT)));
+            ServerMain.writeTimeout = Integer.parseInt(prop.getProperty("write_timeout",
+                    String.valueOf(WordleServer.WRITE_TIMEOUT)));
+            ServerMain.maxConnections = Integer.parseInt(prop.getProperty("max_connections",
+                    String.valueOf(WordleServer.MAX_CONNECTIONS)));
+            ServerMain.rateLimit = Double.parseDouble(prop.getProperty("rate_limit",
+                    String.valueOf(WordleServer.RATE_LIMIT)));
+            ServerMain.rateBurst = Integer.parseInt(prop.getProperty("rate_burst",
+                    String.valueOf(WordleServer.RATE_BURST)));
+            ServerMain.userRateLimit = Double.parseDouble(prop.getProperty("user_rate_limit",
+                    String.valueOf(WordleServer.USER_RATE_LIMIT)));
+            ServerMain.userRateBurst = Integer.parseInt(prop.getProperty("user_rate_burst",
+                    String.valueOf(WordleServer.USER_RATE_BURST)));
+            ServerMain.jfrEvents = Boolean.parseBoolean(prop.getProperty("jfr_events", "false"));
+            ServerMain.jfrRecording =
+                    Boolean.parseBoolean(prop.getProperty("jfr_recording", "false"));
+            ServerMain.jfrFile = prop.getProperty("jfr_file", "wordle.jfr");
+            ServerMain.jfrMaxAge = Integer.parseInt(prop.getProperty("jfr_max_age", "30"));
+            ServerMain.clusterNodes = new ArrayList<>();
+            for (String node : prop.getProperty("cluster_nodes", "").split(","))
+                if (!node.isBlank())
+                    ServerMain.clusterNodes.add(ClusterNode.parse(node));
+            ServerMain.clusterNode = Integer.parseInt(prop.getProperty("cluster_node", "0"));
+            ServerMain.replicationPort =
+                    Integer.parseInt(prop.getProperty("replication_port", "0"));
+            ServerMain.replicationAddress = prop.getProperty("replication_address", "127.0.0.1");
+            ServerMain.replicationSecret = prop.getProperty("replication_secret", "");
+            ServerMain.dataDir = prop.getProperty("data_dir", ".");
+            String replicaOf = prop.getProperty("replica_of", "");
+            ServerMain.replicaOf = replicaOf.isBlank() ? null : replicaOf.trim();
+            String leaderboardReplicaOf = prop.getProperty("leaderboard_replica_of", "");
+            ServerMain.leaderboardReplicaOf =
+                    leaderboardReplicaOf.isBlank() ? null : leaderboardReplicaOf.trim();
         }
     }
 }
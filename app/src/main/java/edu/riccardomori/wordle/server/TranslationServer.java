@@ -7,6 +7,9 @@ import java.net.URL;
 import java.util.logging.Logger;
 import javax.net.ssl.HttpsURLConnection;
 import com.google.gson.stream.JsonReader;
+import edu.riccardomori.wordle.server.jfr.Jfr;
+import edu.riccardomori.wordle.server.jfr.TranslationEvent;
+import edu.riccardomori.wordle.server.metrics.ServerMetrics;
 import edu.riccardomori.wordle.utils.LRUCache;
 
 /**
@@ -21,9 +24,11 @@ public class TranslationServer {
     // Cache holding the translations of the words
     private LRUCache<String, String> translationCache;
     private Logger logger;
+    private final ServerMetrics metrics;
 
     private TranslationServer() {
         this.logger = Logger.getLogger("Wordle");
+        this.metrics = ServerMetrics.getInstance();
         this.translationCache = new LRUCache<String, String>(TranslationServer.TRANSLATION_CACHE);
     }
 
@@ -47,11 +52,44 @@ public class TranslationServer {
      *         returned
      */
     public String get(String word) {
+        TranslationEvent event = Jfr.isEnabled() ? new TranslationEvent() : null;
+        if (event != null) {
+            event.wordLength = word.length();
+            event.begin();
+        }
+
         // Cache lookup first
+        String translation;
         synchronized (this.translationCache) {
-            if (this.translationCache.containsKey(word))
-                return this.translationCache.get(word);
+            translation = this.translationCache.get(word);
+        }
+        if (translation != null) {
+            this.metrics.translationHits.increment();
+            if (event != null) {
+                event.cached = true;
+                event.success = true;
+                event.commit();
+            }
+            return translation;
         }
+        this.metrics.translationMisses.increment();
+
+        translation = this.fetch(word);
+        if (event != null) {
+            event.success = !translation.isEmpty();
+            event.commit();
+        }
+        return translation;
+    }
+
+    /**
+     * Fetch the translation of a word from the remote service and store it in the cache
+     * 
+     * @param word The word to be translated
+     * @return the italian transaltion of {@code word}. In case of an error the empty string is
+     *         returned
+     */
+    private String fetch(String word) {
 
         // HTTP request to mymemory
         try {
@@ -16,22 +16,54 @@ package edu.riccardomori.wordle.server;
 public class User {
     // Account details
     private String username;
-    private String password;
+    private String password; // Legacy plaintext password. null once the password is hashed
+    // The encoded password hash, see PasswordHasher. null for an old account until its first login
+    private String passwordHash;
     private transient UserSession session;
 
     // Stats
     private int[] guessDist = new int[WordleServer.WORD_TRIES + 1]; // index start from 1 just for
                                                                     // convenience
-    private GameDescriptor lastGame;
+    private byte[] lastGame; // Packed and immutable, see PackedGame
+    private volatile GameCheckpoint checkpoint; // The game in progress. null if none
     private int totGames;
     private int wonGames;
     private int currStreak;
     private int bestStreak;
+    // Sum of the tries of all the games, a lost game counts WORD_TRIES + 1. It is derived from the
+    // stats, so it is not stored
+    private transient long triesSum;
 
-    public User(String username, String password) {
+    /**
+     * @param username The username
+     * @param passwordHash The encoded password hash
+     * @see edu.riccardomori.wordle.server.auth.PasswordHasher
+     */
+    public User(String username, String passwordHash) {
+        this.username = username;
+        this.passwordHash = passwordHash;
+    }
+
+    /**
+     * Restore a user from its persisted state. Used by {@link UserCodec}
+     */
+    User(String username, String password, String passwordHash, int[] guessDist, byte[] lastGame,
+            GameCheckpoint checkpoint, int totGames, int wonGames, int currStreak,
+            int bestStreak) {
         this.username = username;
-        // TODO consider salting and hashing the password
         this.password = password;
+        this.passwordHash = passwordHash;
+        this.guessDist = guessDist;
+        this.lastGame = lastGame;
+        this.checkpoint = checkpoint;
+        this.totGames = totGames;
+        this.wonGames = wonGames;
+        this.currStreak = currStreak;
+        this.bestStreak = bestStreak;
+
+        for (int i = 1; i < guessDist.length; i++)
+            this.triesSum += (long) i * guessDist[i];
+        this.triesSum += (long) (WordleServer.WORD_TRIES + 1) * (totGames - wonGames);
     }
 
     /**
@@ -40,24 +72,37 @@ public class User {
      * @param gameWon Whether the gam has been won or lost
      */
     private void updateLastGame(boolean gameWon) {
-        // List to array conversion, we know... java is a burden
-        int[][] correct = new int[this.session.correctHints.size()][];
-        for (int i = 0; i < this.session.correctHints.size(); i++)
-            correct[i] =
-                    this.session.correctHints.get(i).stream().mapToInt(Integer::intValue).toArray();
-        int[][] partial = new int[this.session.partialHints.size()][];
-        for (int i = 0; i < this.session.partialHints.size(); i++)
-            partial[i] =
-                    this.session.partialHints.get(i).stream().mapToInt(Integer::intValue).toArray();
-
-        if (gameWon) {
-            this.lastGame = new GameDescriptor(this.session.gameId,
-                    WordleServer.WORD_TRIES - this.session.triesLeft, WordleServer.WORD_TRIES,
-                    this.session.secretWord.length(), correct, partial);
-        } else {
-            this.lastGame = new GameDescriptor(this.session.gameId, -1, WordleServer.WORD_TRIES,
-                    this.session.secretWord.length(), correct, partial);
-        }
+        int tries = gameWon ? WordleServer.WORD_TRIES - this.session.triesLeft : -1;
+        this.lastGame = PackedGame.pack(this.session, tries);
+        this.checkpoint = null;
+    }
+
+    /**
+     * Take a checkpoint of the game in progress in the session, replacing the previous one
+     */
+    public synchronized void checkpointGame() {
+        this.checkpoint = GameCheckpoint.of(this.session);
+    }
+
+    /**
+     * Drop the checkpoint of the game in progress, if any
+     * 
+     * @return True if there was a checkpoint
+     */
+    public synchronized boolean dropCheckpoint() {
+        if (this.checkpoint == null)
+            return false;
+        this.checkpoint = null;
+        return true;
+    }
+
+    /**
+     * Returns the checkpoint of the game in progress
+     * 
+     * @return The checkpoint or {@code null} if there is no game in progress
+     */
+    GameCheckpoint getCheckpoint() {
+        return this.checkpoint;
     }
 
     public String getUsername() {
@@ -87,14 +132,54 @@ public class User {
         return ret;
     }
 
+    /**
+     * Returns the guess distribution as it is stored, index 0 included. It must not be modified
+     */
+    int[] rawGuessDist() {
+        return this.guessDist;
+    }
+
+    /**
+     * Returns the packed last game. It must not be modified
+     * 
+     * @see PackedGame
+     */
+    byte[] rawLastGame() {
+        return this.lastGame;
+    }
+
     public GameDescriptor getLastGame() {
         if (this.lastGame == null)
             return null;
-        return this.lastGame.copy();
+        return PackedGame.unpack(this.lastGame);
     }
 
-    public boolean passwordMatch(String password) {
-        return this.password.equals(password);
+    /**
+     * Returns the encoded password hash
+     * 
+     * @return The hash or {@code null} if the account still has a legacy plaintext password
+     */
+    public String getPasswordHash() {
+        return this.passwordHash;
+    }
+
+    /**
+     * Returns the legacy plaintext password of an account created before the hashing
+     * 
+     * @return The password or {@code null} if it has been hashed
+     */
+    public String getLegacyPassword() {
+        return this.password;
+    }
+
+    /**
+     * Set the encoded password hash, discarding the legacy plaintext password if any
+     * 
+     * @param passwordHash The encoded hash
+     */
+    public void setPasswordHash(String passwordHash) {
+        this.passwordHash = passwordHash;
+        this.password = null;
     }
 
     public UserSession getSession() {
@@ -106,17 +191,22 @@ public class User {
     }
 
     /**
-     * Get the WAS (Wordle Average Score)
+     * Get the WAS (Wordle Average Score). This is O(1)
      * 
-     * @return the WAS
+     * @return the WAS. NaN if no game has been played
      */
     public double score() {
-        int sum = 0;
-        for (int i = 1; i < this.guessDist.length; i++)
-            sum += i * guessDist[i];
+        return (double) this.triesSum / this.totGames;
+    }
 
-        sum += (WordleServer.WORD_TRIES + 1) * (this.totGames - this.wonGames);
-        return (double) sum / this.totGames;
+    /**
+     * Get the WAS as a fixed-point number, the key of the user in the leaderboard
+     * 
+     * @return the WAS scaled by {@code Leaderboard.SCORE_SCALE}
+     * @see Leaderboard#fixedScore(long, int)
+     */
+    public int fixedScore() {
+        return Leaderboard.fixedScore(this.triesSum, this.totGames);
     }
 
     /**
@@ -130,6 +220,7 @@ public class User {
         this.bestStreak = Math.max(this.currStreak, this.bestStreak);
         this.wonGames++;
         this.guessDist[tries]++;
+        this.triesSum += tries;
 
         this.updateLastGame(true);
     }
@@ -140,6 +231,7 @@ public class User {
     public synchronized void loseGame() {
         this.totGames++;
         this.currStreak = 0;
+        this.triesSum += WordleServer.WORD_TRIES + 1;
         this.updateLastGame(false);
     }
 }
@@ -0,0 +1,408 @@
+package edu.riccardomori.wordle.server;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+// @formatter:off
+/**
+ * Streaming codec of the users in the server state file. It writes and reads the same JSON that
+ * Gson produces by reflection on {@code User} and {@code GameDescriptor}, so the state files stay
+ * compatible in both directions, but it works directly on the stream with no reflection and no
+ * intermediate strings.
+ * Format of a user:
+ *    {"username": "...", "passwordHash": "...", "guessDist": [0, ...], "lastGame": {...},
+ *     "currentGame": {...}, "totGames": 0, "wonGames": 0, "currStreak": 0, "bestStreak": 0}
+ * An old account has "password" with the legacy plaintext password instead of "passwordHash", until
+ * its first login. The key tells the format of the password, it is never guessed from the value.
+ * Format of a game:
+ *    {"gameId": 0, "tries": 0, "maxTries": 0, "wordLen": 0, "correct": [[...], ...],
+ *     "partial": [[...], ...]}
+ * Format of the game in progress, present only while the user is playing:
+ *    {"gameId": 0, "triesLeft": 0, "wordLen": 0, "correct": [[...], ...], "partial": [[...], ...]}
+ * The secret word is computed from the game ID. Older files have "secretWord" instead of "wordLen".
+ * Unknown keys are skipped and null values are treated as missing, like Gson does.
+ */
+// @formatter:on
+final class UserCodec {
+    private static final int[][] EMPTY_HINTS = new int[0][];
+
+    private UserCodec() {}
+
+    /**
+     * Write a user. The caller must hold the lock on {@code user}
+     *
+     * @param writer The writer
+     * @param user The user
+     * @throws IOException
+     */
+    public static void writeUser(JsonWriter writer, User user) throws IOException {
+        writer.beginObject();
+        writer.name("username").value(user.getUsername());
+        if (user.getLegacyPassword() != null)
+            writer.name("password").value(user.getLegacyPassword());
+        if (user.getPasswordHash() != null)
+            writer.name("passwordHash").value(user.getPasswordHash());
+        writer.name("guessDist");
+        UserCodec.writeArray(writer, user.rawGuessDist());
+        if (user.rawLastGame() != null) {
+            writer.name("lastGame");
+            UserCodec.writePackedGame(writer, user.rawLastGame());
+        }
+        if (user.getCheckpoint() != null) {
+            writer.name("currentGame");
+            UserCodec.writeCheckpoint(writer, user.getCheckpoint());
+        }
+        writer.name("totGames").value(user.getTotGames());
+        writer.name("wonGames").value(user.getWonGames());
+        writer.name("currStreak").value(user.getCurrStreak());
+        writer.name("bestStreak").value(user.getBestStreak());
+        writer.endObject();
+    }
+
+    /**
+     * Write a completed game
+     *
+     * @param writer The writer
+     * @param game The game
+     * @throws IOException
+     */
+    public static void writeGame(JsonWriter writer, GameDescriptor game) throws IOException {
+        writer.beginObject();
+        writer.name("gameId").value(game.gameId);
+        writer.name("tries").value(game.tries);
+        writer.name("maxTries").value(game.maxTries);
+        writer.name("wordLen").value(game.wordLen);
+        if (game.correct != null) {
+            writer.name("correct");
+            UserCodec.writeMatrix(writer, game.correct);
+        }
+        if (game.partial != null) {
+            writer.name("partial");
+            UserCodec.writeMatrix(writer, game.partial);
+        }
+        writer.endObject();
+    }
+
+    /**
+     * Write a packed game in the same format of {@code writeGame}, without unpacking it
+     *
+     * @param writer The writer
+     * @param game The packed game
+     * @throws IOException
+     * @see PackedGame
+     */
+    public static void writePackedGame(JsonWriter writer, byte[] game) throws IOException {
+        writer.beginObject();
+        writer.name("gameId").value(PackedGame.gameId(game));
+        writer.name("tries").value(PackedGame.tries(game));
+        writer.name("maxTries").value(PackedGame.maxTries(game));
+        writer.name("wordLen").value(PackedGame.wordLen(game));
+        int rounds = PackedGame.rounds(game);
+        writer.name("correct");
+        writer.beginArray();
+        for (int k = 0; k < rounds; ++k)
+            UserCodec.writeMask(writer, PackedGame.correctMask(game, k));
+        writer.endArray();
+        writer.name("partial");
+        writer.beginArray();
+        for (int k = 0; k < rounds; ++k)
+            UserCodec.writeMask(writer, PackedGame.partialMask(game, k));
+        writer.endArray();
+        writer.endObject();
+    }
+
+    /**
+     * Write the checkpoint of a game in progress
+     *
+     * @param writer The writer
+     * @param checkpoint The checkpoint
+     * @throws IOException
+     */
+    public static void writeCheckpoint(JsonWriter writer, GameCheckpoint checkpoint)
+            throws IOException {
+        byte[] game = checkpoint.game;
+        writer.beginObject();
+        writer.name("gameId").value(PackedGame.gameId(game));
+        writer.name("triesLeft").value(PackedGame.tries(game));
+        writer.name("wordLen").value(PackedGame.wordLen(game));
+        int rounds = PackedGame.rounds(game);
+        writer.name("correct");
+        writer.beginArray();
+        for (int k = 0; k < rounds; ++k)
+            UserCodec.writeMask(writer, PackedGame.correctMask(game, k));
+        writer.endArray();
+        writer.name("partial");
+        writer.beginArray();
+        for (int k = 0; k < rounds; ++k)
+            UserCodec.writeMask(writer, PackedGame.partialMask(game, k));
+        writer.endArray();
+        writer.endObject();
+    }
+
+    /**
+     * Read the object {username -> user} of the state file
+     *
+     * @param reader The reader, positioned at the beginning of the object
+     * @return The users
+     * @throws IOException
+     */
+    public static ConcurrentMap<String, User> readUsers(JsonReader reader) throws IOException {
+        ConcurrentMap<String, User> users = new ConcurrentHashMap<>();
+        if (UserCodec.skipNull(reader))
+            return users;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String username = reader.nextName();
+            User user = UserCodec.readUser(reader);
+            if (user != null)
+                users.put(username, user);
+        }
+        reader.endObject();
+        return users;
+    }
+
+    /**
+     * Read a user
+     *
+     * @param reader The reader, positioned at the beginning of the user
+     * @return The user or {@code null} if the value is null
+     * @throws IOException
+     */
+    public static User readUser(JsonReader reader) throws IOException {
+        if (UserCodec.skipNull(reader))
+            return null;
+
+        String username = null;
+        String password = null;
+        String passwordHash = null;
+        int[] guessDist = null;
+        byte[] lastGame = null;
+        GameCheckpoint checkpoint = null;
+        int totGames = 0, wonGames = 0, currStreak = 0, bestStreak = 0;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (UserCodec.skipNull(reader))
+                continue;
+            switch (name) {
+                case "username":
+                    username = reader.nextString();
+                    break;
+                case "password":
+                    password = reader.nextString();
+                    break;
+                case "passwordHash":
+                    passwordHash = reader.nextString();
+                    break;
+                case "guessDist":
+                    guessDist = UserCodec.readArray(reader);
+                    break;
+                case "lastGame":
+                    lastGame = PackedGame.pack(UserCodec.readGame(reader));
+                    break;
+                case "currentGame":
+                    checkpoint = UserCodec.readCheckpoint(reader);
+                    break;
+                case "totGames":
+                    totGames = reader.nextInt();
+                    break;
+                case "wonGames":
+                    wonGames = reader.nextInt();
+                    break;
+                case "currStreak":
+                    currStreak = reader.nextInt();
+                    break;
+                case "bestStreak":
+                    bestStreak = reader.nextInt();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        // The distribution is indexed by the number of tries, so it always has WORD_TRIES + 1 slots
+        if (guessDist == null)
+            guessDist = new int[WordleServer.WORD_TRIES + 1];
+        else if (guessDist.length != WordleServer.WORD_TRIES + 1)
+            guessDist = Arrays.copyOf(guessDist, WordleServer.WORD_TRIES + 1);
+
+        return new User(username, password, passwordHash, guessDist, lastGame, checkpoint,
+                totGames, wonGames, currStreak, bestStreak);
+    }
+
+    /**
+     * Read the checkpoint of a game in progress
+     *
+     * @param reader The reader, positioned at the beginning of the checkpoint
+     * @return The checkpoint or {@code null} if the value is null or it has no word length
+     * @throws IOException
+     */
+    public static GameCheckpoint readCheckpoint(JsonReader reader) throws IOException {
+        if (UserCodec.skipNull(reader))
+            return null;
+
+        long gameId = 0;
+        int triesLeft = 0;
+        int wordLen = 0;
+        int[][] correct = UserCodec.EMPTY_HINTS;
+        int[][] partial = UserCodec.EMPTY_HINTS;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (UserCodec.skipNull(reader))
+                continue;
+            switch (name) {
+                case "secretWord":
+                    // Older state files stored the word. Keep only its length
+                    wordLen = reader.nextString().length();
+                    break;
+                case "gameId":
+                    gameId = reader.nextLong();
+                    break;
+                case "triesLeft":
+                    triesLeft = reader.nextInt();
+                    break;
+                case "wordLen":
+                    wordLen = reader.nextInt();
+                    break;
+                case "correct":
+                    correct = UserCodec.readMatrix(reader);
+                    break;
+                case "partial":
+                    partial = UserCodec.readMatrix(reader);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (wordLen <= 0)
+            return null;
+        return new GameCheckpoint(PackedGame.pack(new GameDescriptor(gameId, triesLeft,
+                WordleServer.WORD_TRIES, wordLen, correct, partial)));
+    }
+
+    /**
+     * Read a completed game
+     *
+     * @param reader The reader, positioned at the beginning of the game
+     * @return The game or {@code null} if the value is null
+     * @throws IOException
+     */
+    public static GameDescriptor readGame(JsonReader reader) throws IOException {
+        if (UserCodec.skipNull(reader))
+            return null;
+
+        long gameId = 0;
+        int tries = 0, maxTries = 0, wordLen = 0;
+        int[][] correct = UserCodec.EMPTY_HINTS;
+        int[][] partial = UserCodec.EMPTY_HINTS;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (UserCodec.skipNull(reader))
+                continue;
+            switch (name) {
+                case "gameId":
+                    gameId = reader.nextLong();
+                    break;
+                case "tries":
+                    tries = reader.nextInt();
+                    break;
+                case "maxTries":
+                    maxTries = reader.nextInt();
+                    break;
+                case "wordLen":
+                    wordLen = reader.nextInt();
+                    break;
+                case "correct":
+                    correct = UserCodec.readMatrix(reader);
+                    break;
+                case "partial":
+                    partial = UserCodec.readMatrix(reader);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return new GameDescriptor(gameId, tries, maxTries, wordLen, correct, partial);
+    }
+
+    /**
+     * Consume the next value if it is null
+     *
+     * @return True if the value was null
+     */
+    private static boolean skipNull(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.NULL)
+            return false;
+        reader.nextNull();
+        return true;
+    }
+
+    private static void writeArray(JsonWriter writer, int[] array) throws IOException {
+        writer.beginArray();
+        for (int v : array)
+            writer.value(v);
+        writer.endArray();
+    }
+
+    // Write the positions of the bits set in `mask`, in increasing order
+    private static void writeMask(JsonWriter writer, long mask) throws IOException {
+        writer.beginArray();
+        for (; mask != 0; mask &= mask - 1)
+            writer.value(Long.numberOfTrailingZeros(mask));
+        writer.endArray();
+    }
+
+    private static void writeMatrix(JsonWriter writer, int[][] matrix) throws IOException {
+        writer.beginArray();
+        for (int[] row : matrix) {
+            if (row == null)
+                writer.nullValue();
+            else
+                UserCodec.writeArray(writer, row);
+        }
+        writer.endArray();
+    }
+
+    private static int[] readArray(JsonReader reader) throws IOException {
+        // The arrays are short (at most a word or WORD_TRIES + 1 slots), so grow a small buffer
+        int[] buf = new int[16];
+        int size = 0;
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (size == buf.length)
+                buf = Arrays.copyOf(buf, size * 2);
+            buf[size++] = reader.nextInt();
+        }
+        reader.endArray();
+        return Arrays.copyOf(buf, size);
+    }
+
+    private static int[][] readMatrix(JsonReader reader) throws IOException {
+        int[][] buf = new int[WordleServer.WORD_TRIES][];
+        int size = 0;
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (size == buf.length)
+                buf = Arrays.copyOf(buf, size * 2);
+            buf[size++] = UserCodec.skipNull(reader) ? null : UserCodec.readArray(reader);
+        }
+        reader.endArray();
+        return Arrays.copyOf(buf, size);
+    }
+}
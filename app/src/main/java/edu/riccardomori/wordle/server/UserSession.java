@@ -5,6 +5,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import edu.riccardomori.wordle.utils.TokenBucket;
 
 /**
  * Descriptor of a user session. This class is not thread safe.
@@ -14,8 +15,10 @@ public class UserSession {
     public String secretWord; // Last played secret word
     public long gameId; // Last played gameId
     public int triesLeft;
+    public boolean resumable = false; // Whether a game restored from a checkpoint can be resumed
     public List<List<Integer>> correctHints = new ArrayList<>();
     public List<List<Integer>> partialHints = new ArrayList<>();
+    public TokenBucket rateLimit; // Rate limit of the user. It is carried over the sessions
 
     public UserSession() {}
 
@@ -0,0 +1,143 @@
+package edu.riccardomori.wordle.server;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import edu.riccardomori.wordle.utils.Pair;
+
+// @formatter:off
+/**
+ * Leaderboard of the games completed in a sliding time window, ranked by the WAS of those games
+ * only. It is maintained incrementally: the window is divided in {@code nBuckets} buckets of
+ * {@code bucketMillis} ms and every bucket logs the games completed during its time. When a bucket
+ * slides out of the window its games are subtracted from the players aggregates, so expiring costs
+ * O(expired games) and never scans all the users. A player with no games in the window is not in
+ * the leaderboard.
+ * The window slides with a granularity of one bucket. Every access is mutually exclusive.
+ */
+// @formatter:on
+public class WindowedLeaderboard {
+    // The games completed in a bucket
+    private static class Bucket {
+        public String[] usernames = new String[16];
+        public byte[] tries = new byte[16];
+        public int size = 0;
+
+        public void add(String username, int tries) {
+            if (this.size == this.usernames.length) {
+                this.usernames = Arrays.copyOf(this.usernames, this.size * 2);
+                this.tries = Arrays.copyOf(this.tries, this.size * 2);
+            }
+            this.usernames[this.size] = username;
+            this.tries[this.size] = (byte) tries;
+            this.size++;
+        }
+
+        public void clear() {
+            Arrays.fill(this.usernames, 0, this.size, null);
+            this.size = 0;
+        }
+    }
+
+    // The games of a player in the window
+    private static class Aggregate {
+        public int games = 0;
+        public long triesSum = 0;
+    }
+
+    private final long bucketMillis;
+    private final Bucket[] buckets; // Ring of buckets. Bucket t is at position t % nBuckets
+    private long current; // The index (time / bucketMillis) of the current bucket
+    private final Map<String, Aggregate> players = new HashMap<>();
+    private final Leaderboard ranking = new Leaderboard(Collections.emptyList());
+
+    /**
+     * @param bucketMillis The duration of a bucket in milliseconds
+     * @param nBuckets The number of buckets in the window
+     * @param now The current time in milliseconds
+     */
+    public WindowedLeaderboard(long bucketMillis, int nBuckets, long now) {
+        this.bucketMillis = bucketMillis;
+        this.buckets = new Bucket[nBuckets];
+        for (int k = 0; k < nBuckets; ++k)
+            this.buckets[k] = new Bucket();
+        this.current = now / bucketMillis;
+    }
+
+    /**
+     * Slide the window up to {@code now}, expiring the buckets that left it
+     *
+     * @param now The current time in milliseconds
+     */
+    public synchronized void advance(long now) {
+        long target = now / this.bucketMillis;
+        // Past a whole window every bucket expires, there is no need to visit them more than once
+        long steps = Math.min(target - this.current, this.buckets.length);
+        for (long k = 1; k <= steps; ++k)
+            this.expire(this.buckets[(int) ((this.current + k) % this.buckets.length)]);
+        if (target > this.current)
+            this.current = target;
+    }
+
+    /**
+     * Subtract the games of {@code bucket} from the aggregates and empty it
+     */
+    private void expire(Bucket bucket) {
+        for (int k = 0; k < bucket.size; ++k) {
+            String username = bucket.usernames[k];
+            Aggregate agg = this.players.get(username);
+            agg.games--;
+            agg.triesSum -= bucket.tries[k];
+            if (agg.games == 0) {
+                this.players.remove(username);
+                this.ranking.remove(username);
+            } else {
+                this.ranking.update(username, Leaderboard.fixedScore(agg.triesSum, agg.games));
+            }
+        }
+        bucket.clear();
+    }
+
+    /**
+     * Record a completed game
+     *
+     * @param username The player
+     * @param tries The tries needed to win the game. {@code WORD_TRIES + 1} if it was lost
+     * @param now The time the game was completed in milliseconds
+     * @return The new position of the player or -1 if it did not change
+     */
+    public synchronized int record(String username, int tries, long now) {
+        this.advance(now);
+        this.buckets[(int) (this.current % this.buckets.length)].add(username, tries);
+
+        Aggregate agg = this.players.computeIfAbsent(username, u -> new Aggregate());
+        agg.games++;
+        agg.triesSum += tries;
+        return this.ranking.update(username, Leaderboard.fixedScore(agg.triesSum, agg.games));
+    }
+
+    /**
+     * Returns the first {@code ranks} positions of the leaderboard
+     *
+     * @param ranks
+     * @param now The current time in milliseconds
+     * @return List of pairs {@code <Username, Score>} in the order they appear in the leaderboard
+     */
+    public synchronized List<Pair<String, Double>> get(int ranks, long now) {
+        this.advance(now);
+        return this.ranking.get(ranks);
+    }
+
+    /**
+     * Returns the full leaderboard
+     *
+     * @param now The current time in milliseconds
+     * @return List of pairs {@code <Username, Score>} in the order they appear in the leaderboard
+     */
+    public synchronized List<Pair<String, Double>> get(long now) {
+        this.advance(now);
+        return this.ranking.get();
+    }
+}
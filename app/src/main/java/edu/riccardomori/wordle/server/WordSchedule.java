@@ -0,0 +1,44 @@
+package edu.riccardomori.wordle.server;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+// @formatter:off
+/**
+ * Immutable schedule of the secret words, as streamed from a primary to its followers: the seed
+ * that picks the words, and the anchor of the game IDs, so that a follower that takes over plays
+ * the same games with the same IDs. The game ID {@code base} started at {@code start} (ms since
+ * epoch) and a game lasts {@code rate} seconds.
+ */
+// @formatter:on
+final class WordSchedule {
+    public final long seed;
+    public final long base;
+    public final long start;
+    public final int rate;
+
+    WordSchedule(long seed, long base, long start, int rate) {
+        this.seed = seed;
+        this.base = base;
+        this.start = start;
+        this.rate = rate;
+    }
+
+    public void write(DataOutputStream out) throws IOException {
+        out.writeLong(this.seed);
+        out.writeLong(this.base);
+        out.writeLong(this.start);
+        out.writeInt(this.rate);
+    }
+
+    public static WordSchedule read(DataInputStream in) throws IOException {
+        long seed = in.readLong();
+        long base = in.readLong();
+        long start = in.readLong();
+        int rate = in.readInt();
+        if (rate <= 0)
+            throw new IOException(String.format("Invalid secret word rate %d", rate));
+        return new WordSchedule(seed, base, start, rate);
+    }
+}
@@ -1,11 +1,16 @@
 package edu.riccardomori.wordle.server;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.net.DatagramPacket;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
@@ -14,42 +19,71 @@ import java.net.NetworkInterface;
 import java.net.SocketException;
 import java.net.StandardSocketOptions;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.rmi.NotBoundException;
 import java.rmi.RemoteException;
+import java.rmi.ServerException;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
 import java.rmi.server.UnicastRemoteObject;
+import java.security.SecureRandom;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
 import com.google.gson.stream.JsonReader;
 import com.google.gson.stream.JsonWriter;
+import edu.riccardomori.wordle.protocol.Action;
 import edu.riccardomori.wordle.protocol.Constants;
+import edu.riccardomori.wordle.protocol.LeaderboardWindow;
+import edu.riccardomori.wordle.protocol.MessageStatus;
+import edu.riccardomori.wordle.rmi.LeaderboardDelta;
 import edu.riccardomori.wordle.rmi.RMIConstants;
 import edu.riccardomori.wordle.rmi.RMIStatus;
 import edu.riccardomori.wordle.rmi.clientRMI;
+import edu.riccardomori.wordle.rmi.clusterRMI;
 import edu.riccardomori.wordle.rmi.serverRMI;
-import edu.riccardomori.wordle.rmi.exceptions.PasswordIllegalException;
-import edu.riccardomori.wordle.rmi.exceptions.UsernameIllegalException;
+import edu.riccardomori.wordle.server.auth.AuthService;
+import edu.riccardomori.wordle.server.auth.Pbkdf2PasswordHasher;
+import edu.riccardomori.wordle.server.cluster.ClusterLeaderboard;
+import edu.riccardomori.wordle.server.cluster.ClusterMap;
+import edu.riccardomori.wordle.server.cluster.ClusterNode;
+import edu.riccardomori.wordle.server.jfr.Jfr;
+import edu.riccardomori.wordle.server.jfr.LeaderboardUpdateEvent;
+import edu.riccardomori.wordle.server.jfr.PersistenceEvent;
+import edu.riccardomori.wordle.server.jfr.RequestEvent;
+import edu.riccardomori.wordle.server.metrics.MetricsRegistry;
+import edu.riccardomori.wordle.server.metrics.ServerMetrics;
+import edu.riccardomori.wordle.utils.KeyedPermutation;
 import edu.riccardomori.wordle.utils.Pair;
+import edu.riccardomori.wordle.utils.TimingWheel;
+import edu.riccardomori.wordle.utils.TokenBucket;
 
 // @formatter:off
 /**
@@ -61,19 +95,53 @@ import edu.riccardomori.wordle.utils.Pair;
  *   - Implementing the remote methods
  *   - Managing the subscribers
  *   - Handling the notification over multicast
+ * In cluster mode every node owns a partition of the users (see ClusterMap): the logins of the
+ * other users are redirected to their node, the registrations are forwarded there, and the
+ * leaderboards are merged with the partials of the other nodes.
+ * A server can stream its state to hot standbys (see ReplicationPrimary). A follower keeps its
+ * state up to date from the stream and takes over when the primary cannot be reached, with a new
+ * epoch that makes the old primary step down if it comes back.
+ * A server can also run as a read replica of the all-time leaderboard of a primary: it follows only
+ * the scores (see ReplicationFollower.ScoresReplica) and serves the leaderboard requests, so the
+ * rank-heavy read traffic never reaches the selector of the primary. The replica has no password
+ * hashes: the users log in with the ticket signed by the primary at their login, and then only
+ * the all-time leaderboards are served. The windowed leaderboards are not: their games are not in
+ * the scores stream.
  */
 // @formatter:on
-public final class WordleServer implements serverRMI {
+public final class WordleServer
+        implements serverRMI, ReplicationFollower.Replica, ReplicationFollower.ScoresReplica {
     private static WordleServer instance; // Singleton instance
 
     // Constants
     // File where to store the previous state of the server
     private static final String SERVER_STATE_FILE = "server_state.json";
+    private static final String GAME_HISTORY_FILE = "game_history.bin";
+    private static final String GAME_ARCHIVE_DIR = "games";
+    private static final String LOCK_FILE = "wordle.lock"; // Held while a server uses the files
     public static final int WORD_MAX_SIZE = 48; // Maximum size in bytes of a word
     public static final int WORD_TRIES = 12; // Number of available tries for each game
     // If there is an update in the leaderboard in a position below this number then the server
     // notifies all the subscribers
     public static final int SUBS_THRESHOLD = 3;
+    public static final int PBKDF2_ITERATIONS = 100000; // Iterations for hashing the passwords
+    public static final int FLUSH_PERIOD = 120; // Seconds between two saves of the state
+    public static final int MAX_LOOP_BUSY = 5; // Seconds a selector loop iteration may take
+    public static final int TIMER_TICK = 100; // Resolution of the connection timeouts (in ms)
+    public static final int IDLE_TIMEOUT = 300; // Default seconds a connection may stay idle
+    public static final int WRITE_TIMEOUT = 30; // Default seconds a response may take to be sent
+    public static final int MAX_CONNECTIONS = 10000; // Default maximum number of connections
+    public static final double RATE_LIMIT = 100; // Default requests per second of a connection
+    public static final int RATE_BURST = 200; // Default burst of requests of a connection
+    public static final double USER_RATE_LIMIT = 50; // Default requests per second of a user
+    public static final int USER_RATE_BURST = 100; // Default burst of requests of a user
+    // The windowed leaderboards slide by buckets of this many seconds
+    public static final int WINDOW_BUCKET = 3600;
+    public static final int DAILY_BUCKETS = 24; // Buckets in the daily window
+    public static final int WEEKLY_BUCKETS = 7 * 24; // Buckets in the weekly window
+    public static final int CLUSTER_SYNC = 2; // Seconds between two pulls of the partials
+    public static final int FENCE_INTERVAL = 5; // Seconds between two fences of the old primary
+    public static final int TICKET_VALIDITY = 12 * 3600; // Seconds a replica login ticket lasts
 
     // Configuration attributes
     private boolean isConfigured = false; // Flag that forbids running the server if it
@@ -81,9 +149,48 @@ public final class WordleServer implements serverRMI {
     private int tcpPort; // The port of the server socket
     private int rmiPort; // The port of the RMI server
     private int swRate; // Secret Word generation rate (in seconds)
+    // The game ID that started at scheduleStart (ms since epoch), from when the periods of swRate
+    // seconds are counted. Both are 0, so the periods are aligned to the epoch, until the rate is
+    // changed
+    private long scheduleBase = 0;
+    private long scheduleStart = 0;
+    private int savedRate = 0; // The rate of the saved schedule. 0 if there is none
     private String wordsDb; // File that contains the secret words to choose from
+    // Secret key of the word schedule. Loaded from the state file, or generated, when not set
+    private Long wordSeed = null;
+    private ClusterMap cluster = null; // The partition of the users. null if not in a cluster
+    private ClusterLeaderboard clusterLeaderboard; // The partials of the other nodes
+    // Authenticates the calls between the nodes with the replication secret. null if not in a
+    // cluster
+    private ReplicationAuth clusterAuth;
+    private ClusterService clusterService; // The methods called by the other nodes
+    private int replicationPort = 0; // Where the followers connect. 0 disables the replication
+    private String replicationAddress; // The address where the followers connect
+    private String replicationSecret; // Authenticates the primary and the followers
+    private String primaryHost = null; // The primary to follow. null if this is a primary
+    private int primaryPort;
+    private long epoch = 0; // Incremented by every takeover of a follower
+    // The primary whose leaderboard is served. null if this is not a leaderboard replica
+    private String scoresHost = null;
+    private int scoresPort;
+    private ReplicationAuth tickets; // Signs or checks the replica logins. null if there are none
     private String multicastAddress; // Multicast group address
     private int multicastPort; // Multicast port
+    private String dataDir = "."; // The directory of the files of the server
+    private String stateFile = WordleServer.SERVER_STATE_FILE; // Where to store the state
+    // Where to append the statistics of the finished games
+    private String historyFile = WordleServer.GAME_HISTORY_FILE;
+    private String archiveDir = WordleServer.GAME_ARCHIVE_DIR; // Where to archive the games
+    // Seconds a connection may wait for the next request. 0 disables the timeout
+    private int idleTimeout = WordleServer.IDLE_TIMEOUT;
+    // Seconds a connection may take to read a response. 0 disables the timeout
+    private int writeTimeout = WordleServer.WRITE_TIMEOUT;
+    private int maxConnections = WordleServer.MAX_CONNECTIONS;
+    // Token bucket parameters of the connections and of the users. A 0 rate disables the limit
+    private double rateLimit = WordleServer.RATE_LIMIT;
+    private int rateBurst = WordleServer.RATE_BURST;
+    private double userRateLimit = WordleServer.USER_RATE_LIMIT;
+    private int userRateBurst = WordleServer.USER_RATE_BURST;
 
     private Logger logger;
 
@@ -92,13 +199,56 @@ public final class WordleServer implements serverRMI {
     private volatile ConcurrentMap<String, User> users; // Map {username -> User}
     private volatile String secretWord;
     private volatile long gameId = 0; // The game ID associated with the secret word
-    private volatile long sWTime; // Last time the secret word was generated
-    private Leaderboard leaderboard;
+    private volatile long sWTime; // When the current game started (ms since epoch)
+    private volatile GameStats currStats; // Statistics of the current secret word
+    // Statistics of the previous secret word, still updated by the games started before the change
+    private volatile GameStats prevStats;
+    // The all-time leaderboard. A leaderboard replica replaces it at every snapshot
+    private volatile Leaderboard leaderboard;
+    private GameArchive archive; // All the games completed by the users
+    private ReplicationPrimary replication; // Streams the mutations. null if disabled
+    private FileLock dataLock; // Exclusive lock of the data directory
+    private long promotedAt = 0; // When this follower lost its primary (ns). 0 if never
+    // The leaderboards of the games in the last day and week. They are rebuilt from the archive
+    private Map<LeaderboardWindow, WindowedLeaderboard> windows =
+            new EnumMap<>(LeaderboardWindow.class);
+    private AuthService auth; // Verifies the passwords off the selector thread
+    private final ServerMetrics metrics = ServerMetrics.getInstance();
+    private volatile long lastFlush; // Last time the state was saved (ms since epoch)
+    private volatile long loopBusySince = 0; // When the selector loop left select(). 0 if idle
+    private volatile Thread selectorThread;
+
+    private Selector selector; // The selector of the main loop
+    private SelectionKey acceptKey; // The key of the server socket
+    private int connections = 0; // Number of open client connections
+    // Timeouts of the client connections. Only the selector thread uses it
+    private TimingWheel timeouts = new TimingWheel(WordleServer.TIMER_TICK);
+    // Tasks that must run on the selector thread. Used to complete asynchronous requests
+    private ConcurrentLinkedQueue<Runnable> selectorTasks = new ConcurrentLinkedQueue<>();
 
     // Scheduler for the current word generation
     private ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
     private HashSet<String> words = new HashSet<>();
-    private List<clientRMI> subscribers = new ArrayList<>();
+    private String[] wordList; // The distinct words in the order of the words file
+    // Hash of the seed, the schedule and the words. Equal on the nodes that play the same words
+    private long scheduleFingerprint;
+    // Single thread that computes and sends the notifications, so that the versions are delivered
+    // in order
+    private ExecutorService notifier = Executors.newSingleThreadExecutor();
+    // Pulls the full partials of the other nodes of the cluster, off the selector thread
+    private ExecutorService clusterPuller = Executors.newFixedThreadPool(2);
+    // Tags the versions of the leaderboard notifications, that restart with the server
+    private final long leaderboardEpoch = new SecureRandom().nextLong();
+    // The notification topic of every leaderboard window
+    private Map<LeaderboardWindow, LeaderboardTopic> topics =
+            new EnumMap<>(LeaderboardWindow.class);
+
+    // The subscribers of a leaderboard window and the last notified version of its top positions
+    private static class LeaderboardTopic {
+        public List<clientRMI> subscribers = new ArrayList<>();
+        // The top positions that have been notified last. Only the notifier thread updates it
+        public volatile LeaderboardDelta topSnapshot;
+    }
 
     // Private static class that is used to describe the state of a client connection.
     private static class ConnectionState {
@@ -106,6 +256,9 @@ public final class WordleServer implements serverRMI {
                                       // client
         public ByteBuffer readBuffer; // Buffer used for reading
         public ByteBuffer writeBuffer; // Buffer used for writing
+        public TimingWheel.Timeout timeout; // Idle or write timeout of the connection
+        public boolean writeTimedOut = false; // Whether the timeout is a write timeout
+        private int writeCapacity; // The usual capacity of writeBuffer
 
         // The size of the application message that needs to be read
         // If it is set to -1 it means that the message size is still unknown
@@ -115,7 +268,8 @@ public final class WordleServer implements serverRMI {
             this.session = session;
             // Size of the packet + Max capacity
             this.readBuffer = ByteBuffer.allocate(Integer.BYTES + readCapacity);
-            this.writeBuffer = ByteBuffer.allocate(Integer.BYTES + writeCapacity);
+            this.writeCapacity = Integer.BYTES + writeCapacity;
+            this.writeBuffer = ByteBuffer.allocate(this.writeCapacity);
         }
 
         /**
@@ -135,11 +289,16 @@ public final class WordleServer implements serverRMI {
 
         /**
          * Save the input message in the internal buffer for writable data. It encapsulates the
-         * message in the following packet: [SIZE] [MESSAGE]
+         * message in the following packet: [SIZE] [MESSAGE]. A message larger than the usual
+         * capacity gets a buffer of its own, dropped by the next message that fits
          * 
          * @param data The input data
          */
         public void setWritableMessage(ByteBuffer message) {
+            int size = Integer.BYTES + message.limit();
+            boolean oversized = this.writeBuffer.capacity() > this.writeCapacity;
+            if (size > this.writeBuffer.capacity() || (oversized && size <= this.writeCapacity))
+                this.writeBuffer = ByteBuffer.allocate(Math.max(size, this.writeCapacity));
             this.writeBuffer.clear();
             this.writeBuffer.putInt(message.limit());
             this.writeBuffer.put(message);
@@ -169,22 +328,63 @@ public final class WordleServer implements serverRMI {
         return WordleServer.instance;
     }
 
+    /**
+     * Change the file where the state of the server is stored. Used by the benchmarks
+     * 
+     * @param stateFile The state file
+     */
+    void setStateFile(String stateFile) {
+        this.stateFile = stateFile;
+    }
+
+    /**
+     * Change the file where the statistics of the finished games are appended. Used by the
+     * benchmarks
+     * 
+     * @param historyFile The history file
+     */
+    void setHistoryFile(String historyFile) {
+        this.historyFile = historyFile;
+    }
+
+    /**
+     * Change the directory of the game archive. Used by the benchmarks
+     * 
+     * @param archiveDir The directory
+     */
+    void setArchiveDir(String archiveDir) {
+        this.archiveDir = archiveDir;
+    }
+
     /**
      * Save the current state to the save file
      */
-    private void flush() {
+    void flush() {
         // Check whether the data has been loaded before so we don't overwrite the file
         if (this.users == null)
             return;
 
-        Gson gson = new Gson();
+        long start = System.nanoTime();
+        PersistenceEvent event = Jfr.isEnabled() ? new PersistenceEvent() : null;
+        if (event != null)
+            event.begin();
 
         try (JsonWriter writer = new JsonWriter(new BufferedWriter(
-                new FileWriter(WordleServer.SERVER_STATE_FILE, StandardCharsets.UTF_8)))) {
+                new FileWriter(this.stateFile, StandardCharsets.UTF_8)))) {
 
             writer.beginObject(); // Begin root object
             writer.name("lastGameID");
             writer.value(this.gameId);
+            writer.name("wordSeed");
+            writer.value(this.wordSeed);
+            writer.name("epoch");
+            writer.value(this.epoch);
+            writer.name("scheduleBase");
+            writer.value(this.scheduleBase);
+            writer.name("scheduleStart");
+            writer.value(this.scheduleStart);
+            writer.name("scheduleRate");
+            writer.value(this.swRate);
             writer.name("users");
 
             // When serializing, in order to avoid concurrent modification to the User objects it is
@@ -194,7 +394,7 @@ public final class WordleServer implements serverRMI {
                 writer.name(entry.getKey());
                 User user = entry.getValue();
                 synchronized (user) {
-                    writer.jsonValue(gson.toJson(user));
+                    UserCodec.writeUser(writer, user);
                 }
             }
             writer.endObject();
@@ -204,6 +404,11 @@ public final class WordleServer implements serverRMI {
             e.printStackTrace();
             System.exit(1);
         }
+        this.archive.force();
+        this.metrics.flushDuration.recordSince(start);
+        this.lastFlush = System.currentTimeMillis();
+        if (event != null)
+            this.commitPersistence(event, "flush");
     }
 
     /**
@@ -213,21 +418,400 @@ public final class WordleServer implements serverRMI {
         // Check that all the parameters have been configured
         if (!this.isConfigured)
             throw new RuntimeException("The server must be configured before running.");
+        // The nodes play the same words only if they share the seed, so it cannot be generated
+        if (this.cluster != null && this.wordSeed == null) {
+            this.logger.severe("The word seed must be configured in cluster mode");
+            System.exit(1);
+        }
+
+        // The stream carries the password hashes, so it is never open to anyone
+        // It also authenticates the calls between the nodes of a cluster
+        if ((this.replicationPort != 0 || this.primaryHost != null || this.scoresHost != null
+                || this.cluster != null)
+                && (this.replicationSecret == null || this.replicationSecret.isBlank())) {
+            this.logger.severe("The replication secret must be configured");
+            System.exit(1);
+        }
+        if (this.cluster != null)
+            this.clusterAuth = new ReplicationAuth(this.replicationSecret);
+
+        // A leaderboard replica has no state of its own
+        if (this.scoresHost != null) {
+            this.followScores();
+            return;
+        }
+
+        // Two servers on the same files would overwrite the state and corrupt the archive
+        this.lockDataDir();
 
         // Initialize the multicastSocket
         this.initMulticastSocket();
 
+        // Load the state
+        this.initState();
+
+        // The windowed leaderboards and the statistics are not in the state file. A follower
+        // rebuilds them when it takes over
+        if (this.primaryHost == null)
+            this.rebuildFromArchive();
+
+        // A follower replaces the state with the one streamed by the primary, until it fails
+        if (this.primaryHost != null) {
+            this.logger.info(() -> String.format("Following the primary %s:%d", this.primaryHost,
+                    this.primaryPort));
+            ReplicationFollower follower = new ReplicationFollower(this.primaryHost,
+                    this.primaryPort, this.replicationSecret, (ReplicationFollower.Replica) this);
+            follower.follow();
+            this.promotedAt = System.nanoTime();
+            this.rebuildFromArchive();
+            this.epoch++;
+            this.flush(); // A restart must not go back to the old epoch
+            this.logger.warning(() -> String.format("Taking over as the primary at epoch %d",
+                    this.epoch));
+
+            // The old primary might be alive behind a partition: make it step down when it is
+            // reachable again
+            this.scheduler.scheduleWithFixedDelay(() -> {
+                follower.fence(this.epoch);
+            }, 0, WordleServer.FENCE_INTERVAL, TimeUnit.SECONDS);
+        }
+
+        // Run the scheduled services
+        this.runScheduler();
+
+        // Stream the state to the followers
+        this.runReplication();
+
+        // Run RMI services
+        this.runRMIServer();
+    }
+
+    /**
+     * Follow the scores of the primary of this leaderboard replica on another thread. When the
+     * primary is lost the last leaderboard keeps being served, and the scores are reloaded from
+     * the primary when it can be reached again, or from the follower that replaces it
+     */
+    private void followScores() {
+        this.leaderboard = new Leaderboard(Collections.emptyList());
+        this.tickets = new ReplicationAuth(this.replicationSecret);
+        Thread follower = new Thread(() -> {
+            ReplicationFollower stream = new ReplicationFollower(this.scoresHost, this.scoresPort,
+                    this.replicationSecret, (ReplicationFollower.ScoresReplica) this);
+            // It returns when the primary is lost
+            while (true)
+                stream.follow();
+        }, "leaderboard-replica");
+        follower.setDaemon(true);
+        follower.start();
+        this.logger.info(() -> String.format("Serving the leaderboard of %s:%d", this.scoresHost,
+                this.scoresPort));
+    }
+
+    @Override
+    public void loadScores(String[] usernames, int[] scores) {
+        this.leaderboard = new Leaderboard(usernames, scores);
+    }
+
+    @Override
+    public void applyScore(String username, int score) {
+        this.leaderboard.update(username, score);
+    }
+
+    /**
+     * Take the exclusive lock of the data directory, or exit if another server holds it
+     */
+    private void lockDataDir() {
+        try {
+            Files.createDirectories(Path.of(this.dataDir));
+            FileChannel channel = FileChannel.open(Path.of(this.dataDir, WordleServer.LOCK_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            this.dataLock = channel.tryLock();
+        } catch (IOException | OverlappingFileLockException e) {
+            this.dataLock = null;
+        }
+        if (this.dataLock == null) {
+            this.logger.severe(() -> String.format(
+                    "The data directory `%s` is used by another server. Every server, and every "
+                            + "follower, needs its own data directory",
+                    this.dataDir));
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Initialize the in-memory state of the server: users, leaderboard, authentication and words.
+     * It does not open any socket, so the benchmarks can use it directly
+     */
+    void initState() {
         // Load the previous server state
         this.loadPrevState();
+        this.anchorSchedule();
+        try {
+            this.archive = new GameArchive(Path.of(this.archiveDir));
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+        this.lastFlush = System.currentTimeMillis();
+        long now = System.currentTimeMillis();
+        this.windows.put(LeaderboardWindow.DAILY, new WindowedLeaderboard(
+                WordleServer.WINDOW_BUCKET * 1000L, WordleServer.DAILY_BUCKETS, now));
+        this.windows.put(LeaderboardWindow.WEEKLY, new WindowedLeaderboard(
+                WordleServer.WINDOW_BUCKET * 1000L, WordleServer.WEEKLY_BUCKETS, now));
+        for (LeaderboardWindow window : new LeaderboardWindow[] {LeaderboardWindow.ALL_TIME,
+                LeaderboardWindow.DAILY, LeaderboardWindow.WEEKLY}) {
+            LeaderboardTopic topic = new LeaderboardTopic();
+            topic.topSnapshot =
+                    WordleServer.makeSnapshot(window, this.leaderboardEpoch, 0,
+                            this.getTopLeaderboard(window));
+            this.topics.put(window, topic);
+        }
+
+        // Initialize the authentication service
+        this.auth = new AuthService(this.users,
+                new Pbkdf2PasswordHasher(WordleServer.PBKDF2_ITERATIONS),
+                Runtime.getRuntime().availableProcessors());
+        this.registerGauges();
 
         // Load words
         this.loadWords();
+        if (this.wordSeed == null) {
+            this.wordSeed = new SecureRandom().nextLong();
+            this.logger.info("Generated a new seed for the word schedule");
+        }
+        this.updateScheduleFingerprint();
+    }
 
-        // Run the scheduled services
-        this.runScheduler();
+    /**
+     * Compute the fingerprint of the secret word schedule
+     */
+    private void updateScheduleFingerprint() {
+        long h = KeyedPermutation.mix(this.wordSeed ^ this.swRate);
+        h = KeyedPermutation.mix(h ^ this.scheduleBase);
+        h = KeyedPermutation.mix(h ^ this.scheduleStart);
+        for (String word : this.wordList)
+            h = KeyedPermutation.mix(h ^ word.hashCode());
+        this.scheduleFingerprint = h;
+    }
 
-        // Run RMI services
-        this.runRMIServer();
+    /**
+     * Start loading a snapshot streamed by the primary. The schedule of the secret words and the
+     * epoch are taken from the primary, and its users follow with {@code applyReplicatedUser}
+     * 
+     * @param epoch The epoch of the primary
+     * @param schedule The secret word schedule of the primary
+     */
+    @Override
+    public void beginSnapshot(long epoch, WordSchedule schedule) {
+        this.epoch = epoch;
+        this.wordSeed = schedule.seed;
+        this.scheduleBase = schedule.base;
+        this.scheduleStart = schedule.start;
+        this.swRate = schedule.rate;
+        this.updateScheduleFingerprint();
+    }
+
+    /**
+     * Rebuild the all-time leaderboard once all the users of the snapshot have been loaded
+     */
+    @Override
+    public void endSnapshot() {
+        this.leaderboard = new Leaderboard(Collections.unmodifiableCollection(this.users.values()));
+    }
+
+    /**
+     * Rebuild the windowed leaderboards, and the statistics of the current and the previous secret
+     * words, from the archive, at startup and when a follower takes over: it is the only state
+     * that has all the games, those of a follower included. The games of the last week are
+     * scanned. The completion time of a game is not archived, so a game counts as completed when
+     * its secret word changed, or now for the current word. The players of a word are the ones
+     * that completed it or have a game of it in progress.
+     * The statistics of the older words that are missing from the history file, because they
+     * finished while the server was down, are rebuilt and appended to it
+     */
+    private void rebuildFromArchive() {
+        long now = System.currentTimeMillis();
+        long currId = this.gameIdAt(now);
+        long span = WordleServer.WINDOW_BUCKET * 1000L * WordleServer.WEEKLY_BUCKETS;
+        long fromId = Math.min(this.gameIdAt(now - span), currId - 1);
+        Map<LeaderboardWindow, WindowedLeaderboard> windows =
+                new EnumMap<>(LeaderboardWindow.class);
+        windows.put(LeaderboardWindow.DAILY, new WindowedLeaderboard(
+                WordleServer.WINDOW_BUCKET * 1000L, WordleServer.DAILY_BUCKETS, now - span));
+        windows.put(LeaderboardWindow.WEEKLY, new WindowedLeaderboard(
+                WordleServer.WINDOW_BUCKET * 1000L, WordleServer.WEEKLY_BUCKETS, now - span));
+        GameStats prev = new GameStats(currId - 1, this.gameStartTime(currId - 1));
+        GameStats curr = new GameStats(currId, this.gameStartTime(currId));
+        long lastArchived = this.lastArchivedStats();
+        Map<Long, GameStats> missed = new TreeMap<>();
+
+        int games = 0;
+        GameArchive.Cursor cursor = this.archive.cursorFromGame(fromId);
+        for (GameArchive.Entry entry = cursor.next(); entry != null; entry = cursor.next()) {
+            long gameId = PackedGame.gameId(entry.game);
+            if (gameId < fromId)
+                continue;
+            int tries = PackedGame.tries(entry.game);
+            long completed = Math.min(now, this.gameStartTime(gameId + 1));
+            for (WindowedLeaderboard board : windows.values())
+                board.record(entry.username, tries < 0 ? WordleServer.WORD_TRIES + 1 : tries,
+                        completed);
+            GameStats stats = gameId == currId ? curr : gameId == currId - 1 ? prev : null;
+            if (stats == null && gameId > lastArchived && gameId < currId - 1)
+                stats = missed.computeIfAbsent(gameId,
+                        id -> new GameStats(id, this.gameStartTime(id)));
+            if (stats != null) {
+                stats.start();
+                if (tries < 0)
+                    stats.lose();
+                else
+                    stats.win(tries);
+            }
+            ++games;
+        }
+        for (User user : this.users.values()) {
+            GameCheckpoint checkpoint;
+            synchronized (user) {
+                checkpoint = user.getCheckpoint();
+            }
+            if (checkpoint != null && checkpoint.gameId() == currId)
+                curr.start();
+            else if (checkpoint != null && checkpoint.gameId() == currId - 1)
+                prev.start();
+        }
+        for (WindowedLeaderboard board : windows.values())
+            board.advance(now);
+
+        this.windows.putAll(windows);
+        this.prevStats = prev;
+        this.currStats = curr;
+        for (GameStats stats : missed.values())
+            this.archiveStats(stats.snapshot());
+        int nGames = games;
+        this.logger.info(() -> String.format("Rebuilt the windows and the statistics from %d games",
+                nGames));
+    }
+
+    /**
+     * Replace a user with its state streamed by the primary
+     * 
+     * @param user The user
+     */
+    @Override
+    public void applyReplicatedUser(User user) {
+        this.users.put(user.getUsername(), user);
+        // The username might have been remembered as unknown
+        this.auth.invalidate(user.getUsername());
+    }
+
+    /**
+     * Start streaming the state to the followers, if enabled
+     */
+    private void runReplication() {
+        if (this.replicationPort == 0)
+            return;
+        this.replication = new ReplicationPrimary(this.replicationAddress, this.replicationPort,
+                this.replicationSecret, Collections.unmodifiableCollection(this.users.values()),
+                this.archive, new WordSchedule(this.wordSeed, this.scheduleBase,
+                        this.scheduleStart, this.swRate),
+                this.epoch, !this.isClustered());
+        try {
+            this.replication.start();
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+        // The leaderboard replicas log in the users of this server. A node of a cluster has none
+        if (!this.isClustered())
+            this.tickets = new ReplicationAuth(this.replicationSecret);
+    }
+
+    /**
+     * Returns the ticket that logs {@code username} in the leaderboard replicas of this server
+     * 
+     * @param username The user that just logged in
+     * @return The ticket, ready to be read, or {@code null} if this server has no replicas
+     */
+    public ByteBuffer getReplicaTicket(String username) {
+        if (this.tickets == null || this.isLeaderboardReplica())
+            return null;
+        byte[] ticket = this.tickets.ticket(username,
+                System.currentTimeMillis() + WordleServer.TICKET_VALIDITY * 1000L);
+        return ticket == null ? null : ByteBuffer.wrap(ticket);
+    }
+
+    /**
+     * Check the ticket presented to this leaderboard replica
+     * 
+     * @param ticket The ticket
+     * @return The username, or {@code null} if the ticket is not valid
+     */
+    public String checkReplicaTicket(ByteBuffer ticket) {
+        if (this.tickets == null || !this.isLeaderboardReplica())
+            return null;
+        return this.tickets.checkTicket(ticket, System.currentTimeMillis());
+    }
+
+    /**
+     * Stream the current state of {@code user} to the followers, if any. It must be called after
+     * every change of a user that is persisted
+     * 
+     * @param user The user
+     */
+    public void replicate(User user) {
+        if (this.replication != null)
+            this.replication.userChanged(user);
+    }
+
+    /**
+     * Register the gauges that sample the state of the server, and the counters of the
+     * authentication service
+     */
+    private void registerGauges() {
+        MetricsRegistry registry = MetricsRegistry.getInstance();
+        registry.gauge("wordle_users", () -> this.users.size());
+        registry.gauge("wordle_game_id", () -> this.gameId);
+        registry.gauge("wordle_persistence_lag_seconds",
+                () -> (System.currentTimeMillis() - this.lastFlush) / 1000.0);
+        registry.gauge("wordle_selector_busy_seconds", () -> this.loopBusySeconds());
+        registry.counter("wordle_auth_verifications_total", () -> this.auth.getVerifications());
+        registry.counter("wordle_auth_cache_hits_total", () -> this.auth.getCacheHits());
+        registry.counter("wordle_auth_failures_total", () -> this.auth.getFailures());
+        registry.counter("wordle_auth_rejected_total", () -> this.auth.getRejected());
+        registry.counter("wordle_auth_unknown_users_total", () -> this.auth.getUnknownHits());
+        registry.counter("wordle_auth_throttled_total", () -> this.auth.getThrottled());
+        registry.gauge("wordle_auth_latency_avg_ns", () -> this.auth.getAverageLatency());
+        registry.gauge("wordle_auth_latency_max_ns", () -> this.auth.getMaxLatency());
+        registry.gauge("wordle_auth_queue_size", () -> this.auth.getQueueSize());
+        registry.gauge("wordle_auth_active_threads", () -> this.auth.getActiveThreads());
+        registry.gauge("wordle_auth_saturation", () -> this.auth.getSaturation());
+    }
+
+    /**
+     * Returns for how long the selector loop has been processing the current iteration
+     * 
+     * @return The time in seconds, 0 if the selector is waiting for events
+     */
+    private double loopBusySeconds() {
+        long since = this.loopBusySince;
+        return since == 0 ? 0 : (System.nanoTime() - since) / 1e9;
+    }
+
+    /**
+     * Register the health checks. The selector thread must be alive and responsive, and the state
+     * must have been saved recently
+     */
+    private void registerHealthChecks() {
+        MetricsRegistry registry = MetricsRegistry.getInstance();
+        registry.healthCheck("selector", () -> {
+            Thread thread = this.selectorThread;
+            return thread != null && thread.isAlive()
+                    && this.loopBusySeconds() < WordleServer.MAX_LOOP_BUSY;
+        });
+        if (this.isLeaderboardReplica()) // Nothing to save
+            return;
+        registry.healthCheck("persistence", () -> System.currentTimeMillis()
+                - this.lastFlush < 2 * WordleServer.FLUSH_PERIOD * 1000L);
     }
 
     /**
@@ -245,7 +829,7 @@ public final class WordleServer implements serverRMI {
                     return false;
                 }
             }).findAny().get();
-            this.logger.info(String.format("Using interface %s for multicast",
+            this.logger.info(() -> String.format("Using interface %s for multicast",
                     this.multicastInterface.getDisplayName()));
 
             // Create socket and join multicast group
@@ -261,29 +845,46 @@ public final class WordleServer implements serverRMI {
     }
 
     /**
-     * Load the previous state from SERVER_STATE_FILE. This will load the users and initialize the
+     * Load the previous state from the state file. This will load the users and initialize the
      * previous server state.
      */
-    private void loadPrevState() {
-        try (JsonReader reader = new JsonReader(new BufferedReader(
-                new FileReader(WordleServer.SERVER_STATE_FILE, StandardCharsets.UTF_8)))) {
-            Gson gson = new Gson();
+    void loadPrevState() {
+        PersistenceEvent event = Jfr.isEnabled() ? new PersistenceEvent() : null;
+        if (event != null)
+            event.begin();
 
+        try (JsonReader reader = new JsonReader(new BufferedReader(
+                new FileReader(this.stateFile, StandardCharsets.UTF_8)))) {
             // Parse the initial Object
             reader.beginObject();
             while (reader.hasNext()) {
                 String name = reader.nextName();
 
                 if (name.equals("users")) { // All the users
-                    TypeToken<ConcurrentMap<String, User>> type =
-                            new TypeToken<ConcurrentMap<String, User>>() {};
-                    this.users = gson.fromJson(reader, type);
+                    this.users = UserCodec.readUsers(reader);
 
                 } else if (name.equals("lastGameID")) { // Last game ID
                     this.gameId = reader.nextLong();
 
+                } else if (name.equals("wordSeed")) { // Key of the word schedule
+                    long seed = reader.nextLong();
+                    if (this.wordSeed == null)
+                        this.wordSeed = seed;
+
+                } else if (name.equals("epoch")) { // Epoch of the primary
+                    this.epoch = reader.nextLong();
+
+                } else if (name.equals("scheduleBase")) { // Anchor of the game IDs
+                    this.scheduleBase = reader.nextLong();
+
+                } else if (name.equals("scheduleStart")) {
+                    this.scheduleStart = reader.nextLong();
+
+                } else if (name.equals("scheduleRate")) { // Rate of the saved schedule
+                    this.savedRate = reader.nextInt();
+
                 } else { // Ignored
-                    this.logger.warning(String
+                    this.logger.warning(() -> String
                             .format("The server state file is corrupted. Unknown key `%s`", name));
                     reader.skipValue();
                 }
@@ -298,8 +899,33 @@ public final class WordleServer implements serverRMI {
             System.exit(1);
         }
 
+        if (event != null) {
+            this.commitPersistence(event, "load");
+            event = new PersistenceEvent();
+            event.begin();
+        }
+
         // Generate the leaderboard
         this.leaderboard = new Leaderboard(Collections.unmodifiableCollection(this.users.values()));
+        if (event != null)
+            this.commitPersistence(event, "leaderboard");
+    }
+
+    /**
+     * Fill and commit a persistence event
+     * 
+     * @param event The event, already begun
+     * @param phase The phase that just ended
+     */
+    private void commitPersistence(PersistenceEvent event, String phase) {
+        event.end();
+        if (!event.shouldCommit())
+            return;
+        event.phase = phase;
+        event.file = this.stateFile;
+        event.users = this.users.size();
+        event.size = new File(this.stateFile).length();
+        event.commit();
     }
 
     /**
@@ -308,39 +934,239 @@ public final class WordleServer implements serverRMI {
     private void loadWords() {
         try (BufferedReader input =
                 new BufferedReader(new FileReader(this.wordsDb, StandardCharsets.UTF_8))) {
+            List<String> list = new ArrayList<>();
             String line;
             while ((line = input.readLine()) != null)
-                this.words.add(line);
+                if (this.words.add(line))
+                    list.add(line);
+            this.wordList = list.toArray(new String[0]);
         } catch (IOException e) {
             e.printStackTrace();
             System.exit(1);
         }
+        if (this.wordList.length == 0) {
+            this.logger.severe(() -> String.format("No words in `%s`", this.wordsDb));
+            System.exit(1);
+        }
     }
 
     /**
      * Run the scheduler
      */
     private void runScheduler() {
-        // Change the secret word at the specified rate
+        // Change the secret word at the start of every period
+        this.updateSecretWord();
+        this.scheduleSecretWord();
+
+        // Slide the windowed leaderboards even when nobody plays, so that the expired games leave
+        // the top positions
         this.scheduler.scheduleAtFixedRate(() -> {
-            // Choose a random word that is different from the current one
-            String newWord;
-            do {
-                int randPos = ThreadLocalRandom.current().nextInt(this.words.size());
-                newWord = this.words.stream().skip(randPos).findFirst().get();
-            } while (newWord.equals(this.secretWord));
-
-            // Update new secret word
-            this.secretWord = newWord;
-            this.gameId++;
-            this.sWTime = System.currentTimeMillis();
-            this.logger.info(String.format("Secret word changed to `%s`", newWord));
-        }, 0, this.swRate, TimeUnit.SECONDS);
+            for (LeaderboardWindow window : this.windows.keySet())
+                this.notifySubscribers(window);
+        }, 60, 60, TimeUnit.SECONDS);
+
+        // Pull the partial leaderboards of the other nodes
+        if (this.cluster != null)
+            this.scheduler.scheduleWithFixedDelay(() -> {
+                this.syncCluster();
+            }, WordleServer.CLUSTER_SYNC, WordleServer.CLUSTER_SYNC, TimeUnit.SECONDS);
 
         // Periodically call this.flush
         this.scheduler.scheduleWithFixedDelay(() -> {
             this.flush();
-        }, 60, 120, TimeUnit.SECONDS);
+        }, 60, WordleServer.FLUSH_PERIOD, TimeUnit.SECONDS);
+
+        // Periodically log the authentication metrics
+        this.scheduler.scheduleAtFixedRate(() -> {
+            this.logger.fine(() -> String.format(
+                    "Auth: %d logins (%d cached, %d failed, %d rejected), "
+                            + "%d unknown users, %d throttled, latency avg %d us max %d us, "
+                            + "pool %d busy %d queued (saturation %.2f)",
+                    this.auth.getVerifications(),
+                    this.auth.getCacheHits(), this.auth.getFailures(), this.auth.getRejected(),
+                    this.auth.getUnknownHits(), this.auth.getThrottled(),
+                    this.auth.getAverageLatency() / 1000, this.auth.getMaxLatency() / 1000,
+                    this.auth.getActiveThreads(), this.auth.getQueueSize(),
+                    this.auth.getSaturation()));
+        }, 60, 60, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Returns the secret word of a game. The words are drawn from a permutation of the words
+     * file that changes every cycle of {@code n} games, where {@code n} is the number of words, so
+     * a word is never repeated within a cycle. The permutation is keyed by the seed and the cycle,
+     * so the word is computed in O(1) from the game ID alone and needs no storage: every server
+     * with the same words file and the same seed computes the same word.
+     * When the first word of a cycle is the last one of the previous cycle, the first two words of
+     * the cycle are swapped, so two consecutive games never have the same word
+     * 
+     * @param gameId The game ID
+     * @return The secret word
+     */
+    public String secretWord(long gameId) {
+        long n = this.wordList.length;
+        // With two words they must alternate: every cycle uses the permutation of the first one
+        long cycle = n > 2 ? Math.floorDiv(gameId, n) : 0;
+        long index = Math.floorMod(gameId, n);
+        // Building the permutation costs a few multiplications, it is not worth caching it
+        KeyedPermutation perm = this.wordPermutation(cycle);
+        if (n > 2 && index < 2 && perm.apply(0) == this.wordPermutation(cycle - 1).apply(n - 1))
+            index = 1 - index;
+        return this.wordList[(int) perm.apply(index)];
+    }
+
+    /**
+     * Returns the permutation of the words in a cycle, see {@code secretWord}
+     * 
+     * @param cycle The cycle
+     * @return The permutation
+     */
+    private KeyedPermutation wordPermutation(long cycle) {
+        return new KeyedPermutation(this.wordList.length,
+                KeyedPermutation.mix(this.wordSeed ^ cycle));
+    }
+
+    /**
+     * Returns the game ID that is played at {@code time}. The games are aligned to the periods of
+     * {@code swRate} seconds since {@code scheduleStart}, so the game ID depends on the clock only
+     * 
+     * @param time Unix time in milliseconds
+     * @return The game ID
+     */
+    public long gameIdAt(long time) {
+        return this.scheduleBase
+                + Math.floorDiv(time - this.scheduleStart, this.swRate * 1000L);
+    }
+
+    /**
+     * Returns when the game {@code gameId} starts, see {@code gameIdAt}
+     * 
+     * @param gameId The game ID
+     * @return Unix time in milliseconds
+     */
+    public long gameStartTime(long gameId) {
+        return this.scheduleStart + (gameId - this.scheduleBase) * this.swRate * 1000L;
+    }
+
+    /**
+     * Keep the game IDs increasing when the rate of the secret word has changed since the state
+     * was saved: the current game of the saved schedule goes on, and the periods of the new rate
+     * start when it ends, from the next game ID. The nodes of a cluster compute the same schedule
+     * only if they are all restarted with the new rate within the same period. A state saved
+     * before the anchor only has its last game ID, and the periods start now if it is ahead
+     */
+    private void anchorSchedule() {
+        long now = System.currentTimeMillis();
+        if (this.savedRate == 0 && this.gameId > this.gameIdAt(now)) {
+            // Saved before the schedule was: only its last game ID is known
+            this.scheduleBase = this.gameId + 1;
+            this.scheduleStart = now;
+        }
+        if (this.savedRate == 0 || this.savedRate == this.swRate)
+            return;
+        long period = this.savedRate * 1000L;
+        long nextId = this.scheduleBase
+                + Math.floorDiv(now - this.scheduleStart, period) + 1;
+        this.scheduleStart += (nextId - this.scheduleBase) * period;
+        this.scheduleBase = nextId;
+        this.logger.info(() -> String.format(
+                "The secret word rate changed from %d to %d seconds, from game %d on",
+                this.savedRate, this.swRate, this.scheduleBase));
+    }
+
+    /**
+     * Schedule the next change of the secret word at the start of the next period
+     */
+    private void scheduleSecretWord() {
+        long delay = this.getNextSWTime() - System.currentTimeMillis();
+        this.scheduler.schedule(() -> {
+            this.updateSecretWord();
+            this.scheduleSecretWord();
+        }, Math.max(delay, 0), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Start the game of the current period, if it has not been started yet
+     */
+    synchronized void updateSecretWord() {
+        long now = System.currentTimeMillis();
+        long newId = this.gameIdAt(now);
+        if (this.secretWord != null && newId == this.gameId)
+            return;
+        if (newId < this.gameId) {
+            // The clock went back: the game IDs would not be increasing
+            this.logger.warning(() -> String.format(
+                    "The schedule moved back from game %d to game %d", this.gameId, newId));
+        }
+
+        // Roll the statistics before publishing the new game ID, so that there are always
+        // statistics for the current game. The games started with the previous word can still be
+        // completed, so its statistics are archived only at the next change
+        // The statistics rebuilt from the archive are kept
+        GameStats finished = null;
+        if (this.currStats == null || this.currStats.getGameId() != newId) {
+            finished = this.prevStats;
+            this.prevStats = this.currStats;
+            this.currStats = new GameStats(newId, now);
+        }
+
+        // Update new secret word
+        this.secretWord = this.secretWord(newId);
+        this.gameId = newId;
+        this.sWTime = this.gameStartTime(newId);
+        if (finished != null)
+            this.archiveStats(finished.snapshot());
+        this.logger.info(() -> String.format("Game %d started", this.gameId));
+        this.logger.finest(() -> String.format("Secret word is `%s`", this.secretWord));
+    }
+
+    /**
+     * Returns the game ID of the last statistics in the history file
+     * 
+     * @return The game ID or {@code Long.MIN_VALUE} if the file is empty or cannot be read
+     */
+    private long lastArchivedStats() {
+        try (RandomAccessFile file = new RandomAccessFile(this.historyFile, "r")) {
+            // A record torn by a crash is ignored
+            long records = file.length() / GameStatsSnapshot.RECORD_BYTES;
+            if (records == 0)
+                return Long.MIN_VALUE;
+            file.seek((records - 1) * GameStatsSnapshot.RECORD_BYTES);
+            return file.readLong();
+        } catch (IOException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    /**
+     * Append the statistics of a finished game to the history file
+     * 
+     * @param stats The statistics
+     */
+    private void archiveStats(GameStatsSnapshot stats) {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(this.historyFile, true), GameStatsSnapshot.RECORD_BYTES))) {
+            stats.writeRecord(out);
+        } catch (IOException e) {
+            this.logger.warning(() -> String.format("Cannot archive the statistics of game %d: %s",
+                    stats.gameId, e.getMessage()));
+        }
+    }
+
+    /**
+     * Returns the statistics of a game. Only the current and the previous games are available
+     * 
+     * @param gameId The game ID
+     * @return The statistics or {@code null} if they are not available
+     */
+    public GameStats getGameStats(long gameId) {
+        GameStats stats = this.currStats;
+        if (stats != null && stats.getGameId() == gameId)
+            return stats;
+        stats = this.prevStats;
+        if (stats != null && stats.getGameId() == gameId)
+            return stats;
+        return null;
     }
 
     /**
@@ -351,6 +1177,16 @@ public final class WordleServer implements serverRMI {
             serverRMI stub = (serverRMI) UnicastRemoteObject.exportObject(this, 0);
             Registry registry = LocateRegistry.createRegistry(this.rmiPort);
             registry.rebind(RMIConstants.SERVER_NAME, stub);
+
+            // The methods of the cluster are not on the public registry
+            if (this.cluster != null) {
+                int clusterPort = this.cluster.getNodes().get(this.cluster.getSelf()).clusterPort;
+                this.clusterService = new ClusterService(this, this.clusterAuth);
+                clusterRMI clusterStub = (clusterRMI) UnicastRemoteObject
+                        .exportObject(this.clusterService, clusterPort);
+                LocateRegistry.createRegistry(clusterPort).rebind(RMIConstants.CLUSTER_NAME,
+                        clusterStub);
+            }
         } catch (RemoteException e) {
             e.printStackTrace();
             System.exit(1);
@@ -378,60 +1214,265 @@ public final class WordleServer implements serverRMI {
         this.isConfigured = true;
     }
 
+    /**
+     * Set the secret key of the word schedule. It must be called before {@code run}. The servers
+     * that share the seed and the words file play the same secret words. When it is not set the
+     * seed is loaded from the state file, or generated and saved there
+     * 
+     * @param seed // The seed
+     */
+    public void configureWordSeed(long seed) {
+        this.wordSeed = seed;
+    }
+
+    /**
+     * Run the server as a node of a cluster. It must be called before {@code run}. All the nodes
+     * must be configured with the same list of nodes, the same words file and the same word seed
+     * 
+     * @param nodes // All the nodes of the cluster, including this one
+     * @param self // The index of this node in {@code nodes}
+     */
+    public void configureCluster(List<ClusterNode> nodes, int self) {
+        this.cluster = new ClusterMap(nodes, self);
+        this.clusterLeaderboard = new ClusterLeaderboard(nodes.size());
+    }
+
+    /**
+     * Stream the state to the followers that connect to {@code address:port}. The secret is also
+     * the one used to follow a primary. It must be called before {@code run}
+     * 
+     * @param address // The address where the followers connect
+     * @param port // The replication port. 0 disables the replication
+     * @param secret // The secret shared by the primary and the followers
+     */
+    public void configureReplication(String address, int port, String secret) {
+        this.replicationAddress = address;
+        this.replicationPort = port;
+        this.replicationSecret = secret;
+    }
+
+    /**
+     * Keep the state file, the statistics and the archive of the games in {@code dataDir}. It must
+     * be called before {@code run}
+     * 
+     * @param dataDir // The directory. It is locked while the server runs
+     */
+    public void configureDataDir(String dataDir) {
+        this.dataDir = dataDir;
+        this.stateFile = Path.of(dataDir, WordleServer.SERVER_STATE_FILE).toString();
+        this.historyFile = Path.of(dataDir, WordleServer.GAME_HISTORY_FILE).toString();
+        this.archiveDir = Path.of(dataDir, WordleServer.GAME_ARCHIVE_DIR).toString();
+    }
+
+    /**
+     * Run the server as a hot standby of the primary at {@code host:port}. It must be called
+     * before {@code run}. The follower binds its ports only when it takes over, so it can be
+     * configured with the same ports of a primary on the same host
+     * 
+     * @param host // The host of the primary
+     * @param port // The replication port of the primary
+     */
+    public void configureFollower(String host, int port) {
+        this.primaryHost = host;
+        this.primaryPort = port;
+    }
+
+    /**
+     * Run the server as a read replica of the all-time leaderboard of the primary at
+     * {@code host:port}. It must be called before {@code run}, after {@code configureReplication}
+     * with the secret of the primary. The replica keeps no files and serves no RMI
+     * 
+     * @param host // The host of the primary
+     * @param port // The replication port of the primary
+     */
+    public void configureLeaderboardReplica(String host, int port) {
+        this.scoresHost = host;
+        this.scoresPort = port;
+    }
+
+    /**
+     * Configure the limits on the client connections. It must be called before {@code run}
+     * 
+     * @param idleTimeout // Seconds a connection may wait for the next request. 0 disables it
+     * @param writeTimeout // Seconds a connection may take to read a response. 0 disables it
+     * @param maxConnections // Maximum number of open connections
+     */
+    public void configureLimits(int idleTimeout, int writeTimeout, int maxConnections) {
+        this.idleTimeout = idleTimeout;
+        this.writeTimeout = writeTimeout;
+        this.maxConnections = maxConnections;
+    }
+
+    /**
+     * Configure the rate limits of the requests. It must be called before {@code run}
+     * 
+     * @param rateLimit // Requests per second of a connection. 0 disables the limit
+     * @param rateBurst // Maximum burst of requests of a connection
+     * @param userRateLimit // Requests per second of a user. 0 disables the limit
+     * @param userRateBurst // Maximum burst of requests of a user
+     */
+    public void configureRateLimits(double rateLimit, int rateBurst, double userRateLimit,
+            int userRateBurst) {
+        this.rateLimit = rateLimit;
+        this.rateBurst = rateBurst;
+        this.userRateLimit = userRateLimit;
+        this.userRateBurst = userRateBurst;
+    }
+
+    /**
+     * Create the rate limit of a new connection
+     * 
+     * @return The token bucket or {@code null} if the connections are not limited
+     */
+    public TokenBucket newConnectionRateLimit() {
+        if (this.rateLimit <= 0)
+            return null;
+        return new TokenBucket(this.rateLimit, this.rateBurst);
+    }
+
+    /**
+     * Create the rate limit of a user
+     * 
+     * @return The token bucket or {@code null} if the users are not limited
+     */
+    public TokenBucket newUserRateLimit() {
+        if (this.userRateLimit <= 0)
+            return null;
+        return new TokenBucket(this.userRateLimit, this.userRateBurst);
+    }
+
     @Override
     public RMIStatus register(String username, String password) throws RemoteException {
         this.logger.info("New registration");
 
         // Check username and password
-        if (!username.matches("^[a-zA-Z0-9][a-zA-Z0-9_]{2,64}$")) {
-            throw new UsernameIllegalException("username not valid");
-        }
-        if (!password.matches("^[a-zA-Z0-9_`~!@#$%^&*()\\-=+{}\\[\\];:''\",<.>/?\\\\|]{4,64}$")) {
-            throw new PasswordIllegalException("password not valid");
+        this.auth.validate(username, password);
+
+        // Forward the registration to the node that owns the user
+        ClusterNode owner = this.getRemoteOwner(username);
+        if (owner != null) {
+            try {
+                return ((serverRMI) owner.lookup(RMIConstants.SERVER_NAME)).register(username,
+                        password);
+            } catch (NotBoundException e) {
+                throw new RemoteException(String.format("Node %s is not available", owner), e);
+            }
         }
 
+        // Avoid hashing the password if the username is already taken
+        if (this.users.containsKey(username))
+            return RMIStatus.USER_TAKEN;
+
         // Add the user
-        User prevValue = this.users.putIfAbsent(username, new User(username, password));
+        User user = new User(username, this.auth.hash(password));
+        User prevValue = this.users.putIfAbsent(username, user);
 
         // Check if username already exists
         if (prevValue != null)
             return RMIStatus.USER_TAKEN;
+        this.replicate(user);
+
+        // The username might have been remembered as unknown
+        this.auth.invalidate(username);
 
         return RMIStatus.SUCCESS;
     }
 
     @Override
     public void subscribe(clientRMI client) throws RemoteException {
-        synchronized (this.subscribers) {
-            if (this.subscribers.contains(client) || client == null)
+        this.subscribe(client, LeaderboardWindow.ALL_TIME);
+    }
+
+    @Override
+    public void cancelSubscription(clientRMI client) throws RemoteException {
+        this.cancelSubscription(client, LeaderboardWindow.ALL_TIME);
+    }
+
+    @Override
+    public LeaderboardDelta getLeaderboardSnapshot() throws RemoteException {
+        return this.getLeaderboardSnapshot(LeaderboardWindow.ALL_TIME);
+    }
+
+    @Override
+    public void subscribe(clientRMI client, LeaderboardWindow window) throws RemoteException {
+        LeaderboardTopic topic = this.topics.get(window);
+        if (topic == null)
+            return;
+        synchronized (topic.subscribers) {
+            if (topic.subscribers.contains(client) || client == null)
                 return;
 
-            this.logger.finer("New subscription");
-            this.subscribers.add(client);
+            this.logger.finer(
+                    () -> String.format("New subscription to the %s leaderboard", window));
+            topic.subscribers.add(client);
         }
     }
 
     @Override
-    public void cancelSubscription(clientRMI client) throws RemoteException {
-        synchronized (this.subscribers) {
-            this.subscribers.remove(client);
+    public void cancelSubscription(clientRMI client, LeaderboardWindow window)
+            throws RemoteException {
+        LeaderboardTopic topic = this.topics.get(window);
+        if (topic == null)
+            return;
+        synchronized (topic.subscribers) {
+            topic.subscribers.remove(client);
         }
         this.logger.finer("Removing a subscriber");
     }
 
+    @Override
+    public LeaderboardDelta getLeaderboardSnapshot(LeaderboardWindow window)
+            throws RemoteException {
+        LeaderboardTopic topic = this.topics.get(window);
+        return topic == null ? null : topic.topSnapshot;
+    }
+
     /**
-     * Check if the pair ({@code username}, {@code password}) correctly identifies a real user, if
-     * it does then returns the {@code User} identified, otherwise returns {@code null}
+     * Returns the service that verifies the users passwords
      * 
-     * @param username The username
-     * @param password The password
-     * @return The {@code User} identified by the pair ({@code username}, {@code password}),
-     *         {@code null} otherwise
+     * @return The authentication service
      */
-    public User getUser(String username, String password) {
-        if (this.users.containsKey(username) && this.users.get(username).passwordMatch(password))
-            return this.users.get(username);
-        return null;
+    public AuthService getAuthService() {
+        return this.auth;
+    }
+
+    /**
+     * Run {@code task} on the selector thread and then resume the connection identified by
+     * {@code key} with the interest set of its session. It is used to complete a request that has
+     * been handled asynchronously. The task is ignored if the connection has been closed meanwhile
+     * 
+     * @param key The selection key of the connection
+     * @param task The task to run
+     */
+    public void runOnSelector(SelectionKey key, Runnable task) {
+        this.selectorTasks.offer(() -> {
+            if (!key.isValid())
+                return;
+            try {
+                task.run();
+                this.resume(key);
+                this.armTimeout(key);
+            } catch (RuntimeException e) {
+                this.logger.severe(String.format("Request failed: %s. Closing connection.", e));
+                e.printStackTrace();
+                this.closeConnection(key);
+            }
+        });
+        this.selector.wakeup();
+    }
+
+    /**
+     * Update the interest set of the connection with the one of its session, preparing the message
+     * to be written if needed
+     * 
+     * @param key The selection key of the connection
+     */
+    private void resume(SelectionKey key) {
+        ConnectionState state = (ConnectionState) key.attachment();
+        int interestOps = state.session.getInterestOps();
+        if ((interestOps & SelectionKey.OP_WRITE) != 0)
+            state.setWritableMessage(state.session.getWriteBuffer());
+        key.interestOps(interestOps);
     }
 
     /**
@@ -459,48 +1500,419 @@ public final class WordleServer implements serverRMI {
      * @return Unix timestamp in milliseconds
      */
     public long getNextSWTime() {
-        return this.sWTime + this.swRate * 1000;
+        return this.gameStartTime(this.gameId + 1);
     }
 
     /**
-     * Returns the top positions in the leaderboard (up to {@code SUBS_THRESHOLD}) as a list of
-     * pairs (username, score)
+     * Returns the top positions in the all-time leaderboard (up to {@code SUBS_THRESHOLD}) as a
+     * list of pairs (username, score)
      * 
      * @return The top positions in the leaderboard (up to {@code SUBS_THRESHOLD})
      */
     public List<Pair<String, Double>> getTopLeaderboard() {
-        return this.leaderboard.get(WordleServer.SUBS_THRESHOLD);
+        return this.getTopLeaderboard(LeaderboardWindow.ALL_TIME);
+    }
+
+    /**
+     * Returns the top positions (up to {@code SUBS_THRESHOLD}) in the leaderboard of
+     * {@code window}. In cluster mode they are merged with the partials of the other nodes
+     * 
+     * @param window The leaderboard window. It must not be {@code UNKNOWN}
+     * @return The top positions in the leaderboard as a list of pairs (username, score)
+     */
+    public List<Pair<String, Double>> getTopLeaderboard(LeaderboardWindow window) {
+        List<Pair<String, Double>> local = this.getLocalLeaderboard(window,
+                WordleServer.SUBS_THRESHOLD);
+        if (this.cluster == null)
+            return local;
+        return this.clusterLeaderboard.merge(window, local, WordleServer.SUBS_THRESHOLD);
+    }
+
+    /**
+     * Returns the full leaderboard of {@code window}. In cluster mode it is merged with the last
+     * full partials pulled from the other nodes, see {@code pullFullLeaderboard}
+     * 
+     * @param window The leaderboard window. It must not be {@code UNKNOWN}
+     * @return The full leaderboard as a list of pairs (username, score)
+     */
+    public List<Pair<String, Double>> getFullLeaderboard(LeaderboardWindow window) {
+        List<Pair<String, Double>> local = this.getLocalLeaderboard(window, -1);
+        if (this.cluster == null)
+            return local;
+        return this.clusterLeaderboard.mergeFull(window, local);
+    }
+
+    /**
+     * Pull the full partials of {@code window} from the other nodes of the cluster and merge them
+     * with the local leaderboard. It runs on another thread, since the nodes might be slow. The
+     * last partial of a node that cannot be reached is used
+     * 
+     * @param window The leaderboard window. It must not be {@code UNKNOWN}
+     * @param callback Called with the full leaderboard, on another thread
+     */
+    public void pullFullLeaderboard(LeaderboardWindow window,
+            Consumer<List<Pair<String, Double>>> callback) {
+        this.clusterPuller.execute(() -> {
+            List<ClusterNode> nodes = this.cluster.getNodes();
+            for (int k = 0; k < nodes.size(); ++k) {
+                if (k == this.cluster.getSelf())
+                    continue;
+                ClusterNode node = nodes.get(k);
+                try {
+                    long time = System.currentTimeMillis();
+                    this.clusterLeaderboard.setFullPartial(k,
+                            this.clusterStub(node).getLeaderboardPartial(window, -1, time,
+                                    this.clusterAuth.callProof("getLeaderboardPartial", time,
+                                            window.getValue(), -1)));
+                } catch (NotBoundException | RemoteException e) {
+                    this.logger.fine(() -> String.format("Node %s not reachable: %s", node, e));
+                }
+            }
+            callback.accept(this.getFullLeaderboard(window));
+        });
+    }
+
+    /**
+     * Merge the statistics of a secret word with the ones of the other nodes of the cluster. It
+     * runs on another thread, since the nodes might be slow. The nodes that cannot be reached are
+     * left out
+     * 
+     * @param stats The statistics of this node
+     * @param callback Called with the merged statistics, on another thread
+     */
+    public void pullGameStats(GameStatsSnapshot stats, Consumer<GameStatsSnapshot> callback) {
+        this.clusterPuller.execute(() -> callback.accept(this.mergeGameStats(stats)));
+    }
+
+    /**
+     * Merge the statistics of a secret word with the ones of the other nodes of the cluster, on
+     * the calling thread. The nodes that cannot be reached are left out
+     * 
+     * @param stats The statistics of this node
+     * @return The merged statistics
+     */
+    private GameStatsSnapshot mergeGameStats(GameStatsSnapshot stats) {
+        GameStatsSnapshot merged = stats;
+        List<ClusterNode> nodes = this.cluster.getNodes();
+        for (int k = 0; k < nodes.size(); ++k) {
+            if (k == this.cluster.getSelf())
+                continue;
+            ClusterNode node = nodes.get(k);
+            try {
+                long time = System.currentTimeMillis();
+                byte[] partial = this.clusterStub(node).getGameStats(stats.gameId, time,
+                        this.clusterAuth.callProof("getGameStats", time, stats.gameId));
+                if (partial != null)
+                    merged = merged.merge(GameStatsSnapshot.get(ByteBuffer.wrap(partial)));
+            } catch (NotBoundException | RemoteException e) {
+                this.logger.fine(() -> String.format("Node %s not reachable: %s", node, e));
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Returns the stub of the methods of the cluster of another node
+     * 
+     * @param node The node
+     * @return The stub
+     * @throws RemoteException If the node cannot be reached
+     * @throws NotBoundException If the node is not serving the cluster yet
+     */
+    private clusterRMI clusterStub(ClusterNode node) throws RemoteException, NotBoundException {
+        return (clusterRMI) node.lookupCluster(RMIConstants.CLUSTER_NAME);
+    }
+
+    /**
+     * Returns whether this server is a node of a cluster
+     */
+    public boolean isClustered() {
+        return this.cluster != null;
+    }
+
+    /**
+     * Tells whether the server is a read replica of the leaderboard of a primary
+     */
+    public boolean isLeaderboardReplica() {
+        return this.scoresHost != null;
+    }
+
+    /**
+     * Returns the first positions of the leaderboard of {@code window} among the users of this
+     * node
+     * 
+     * @param window The leaderboard window. It must not be {@code UNKNOWN}
+     * @param ranks The number of positions. Negative for the full leaderboard
+     * @return List of pairs (username, score) in the order they appear in the leaderboard
+     */
+    private List<Pair<String, Double>> getLocalLeaderboard(LeaderboardWindow window, int ranks) {
+        if (window == LeaderboardWindow.ALL_TIME)
+            return ranks < 0 ? this.leaderboard.get() : this.leaderboard.get(ranks);
+        long now = System.currentTimeMillis();
+        WindowedLeaderboard board = this.windows.get(window);
+        return ranks < 0 ? board.get(now) : board.get(ranks, now);
+    }
+
+    /**
+     * Returns the node of the cluster that owns {@code username}, if it is not this one
+     * 
+     * @param username
+     * @return The node or {@code null} if the user belongs to this node or there is no cluster
+     */
+    public ClusterNode getRemoteOwner(String username) {
+        if (this.cluster == null || this.cluster.isLocal(username))
+            return null;
+        return this.cluster.getNodes().get(this.cluster.owner(username));
+    }
+
+    /**
+     * Pull the first positions of the partial leaderboards of the other nodes of the cluster, the
+     * ones that can be notified, and notify the subscribers of the changes. It also checks that
+     * the nodes agree on the secret word schedule
+     */
+    private void syncCluster() {
+        List<ClusterNode> nodes = this.cluster.getNodes();
+        long fingerprint = this.getScheduleFingerprint();
+        for (int k = 0; k < nodes.size(); ++k) {
+            if (k == this.cluster.getSelf())
+                continue;
+            ClusterNode node = nodes.get(k);
+            try {
+                clusterRMI service = this.clusterStub(node);
+                long time = System.currentTimeMillis();
+                if (service.getScheduleFingerprint(time, this.clusterAuth
+                        .callProof("getScheduleFingerprint", time)) != fingerprint)
+                    this.logger.warning(() -> String.format(
+                            "Node %s plays different secret words. Check its seed and words",
+                            node));
+                for (LeaderboardWindow window : this.topics.keySet())
+                    this.clusterLeaderboard.setPartial(k,
+                            service.getLeaderboardPartial(window, WordleServer.SUBS_THRESHOLD,
+                                    time, this.clusterAuth.callProof("getLeaderboardPartial",
+                                            time, window.getValue(), WordleServer.SUBS_THRESHOLD)));
+            } catch (ServerException e) {
+                // The node rejected the call, its replication secret is not the same
+                this.logger.warning(() -> String.format("Node %s rejected the call: %s", node,
+                        e.getCause()));
+            } catch (NotBoundException | RemoteException e) {
+                // Keep its last partials, its users cannot play until it is back
+                this.logger.fine(() -> String.format("Node %s not reachable: %s", node, e));
+            }
+        }
+        for (LeaderboardWindow window : this.topics.keySet())
+            this.notifySubscribers(window);
+    }
+
+    /**
+     * Returns the first positions of the leaderboard of {@code window} restricted to the users of
+     * this node, for the other nodes of the cluster
+     * 
+     * @param window The leaderboard window
+     * @param ranks The number of positions. Negative for the full leaderboard
+     * @return The partial leaderboard as a snapshot
+     */
+    LeaderboardDelta getLeaderboardPartial(LeaderboardWindow window, int ranks) {
+        if (!this.topics.containsKey(window))
+            return null;
+        return WordleServer.makeSnapshot(window, this.leaderboardEpoch, 0,
+                this.getLocalLeaderboard(window, ranks));
     }
 
     /**
-     * Returns the full leaderboard as a list of pairs (username, score)
+     * Returns a fingerprint of the secret word schedule of this node. The nodes of a cluster play
+     * the same secret words only if their fingerprints are equal
+     */
+    long getScheduleFingerprint() {
+        return this.scheduleFingerprint;
+    }
+
+    /**
+     * Record a game completed by {@code username} in the archive, in the statistics of its secret
+     * word and in all the leaderboards. This might call the subscribers callbacks, in case there is
+     * a change in the first {@code SUBS_THRESHOLD} positions of a leaderboard.
+     * 
+     * @param username The player
+     * @param score The new all-time fixed-point score, see {@code User.fixedScore}
+     * @param game The packed game
+     */
+    public void recordGame(String username, int score, byte[] game) {
+        // The games are streamed in the order they are archived
+        synchronized (this.archive) {
+            try {
+                long seq = this.archive.append(username, game);
+                if (this.replication != null)
+                    this.replication.gameRecorded(seq, username, score, game);
+            } catch (IOException e) {
+                this.logger.warning(() -> String.format("Cannot archive a game of `%s`: %s",
+                        username, e.getMessage()));
+            }
+        }
+        if (this.replication != null) {
+            User user = this.users.get(username);
+            if (user != null)
+                this.replication.userChanged(user);
+        }
+        this.applyGame(username, score, game);
+    }
+
+    @Override
+    public long getArchivedGames() {
+        return this.archive.size();
+    }
+
+    /**
+     * Archive a game streamed by the primary, if it is the next one
+     * 
+     * @param seq The number of the game in the archive of the primary
+     * @param username The player
+     * @param game The packed game
+     * @throws IOException If there is a gap before the game, or it cannot be archived
+     */
+    @Override
+    public void archiveReplicatedGame(long seq, String username, byte[] game)
+            throws IOException {
+        this.archiveReplicated(seq, username, game);
+    }
+
+    /**
+     * Record a game streamed by the primary. It is skipped if it has already been archived, except
+     * for the score, which is absolute
+     * 
+     * @param seq The number of the game in the archive of the primary
+     * @param username The player
+     * @param score The new all-time fixed-point score, see {@code User.fixedScore}
+     * @param game The packed game
+     * @throws IOException If there is a gap before the game, or it cannot be archived
+     */
+    @Override
+    public void recordReplicatedGame(long seq, String username, int score, byte[] game)
+            throws IOException {
+        if (this.archiveReplicated(seq, username, game))
+            this.applyGame(username, score, game);
+        else
+            this.updateLeaderboard(username, score);
+    }
+
+    /**
+     * Append a game streamed by the primary to the archive, if it is the next one
      * 
-     * @return The full leaderboard
+     * @return Whether the game was missing and has been archived
+     * @throws IOException If there is a gap before the game, or it cannot be archived
      */
-    public List<Pair<String, Double>> getFullLeaderboard() {
-        return this.leaderboard.get();
+    private boolean archiveReplicated(long seq, String username, byte[] game)
+            throws IOException {
+        long size = this.archive.size();
+        if (seq < size)
+            return false;
+        if (seq > size)
+            throw new IOException(
+                    String.format("Game %d missing from the archive, got game %d", size, seq));
+        this.archive.append(username, game);
+        return true;
+    }
+
+    /**
+     * Record a completed game in the statistics of its secret word and in all the leaderboards
+     */
+    private void applyGame(String username, int score, byte[] game) {
+        int tries = PackedGame.tries(game);
+        GameStats stats = this.getGameStats(PackedGame.gameId(game));
+        if (stats != null) {
+            if (tries < 0)
+                stats.lose();
+            else
+                stats.win(tries);
+        }
+
+        this.updateLeaderboard(username, score);
+
+        long now = System.currentTimeMillis();
+        int windowTries = tries < 0 ? WordleServer.WORD_TRIES + 1 : tries;
+        for (Map.Entry<LeaderboardWindow, WindowedLeaderboard> entry : this.windows.entrySet()) {
+            int pos = entry.getValue().record(username, windowTries, now);
+            if (pos >= 0 && pos < WordleServer.SUBS_THRESHOLD)
+                this.notifySubscribers(entry.getKey());
+        }
     }
 
     /**
-     * Update the leaderboard by repositioning (updating its score) {@code username}. This might
-     * call the subscribers callback, in case there is a change in the first {@code SUBS_THRESHOLD}
-     * positions.
+     * Update the all-time leaderboard by repositioning (updating its score) {@code username}. This
+     * might call the subscribers callback, in case there is a change in the first
+     * {@code SUBS_THRESHOLD} positions.
      * 
      * @param username The user for which the score must be updated
+     * @param score The new fixed-point score, see {@code User.fixedScore}
      */
-    public void updateLeaderboard(String username, double score) {
+    private void updateLeaderboard(String username, int score) {
+        LeaderboardUpdateEvent event = null;
+        if (Jfr.isEnabled()) {
+            event = new LeaderboardUpdateEvent();
+            if (event.isEnabled())
+                event.previousRank = this.leaderboard.getRank(username);
+            event.begin();
+        }
+
+        long start = System.nanoTime();
         int pos = this.leaderboard.update(username, score);
+        this.metrics.leaderboardUpdate.recordSince(start);
+
+        if (event != null && event.shouldCommit()) {
+            event.username = username;
+            event.score = Leaderboard.toScore(score);
+            event.rank = pos;
+            event.commit();
+        }
         if (pos >= 0 && pos < WordleServer.SUBS_THRESHOLD)
-            this.notifySubscribers();
+            this.notifySubscribers(LeaderboardWindow.ALL_TIME);
     }
 
     /**
-     * Share asynchronously a completed game in the multicast group
+     * Returns the number of games completed by {@code username}
+     * 
+     * @param username
+     * @return The number of games in the archive
+     */
+    public int getHistorySize(String username) {
+        return this.archive.count(username);
+    }
+
+    /**
+     * Returns a page of the games completed by {@code username}, from the most recent one
+     * 
+     * @param username
+     * @param skip The number of most recent games to skip
+     * @param count The maximum number of games
+     * @return The packed games, see {@code PackedGame}
+     */
+    public List<byte[]> getHistory(String username, int skip, int count) {
+        return this.archive.history(username, skip, count);
+    }
+
+    /**
+     * Returns a game completed by {@code username}
+     * 
+     * @param username
+     * @param gameId
+     * @return The game or {@code null} if it is not in the archive
+     */
+    public GameDescriptor getArchivedGame(String username, long gameId) {
+        byte[] game = this.archive.get(username, gameId);
+        return game == null ? null : PackedGame.unpack(game);
+    }
+
+    /**
+     * Share asynchronously a completed game in the multicast group, together with the statistics
+     * of its secret word
      * 
      * @param game The game to be shared
      * @param username The user that played the game
      */
     public void shareGame(GameDescriptor game, String username) {
+        if (this.multicastSocket == null) {
+            this.logger.warning("Cannot share the game, the multicast socket is not available");
+            return;
+        }
+
         // Run it in a new thread to avoid slowing down the server
         new Thread(() -> {
             // Create the message packet
@@ -522,6 +1934,18 @@ public final class WordleServer implements serverRMI {
                 for (int j = 0; j < game.partial[k].length; ++j)
                     msg.put((byte) game.partial[k][j]);
             }
+            // Append the statistics of the secret word, if they are still available. A flag byte
+            // tells whether they are present. In a cluster they are merged with the other nodes
+            GameStats stats = this.getGameStats(game.gameId);
+            if (stats != null && msg.remaining() >= 1 + GameStatsSnapshot.BYTES) {
+                GameStatsSnapshot snapshot = stats.snapshot();
+                if (this.cluster != null)
+                    snapshot = this.mergeGameStats(snapshot);
+                msg.put((byte) 1);
+                snapshot.put(msg);
+            } else if (msg.hasRemaining()) {
+                msg.put((byte) 0);
+            }
             msg.flip();
 
             // Send it
@@ -536,28 +1960,95 @@ public final class WordleServer implements serverRMI {
     }
 
     /**
-     * Notify all the subscribers by calling the callback registered. It runs in a separate thread
+     * Build a snapshot of the top leaderboard
+     * 
+     * @param window The leaderboard window
+     * @param epoch The epoch of the versions
+     * @param version The version of the snapshot
+     * @param leaderboard The top positions of the leaderboard
+     * @return The snapshot
+     */
+    private static LeaderboardDelta makeSnapshot(LeaderboardWindow window, long epoch,
+            long version, List<Pair<String, Double>> leaderboard) {
+        int size = leaderboard.size();
+        int[] ranks = new int[size];
+        String[] usernames = new String[size];
+        double[] scores = new double[size];
+        for (int k = 0; k < size; ++k) {
+            Pair<String, Double> p = leaderboard.get(k);
+            ranks[k] = k;
+            usernames[k] = p.first;
+            scores[k] = p.second;
+        }
+
+        return new LeaderboardDelta(window, epoch, version, -1, size, ranks, usernames, scores);
+    }
+
+    /**
+     * Compute the ranks that changed between the snapshot {@code prev} and the snapshot
+     * {@code next}
+     * 
+     * @param prev The previous snapshot
+     * @param next The new snapshot
+     * @return The delta that applied on {@code prev} gives {@code next}, or {@code null} if
+     *         nothing changed
      */
-    public void notifySubscribers() {
+    private static LeaderboardDelta diff(LeaderboardDelta prev, LeaderboardDelta next) {
+        int[] ranks = new int[next.size];
+        int n = 0;
+        for (int k = 0; k < next.size; ++k) {
+            if (k >= prev.size || !next.usernames[k].equals(prev.usernames[k])
+                    || Double.compare(next.scores[k], prev.scores[k]) != 0)
+                ranks[n++] = k;
+        }
+        if (n == 0 && next.size == prev.size)
+            return null;
+
+        String[] usernames = new String[n];
+        double[] scores = new double[n];
+        for (int k = 0; k < n; ++k) {
+            usernames[k] = next.usernames[ranks[k]];
+            scores[k] = next.scores[ranks[k]];
+        }
+
+        return new LeaderboardDelta(next.window, next.epoch, next.version, prev.version,
+                next.size, Arrays.copyOf(ranks, n), usernames, scores);
+    }
+
+    /**
+     * Notify all the subscribers of {@code window} by calling the callback registered. Only the
+     * ranks that changed since the last notification are sent. It runs in a separate thread
+     * 
+     * @param window The leaderboard window
+     */
+    public void notifySubscribers(LeaderboardWindow window) {
+        LeaderboardTopic topic = this.topics.get(window);
+
         // Run in a separate thread to avoid slowing down the server
-        new Thread(() -> {
-            this.logger.fine("Notifying all the subscribers");
+        this.notifier.execute(() -> {
+            LeaderboardDelta prev = topic.topSnapshot;
+            LeaderboardDelta next = WordleServer.makeSnapshot(window, prev.epoch,
+                    prev.version + 1, this.getTopLeaderboard(window));
+            LeaderboardDelta delta = WordleServer.diff(prev, next);
+            if (delta == null) // Nothing changed
+                return;
+            topic.topSnapshot = next;
 
-            List<Pair<String, Double>> leaderboard =
-                    this.leaderboard.get(WordleServer.SUBS_THRESHOLD);
-            synchronized (this.subscribers) {
-                Iterator<clientRMI> it = this.subscribers.iterator();
+            this.logger.fine(() -> String.format("Notifying all the subscribers of the %s "
+                    + "leaderboard", window));
+            synchronized (topic.subscribers) {
+                Iterator<clientRMI> it = topic.subscribers.iterator();
                 while (it.hasNext()) {
                     clientRMI sub = it.next();
                     try {
-                        sub.updateLeaderboard(leaderboard);
+                        sub.updateLeaderboard(delta);
                     } catch (RemoteException e) {
                         // Remove the subscriber from the list
                         it.remove();
                     }
                 }
             }
-        }).start();
+        });
     }
 
     /**
@@ -569,33 +2060,71 @@ public final class WordleServer implements serverRMI {
 
         try (ServerSocketChannel socket = ServerSocketChannel.open();
                 Selector selector = Selector.open()) {
+            this.selector = selector;
+
             // Init server socket and listen on port `this.tcpPort`
             socket.bind(new InetSocketAddress(this.tcpPort));
             socket.configureBlocking(false);
-            this.logger.info(String.format("Listening on port %d", this.tcpPort));
+            this.logger.info(() -> String.format("Listening on port %d", this.tcpPort));
+            if (this.promotedAt != 0)
+                this.logger.info(() -> String.format("Promoted to primary in %d ms",
+                        (System.nanoTime() - this.promotedAt) / 1000000));
 
             // register the selector
-            socket.register(selector, SelectionKey.OP_ACCEPT);
+            this.acceptKey = socket.register(selector, SelectionKey.OP_ACCEPT);
+            this.selectorThread = Thread.currentThread();
+            this.registerHealthChecks();
 
             // Main selector loop
             while (true) {
-                selector.select();
+                this.loopBusySince = 0;
+                // Wake up at every tick only if there are timeouts to check
+                selector.select(this.timeouts.size() > 0 ? WordleServer.TIMER_TICK : 0);
+                long loopStart = System.nanoTime();
+                this.loopBusySince = loopStart;
+
+                // Close the expired connections
+                this.timeouts.advance();
+
+                // Complete the asynchronous requests
+                Runnable task;
+                while ((task = this.selectorTasks.poll()) != null)
+                    task.run();
+
                 Set<SelectionKey> selectedKeys = selector.selectedKeys();
                 Iterator<SelectionKey> iter = selectedKeys.iterator();
                 while (iter.hasNext()) {
                     SelectionKey key = iter.next();
+                    iter.remove();
+                    // The key might have been cancelled by a previous key or a task
+                    if (!key.isValid())
+                        continue;
 
                     if (key.isAcceptable()) {
                         // Handle new connection
                         this.handleNewConnection(socket, selector);
-                    } else if (key.isReadable()) {
-                        this.handleRead(key);
-                    } else if (key.isWritable()) {
-                        this.handleWrite(key);
+                        continue;
                     }
 
-                    iter.remove();
+                    // A failure on a client connection only closes that connection
+                    try {
+                        if (key.isReadable()) {
+                            this.handleRead(key);
+                        } else if (key.isWritable()) {
+                            this.handleWrite(key);
+                        }
+                    } catch (IOException e) {
+                        this.logger.fine(() -> String.format("Connection error: %s", e));
+                        this.closeConnection(key);
+                    } catch (RuntimeException e) {
+                        // A bug in a request must not take down the other connections
+                        this.logger.severe(
+                                String.format("Request failed: %s. Closing connection.", e));
+                        e.printStackTrace();
+                        this.closeConnection(key);
+                    }
                 }
+                this.metrics.selectorLoop.recordSince(loopStart);
             }
         } catch (IOException e) {
             e.printStackTrace();
@@ -615,16 +2144,100 @@ public final class WordleServer implements serverRMI {
             throws IOException {
         // Accept the new connection
         SocketChannel socket = serverSocket.accept();
+        if (socket == null) // The client went away in the meantime
+            return;
         this.logger.fine("New connection received");
         socket.configureBlocking(false);
         // Set TCP Keep Alive mode
         socket.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
+        this.metrics.connectionsOpened.increment();
 
         ClientSession clientSession = new ClientSession();
         int interestOps = clientSession.getInterestOps();
 
-        socket.register(selector, interestOps, new ConnectionState(clientSession,
-                Constants.SOCKET_MSG_MAX_SIZE, Constants.SOCKET_MSG_MAX_SIZE));
+        SelectionKey key = socket.register(selector, interestOps, new ConnectionState(
+                clientSession, Constants.SOCKET_MSG_MAX_SIZE, Constants.SOCKET_MSG_MAX_SIZE));
+        clientSession.setCompletionHandler(task -> this.runOnSelector(key, task));
+        clientSession.setSource(
+                ((InetSocketAddress) socket.getRemoteAddress()).getAddress().getHostAddress());
+        ConnectionState state = (ConnectionState) key.attachment();
+        state.timeout = new TimingWheel.Timeout(() -> this.expire(key));
+        this.armTimeout(key);
+
+        // Backpressure: stop accepting until a connection is closed. The pending connections wait
+        // in the backlog of the server socket
+        if (++this.connections >= this.maxConnections) {
+            this.logger.warning(() -> String.format(
+                    "Reached %d connections. Not accepting new ones", this.connections));
+            this.acceptKey.interestOps(0);
+            this.metrics.acceptPaused.increment();
+        }
+    }
+
+    /**
+     * Schedule the timeout of the connection according to its state. A connection that waits for
+     * a request gets the idle timeout, a connection that waits for its response to be sent gets
+     * the write timeout. A connection whose request is still being processed has no timeout
+     * 
+     * @param key The selection key of the connection
+     */
+    private void armTimeout(SelectionKey key) {
+        ConnectionState state = (ConnectionState) key.attachment();
+        int interestOps = key.interestOps();
+        int seconds = 0;
+        if ((interestOps & SelectionKey.OP_WRITE) != 0)
+            seconds = this.writeTimeout;
+        else if ((interestOps & SelectionKey.OP_READ) != 0)
+            seconds = this.idleTimeout;
+
+        state.writeTimedOut = (interestOps & SelectionKey.OP_WRITE) != 0;
+        if (seconds > 0)
+            this.timeouts.schedule(state.timeout, seconds * 1000L);
+        else
+            this.timeouts.cancel(state.timeout);
+    }
+
+    /**
+     * Called by the timing wheel when the timeout of a connection expires
+     * 
+     * @param key The selection key of the connection
+     */
+    private void expire(SelectionKey key) {
+        ConnectionState state = (ConnectionState) key.attachment();
+        if (state.writeTimedOut) {
+            this.logger.info("Response not read in time. Closing connection.");
+            this.metrics.writeEvictions.increment();
+        } else {
+            this.logger.fine("Connection idle for too long. Closing connection.");
+            this.metrics.idleEvictions.increment();
+        }
+        this.closeConnection(key);
+    }
+
+    /**
+     * Close a client connection and release its resources. If the accept was paused it is
+     * resumed
+     * 
+     * @param key The selection key of the connection
+     */
+    private void closeConnection(SelectionKey key) {
+        ConnectionState state = (ConnectionState) key.attachment();
+        if (!key.isValid())
+            return;
+        key.cancel();
+        this.timeouts.cancel(state.timeout);
+        state.session.close();
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            // Nothing to do, the connection is gone anyway
+        }
+        this.metrics.connectionsClosed.increment();
+
+        if (this.connections-- >= this.maxConnections && this.acceptKey.isValid()) {
+            this.logger.info("Accepting new connections again");
+            this.acceptKey.interestOps(SelectionKey.OP_ACCEPT);
+        }
     }
 
     // @formatter:off
@@ -648,10 +2261,10 @@ public final class WordleServer implements serverRMI {
         // Connection closed by client
         if (nRead < 0) {
             this.logger.finer("Connection closed");
-            state.session.close();
-            socket.close();
+            this.closeConnection(key);
             return;
         }
+        this.metrics.bytesIn.add(nRead);
         int size = state.readBuffer.position();
 
         // Read the message size
@@ -667,31 +2280,55 @@ public final class WordleServer implements serverRMI {
 
             // If the size is not acceptable close the connection
             if (state.readMessageSize > Constants.SOCKET_MSG_MAX_SIZE) {
-                this.logger.info(String.format(
+                this.logger.info(() -> String.format(
                         "Message (%d bytes) exceeds maximum size. Closing connection.",
                         state.readMessageSize));
-                state.session.close();
-                socket.close();
+                this.closeConnection(key);
                 return;
             }
         }
 
         // Here we know the app message size
-        this.logger.fine(String.format("Needs to receive a message of size %d bytes",
+        this.logger.fine(() -> String.format("Needs to receive a message of size %d bytes",
                 state.readMessageSize));
 
         if (size < state.readMessageSize) // Not enough bytes
             return;
-        if (size > state.readMessageSize) // Message is too long
-            this.logger.warning(String.format(
+        if (size > state.readMessageSize) { // Message is too long
+            int received = size;
+            this.logger.warning(() -> String.format(
                     "Received a message longer than what previously advertised (%d over %d bytes)",
-                    size, state.readMessageSize));
+                    received, state.readMessageSize));
+        }
 
         // Handle the message and update the interest ops
-        int newInterestOps = state.session.handleMessage(state.finishRead());
-        if ((newInterestOps & SelectionKey.OP_WRITE) != 0)
-            state.setWritableMessage(state.session.getWriteBuffer());
-        key.interestOps(newInterestOps);
+        ByteBuffer message = state.finishRead();
+        Action action = message.hasRemaining() ? Action.fromByte(message.get(message.position()))
+                : Action.UNKNOWN;
+        RequestEvent event = Jfr.isEnabled() ? new RequestEvent() : null;
+        if (event != null) {
+            event.username = state.session.getUsername();
+            event.bytesIn = message.limit() + Integer.BYTES;
+            event.begin();
+        }
+        long start = System.nanoTime();
+        int interestOps = state.session.handleMessage(message);
+        this.metrics.request(action, System.nanoTime() - start);
+        if (event != null && event.shouldCommit()) {
+            event.action = action.name();
+            if (event.username == null)
+                event.username = state.session.getUsername();
+            if ((interestOps & SelectionKey.OP_WRITE) != 0) {
+                ByteBuffer response = state.session.getWriteBuffer();
+                event.status = MessageStatus.fromByte(response.get(0)).name();
+                event.bytesOut = response.limit() + Integer.BYTES;
+            } else {
+                event.status = "PENDING";
+            }
+            event.commit();
+        }
+        this.resume(key);
+        this.armTimeout(key);
     }
 
     // @formatter:off
@@ -711,9 +2348,10 @@ public final class WordleServer implements serverRMI {
         ConnectionState state = (ConnectionState) key.attachment();
 
         // Write data in the socket
-        socket.write(state.writeBuffer);
+        this.metrics.bytesOut.add(socket.write(state.writeBuffer));
         if (!state.writeBuffer.hasRemaining()) {
             key.interestOps(SelectionKey.OP_READ);
+            this.armTimeout(key);
         }
     }
 }
@@ -0,0 +1,431 @@
+package edu.riccardomori.wordle.server.auth;
+
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import edu.riccardomori.wordle.rmi.exceptions.PasswordIllegalException;
+import edu.riccardomori.wordle.rmi.exceptions.UsernameIllegalException;
+import edu.riccardomori.wordle.server.User;
+import edu.riccardomori.wordle.utils.LRUCache;
+
+// @formatter:off
+/**
+ * Authenticates the users against their stored password. It is thread-safe.
+ * Verifying a password hash is slow by design, so it runs on a dedicated pool of threads and the
+ * result is delivered through a callback. Successful verifications are cached as a keyed digest of
+ * the password: a login with the same password then skips the slow hash entirely.
+ * Legacy plaintext passwords, which the users keep apart from the hashes, are hashed on the first
+ * successful login.
+ * Failed attempts are remembered for a while: unknown usernames are answered without touching the
+ * users map, and a source address with too many failures on a username is rejected without
+ * verifying the password. The failures are counted per source, so that a guesser cannot lock the
+ * owner of an account out of it.
+ */
+// @formatter:on
+public class AuthService {
+    private static final int QUEUE_SIZE = 1024; // Maximum number of pending verifications
+    private static final int CACHE_SIZE = 4096; // Number of verifications cached
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+    private static final int FAILURES_CACHE_SIZE = 8192; // Number of (source, username) failing
+    private static final int UNKNOWN_CACHE_SIZE = 8192; // Number of unknown usernames remembered
+    private static final int MAX_FAILURES = 5; // Failed attempts allowed in a window
+    private static final long FAILURES_WINDOW = 60000; // In milliseconds
+
+    // Valid usernames and passwords
+    private static final Pattern USERNAME_PATTERN =
+            Pattern.compile("^[a-zA-Z0-9][a-zA-Z0-9_]{2,64}$");
+    private static final Pattern PASSWORD_PATTERN =
+            Pattern.compile("^[a-zA-Z0-9_`~!@#$%^&*()\\-=+{}\\[\\];:''\",<.>/?\\\\|]{4,64}$");
+
+    // A verification that succeeded for the stored password `encoded`
+    private static class Verified {
+        public final String encoded;
+        public final byte[] digest;
+
+        public Verified(String encoded, byte[] digest) {
+            this.encoded = encoded;
+            this.digest = digest;
+        }
+    }
+
+    // Failed attempts of a source for a username in the current window
+    private static class Failures {
+        public final long windowStart;
+        public int count = 0;
+
+        public Failures(long windowStart) {
+            this.windowStart = windowStart;
+        }
+    }
+
+    private final Map<String, User> users; // Map {username -> User}
+    private final PasswordHasher hasher;
+    private final ThreadPoolExecutor executor;
+    private final LRUCache<String, Verified> verified = new LRUCache<>(AuthService.CACHE_SIZE);
+    // Map {username@source -> failures}. The username cannot contain '@'
+    private final LRUCache<String, Failures> recentFailures =
+            new LRUCache<>(AuthService.FAILURES_CACHE_SIZE);
+    // Map {unknown username -> when it was found unknown}. It is read by every login, so it takes
+    // no lock, and when it is full the expired entries are dropped
+    private final ConcurrentHashMap<String, Long> unknownUsers = new ConcurrentHashMap<>();
+    private final SecretKeySpec cacheKey; // Random key for the digests in the cache
+    private final ThreadLocal<Mac> mac;
+    private Logger logger;
+
+    // Metrics
+    private final LongAdder verifications = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder unknownHits = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    private final LongAdder latencySum = new LongAdder(); // In nanoseconds
+    private final AtomicLong latencyMax = new AtomicLong(); // In nanoseconds
+
+    /**
+     * @param users The users map, which is only read
+     * @param hasher The password hasher
+     * @param threads Number of threads verifying the passwords
+     */
+    public AuthService(Map<String, User> users, PasswordHasher hasher, int threads) {
+        this.logger = Logger.getLogger("Wordle");
+        this.users = users;
+        this.hasher = hasher;
+
+        AtomicInteger threadId = new AtomicInteger(0);
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(AuthService.QUEUE_SIZE), runnable -> {
+                    Thread thread = new Thread(runnable, "auth-" + threadId.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        this.cacheKey = new SecretKeySpec(key, AuthService.MAC_ALGORITHM);
+        this.mac = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance(AuthService.MAC_ALGORITHM);
+                mac.init(this.cacheKey);
+                return mac;
+            } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    /**
+     * Check that the pair ({@code username}, {@code password}) can be registered
+     * 
+     * @param username The username
+     * @param password The password
+     * @throws UsernameIllegalException If the username is not valid
+     * @throws PasswordIllegalException If the password is not valid
+     */
+    public void validate(String username, String password) {
+        if (!AuthService.USERNAME_PATTERN.matcher(username).matches())
+            throw new UsernameIllegalException("username not valid");
+        if (!AuthService.PASSWORD_PATTERN.matcher(password).matches())
+            throw new PasswordIllegalException("password not valid");
+    }
+
+    /**
+     * Forget that {@code username} is unknown. It must be called when a new user is registered
+     * 
+     * @param username The username
+     */
+    public void invalidate(String username) {
+        this.unknownUsers.remove(username);
+    }
+
+    /**
+     * Returns the user that is trying to log in with {@code username} from {@code source}, with a
+     * single lookup in the users map. Unknown usernames are remembered, and a source with too many
+     * failed attempts on the username is rejected
+     * 
+     * @param username The username
+     * @param source The address of the client
+     * @return The user, or {@code null} if it does not exist or it must be rejected
+     */
+    public User lookup(String username, String source) {
+        long now = System.currentTimeMillis();
+        Long since = this.unknownUsers.get(username);
+        if (since != null && now - since < AuthService.FAILURES_WINDOW) {
+            this.unknownHits.increment();
+            return null;
+        }
+        String key = AuthService.failuresKey(username, source);
+        synchronized (this.recentFailures) {
+            Failures f = this.recentFailures.get(key);
+            if (f != null && now - f.windowStart >= AuthService.FAILURES_WINDOW) {
+                this.recentFailures.remove(key);
+                f = null;
+            }
+            if (f != null && f.count >= AuthService.MAX_FAILURES) {
+                this.throttled.increment();
+                return null;
+            }
+        }
+
+        User user = this.users.get(username);
+        if (user == null && this.rememberUnknown(username, now)) {
+            // The user might have been registered, and invalidated, before it was remembered
+            user = this.users.get(username);
+            if (user != null)
+                this.unknownUsers.remove(username, now);
+        }
+        return user;
+    }
+
+    /**
+     * Remember that {@code username} is unknown. When the cache is full the expired entries are
+     * dropped, and if it is still full the username is not remembered
+     * 
+     * @return Whether the username has been remembered
+     */
+    private boolean rememberUnknown(String username, long now) {
+        if (this.unknownUsers.size() >= AuthService.UNKNOWN_CACHE_SIZE) {
+            this.unknownUsers.values()
+                    .removeIf(since -> now - since >= AuthService.FAILURES_WINDOW);
+            if (this.unknownUsers.size() >= AuthService.UNKNOWN_CACHE_SIZE)
+                return false;
+        }
+        this.unknownUsers.put(username, now);
+        return true;
+    }
+
+    private static String failuresKey(String username, String source) {
+        return username + "@" + source;
+    }
+
+    /**
+     * Record a failed password verification of {@code source} for {@code username}
+     */
+    private void recordFailure(String username, String source) {
+        long now = System.currentTimeMillis();
+        String key = AuthService.failuresKey(username, source);
+        synchronized (this.recentFailures) {
+            Failures f = this.recentFailures.get(key);
+            if (f == null || now - f.windowStart >= AuthService.FAILURES_WINDOW) {
+                f = new Failures(now);
+                this.recentFailures.put(key, f);
+            }
+            f.count++;
+        }
+    }
+
+    /**
+     * Hash a new password. This is slow and runs on the calling thread
+     * 
+     * @param password The password in plaintext
+     * @return The encoded hash to be stored
+     */
+    public String hash(String password) {
+        return this.hasher.hash(password);
+    }
+
+    /**
+     * Verify asynchronously the password of {@code user}. The callback is called exactly once with
+     * the result. If the verification is cached then the callback is called right away on the
+     * calling thread, otherwise it is called on one of the authentication threads
+     * 
+     * @param user The user
+     * @param password The password in plaintext
+     * @param source The address of the client, where a failure is counted
+     * @param callback Called with the result of the verification
+     * @return False if the verification cannot be scheduled because the pool is saturated, in which
+     *         case the callback is never called
+     */
+    public boolean verify(User user, String password, String source,
+            Consumer<Boolean> callback) {
+        long start = System.nanoTime();
+        String encoded;
+        boolean isHash;
+        synchronized (user) {
+            encoded = AuthService.storedPassword(user);
+            isHash = user.getPasswordHash() != null;
+        }
+        byte[] digest = this.mac.get().doFinal(password.getBytes(StandardCharsets.UTF_8));
+
+        // Fast path
+        Verified cached;
+        synchronized (this.verified) {
+            cached = this.verified.get(user.getUsername());
+        }
+        if (cached != null && cached.encoded.equals(encoded)
+                && MessageDigest.isEqual(cached.digest, digest)) {
+            this.cacheHits.increment();
+            this.record(start, true);
+            callback.accept(true);
+            return true;
+        }
+
+        // Slow path
+        try {
+            this.executor.execute(() -> {
+                boolean ok = this.verifySlow(user, password, encoded, isHash, digest);
+                if (!ok)
+                    this.recordFailure(user.getUsername(), source);
+                this.record(start, ok);
+                callback.accept(ok);
+            });
+        } catch (RejectedExecutionException e) {
+            this.rejected.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the stored password of {@code user}: its hash, or its legacy plaintext password. The
+     * caller must hold the lock on {@code user}
+     */
+    private static String storedPassword(User user) {
+        return user.getPasswordHash() != null ? user.getPasswordHash() : user.getLegacyPassword();
+    }
+
+    /**
+     * Verify the password with the slow hash, migrating it if needed, and cache the result
+     */
+    private boolean verifySlow(User user, String password, String encoded, boolean isHash,
+            byte[] digest) {
+        boolean ok;
+        if (encoded == null) // No password at all
+            ok = false;
+        else if (isHash)
+            ok = this.hasher.verify(password, encoded);
+        else // Legacy plaintext password
+            ok = MessageDigest.isEqual(encoded.getBytes(StandardCharsets.UTF_8),
+                    password.getBytes(StandardCharsets.UTF_8));
+        if (!ok)
+            return false;
+
+        // Migrate legacy or outdated hashes
+        if (!isHash || this.hasher.needsRehash(encoded)) {
+            String newEncoded = this.hasher.hash(password);
+            synchronized (user) {
+                // Do not overwrite a concurrent migration
+                if (encoded.equals(AuthService.storedPassword(user)))
+                    user.setPasswordHash(newEncoded);
+                encoded = AuthService.storedPassword(user);
+            }
+            this.logger.fine(
+                    () -> String.format("Password of user `%s` rehashed", user.getUsername()));
+        }
+
+        synchronized (this.verified) {
+            this.verified.put(user.getUsername(), new Verified(encoded, digest));
+        }
+        return true;
+    }
+
+    /**
+     * Record the metrics of a completed verification
+     */
+    private void record(long start, boolean ok) {
+        long latency = System.nanoTime() - start;
+        this.verifications.increment();
+        if (!ok)
+            this.failures.increment();
+        this.latencySum.add(latency);
+        this.latencyMax.accumulateAndGet(latency, Math::max);
+    }
+
+    public long getVerifications() {
+        return this.verifications.sum();
+    }
+
+    public long getCacheHits() {
+        return this.cacheHits.sum();
+    }
+
+    public long getFailures() {
+        return this.failures.sum();
+    }
+
+    public long getRejected() {
+        return this.rejected.sum();
+    }
+
+    /**
+     * Returns the number of logins rejected because the username is remembered as unknown
+     * 
+     * @return The number of negative cache hits
+     */
+    public long getUnknownHits() {
+        return this.unknownHits.sum();
+    }
+
+    /**
+     * Returns the number of logins rejected because of too many failed attempts
+     * 
+     * @return The number of throttled logins
+     */
+    public long getThrottled() {
+        return this.throttled.sum();
+    }
+
+    /**
+     * Returns the average login latency, from the request to the result
+     * 
+     * @return The average latency in nanoseconds
+     */
+    public long getAverageLatency() {
+        long n = this.verifications.sum();
+        return n == 0 ? 0 : this.latencySum.sum() / n;
+    }
+
+    /**
+     * Returns the maximum login latency, from the request to the result
+     * 
+     * @return The maximum latency in nanoseconds
+     */
+    public long getMaxLatency() {
+        return this.latencyMax.get();
+    }
+
+    /**
+     * Returns the number of verifications waiting for a free authentication thread
+     * 
+     * @return The size of the queue
+     */
+    public int getQueueSize() {
+        return this.executor.getQueue().size();
+    }
+
+    /**
+     * Returns the number of authentication threads that are currently busy
+     * 
+     * @return The number of busy threads
+     */
+    public int getActiveThreads() {
+        return this.executor.getActiveCount();
+    }
+
+    /**
+     * Returns the saturation of the authentication pool, as the ratio between the pending
+     * verifications and the maximum ones that can be accepted
+     * 
+     * @return The saturation in [0, 1]
+     */
+    public double getSaturation() {
+        return (double) (this.executor.getQueue().size() + this.executor.getActiveCount())
+                / (AuthService.QUEUE_SIZE + this.executor.getMaximumPoolSize());
+    }
+}
@@ -0,0 +1,32 @@
+package edu.riccardomori.wordle.server.auth;
+
+/**
+ * Strategy used to hash and verify the users passwords. Implementations must be thread-safe.
+ */
+public interface PasswordHasher {
+    /**
+     * Hash a password with a new random salt
+     * 
+     * @param password The password in plaintext
+     * @return The encoded hash, including all the parameters needed to verify it
+     */
+    public String hash(String password);
+
+    /**
+     * Verify a password against an encoded hash produced by this hasher
+     * 
+     * @param password The password in plaintext
+     * @param encoded The encoded hash
+     * @return True if the password matches
+     */
+    public boolean verify(String password, String encoded);
+
+    /**
+     * Tells whether {@code encoded} has been produced with outdated parameters and the password
+     * should be hashed again
+     * 
+     * @param encoded The encoded hash
+     * @return True if the password should be hashed again
+     */
+    public boolean needsRehash(String encoded);
+}
@@ -0,0 +1,80 @@
+package edu.riccardomori.wordle.server.auth;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.security.spec.InvalidKeySpecException;
+import java.util.Base64;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+// @formatter:off
+/**
+ * PBKDF2 (HMAC-SHA256) password hasher. The hash is encoded as:
+ *      pbkdf2-sha256$ITERATIONS$SALT$HASH
+ * where SALT and HASH are base64 encoded. It is thread-safe.
+ */
+// @formatter:on
+public class Pbkdf2PasswordHasher implements PasswordHasher {
+    private static final String PREFIX = "pbkdf2-sha256$";
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_SIZE = 16; // In bytes
+    private static final int HASH_SIZE = 32; // In bytes
+
+    private final int iterations;
+    private final SecureRandom random = new SecureRandom();
+
+    public Pbkdf2PasswordHasher(int iterations) {
+        this.iterations = iterations;
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations,
+                Pbkdf2PasswordHasher.HASH_SIZE * 8);
+        try {
+            return SecretKeyFactory.getInstance(Pbkdf2PasswordHasher.ALGORITHM).generateSecret(spec)
+                    .getEncoded();
+        } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    @Override
+    public String hash(String password) {
+        byte[] salt = new byte[Pbkdf2PasswordHasher.SALT_SIZE];
+        this.random.nextBytes(salt);
+        byte[] hash = Pbkdf2PasswordHasher.pbkdf2(password, salt, this.iterations);
+
+        Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+        return Pbkdf2PasswordHasher.PREFIX + this.iterations + "$" + encoder.encodeToString(salt)
+                + "$" + encoder.encodeToString(hash);
+    }
+
+    @Override
+    public boolean verify(String password, String encoded) {
+        if (!encoded.startsWith(Pbkdf2PasswordHasher.PREFIX))
+            return false;
+        String[] parts = encoded.substring(Pbkdf2PasswordHasher.PREFIX.length()).split("\\$");
+        if (parts.length != 3)
+            return false;
+
+        try {
+            int iterations = Integer.parseInt(parts[0]);
+            byte[] salt = Base64.getDecoder().decode(parts[1]);
+            byte[] expected = Base64.getDecoder().decode(parts[2]);
+            return MessageDigest.isEqual(expected,
+                    Pbkdf2PasswordHasher.pbkdf2(password, salt, iterations));
+        } catch (IllegalArgumentException e) { // Also catches NumberFormatException
+            return false;
+        }
+    }
+
+    @Override
+    public boolean needsRehash(String encoded) {
+        int start = Pbkdf2PasswordHasher.PREFIX.length();
+        int end = encoded.indexOf('$', start);
+        return end < 0 || !encoded.substring(start, end).equals(Integer.toString(this.iterations));
+    }
+}
@@ -0,0 +1,153 @@
+package edu.riccardomori.wordle.server.cluster;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import edu.riccardomori.wordle.protocol.LeaderboardWindow;
+import edu.riccardomori.wordle.rmi.LeaderboardDelta;
+import edu.riccardomori.wordle.utils.Pair;
+
+// @formatter:off
+/**
+ * The leaderboards of the cluster. Every node ranks only its own users, so a leaderboard of the
+ * cluster is the merge of the partial leaderboards of all the nodes, while the local one is always
+ * up to date.
+ * The partials are sorted, so the first k positions are merged in O(k * nodes) and only need the
+ * first k positions of every partial: only those are pulled periodically and cached here. A full
+ * leaderboard is merged from the full partials, which are pulled when requested. Ties are broken
+ * by username, as in the local leaderboards.
+ * The partials of a node that cannot be reached are kept: its users cannot play meanwhile, so their
+ * scores do not change. It is thread-safe.
+ */
+// @formatter:on
+public class ClusterLeaderboard {
+    // partials.get(window)[node] = the first positions last pulled from the node. Null for this
+    // node
+    private final Map<LeaderboardWindow, AtomicReferenceArray<LeaderboardDelta>> partials =
+            new EnumMap<>(LeaderboardWindow.class);
+    // The same for the full partials
+    private final Map<LeaderboardWindow, AtomicReferenceArray<LeaderboardDelta>> fullPartials =
+            new EnumMap<>(LeaderboardWindow.class);
+
+    /**
+     * @param nodes The number of nodes of the cluster
+     */
+    public ClusterLeaderboard(int nodes) {
+        for (LeaderboardWindow window : LeaderboardWindow.values()) {
+            this.partials.put(window, new AtomicReferenceArray<>(nodes));
+            this.fullPartials.put(window, new AtomicReferenceArray<>(nodes));
+        }
+    }
+
+    /**
+     * Replace the first positions of the partial leaderboard of a node
+     *
+     * @param node The index of the node
+     * @param partial The partial, as a snapshot of the first positions of its leaderboard
+     */
+    public void setPartial(int node, LeaderboardDelta partial) {
+        this.partials.get(partial.window).set(node, partial);
+    }
+
+    /**
+     * Replace the full partial leaderboard of a node
+     *
+     * @param node The index of the node
+     * @param partial The partial, as a snapshot of its whole leaderboard
+     */
+    public void setFullPartial(int node, LeaderboardDelta partial) {
+        this.fullPartials.get(partial.window).set(node, partial);
+    }
+
+    /**
+     * Merge the first positions of the local leaderboard with the ones of the other nodes
+     *
+     * @param window The leaderboard window
+     * @param local The first positions of the local leaderboard, at least {@code ranks}
+     * @param ranks The number of positions. At most the positions pulled from the other nodes
+     * @return List of pairs {@code <Username, Score>} in the order they appear in the leaderboard
+     */
+    public List<Pair<String, Double>> merge(LeaderboardWindow window,
+            List<Pair<String, Double>> local, int ranks) {
+        AtomicReferenceArray<LeaderboardDelta> top = this.partials.get(window);
+        List<LeaderboardDelta> sources = new ArrayList<>();
+        for (int k = 0; k < top.length(); ++k)
+            sources.add(top.get(k));
+        return ClusterLeaderboard.merge(sources, local, ranks);
+    }
+
+    /**
+     * Merge the full local leaderboard with the full partials of the other nodes. A node whose full
+     * partial has never been pulled contributes its first positions only
+     *
+     * @param window The leaderboard window
+     * @param local The full local leaderboard
+     * @return List of pairs {@code <Username, Score>} in the order they appear in the leaderboard
+     */
+    public List<Pair<String, Double>> mergeFull(LeaderboardWindow window,
+            List<Pair<String, Double>> local) {
+        AtomicReferenceArray<LeaderboardDelta> full = this.fullPartials.get(window);
+        AtomicReferenceArray<LeaderboardDelta> top = this.partials.get(window);
+        List<LeaderboardDelta> sources = new ArrayList<>();
+        for (int k = 0; k < full.length(); ++k)
+            sources.add(full.get(k) != null ? full.get(k) : top.get(k));
+        return ClusterLeaderboard.merge(sources, local, -1);
+    }
+
+    /**
+     * Merge the local leaderboard with the partials of the other nodes
+     *
+     * @param partials The partials. The null and empty ones are skipped
+     * @param ranks The number of positions. Negative for all of them
+     */
+    private static List<Pair<String, Double>> merge(List<LeaderboardDelta> partials,
+            List<Pair<String, Double>> local, int ranks) {
+        List<LeaderboardDelta> sources = new ArrayList<>();
+        for (LeaderboardDelta partial : partials) {
+            if (partial != null && partial.size > 0)
+                sources.add(partial);
+        }
+
+        int total = local.size();
+        for (LeaderboardDelta partial : sources)
+            total += partial.size;
+        int n = ranks < 0 ? total : Math.min(ranks, total);
+        List<Pair<String, Double>> ret = new ArrayList<>(n);
+
+        // Merge with a cursor on every source. The local leaderboard is the last source
+        int[] pos = new int[sources.size() + 1];
+        while (ret.size() < n) {
+            int best = -1;
+            String bestUser = null;
+            double bestScore = 0;
+            for (int s = 0; s <= sources.size(); ++s) {
+                String user;
+                double score;
+                if (s < sources.size()) {
+                    LeaderboardDelta partial = sources.get(s);
+                    if (pos[s] >= partial.size)
+                        continue;
+                    user = partial.usernames[pos[s]];
+                    score = partial.scores[pos[s]];
+                } else {
+                    if (pos[s] >= local.size())
+                        continue;
+                    user = local.get(pos[s]).first;
+                    score = local.get(pos[s]).second;
+                }
+                // Lower scores first. NaN (no games) is the greatest, as in the local ranking
+                int c = best < 0 ? -1 : Double.compare(score, bestScore);
+                if (c < 0 || (c == 0 && user.compareTo(bestUser) < 0)) {
+                    best = s;
+                    bestUser = user;
+                    bestScore = score;
+                }
+            }
+            pos[best]++;
+            ret.add(new Pair<String, Double>(bestUser, bestScore));
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,67 @@
+package edu.riccardomori.wordle.server.cluster;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import edu.riccardomori.wordle.utils.ConsistentHashRing;
+
+// @formatter:off
+/**
+ * The partition of the users among the nodes of the cluster. Every user belongs to exactly one
+ * node, chosen by consistent hashing of its username over the addresses of the nodes. Every node
+ * is configured with the same list of nodes, so all of them compute the same map without
+ * exchanging it.
+ * A user lives only on its node: its state, its games and its positions in the leaderboards. When
+ * a node is added or removed about 1/n of the users change node, and they are not moved: the list
+ * of nodes is meant to be fixed for the lifetime of the cluster. It is immutable.
+ */
+// @formatter:on
+public class ClusterMap {
+    private final List<ClusterNode> nodes;
+    private final int self; // The index of this node
+    private final ConsistentHashRing ring;
+
+    /**
+     * @param nodes All the nodes of the cluster, including this one
+     * @param self The index of this node in {@code nodes}
+     */
+    public ClusterMap(List<ClusterNode> nodes, int self) {
+        if (self < 0 || self >= nodes.size())
+            throw new IllegalArgumentException(
+                    String.format("Node %d is not one of the %d nodes", self, nodes.size()));
+        this.nodes = Collections.unmodifiableList(new ArrayList<>(nodes));
+        this.self = self;
+        List<String> names = new ArrayList<>(nodes.size());
+        for (ClusterNode node : nodes)
+            names.add(node.toString());
+        this.ring = new ConsistentHashRing(names);
+    }
+
+    public List<ClusterNode> getNodes() {
+        return this.nodes;
+    }
+
+    public int getSelf() {
+        return this.self;
+    }
+
+    /**
+     * Returns the index of the node that owns {@code username}
+     *
+     * @param username
+     * @return The index of the node
+     */
+    public int owner(String username) {
+        return this.ring.node(username);
+    }
+
+    /**
+     * Tells whether {@code username} belongs to this node
+     *
+     * @param username
+     * @return True if the user is local
+     */
+    public boolean isLocal(String username) {
+        return this.owner(username) == this.self;
+    }
+}
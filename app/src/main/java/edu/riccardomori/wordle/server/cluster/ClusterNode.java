@@ -0,0 +1,86 @@
+package edu.riccardomori.wordle.server.cluster;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.rmi.NotBoundException;
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.rmi.registry.LocateRegistry;
+
+/**
+ * The address of a node of the cluster: the host, the port of its server socket, the port of its
+ * public RMI registry and the port of the registry reserved to the other nodes. It is immutable
+ */
+public class ClusterNode {
+    public final String host;
+    public final int tcpPort;
+    public final int rmiPort;
+    public final int clusterPort;
+
+    public ClusterNode(String host, int tcpPort, int rmiPort, int clusterPort) {
+        this.host = host;
+        this.tcpPort = tcpPort;
+        this.rmiPort = rmiPort;
+        this.clusterPort = clusterPort;
+    }
+
+    /**
+     * Parse a node in the format {@code host:tcpPort:rmiPort:clusterPort}
+     *
+     * @param node The node
+     * @return The node
+     * @throws IllegalArgumentException If the format is not valid
+     */
+    public static ClusterNode parse(String node) {
+        String[] parts = node.trim().split(":");
+        if (parts.length != 4 || parts[0].isEmpty())
+            throw new IllegalArgumentException(String.format(
+                    "Invalid cluster node `%s`, expected host:tcpPort:rmiPort:clusterPort", node));
+        return new ClusterNode(parts[0], Integer.parseInt(parts[1]), Integer.parseInt(parts[2]),
+                Integer.parseInt(parts[3]));
+    }
+
+    /**
+     * Look up a remote object in the public RMI registry of the node
+     *
+     * @param name The name of the remote object
+     * @return The stub
+     * @throws RemoteException If the registry cannot be reached
+     * @throws NotBoundException If the name is not bound
+     */
+    public Remote lookup(String name) throws RemoteException, NotBoundException {
+        return LocateRegistry.getRegistry(this.host, this.rmiPort).lookup(name);
+    }
+
+    /**
+     * Look up a remote object in the cluster registry of the node
+     *
+     * @param name The name of the remote object
+     * @return The stub
+     * @throws RemoteException If the registry cannot be reached
+     * @throws NotBoundException If the name is not bound
+     */
+    public Remote lookupCluster(String name) throws RemoteException, NotBoundException {
+        return LocateRegistry.getRegistry(this.host, this.clusterPort).lookup(name);
+    }
+
+    /**
+     * Put the node in {@code msg} in the format of the REDIRECT response:
+     * {@code hostLen (4) | host (UTF-8) | tcpPort (4) | rmiPort (4)}
+     *
+     * @param msg The buffer
+     */
+    public void put(ByteBuffer msg) {
+        ByteBuffer encHost = StandardCharsets.UTF_8.encode(this.host);
+        msg.putInt(encHost.limit());
+        msg.put(encHost);
+        msg.putInt(this.tcpPort);
+        msg.putInt(this.rmiPort);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s:%d:%d:%d", this.host, this.tcpPort, this.rmiPort,
+                this.clusterPort);
+    }
+}
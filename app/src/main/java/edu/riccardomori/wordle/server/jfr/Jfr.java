@@ -0,0 +1,70 @@
+package edu.riccardomori.wordle.server.jfr;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+// @formatter:off
+/**
+ * Configuration of the Java Flight Recorder integration.
+ * The custom events are created only when they are enabled, so they cost a single volatile read
+ * otherwise.
+ * A continuous recording can be started at boot: it keeps the last {@code maxAge} of data with the
+ * default JDK settings plus all the custom events, and it is dumped to a file on exit.
+ * A recording started with jcmd records the custom events as well, as long as they are enabled.
+ */
+// @formatter:on
+public final class Jfr {
+    private static volatile boolean enabled = false;
+    private static Recording recording;
+
+    private Jfr() {}
+
+    /**
+     * Tells whether the custom events are enabled
+     */
+    public static boolean isEnabled() {
+        return Jfr.enabled;
+    }
+
+    /**
+     * Enable or disable the custom events
+     */
+    public static void setEnabled(boolean enabled) {
+        Jfr.enabled = enabled;
+    }
+
+    /**
+     * Start a continuous recording that is dumped to {@code destination} when the JVM exits
+     * 
+     * @param destination The file where to dump the recording
+     * @param maxAge How long the data is kept
+     * @throws IOException if the recording cannot be started
+     */
+    public static synchronized void startRecording(Path destination, Duration maxAge)
+            throws IOException {
+        if (Jfr.recording != null)
+            return;
+
+        Recording recording;
+        try {
+            recording = new Recording(Configuration.getConfiguration("default"));
+        } catch (ParseException e) {
+            throw new IOException(e);
+        }
+        recording.setName("wordle");
+        recording.enable(RequestEvent.class);
+        recording.enable(PersistenceEvent.class);
+        recording.enable(LeaderboardUpdateEvent.class);
+        recording.enable(TranslationEvent.class);
+        recording.setMaxAge(maxAge);
+        recording.setToDisk(true);
+        recording.setDumpOnExit(true);
+        recording.setDestination(destination);
+        recording.start();
+        Jfr.recording = recording;
+    }
+}
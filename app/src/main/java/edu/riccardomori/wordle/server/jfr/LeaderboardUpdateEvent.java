@@ -0,0 +1,32 @@
+package edu.riccardomori.wordle.server.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The update of the score of a user in the leaderboard
+ */
+@Name("wordle.LeaderboardUpdate")
+@Label("Leaderboard Update")
+@Category("Wordle")
+@Description("The update of the score of a user in the leaderboard")
+@StackTrace(false)
+public class LeaderboardUpdateEvent extends Event {
+    @Label("User")
+    public String username;
+
+    @Label("Score")
+    public double score;
+
+    @Label("Previous Rank")
+    @Description("The rank before the update, -1 if the user was not ranked")
+    public int previousRank;
+
+    @Label("Rank")
+    @Description("The rank after the update, -1 if nothing changed")
+    public int rank;
+}
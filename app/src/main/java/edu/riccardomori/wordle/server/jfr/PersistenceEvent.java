@@ -0,0 +1,31 @@
+package edu.riccardomori.wordle.server.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Saving or loading the server state
+ */
+@Name("wordle.Persistence")
+@Label("Persistence")
+@Category("Wordle")
+@Description("Saving or loading the server state")
+public class PersistenceEvent extends Event {
+    @Label("Phase")
+    @Description("flush or load")
+    public String phase;
+
+    @Label("File")
+    public String file;
+
+    @Label("Users")
+    public int users;
+
+    @Label("Size")
+    @DataAmount
+    public long size;
+}
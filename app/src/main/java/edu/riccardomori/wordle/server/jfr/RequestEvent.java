@@ -0,0 +1,38 @@
+package edu.riccardomori.wordle.server.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A protocol request handled on the selector thread. The duration is the time spent in the handler
+ */
+@Name("wordle.Request")
+@Label("Request")
+@Category("Wordle")
+@Description("A protocol request handled by the server")
+@StackTrace(false)
+public class RequestEvent extends Event {
+    @Label("User")
+    @Description("The user logged in the session, if any")
+    public String username;
+
+    @Label("Action")
+    public String action;
+
+    @Label("Status")
+    @Description("The status sent back, PENDING if the response is asynchronous")
+    public String status;
+
+    @Label("Bytes In")
+    @DataAmount
+    public int bytesIn;
+
+    @Label("Bytes Out")
+    @DataAmount
+    public int bytesOut;
+}
@@ -0,0 +1,29 @@
+package edu.riccardomori.wordle.server.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The translation of a secret word. The word itself is not recorded, since the recordings can be
+ * read while the game is still being played
+ */
+@Name("wordle.Translation")
+@Label("Translation")
+@Category("Wordle")
+@Description("The translation of a secret word")
+@StackTrace(false)
+public class TranslationEvent extends Event {
+    @Label("Word Length")
+    public int wordLength;
+
+    @Label("Cached")
+    @Description("Whether the translation was found in the cache")
+    public boolean cached;
+
+    @Label("Success")
+    public boolean success;
+}
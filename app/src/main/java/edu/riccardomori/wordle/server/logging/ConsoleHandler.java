@@ -1,32 +1,144 @@
 package edu.riccardomori.wordle.server.logging;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
 import java.util.logging.LogRecord;
 import java.util.logging.SimpleFormatter;
-import java.util.logging.StreamHandler;
+import edu.riccardomori.wordle.server.metrics.Counter;
+import edu.riccardomori.wordle.server.metrics.MetricsRegistry;
 
+// @formatter:off
 /**
- * A modified StreamHandler that closely resembles a java.util.logging.ConsoleHandler, the
- * difference being that this handler publishes records to System.out
+ * An asynchronous handler that publishes the records to System.out.
+ * The logging threads only enqueue the records in a bounded queue, so they never block on the
+ * console. A background thread formats them and writes them in batches, flushing once per batch.
+ * When the queue is full the records are dropped and counted, since slowing down the server is
+ * worse than losing some log lines.
+ * Only the background thread writes, so the records keep their order: a flush waits for it.
  */
-public class ConsoleHandler extends StreamHandler {
+// @formatter:on
+public class ConsoleHandler extends Handler {
+    private static final int QUEUE_SIZE = 8192; // Maximum number of pending records
+    private static final int BATCH_SIZE = 256; // Maximum number of records written at once
+    private static final long FLUSH_TIMEOUT = 1000; // Maximum wait of a flush in milliseconds
+
+    private final BlockingQueue<LogRecord> queue =
+            new ArrayBlockingQueue<>(ConsoleHandler.QUEUE_SIZE);
+    private final Writer writer;
+    private final Thread thread;
+    private final Counter dropped =
+            MetricsRegistry.getInstance().counter("wordle_log_records_dropped_total");
+    private final AtomicLong enqueued = new AtomicLong(); // Records accepted in the queue
+    private long written = 0; // Records taken from the queue and written. Guarded by this
+    private volatile boolean closed = false;
+
     public ConsoleHandler() {
-        super(System.out, new SimpleFormatter());
+        this.setFormatter(new SimpleFormatter());
+        this.writer = new BufferedWriter(
+                new OutputStreamWriter(System.out, Charset.defaultCharset()), 1 << 16);
+
+        this.thread = new Thread(this::writeLoop, "log-writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
     }
 
     /**
-     * Publish a LogRecord and flushes the output stream.
+     * Enqueue a LogRecord. It never blocks
      */
     @Override
     public void publish(LogRecord record) {
-        super.publish(record);
-        flush();
+        if (this.closed || !this.isLoggable(record))
+            return;
+        if (this.queue.offer(record))
+            this.enqueued.incrementAndGet();
+        else
+            this.dropped.increment();
+    }
+
+    /**
+     * Write a batch of records, flush the console and wake up the threads waiting in a flush
+     */
+    private synchronized void write(List<LogRecord> batch) {
+        try {
+            for (LogRecord record : batch)
+                this.writer.write(this.getFormatter().format(record));
+            this.writer.flush();
+        } catch (IOException | RuntimeException e) {
+            this.reportError(null, e, ErrorManager.WRITE_FAILURE);
+        }
+        this.written += batch.size();
+        batch.clear();
+        this.notifyAll();
+    }
+
+    /**
+     * Main loop of the writer thread
+     */
+    private void writeLoop() {
+        List<LogRecord> batch = new ArrayList<>(ConsoleHandler.BATCH_SIZE);
+        while (!this.closed || !this.queue.isEmpty()) {
+            try {
+                LogRecord record = this.queue.poll(100, TimeUnit.MILLISECONDS);
+                if (record == null)
+                    continue;
+                batch.add(record);
+                this.queue.drainTo(batch, ConsoleHandler.BATCH_SIZE - 1);
+                this.write(batch);
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Wait until the records published so far have been written. The writer thread takes a record
+     * as soon as it is queued, so it only has to be waited for, up to {@code FLUSH_TIMEOUT}. When
+     * the writer thread has stopped the pending records are written by the caller
+     */
+    @Override
+    public synchronized void flush() {
+        long target = this.enqueued.get();
+        long deadline = System.currentTimeMillis() + ConsoleHandler.FLUSH_TIMEOUT;
+        while (this.written < target && this.thread.isAlive()) {
+            long left = deadline - System.currentTimeMillis();
+            if (left <= 0)
+                return;
+            try {
+                this.wait(left);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        if (!this.thread.isAlive()) {
+            List<LogRecord> batch = new ArrayList<>();
+            this.queue.drainTo(batch);
+            this.write(batch);
+        }
     }
 
     /**
-     * Override StreamHandler.close to do a flush and to avoid closing the output stream.
+     * Write all the pending records and stop the writer thread. The output stream is not closed
      */
     @Override
     public void close() {
-        flush();
+        this.closed = true;
+        try {
+            this.thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        this.flush();
     }
 }
@@ -0,0 +1,22 @@
+package edu.riccardomori.wordle.server.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A monotonic counter. It is thread-safe and cheap to update from many threads
+ */
+public class Counter {
+    private final LongAdder value = new LongAdder();
+
+    public void increment() {
+        this.value.increment();
+    }
+
+    public void add(long delta) {
+        this.value.add(delta);
+    }
+
+    public long get() {
+        return this.value.sum();
+    }
+}
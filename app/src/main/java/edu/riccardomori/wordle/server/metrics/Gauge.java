@@ -0,0 +1,9 @@
+package edu.riccardomori.wordle.server.metrics;
+
+/**
+ * A value that is sampled when the snapshot is taken. The implementation must be thread-safe
+ */
+@FunctionalInterface
+public interface Gauge {
+    double get();
+}
@@ -0,0 +1,9 @@
+package edu.riccardomori.wordle.server.metrics;
+
+/**
+ * A named check of the health of the server. The implementation must be thread-safe and cheap
+ */
+@FunctionalInterface
+public interface HealthCheck {
+    boolean isHealthy();
+}
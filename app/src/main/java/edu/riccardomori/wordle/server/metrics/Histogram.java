@@ -0,0 +1,88 @@
+package edu.riccardomori.wordle.server.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// @formatter:off
+/**
+ * Lock-free histogram of non-negative values with a bounded relative error.
+ * The values are stored in log-linear buckets: every power of two is split in
+ * {@code SUB_BUCKETS} linear buckets, so a bucket spans at most 1/{@code SUB_BUCKETS} of its
+ * values (12.5%). Values below {@code SUB_BUCKETS} are exact.
+ * Recording is a few atomic increments and never allocates.
+ */
+// @formatter:on
+public class Histogram {
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << Histogram.SUB_BITS;
+    // One group of sub buckets for every power of two, the first group holds the exact values
+    private static final int BUCKETS = (Long.SIZE - Histogram.SUB_BITS + 1) * Histogram.SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(Histogram.BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Returns the bucket of {@code value}
+     */
+    static int bucket(long value) {
+        if (value < Histogram.SUB_BUCKETS)
+            return (int) value;
+        int exp = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exp - Histogram.SUB_BITS)) & (Histogram.SUB_BUCKETS - 1);
+        return (exp - Histogram.SUB_BITS + 1) * Histogram.SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Returns the largest value that falls in {@code bucket}
+     */
+    static long upperBound(int bucket) {
+        if (bucket < Histogram.SUB_BUCKETS)
+            return bucket;
+        int exp = bucket / Histogram.SUB_BUCKETS + Histogram.SUB_BITS - 1;
+        long sub = bucket % Histogram.SUB_BUCKETS;
+        long lower = (Histogram.SUB_BUCKETS + sub) << (exp - Histogram.SUB_BITS);
+        return lower + (1L << (exp - Histogram.SUB_BITS)) - 1;
+    }
+
+    /**
+     * Record a value. Negative values are recorded as 0
+     * 
+     * @param value The value
+     */
+    public void record(long value) {
+        if (value < 0)
+            value = 0;
+        this.buckets.incrementAndGet(Histogram.bucket(value));
+        this.count.increment();
+        this.sum.add(value);
+
+        long currMax = this.max.get();
+        while (value > currMax && !this.max.compareAndSet(currMax, value))
+            currMax = this.max.get();
+    }
+
+    /**
+     * Record the time elapsed since {@code start}
+     * 
+     * @param start The start time as returned by {@code System.nanoTime()}
+     */
+    public void recordSince(long start) {
+        this.record(System.nanoTime() - start);
+    }
+
+    /**
+     * Take a snapshot of the histogram. The snapshot is not atomic: the values recorded while it
+     * is being taken might be partially included
+     * 
+     * @return The snapshot
+     */
+    public HistogramSnapshot snapshot() {
+        long[] counts = new long[Histogram.BUCKETS];
+        for (int k = 0; k < counts.length; ++k)
+            counts[k] = this.buckets.get(k);
+        return new HistogramSnapshot(counts, this.sum.sum(), this.max.get());
+    }
+}
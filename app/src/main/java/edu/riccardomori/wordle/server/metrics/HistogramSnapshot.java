@@ -0,0 +1,59 @@
+package edu.riccardomori.wordle.server.metrics;
+
+/**
+ * Immutable copy of a histogram
+ */
+public class HistogramSnapshot {
+    private final long[] counts; // Count of every bucket
+    public final long count;
+    public final long sum;
+    public final long max;
+
+    HistogramSnapshot(long[] counts, long sum, long max) {
+        this.counts = counts;
+        long count = 0;
+        for (long c : counts)
+            count += c;
+        this.count = count;
+        this.sum = sum;
+        this.max = max;
+    }
+
+    /**
+     * Returns the mean of the recorded values, 0 if there are none
+     */
+    public double mean() {
+        return this.count == 0 ? 0 : (double) this.sum / this.count;
+    }
+
+    /**
+     * Returns an upper bound of the value at percentile {@code p}. The bound is never larger than
+     * the maximum recorded value
+     * 
+     * @param p The percentile in [0, 100]
+     * @return The value at the percentile, 0 if there are no values
+     */
+    public long percentile(double p) {
+        if (this.count == 0)
+            return 0;
+        long rank = Math.max(1, (long) Math.ceil(p / 100 * this.count));
+        long seen = 0;
+        for (int k = 0; k < this.counts.length; ++k) {
+            seen += this.counts[k];
+            if (seen >= rank)
+                return Math.min(Histogram.upperBound(k), this.max);
+        }
+        return this.max;
+    }
+
+    /**
+     * Returns the number of recorded values that are less or equal than {@code value}, rounded to
+     * the bucket that contains it
+     */
+    public long countBelow(long value) {
+        long ret = 0;
+        for (int k = 0; k <= Histogram.bucket(Math.max(0, value)); ++k)
+            ret += this.counts[k];
+        return ret;
+    }
+}
@@ -0,0 +1,114 @@
+package edu.riccardomori.wordle.server.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongSupplier;
+
+// @formatter:off
+/**
+ * Registry of all the metrics of the server. This is a singleton class and it is thread-safe.
+ * The metrics are identified by name. A name can carry labels in the Prometheus format, for
+ * example {@code wordle_requests_total{action="play"}}.
+ * The metrics are meant to be looked up once and then updated directly, so the hot paths never
+ * touch the registry. Durations are recorded in nanoseconds.
+ */
+// @formatter:on
+public class MetricsRegistry {
+    private static MetricsRegistry instance; // Singleton instance
+
+    private final Map<String, Counter> counters = new ConcurrentSkipListMap<>();
+    // Counters kept by another component, sampled when the snapshot is taken
+    private final Map<String, LongSupplier> sampledCounters = new ConcurrentSkipListMap<>();
+    private final Map<String, Gauge> gauges = new ConcurrentSkipListMap<>();
+    private final Map<String, Histogram> histograms = new ConcurrentSkipListMap<>();
+    private final Map<String, HealthCheck> healthChecks = new ConcurrentSkipListMap<>();
+
+    private MetricsRegistry() {}
+
+    /**
+     * Get the singleton instance
+     * 
+     * @return The singleton instance
+     */
+    public static synchronized MetricsRegistry getInstance() {
+        if (MetricsRegistry.instance == null)
+            MetricsRegistry.instance = new MetricsRegistry();
+        return MetricsRegistry.instance;
+    }
+
+    /**
+     * Returns the counter {@code name}, creating it if it does not exist
+     */
+    public Counter counter(String name) {
+        return this.counters.computeIfAbsent(name, k -> new Counter());
+    }
+
+    /**
+     * Register the counter {@code name}, whose value is kept by another component and sampled when
+     * the snapshot is taken, replacing the previous one if any. The value must never decrease and
+     * the supplier must be thread-safe
+     */
+    public void counter(String name, LongSupplier value) {
+        this.sampledCounters.put(name, value);
+    }
+
+    /**
+     * Returns the histogram {@code name}, creating it if it does not exist
+     */
+    public Histogram histogram(String name) {
+        return this.histograms.computeIfAbsent(name, k -> new Histogram());
+    }
+
+    /**
+     * Register the gauge {@code name}, replacing the previous one if any
+     */
+    public void gauge(String name, Gauge gauge) {
+        this.gauges.put(name, gauge);
+    }
+
+    /**
+     * Register the health check {@code name}, replacing the previous one if any
+     */
+    public void healthCheck(String name, HealthCheck check) {
+        this.healthChecks.put(name, check);
+    }
+
+    /**
+     * Run all the health checks
+     * 
+     * @return Map {name -> healthy} sorted by name
+     */
+    public Map<String, Boolean> health() {
+        Map<String, Boolean> ret = new TreeMap<>();
+        for (Map.Entry<String, HealthCheck> entry : this.healthChecks.entrySet())
+            ret.put(entry.getKey(), entry.getValue().isHealthy());
+        return ret;
+    }
+
+    /**
+     * Take a snapshot of all the metrics. Every metric is read once, without locking
+     * 
+     * @return The snapshot
+     */
+    public MetricsSnapshot snapshot() {
+        Map<String, Long> counters = new TreeMap<>();
+        for (Map.Entry<String, Counter> entry : this.counters.entrySet())
+            counters.put(entry.getKey(), entry.getValue().get());
+        for (Map.Entry<String, LongSupplier> entry : this.sampledCounters.entrySet())
+            counters.put(entry.getKey(), entry.getValue().getAsLong());
+
+        Map<String, Double> gauges = new TreeMap<>();
+        for (Map.Entry<String, Gauge> entry : this.gauges.entrySet())
+            gauges.put(entry.getKey(), entry.getValue().get());
+
+        Map<String, HistogramSnapshot> histograms = new TreeMap<>();
+        for (Map.Entry<String, Histogram> entry : this.histograms.entrySet())
+            histograms.put(entry.getKey(), entry.getValue().snapshot());
+
+        return new MetricsSnapshot(System.currentTimeMillis(),
+                Collections.unmodifiableMap(counters), Collections.unmodifiableMap(gauges),
+                Collections.unmodifiableMap(histograms));
+    }
+}
@@ -0,0 +1,190 @@
+package edu.riccardomori.wordle.server.metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Logger;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+// @formatter:off
+/**
+ * Exposes the metrics over HTTP on a side port, on its own thread so it never interferes with the
+ * selector thread of the game server. The endpoints are not authenticated, so the server listens
+ * on the loopback address unless configured otherwise.
+ *   /metrics   All the metrics in the Prometheus text exposition format. The histograms are
+ *              exported as summaries with a few quantiles, plus a gauge with their maximum
+ *   /health    200 if all the health checks pass, 503 otherwise. The body lists every check
+ */
+// @formatter:on
+public class MetricsServer {
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final String host;
+    private final int port;
+    private final MetricsRegistry registry;
+    private final Logger logger = Logger.getLogger("Wordle");
+    private HttpServer server;
+
+    /**
+     * @param host The address where the endpoint listens
+     * @param port The port where the endpoint listens
+     * @param registry The metrics to expose
+     */
+    public MetricsServer(String host, int port, MetricsRegistry registry) {
+        this.host = host;
+        this.port = port;
+        this.registry = registry;
+    }
+
+    /**
+     * Start serving the requests
+     * 
+     * @throws IOException if the port cannot be bound
+     */
+    public void start() throws IOException {
+        ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "metrics-http");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.server = HttpServer.create(new InetSocketAddress(this.host, this.port), 0);
+        this.server.createContext("/metrics", this::handleMetrics);
+        this.server.createContext("/health", this::handleHealth);
+        this.server.setExecutor(executor);
+        this.server.start();
+        this.logger.info(String.format("Metrics available on %s:%d", this.host, this.port));
+    }
+
+    /**
+     * Stop serving the requests
+     */
+    public void stop() {
+        if (this.server != null)
+            this.server.stop(0);
+    }
+
+    /**
+     * Returns the name of the metric without the labels
+     */
+    private static String baseName(String name) {
+        int k = name.indexOf('{');
+        return k < 0 ? name : name.substring(0, k);
+    }
+
+    /**
+     * Returns the labels of the metric, without braces. Empty if there are none
+     */
+    private static String labels(String name) {
+        int k = name.indexOf('{');
+        return k < 0 ? "" : name.substring(k + 1, name.length() - 1);
+    }
+
+    /**
+     * Append a sample with an additional suffix and label
+     */
+    private static void sample(StringBuilder out, String name, String suffix, String label,
+            String value) {
+        String labels = MetricsServer.labels(name);
+        if (!label.isEmpty())
+            labels = labels.isEmpty() ? label : labels + "," + label;
+        out.append(MetricsServer.baseName(name)).append(suffix);
+        if (!labels.isEmpty())
+            out.append('{').append(labels).append('}');
+        out.append(' ').append(value).append('\n');
+    }
+
+    /**
+     * Append the TYPE line of the metric if it has not been appended yet. The metrics are sorted
+     * by name, so the labeled samples of the same metric are consecutive
+     */
+    private static String type(StringBuilder out, String name, String lastBase, String type) {
+        String base = MetricsServer.baseName(name);
+        if (!base.equals(lastBase))
+            out.append("# TYPE ").append(base).append(' ').append(type).append('\n');
+        return base;
+    }
+
+    /**
+     * Format the snapshot in the Prometheus text exposition format
+     */
+    static String format(MetricsSnapshot snapshot) {
+        StringBuilder out = new StringBuilder();
+
+        String last = null;
+        for (Map.Entry<String, Long> entry : snapshot.counters.entrySet()) {
+            last = MetricsServer.type(out, entry.getKey(), last, "counter");
+            MetricsServer.sample(out, entry.getKey(), "", "", Long.toString(entry.getValue()));
+        }
+
+        last = null;
+        for (Map.Entry<String, Double> entry : snapshot.gauges.entrySet()) {
+            last = MetricsServer.type(out, entry.getKey(), last, "gauge");
+            MetricsServer.sample(out, entry.getKey(), "", "", Double.toString(entry.getValue()));
+        }
+
+        last = null;
+        for (Map.Entry<String, HistogramSnapshot> entry : snapshot.histograms.entrySet()) {
+            String name = entry.getKey();
+            HistogramSnapshot histogram = entry.getValue();
+            last = MetricsServer.type(out, name, last, "summary");
+            for (double q : MetricsServer.QUANTILES)
+                MetricsServer.sample(out, name, "", String.format("quantile=\"%s\"", q),
+                        Long.toString(histogram.percentile(q * 100)));
+            MetricsServer.sample(out, name, "_sum", "", Long.toString(histogram.sum));
+            MetricsServer.sample(out, name, "_count", "", Long.toString(histogram.count));
+        }
+
+        // The maximum of every histogram, as a separate gauge
+        last = null;
+        for (Map.Entry<String, HistogramSnapshot> entry : snapshot.histograms.entrySet()) {
+            String name = MetricsServer.baseName(entry.getKey()) + "_max"
+                    + entry.getKey().substring(MetricsServer.baseName(entry.getKey()).length());
+            last = MetricsServer.type(out, name, last, "gauge");
+            MetricsServer.sample(out, name, "", "", Long.toString(entry.getValue().max));
+        }
+
+        return out.toString();
+    }
+
+    /**
+     * Send a plain text response and close the exchange
+     */
+    private void reply(HttpExchange exchange, int code, String contentType, String body)
+            throws IOException {
+        byte[] raw = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(code, raw.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(raw);
+        }
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            this.reply(exchange, 405, "text/plain; charset=utf-8", "Method not allowed\n");
+            return;
+        }
+        this.reply(exchange, 200, "text/plain; version=0.0.4; charset=utf-8",
+                MetricsServer.format(this.registry.snapshot()));
+    }
+
+    private void handleHealth(HttpExchange exchange) throws IOException {
+        Map<String, Boolean> checks = this.registry.health();
+        boolean healthy = !checks.isEmpty();
+        StringBuilder body = new StringBuilder();
+        for (Map.Entry<String, Boolean> entry : checks.entrySet()) {
+            healthy &= entry.getValue();
+            body.append(entry.getKey()).append(entry.getValue() ? " ok\n" : " failing\n");
+        }
+        if (checks.isEmpty())
+            body.append("starting\n");
+
+        this.reply(exchange, healthy ? 200 : 503, "text/plain; charset=utf-8", body.toString());
+    }
+}
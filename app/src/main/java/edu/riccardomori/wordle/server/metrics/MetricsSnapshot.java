@@ -0,0 +1,21 @@
+package edu.riccardomori.wordle.server.metrics;
+
+import java.util.Map;
+
+/**
+ * Point in time copy of all the metrics. The maps are sorted by name
+ */
+public class MetricsSnapshot {
+    public final long timestamp; // When the snapshot has been taken (ms since epoch)
+    public final Map<String, Long> counters;
+    public final Map<String, Double> gauges;
+    public final Map<String, HistogramSnapshot> histograms;
+
+    MetricsSnapshot(long timestamp, Map<String, Long> counters, Map<String, Double> gauges,
+            Map<String, HistogramSnapshot> histograms) {
+        this.timestamp = timestamp;
+        this.counters = counters;
+        this.gauges = gauges;
+        this.histograms = histograms;
+    }
+}
@@ -0,0 +1,86 @@
+package edu.riccardomori.wordle.server.metrics;
+
+import edu.riccardomori.wordle.protocol.Action;
+
+/**
+ * The metrics updated on the hot paths of the server, looked up once from the registry. This is a
+ * singleton class and it is thread-safe
+ */
+public final class ServerMetrics {
+    private static ServerMetrics instance; // Singleton instance
+
+    // Requests and handler latency, indexed by Action.ordinal()
+    private final Counter[] requests = new Counter[Action.values().length];
+    private final Histogram[] latency = new Histogram[Action.values().length];
+
+    public final Counter bytesIn;
+    public final Counter bytesOut;
+    public final Counter connectionsOpened;
+    public final Counter connectionsClosed;
+    public final Counter idleEvictions; // Connections closed for not sending requests
+    public final Counter writeEvictions; // Connections closed for not reading the responses
+    public final Counter acceptPaused; // Times the accept was paused at max connections
+    public final Counter connectionThrottled; // Requests rejected by the connection rate limit
+    public final Counter userThrottled; // Requests rejected by the user rate limit
+    public final Histogram selectorLoop; // Time spent in a selector loop iteration
+    public final Histogram leaderboardUpdate;
+    public final Histogram flushDuration;
+    public final Counter translationHits;
+    public final Counter translationMisses;
+
+    private ServerMetrics(MetricsRegistry registry) {
+        for (Action action : Action.values()) {
+            String label = String.format("{action=\"%s\"}", action.name().toLowerCase());
+            this.requests[action.ordinal()] = registry.counter("wordle_requests_total" + label);
+            this.latency[action.ordinal()] =
+                    registry.histogram("wordle_request_duration_ns" + label);
+        }
+
+        this.bytesIn = registry.counter("wordle_bytes_received_total");
+        this.bytesOut = registry.counter("wordle_bytes_sent_total");
+        this.connectionsOpened = registry.counter("wordle_connections_opened_total");
+        this.connectionsClosed = registry.counter("wordle_connections_closed_total");
+        registry.gauge("wordle_connections_active",
+                () -> this.connectionsOpened.get() - this.connectionsClosed.get());
+        this.idleEvictions =
+                registry.counter("wordle_connections_evicted_total{reason=\"idle\"}");
+        this.writeEvictions =
+                registry.counter("wordle_connections_evicted_total{reason=\"write\"}");
+        this.acceptPaused = registry.counter("wordle_accept_paused_total");
+        this.connectionThrottled =
+                registry.counter("wordle_requests_throttled_total{scope=\"connection\"}");
+        this.userThrottled = registry.counter("wordle_requests_throttled_total{scope=\"user\"}");
+        this.selectorLoop = registry.histogram("wordle_selector_loop_duration_ns");
+        this.leaderboardUpdate = registry.histogram("wordle_leaderboard_update_duration_ns");
+        this.flushDuration = registry.histogram("wordle_flush_duration_ns");
+        this.translationHits = registry.counter("wordle_translation_cache_hits_total");
+        this.translationMisses = registry.counter("wordle_translation_cache_misses_total");
+        registry.gauge("wordle_translation_cache_hit_ratio", () -> {
+            long hits = this.translationHits.get();
+            long total = hits + this.translationMisses.get();
+            return total == 0 ? 0 : (double) hits / total;
+        });
+    }
+
+    /**
+     * Get the singleton instance
+     * 
+     * @return The singleton instance
+     */
+    public static synchronized ServerMetrics getInstance() {
+        if (ServerMetrics.instance == null)
+            ServerMetrics.instance = new ServerMetrics(MetricsRegistry.getInstance());
+        return ServerMetrics.instance;
+    }
+
+    /**
+     * Record a request handled in {@code duration} nanoseconds
+     * 
+     * @param action The action requested
+     * @param duration The duration of the handler in nanoseconds
+     */
+    public void request(Action action, long duration) {
+        this.requests[action.ordinal()].increment();
+        this.latency[action.ordinal()].record(duration);
+    }
+}
@@ -0,0 +1,91 @@
+package edu.riccardomori.wordle.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+// @formatter:off
+/**
+ * Consistent hashing of string keys over a list of nodes. Every node is placed on a 64-bit ring
+ * as {@code VIRTUAL_NODES} points, and a key belongs to the node of the first point that follows
+ * its hash. Adding or removing a node only moves the keys of the arcs it gains or loses, about
+ * 1/n of them.
+ * The points depend only on the node names, and the hash does not depend on the JVM, so every
+ * process that builds a ring with the same names assigns every key to the same node. It is
+ * immutable and thread-safe.
+ */
+// @formatter:on
+public class ConsistentHashRing {
+    public static final int VIRTUAL_NODES = 128; // Points of every node on the ring
+
+    private final long[] points; // The points in increasing order
+    private final int[] owners; // owners[k] = index of the node of points[k]
+
+    /**
+     * @param nodes The names of the nodes. They must be distinct and non-empty
+     */
+    public ConsistentHashRing(List<String> nodes) {
+        if (nodes.isEmpty())
+            throw new IllegalArgumentException("The ring needs at least one node");
+        int n = nodes.size() * ConsistentHashRing.VIRTUAL_NODES;
+        long[] hashes = new long[n];
+        Integer[] order = new Integer[n];
+        for (int pos = 0; pos < n; ++pos) {
+            String name = nodes.get(pos / ConsistentHashRing.VIRTUAL_NODES);
+            int point = pos % ConsistentHashRing.VIRTUAL_NODES;
+            hashes[pos] = ConsistentHashRing.hash(name + "#" + point);
+            order[pos] = pos;
+        }
+
+        // Sort the points keeping track of their node. The ties are broken by the position, so the
+        // order does not depend on the sort
+        Arrays.sort(order, (a, b) -> {
+            int c = Long.compareUnsigned(hashes[a], hashes[b]);
+            return c != 0 ? c : Integer.compare(a, b);
+        });
+        this.points = new long[n];
+        this.owners = new int[n];
+        for (int k = 0; k < n; ++k) {
+            this.points[k] = hashes[order[k]];
+            this.owners[k] = order[k] / ConsistentHashRing.VIRTUAL_NODES;
+        }
+    }
+
+    /**
+     * 64-bit FNV-1a of the UTF-8 encoding of {@code key}, followed by the SplitMix64 finalizer to
+     * spread the short keys over the whole ring
+     *
+     * @param key The key
+     * @return The hash
+     */
+    public static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h = (h ^ (h >>> 30)) * 0xbf58476d1ce4e5b9L;
+        h = (h ^ (h >>> 27)) * 0x94d049bb133111ebL;
+        return h ^ (h >>> 31);
+    }
+
+    /**
+     * Returns the node that owns {@code key}
+     *
+     * @param key The key
+     * @return The index of the node in the list given to the constructor
+     */
+    public int node(String key) {
+        long h = ConsistentHashRing.hash(key);
+        // First point >= h, in unsigned order
+        int lo = 0, hi = this.points.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (Long.compareUnsigned(this.points[mid], h) < 0)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return this.owners[lo == this.points.length ? 0 : lo];
+    }
+}
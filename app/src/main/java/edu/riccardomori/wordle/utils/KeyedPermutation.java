@@ -0,0 +1,82 @@
+package edu.riccardomori.wordle.utils;
+
+// @formatter:off
+/**
+ * Pseudo-random permutation of [0, n) selected by a 64-bit key. The same (n, key) always gives
+ * the same permutation, and different keys give unrelated ones.
+ * It is a balanced Feistel network over the smallest domain of 2^(2 * halfBits) >= n elements,
+ * which is a bijection whatever the round function is. The values that fall outside [0, n) are
+ * encrypted again until they fall inside (cycle walking): since the domain is less than 4 times
+ * larger than n this takes less than 4 rounds on average, so {@code apply} is O(1) and needs no
+ * table. It is immutable and thread-safe.
+ * It is meant to shuffle, not to be a cipher.
+ */
+// @formatter:on
+public class KeyedPermutation {
+    private static final int ROUNDS = 4;
+
+    private final long n;
+    private final int halfBits;
+    private final long halfMask;
+    private final long[] roundKeys = new long[KeyedPermutation.ROUNDS];
+
+    /**
+     * @param n The size of the domain. It must be positive and less than 2^62
+     * @param key The key
+     */
+    public KeyedPermutation(long n, long key) {
+        if (n <= 0 || n >= (1L << 62))
+            throw new IllegalArgumentException("The size must be in (0, 2^62)");
+        this.n = n;
+        int bits = 64 - Long.numberOfLeadingZeros(Math.max(n - 1, 1));
+        this.halfBits = (bits + 1) / 2;
+        this.halfMask = (1L << this.halfBits) - 1;
+        long state = key;
+        for (int k = 0; k < KeyedPermutation.ROUNDS; ++k) {
+            state += 0x9e3779b97f4a7c15L;
+            this.roundKeys[k] = KeyedPermutation.mix(state);
+        }
+    }
+
+    /**
+     * The SplitMix64 finalizer
+     */
+    public static long mix(long x) {
+        x = (x ^ (x >>> 30)) * 0xbf58476d1ce4e5b9L;
+        x = (x ^ (x >>> 27)) * 0x94d049bb133111ebL;
+        return x ^ (x >>> 31);
+    }
+
+    public long size() {
+        return this.n;
+    }
+
+    /**
+     * Returns the image of {@code x}
+     *
+     * @param x A value in [0, n)
+     * @return The image, in [0, n)
+     */
+    public long apply(long x) {
+        if (x < 0 || x >= this.n)
+            throw new IndexOutOfBoundsException(x);
+        do {
+            x = this.encrypt(x);
+        } while (x >= this.n);
+        return x;
+    }
+
+    /**
+     * One pass of the Feistel network over the whole domain
+     */
+    private long encrypt(long x) {
+        long left = x >>> this.halfBits;
+        long right = x & this.halfMask;
+        for (long roundKey : this.roundKeys) {
+            long next = left ^ (KeyedPermutation.mix(right ^ roundKey) & this.halfMask);
+            left = right;
+            right = next;
+        }
+        return (left << this.halfBits) | right;
+    }
+}
@@ -0,0 +1,313 @@
+package edu.riccardomori.wordle.utils;
+
+import java.util.Arrays;
+
+// @formatter:off
+/**
+ * Ordered set of primitive longs with rank queries. The elements are stored in a list of sorted
+ * blocks of at most {@code BLOCK_SIZE} elements, like the leaves of a B+tree with a single index
+ * level: every block is a plain {@code long[]}, so there is no object per element and a search
+ * touches a few contiguous cache lines.
+ * The elements are in their natural order, or in the order given by an {@code Order}.
+ * With n elements and B = BLOCK_SIZE:
+ *    add, remove:  O(log n + B + n / B) worst case, dominated by the arraycopy inside one block
+ *    rank:         O(log n + n / B), the n / B term is a sequential scan of the block sizes
+ *    head(k):      O(log n + k)
+ * This class is not thread-safe.
+ */
+// @formatter:on
+public class SortedLongSet {
+    private static final int BLOCK_SIZE = 1024; // Must be even
+    private static final int INSERTION_SORT = 16; // Ranges sorted by insertion in sort
+
+    /**
+     * A total order of the elements
+     */
+    public interface Order {
+        /**
+         * @return A negative number, zero, or a positive number if {@code a} is smaller than, equal
+         *         to, or greater than {@code b}
+         */
+        int compare(long a, long b);
+    }
+
+    private final Order order;
+    private long[][] blocks = new long[0][]; // The blocks in order, only the first nBlocks used
+    private int[] sizes = new int[0]; // Number of elements in every block
+    private long[] mins = new long[0]; // Smallest element of every block
+    private int nBlocks = 0;
+    private int size = 0;
+
+    public SortedLongSet() {
+        this.order = Long::compare;
+    }
+
+    /**
+     * Build a set from the given elements in O(n log n). The array is sorted in place
+     *
+     * @param elements The elements. Duplicates are removed
+     */
+    public SortedLongSet(long[] elements) {
+        this(SortedLongSet.sorted(elements), Long::compare);
+    }
+
+    /**
+     * Build a set ordered by {@code order} from the given elements in O(n)
+     *
+     * @param elements The elements, sorted by {@code order}. Duplicates are removed
+     * @param order The order of the elements
+     */
+    public SortedLongSet(long[] elements, Order order) {
+        this.order = order;
+        // Fill the blocks half full, so that the first insertions do not split them
+        int half = SortedLongSet.BLOCK_SIZE / 2;
+        int k = 0;
+        while (k < elements.length) {
+            long[] block = new long[SortedLongSet.BLOCK_SIZE];
+            int n = 0;
+            for (; k < elements.length && n < half; ++k) {
+                if (k == 0 || order.compare(elements[k], elements[k - 1]) != 0)
+                    block[n++] = elements[k];
+            }
+            if (n > 0) {
+                this.insertBlock(this.nBlocks, block, n);
+                this.size += n;
+            }
+        }
+    }
+
+    private static long[] sorted(long[] elements) {
+        Arrays.sort(elements);
+        return elements;
+    }
+
+    /**
+     * Sort the elements of {@code a} in [{@code from}, {@code to}) by {@code order}, without
+     * boxing them. It is a merge sort, so it takes O(n log n) comparisons and a buffer of n
+     * elements, with n = to - from
+     *
+     * @param a The array, sorted in place
+     * @param from The first index, inclusive
+     * @param to The last index, exclusive
+     * @param order The order of the elements
+     */
+    public static void sort(long[] a, int from, int to, Order order) {
+        if (to - from > 1)
+            SortedLongSet.mergeSort(a, new long[to - from], from, from, to, order);
+    }
+
+    // Sort a[lo, hi), using tmp[lo - base, hi - base) as buffer
+    private static void mergeSort(long[] a, long[] tmp, int base, int lo, int hi, Order order) {
+        if (hi - lo <= SortedLongSet.INSERTION_SORT) {
+            for (int i = lo + 1; i < hi; ++i) {
+                long e = a[i];
+                int j = i - 1;
+                for (; j >= lo && order.compare(a[j], e) > 0; --j)
+                    a[j + 1] = a[j];
+                a[j + 1] = e;
+            }
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        SortedLongSet.mergeSort(a, tmp, base, lo, mid, order);
+        SortedLongSet.mergeSort(a, tmp, base, mid, hi, order);
+        if (order.compare(a[mid - 1], a[mid]) <= 0)
+            return; // The halves are already in order
+
+        System.arraycopy(a, lo, tmp, lo - base, hi - lo);
+        int i = lo - base, iEnd = mid - base;
+        int j = iEnd, jEnd = hi - base;
+        for (int k = lo; k < hi; ++k) {
+            if (j >= jEnd || (i < iEnd && order.compare(tmp[i], tmp[j]) <= 0))
+                a[k] = tmp[i++];
+            else
+                a[k] = tmp[j++];
+        }
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Add an element
+     *
+     * @param e The element
+     * @return True if the element was not already present
+     */
+    public boolean add(long e) {
+        if (this.nBlocks == 0)
+            this.insertBlock(0, new long[SortedLongSet.BLOCK_SIZE], 0);
+        int b = this.findBlock(e);
+        long[] block = this.blocks[b];
+        int n = this.sizes[b];
+        int pos = this.search(block, n, e);
+        if (pos >= 0)
+            return false;
+        pos = -pos - 1;
+
+        if (n == SortedLongSet.BLOCK_SIZE) { // Split the block in two halves
+            int half = SortedLongSet.BLOCK_SIZE / 2;
+            long[] right = new long[SortedLongSet.BLOCK_SIZE];
+            System.arraycopy(block, half, right, 0, half);
+            this.sizes[b] = half;
+            this.insertBlock(b + 1, right, half);
+            if (pos > half) {
+                b++;
+                pos -= half;
+            }
+            block = this.blocks[b];
+            n = half;
+        }
+
+        System.arraycopy(block, pos, block, pos + 1, n - pos);
+        block[pos] = e;
+        this.sizes[b]++;
+        this.mins[b] = block[0];
+        this.size++;
+        return true;
+    }
+
+    /**
+     * Remove an element
+     *
+     * @param e The element
+     * @return True if the element was present
+     */
+    public boolean remove(long e) {
+        if (this.nBlocks == 0)
+            return false;
+        int b = this.findBlock(e);
+        long[] block = this.blocks[b];
+        int n = this.sizes[b];
+        int pos = this.search(block, n, e);
+        if (pos < 0)
+            return false;
+
+        System.arraycopy(block, pos + 1, block, pos, n - pos - 1);
+        this.sizes[b]--;
+        this.size--;
+        if (this.sizes[b] == 0) {
+            this.removeBlock(b);
+        } else {
+            this.mins[b] = block[0];
+            // Merge the underfull blocks so that their number stays O(n / B)
+            if (b + 1 < this.nBlocks)
+                this.tryMerge(b);
+            else if (b > 0)
+                this.tryMerge(b - 1);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of elements strictly smaller than {@code e}
+     *
+     * @param e The element
+     * @return The rank of {@code e}, that is its position if it is in the set
+     */
+    public int rank(long e) {
+        if (this.nBlocks == 0)
+            return 0;
+        int b = this.findBlock(e);
+        int rank = 0;
+        for (int i = 0; i < b; ++i)
+            rank += this.sizes[i];
+        int pos = this.search(this.blocks[b], this.sizes[b], e);
+        return rank + (pos >= 0 ? pos : -pos - 1);
+    }
+
+    public boolean contains(long e) {
+        if (this.nBlocks == 0)
+            return false;
+        int b = this.findBlock(e);
+        return this.search(this.blocks[b], this.sizes[b], e) >= 0;
+    }
+
+    /**
+     * Returns the smallest {@code n} elements in order
+     *
+     * @param n The maximum number of elements
+     * @return A new array with {@code min(n, size)} elements
+     */
+    public long[] head(int n) {
+        long[] ret = new long[Math.min(n, this.size)];
+        int k = 0;
+        for (int b = 0; b < this.nBlocks && k < ret.length; ++b) {
+            int len = Math.min(this.sizes[b], ret.length - k);
+            System.arraycopy(this.blocks[b], 0, ret, k, len);
+            k += len;
+        }
+        return ret;
+    }
+
+    /**
+     * Returns all the elements in order
+     *
+     * @return A new array with all the elements
+     */
+    public long[] toArray() {
+        return this.head(this.size);
+    }
+
+    // Like Arrays.binarySearch on the first n elements of a, with the order of the set
+    private int search(long[] a, int n, long e) {
+        int lo = 0, hi = n - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int c = this.order.compare(a[mid], e);
+            if (c < 0)
+                lo = mid + 1;
+            else if (c > 0)
+                hi = mid - 1;
+            else
+                return mid;
+        }
+        return -(lo + 1);
+    }
+
+    // Index of the block that holds or would hold `e`: the last one whose minimum is <= e
+    private int findBlock(long e) {
+        if (this.nBlocks == 1) // Also the empty block of an empty set, which has no minimum
+            return 0;
+        int pos = this.search(this.mins, this.nBlocks, e);
+        if (pos >= 0)
+            return pos;
+        return Math.max(-pos - 2, 0);
+    }
+
+    // Merge the block b + 1 into b if together they fill at most half a block
+    private void tryMerge(int b) {
+        int n = this.sizes[b];
+        int m = this.sizes[b + 1];
+        if (n + m > SortedLongSet.BLOCK_SIZE / 2)
+            return;
+        System.arraycopy(this.blocks[b + 1], 0, this.blocks[b], n, m);
+        this.sizes[b] = n + m;
+        this.removeBlock(b + 1);
+    }
+
+    private void insertBlock(int b, long[] block, int n) {
+        if (this.nBlocks == this.blocks.length) {
+            int capacity = Math.max(8, this.nBlocks * 2);
+            this.blocks = Arrays.copyOf(this.blocks, capacity);
+            this.sizes = Arrays.copyOf(this.sizes, capacity);
+            this.mins = Arrays.copyOf(this.mins, capacity);
+        }
+        System.arraycopy(this.blocks, b, this.blocks, b + 1, this.nBlocks - b);
+        System.arraycopy(this.sizes, b, this.sizes, b + 1, this.nBlocks - b);
+        System.arraycopy(this.mins, b, this.mins, b + 1, this.nBlocks - b);
+        this.blocks[b] = block;
+        this.sizes[b] = n;
+        this.mins[b] = n > 0 ? block[0] : Long.MIN_VALUE;
+        this.nBlocks++;
+    }
+
+    private void removeBlock(int b) {
+        System.arraycopy(this.blocks, b + 1, this.blocks, b, this.nBlocks - b - 1);
+        System.arraycopy(this.sizes, b + 1, this.sizes, b, this.nBlocks - b - 1);
+        System.arraycopy(this.mins, b + 1, this.mins, b, this.nBlocks - b - 1);
+        this.nBlocks--;
+        this.blocks[this.nBlocks] = null;
+    }
+}
@@ -0,0 +1,98 @@
+package edu.riccardomori.wordle.utils;
+
+// @formatter:off
+/**
+ * Hash map from strings to non-negative ints with open addressing and linear probing. Keys and
+ * values live in two parallel arrays, so an entry costs a reference and an int instead of a
+ * {@code HashMap.Node} and a boxed {@code Integer}.
+ * Entries cannot be removed. This class is not thread-safe.
+ */
+// @formatter:on
+public class StringIntMap {
+    public static final int MISSING = -1; // Returned by get when the key is not present
+
+    private String[] keys;
+    private int[] values;
+    private int size = 0;
+
+    /**
+     * @param expected The expected number of entries
+     */
+    public StringIntMap(int expected) {
+        int capacity = 16;
+        while (capacity < expected * 2)
+            capacity <<= 1;
+        this.keys = new String[capacity];
+        this.values = new int[capacity];
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns the value of {@code key}
+     *
+     * @param key The key
+     * @return The value or {@code MISSING}
+     */
+    public int get(String key) {
+        int mask = this.keys.length - 1;
+        for (int i = StringIntMap.hash(key) & mask;; i = (i + 1) & mask) {
+            String k = this.keys[i];
+            if (k == null)
+                return StringIntMap.MISSING;
+            if (k.equals(key))
+                return this.values[i];
+        }
+    }
+
+    /**
+     * Associate {@code value} to {@code key}, replacing the previous value
+     *
+     * @param key The key
+     * @param value The value. It must be non-negative
+     */
+    public void put(String key, int value) {
+        if (value < 0)
+            throw new IllegalArgumentException("The value must be non-negative");
+        // Keep the load factor at most 1/2
+        if (2 * (this.size + 1) > this.keys.length)
+            this.resize(this.keys.length * 2);
+
+        int mask = this.keys.length - 1;
+        int i = StringIntMap.hash(key) & mask;
+        for (; this.keys[i] != null; i = (i + 1) & mask) {
+            if (this.keys[i].equals(key)) {
+                this.values[i] = value;
+                return;
+            }
+        }
+        this.keys[i] = key;
+        this.values[i] = value;
+        this.size++;
+    }
+
+    // Spread the bits of String.hashCode, which is cached by the string
+    private static int hash(String key) {
+        int h = key.hashCode() * 0x9e3779b9;
+        return h ^ (h >>> 16);
+    }
+
+    private void resize(int capacity) {
+        String[] oldKeys = this.keys;
+        int[] oldValues = this.values;
+        this.keys = new String[capacity];
+        this.values = new int[capacity];
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; ++j) {
+            if (oldKeys[j] == null)
+                continue;
+            int i = StringIntMap.hash(oldKeys[j]) & mask;
+            while (this.keys[i] != null)
+                i = (i + 1) & mask;
+            this.keys[i] = oldKeys[j];
+            this.values[i] = oldValues[j];
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package edu.riccardomori.wordle.utils;
+
+import java.util.function.LongSupplier;
+
+// @formatter:off
+/**
+ * Hierarchical timing wheel. Scheduling, rescheduling and cancelling a timeout are O(1), which
+ * makes it suitable for tracking one timeout per connection.
+ * The time is divided in ticks. Level 0 has one slot per tick, every next level has slots that
+ * are {@code SLOTS} times larger. A timeout is stored in the lowest level that can hold it and it
+ * is moved down (cascaded) when the lower levels wrap around, until it fires from level 0.
+ * With {@code LEVELS} levels of {@code SLOTS} slots the wheel spans SLOTS^LEVELS ticks: longer
+ * delays are clamped.
+ * The timeouts fire at most one tick late. This class is not thread-safe, it is meant to be
+ * owned by the selector thread.
+ */
+// @formatter:on
+public class TimingWheel {
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << TimingWheel.BITS;
+    private static final int MASK = TimingWheel.SLOTS - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_TICKS = 1L << (TimingWheel.BITS * TimingWheel.LEVELS);
+
+    /**
+     * A timeout that can be scheduled on the wheel. The same object can be rescheduled any number
+     * of times
+     */
+    public static class Timeout {
+        private final Runnable task;
+        private long deadline; // The tick when the timeout fires
+        private Timeout prev;
+        private Timeout next;
+        private boolean scheduled = false;
+
+        /**
+         * @param task The task run when the timeout fires
+         */
+        public Timeout(Runnable task) {
+            this.task = task;
+        }
+
+        public boolean isScheduled() {
+            return this.scheduled;
+        }
+    }
+
+    private final long tickNanos;
+    private final LongSupplier clock; // Time source in nanoseconds
+    private final long startNanos;
+    private long currentTick = 0;
+    private int size = 0;
+    // Circular doubly linked lists with a sentinel node, one for every slot
+    private final Timeout[][] slots = new Timeout[TimingWheel.LEVELS][TimingWheel.SLOTS];
+
+    /**
+     * @param tickMillis The duration of a tick in milliseconds
+     */
+    public TimingWheel(long tickMillis) {
+        this(tickMillis, System::nanoTime);
+    }
+
+    /**
+     * @param tickMillis The duration of a tick in milliseconds
+     * @param clock The time source in nanoseconds, like {@code System.nanoTime}
+     */
+    TimingWheel(long tickMillis, LongSupplier clock) {
+        this.tickNanos = tickMillis * 1000000;
+        this.clock = clock;
+        this.startNanos = clock.getAsLong();
+        for (int level = 0; level < TimingWheel.LEVELS; ++level) {
+            for (int slot = 0; slot < TimingWheel.SLOTS; ++slot) {
+                Timeout sentinel = new Timeout(null);
+                sentinel.prev = sentinel;
+                sentinel.next = sentinel;
+                this.slots[level][slot] = sentinel;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of scheduled timeouts
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns the duration of a tick in milliseconds
+     */
+    public long getTickMillis() {
+        return this.tickNanos / 1000000;
+    }
+
+    /**
+     * Returns the tick of the current time
+     */
+    private long nowTick() {
+        return (this.clock.getAsLong() - this.startNanos) / this.tickNanos;
+    }
+
+    /**
+     * Link the timeout in the slot that holds its deadline
+     */
+    private void insert(Timeout timeout) {
+        long delta = Math.max(timeout.deadline - this.currentTick, 1);
+        int level = (Long.SIZE - 1 - Long.numberOfLeadingZeros(delta)) / TimingWheel.BITS;
+        int slot = (int) (timeout.deadline >>> (TimingWheel.BITS * level)) & TimingWheel.MASK;
+
+        Timeout sentinel = this.slots[level][slot];
+        timeout.prev = sentinel.prev;
+        timeout.next = sentinel;
+        sentinel.prev.next = timeout;
+        sentinel.prev = timeout;
+    }
+
+    /**
+     * Unlink the timeout from its slot
+     */
+    private static void unlink(Timeout timeout) {
+        timeout.prev.next = timeout.next;
+        timeout.next.prev = timeout.prev;
+        timeout.prev = null;
+        timeout.next = null;
+    }
+
+    /**
+     * Schedule {@code timeout} to fire after {@code delayMillis}. If it was already scheduled it
+     * is rescheduled
+     *
+     * @param timeout The timeout
+     * @param delayMillis The delay in milliseconds
+     */
+    public void schedule(Timeout timeout, long delayMillis) {
+        this.cancel(timeout);
+        // An empty wheel is not advanced, so bring it up to date first
+        if (this.size == 0)
+            this.advance();
+
+        // Clamp the delay before converting it, or a long one overflows
+        long delayNanos =
+                Math.min(delayMillis, TimingWheel.MAX_TICKS * this.getTickMillis()) * 1000000;
+        long ticks = (delayNanos + this.tickNanos - 1) / this.tickNanos;
+        ticks = Math.min(Math.max(ticks, 1), TimingWheel.MAX_TICKS - 1);
+        // The wheel is behind the current time until the next advance, for example while the
+        // selector loop is busy: the delay counts from now, not from the last tick processed
+        timeout.deadline =
+                Math.min(this.nowTick() + ticks, this.currentTick + TimingWheel.MAX_TICKS - 1);
+        timeout.scheduled = true;
+        this.insert(timeout);
+        this.size++;
+    }
+
+    /**
+     * Cancel {@code timeout}. Nothing happens if it is not scheduled
+     *
+     * @param timeout The timeout
+     */
+    public void cancel(Timeout timeout) {
+        if (!timeout.scheduled)
+            return;
+        TimingWheel.unlink(timeout);
+        timeout.scheduled = false;
+        this.size--;
+    }
+
+    /**
+     * Advance the wheel up to the current time and run the tasks of the expired timeouts
+     *
+     * @return The number of timeouts that fired
+     */
+    public int advance() {
+        long target = this.nowTick();
+        if (this.size == 0) {
+            this.currentTick = Math.max(this.currentTick, target);
+            return 0;
+        }
+
+        int fired = 0;
+        while (this.currentTick < target) {
+            this.currentTick++;
+
+            // Cascade the higher levels whose lower levels just wrapped around
+            for (int level = 1; level < TimingWheel.LEVELS; ++level) {
+                if ((this.currentTick & ((1L << (TimingWheel.BITS * level)) - 1)) != 0)
+                    break;
+                int slot = (int) (this.currentTick >>> (TimingWheel.BITS * level))
+                        & TimingWheel.MASK;
+                Timeout sentinel = this.slots[level][slot];
+                while (sentinel.next != sentinel) {
+                    Timeout timeout = sentinel.next;
+                    TimingWheel.unlink(timeout);
+                    this.insert(timeout);
+                }
+            }
+
+            // Fire the current slot. The tasks might schedule or cancel other timeouts
+            Timeout sentinel = this.slots[0][(int) (this.currentTick & TimingWheel.MASK)];
+            while (sentinel.next != sentinel) {
+                Timeout timeout = sentinel.next;
+                this.cancel(timeout);
+                timeout.task.run();
+                fired++;
+            }
+        }
+
+        return fired;
+    }
+}
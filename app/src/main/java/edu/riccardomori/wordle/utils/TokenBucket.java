@@ -0,0 +1,50 @@
+package edu.riccardomori.wordle.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// @formatter:off
+/**
+ * Lock-free token bucket. It holds at most {@code burst} tokens and it is refilled at {@code rate}
+ * tokens per second.
+ * The bucket is implemented as a generic cell rate algorithm: instead of counting the tokens it
+ * keeps the time when the bucket will be full again, so that taking a token is a single CAS on
+ * one long. It is thread-safe.
+ */
+// @formatter:on
+public class TokenBucket {
+    private final long interval; // Nanoseconds needed to refill one token
+    private final long capacity; // Nanoseconds needed to refill the whole bucket
+    // The time when the bucket will be full again. The bucket is full if it is in the past
+    private final AtomicLong fullAt;
+
+    /**
+     * Create a full bucket
+     *
+     * @param rate The refill rate in tokens per second. It must be positive
+     * @param burst The maximum number of tokens. It must be positive
+     */
+    public TokenBucket(double rate, int burst) {
+        if (rate <= 0 || burst <= 0)
+            throw new IllegalArgumentException("The rate and the burst must be positive");
+        this.interval = Math.max((long) (1e9 / rate), 1);
+        this.capacity = this.interval * burst;
+        this.fullAt = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Take a token if there is one available. It never blocks
+     *
+     * @return True if the token has been taken, false if the bucket is empty
+     */
+    public boolean tryAcquire() {
+        long now = System.nanoTime();
+        while (true) {
+            long fullAt = this.fullAt.get();
+            long next = (fullAt - now < 0 ? now : fullAt) + this.interval;
+            if (next - now > this.capacity)
+                return false;
+            if (this.fullAt.compareAndSet(fullAt, next))
+                return true;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package edu.riccardomori.wordle.client.backend;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import java.util.List;
+import org.junit.Test;
+import edu.riccardomori.wordle.protocol.LeaderboardWindow;
+import edu.riccardomori.wordle.rmi.LeaderboardDelta;
+import edu.riccardomori.wordle.utils.Pair;
+
+public class LeaderboardMirrorTest {
+    private static LeaderboardDelta snapshot(long epoch, long version, String... usernames) {
+        int[] ranks = new int[usernames.length];
+        double[] scores = new double[usernames.length];
+        for (int k = 0; k < usernames.length; ++k) {
+            ranks[k] = k;
+            scores[k] = k + 1;
+        }
+        return new LeaderboardDelta(LeaderboardWindow.ALL_TIME, epoch, version, -1,
+                usernames.length, ranks, usernames, scores);
+    }
+
+    private static LeaderboardDelta delta(long epoch, long version, int size, int rank,
+            String username) {
+        return new LeaderboardDelta(LeaderboardWindow.ALL_TIME, epoch, version, version - 1, size,
+                new int[] {rank}, new String[] {username}, new double[] {rank + 1});
+    }
+
+    private static String first(LeaderboardMirror mirror) {
+        List<Pair<String, Double>> top = mirror.get();
+        return top.get(0).first;
+    }
+
+    @Test
+    public void appliesTheDeltasInOrder() {
+        LeaderboardMirror mirror = new LeaderboardMirror();
+        assertNull(mirror.get());
+        assertFalse(mirror.apply(LeaderboardMirrorTest.delta(1, 1, 1, 0, "a")));
+
+        assertTrue(mirror.apply(LeaderboardMirrorTest.snapshot(1, 0, "a", "b")));
+        assertTrue(mirror.apply(LeaderboardMirrorTest.delta(1, 1, 2, 0, "c")));
+        assertEquals("c", LeaderboardMirrorTest.first(mirror));
+        // A stale delta is ignored, a missed one needs a resync
+        assertTrue(mirror.apply(LeaderboardMirrorTest.delta(1, 1, 2, 0, "d")));
+        assertEquals("c", LeaderboardMirrorTest.first(mirror));
+        assertFalse(mirror.apply(LeaderboardMirrorTest.delta(1, 3, 2, 0, "d")));
+        // A stale snapshot is ignored
+        assertTrue(mirror.apply(LeaderboardMirrorTest.snapshot(1, 0, "x")));
+        assertEquals(2, mirror.get().size());
+    }
+
+    @Test
+    public void resyncsWhenTheEpochChanges() {
+        LeaderboardMirror mirror = new LeaderboardMirror();
+        assertTrue(mirror.apply(LeaderboardMirrorTest.snapshot(1, 5, "a", "b")));
+
+        // The server restarted: its versions start over, so even a matching base is unrelated
+        assertFalse(mirror.apply(LeaderboardMirrorTest.delta(2, 6, 2, 0, "c")));
+        assertFalse(mirror.apply(LeaderboardMirrorTest.delta(2, 1, 2, 0, "c")));
+        assertEquals("a", LeaderboardMirrorTest.first(mirror));
+
+        // Its snapshot is applied even if its version is lower
+        assertTrue(mirror.apply(LeaderboardMirrorTest.snapshot(2, 0, "c")));
+        assertEquals("c", LeaderboardMirrorTest.first(mirror));
+        assertTrue(mirror.apply(LeaderboardMirrorTest.delta(2, 1, 1, 0, "d")));
+        assertEquals("d", LeaderboardMirrorTest.first(mirror));
+    }
+}
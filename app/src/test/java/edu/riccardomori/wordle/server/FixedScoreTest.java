@@ -0,0 +1,60 @@
+package edu.riccardomori.wordle.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class FixedScoreTest {
+    private static User player(String username) {
+        User user = new User(username, "hash");
+        UserSession session = new UserSession();
+        session.secretWord = "abcde";
+        user.setSession(session);
+        return user;
+    }
+
+    @Test
+    public void noGamesHasNoScore() {
+        assertEquals(Leaderboard.NO_SCORE, Leaderboard.fixedScore(0, 0));
+        assertTrue(Double.isNaN(Leaderboard.toScore(Leaderboard.NO_SCORE)));
+        assertEquals(Leaderboard.NO_SCORE, FixedScoreTest.player("a").fixedScore());
+    }
+
+    @Test
+    public void scoreIsScaledAndRoundedDown() {
+        assertEquals(2 * Leaderboard.SCORE_SCALE, Leaderboard.fixedScore(4, 2));
+        assertEquals(Leaderboard.SCORE_SCALE * 10 / 3, Leaderboard.fixedScore(10, 3));
+        assertEquals(3333333, Leaderboard.fixedScore(10, 3));
+        assertEquals(10.0 / 3, Leaderboard.toScore(Leaderboard.fixedScore(10, 3)), 1e-6);
+    }
+
+    @Test
+    public void worstScoreFitsAnInt() {
+        int games = Integer.MAX_VALUE;
+        long triesSum = (long) games * (WordleServer.WORD_TRIES + 1);
+        assertEquals((WordleServer.WORD_TRIES + 1) * Leaderboard.SCORE_SCALE,
+                Leaderboard.fixedScore(triesSum, games));
+        assertTrue(Leaderboard.fixedScore(triesSum, games) < Leaderboard.NO_SCORE);
+    }
+
+    @Test
+    public void userKeepsTheRunningSum() {
+        User user = FixedScoreTest.player("a");
+        user.winGame(2);
+        user.winGame(5);
+        user.loseGame(); // Counts WORD_TRIES + 1
+        long triesSum = 2 + 5 + WordleServer.WORD_TRIES + 1;
+        assertEquals(Leaderboard.fixedScore(triesSum, 3), user.fixedScore());
+        assertEquals((double) triesSum / 3, user.score(), 1e-9);
+    }
+
+    @Test
+    public void restoredUserRebuildsTheSum() {
+        int[] guessDist = new int[WordleServer.WORD_TRIES + 1];
+        guessDist[2] = 3;
+        guessDist[4] = 1;
+        User user = new User("a", null, "hash", guessDist, null, null, 6, 4, 0, 2);
+        long triesSum = 3 * 2 + 4 + 2 * (WordleServer.WORD_TRIES + 1);
+        assertEquals(Leaderboard.fixedScore(triesSum, 6), user.fixedScore());
+    }
+}
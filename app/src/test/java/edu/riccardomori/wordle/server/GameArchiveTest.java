@@ -0,0 +1,124 @@
+package edu.riccardomori.wordle.server;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class GameArchiveTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static byte[] game(long gameId, int tries) {
+        return PackedGame.pack(new GameDescriptor(gameId, tries, WordleServer.WORD_TRIES, 5,
+                new int[][] {{0, 1}}, new int[][] {{2}}));
+    }
+
+    @Test
+    public void appendAndLookup() throws IOException {
+        GameArchive archive = new GameArchive(this.folder.getRoot().toPath());
+        assertEquals(0, archive.append("alice", GameArchiveTest.game(1, 1)));
+        assertEquals(1, archive.append("bob", GameArchiveTest.game(1, -1)));
+        assertEquals(2, archive.append("alice", GameArchiveTest.game(3, 2)));
+        assertEquals(3, archive.size());
+
+        assertArrayEquals(GameArchiveTest.game(3, 2), archive.get("alice", 3));
+        assertArrayEquals(GameArchiveTest.game(1, -1), archive.get("bob", 1));
+        assertNull(archive.get("alice", 2));
+        assertNull(archive.get("carol", 1));
+        assertEquals(2, archive.count("alice"));
+        assertEquals(0, archive.count("carol"));
+
+        List<byte[]> history = archive.history("alice", 0, 10);
+        assertEquals(2, history.size());
+        assertEquals(3, PackedGame.gameId(history.get(0)));
+        assertEquals(1, PackedGame.gameId(history.get(1)));
+        assertEquals(1, archive.history("alice", 1, 10).size());
+    }
+
+    @Test
+    public void lookupGamesArchivedOutOfOrder() throws IOException {
+        // The clock went back: a game with a lower ID is archived after a later one
+        GameArchive archive = new GameArchive(this.folder.getRoot().toPath());
+        for (long gameId : new long[] {10, 20, 5, 30})
+            archive.append("alice", GameArchiveTest.game(gameId, 1));
+        for (long gameId : new long[] {5, 10, 20, 30})
+            assertEquals(gameId, PackedGame.gameId(archive.get("alice", gameId)));
+        assertNull(archive.get("alice", 15));
+    }
+
+    @Test
+    public void cursorReadsInOrder() throws IOException {
+        GameArchive archive = new GameArchive(this.folder.getRoot().toPath());
+        for (int k = 0; k < 10; ++k)
+            archive.append("user" + k, GameArchiveTest.game(k, 1));
+        GameArchive.Cursor cursor = archive.cursor(4);
+        for (int k = 4; k < 10; ++k) {
+            GameArchive.Entry entry = cursor.next();
+            assertEquals("user" + k, entry.username);
+            assertEquals(k, PackedGame.gameId(entry.game));
+        }
+        assertNull(cursor.next());
+        // It sees the later appends
+        archive.append("late", GameArchiveTest.game(10, 1));
+        assertEquals("late", cursor.next().username);
+    }
+
+    @Test
+    public void reopenRebuildsTheIndex() throws IOException {
+        Path dir = this.folder.getRoot().toPath();
+        GameArchive archive = new GameArchive(dir);
+        archive.append("alice", GameArchiveTest.game(1, 1));
+        archive.append("bob", GameArchiveTest.game(1, 2));
+        archive.append("alice", GameArchiveTest.game(2, 3));
+        archive.force();
+
+        GameArchive reopened = new GameArchive(dir);
+        assertEquals(3, reopened.size());
+        assertEquals(2, reopened.count("alice"));
+        assertArrayEquals(GameArchiveTest.game(2, 3), reopened.get("alice", 2));
+        assertEquals(3, reopened.append("bob", GameArchiveTest.game(2, 1)));
+        assertEquals(4, new GameArchive(dir).size());
+    }
+
+    @Test
+    public void reopenSkipsTheUnusedNextSegment() throws IOException {
+        Path dir = this.folder.getRoot().toPath();
+        GameArchive archive = new GameArchive(dir);
+        // Fill the first segment until the next one is mapped in advance
+        Path next = dir.resolve("games-000001.seg");
+        long n = 0;
+        while (!Files.exists(next))
+            archive.append("user" + (n % 1000), GameArchiveTest.game(n++, 1));
+        assertEquals(1, archive.segmentCount());
+
+        // The appends after a restart continue in the first segment
+        GameArchive reopened = new GameArchive(dir);
+        assertEquals(1, reopened.segmentCount());
+        assertEquals(n, reopened.size());
+        assertEquals(n, reopened.append("alice", GameArchiveTest.game(n, 1)));
+        assertEquals(1, reopened.segmentCount());
+        assertEquals(n + 1, new GameArchive(dir).size());
+    }
+
+    @Test
+    public void cursorFromGameStartsAtTheRightSegment() throws IOException {
+        GameArchive archive = new GameArchive(this.folder.getRoot().toPath());
+        long n = 0;
+        while (archive.segmentCount() < 2)
+            archive.append("user" + (n % 1000), GameArchiveTest.game(n++, 1));
+        long firstOfSecond = n - 1; // The game that opened the second segment
+        archive.append("user", GameArchiveTest.game(n, 1));
+
+        assertEquals(0, PackedGame.gameId(archive.cursorFromGame(5).next().game));
+        assertEquals(0, PackedGame.gameId(archive.cursorFromGame(firstOfSecond).next().game));
+        assertEquals(firstOfSecond,
+                PackedGame.gameId(archive.cursorFromGame(firstOfSecond + 1).next().game));
+    }
+}
@@ -0,0 +1,45 @@
+package edu.riccardomori.wordle.server;
+
+import static org.junit.Assert.assertEquals;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import edu.riccardomori.wordle.utils.Pair;
+
+public class LeaderboardTest {
+    private static List<String> names(List<Pair<String, Double>> ranking) {
+        List<String> ret = new ArrayList<>();
+        for (Pair<String, Double> entry : ranking)
+            ret.add(entry.first);
+        return ret;
+    }
+
+    @Test
+    public void equalScoresAreOrderedByUsername() {
+        String[] usernames = {"dave", "bob", "erin", "alice", "carol"};
+        int[] scores = {2, 1, 1, Leaderboard.NO_SCORE, 2};
+        Leaderboard leaderboard = new Leaderboard(usernames, scores);
+        assertEquals(List.of("bob", "erin", "carol", "dave", "alice"),
+                LeaderboardTest.names(leaderboard.get()));
+        assertEquals(2, leaderboard.getRank("carol"));
+    }
+
+    @Test
+    public void buildMatchesTheUpdates() {
+        // Few distinct scores, so most of the users are in long runs of equal scores
+        Random random = new Random(1);
+        int n = 5000;
+        String[] usernames = new String[n];
+        int[] scores = new int[n];
+        Leaderboard updated = new Leaderboard(new String[0], new int[0]);
+        for (int k = 0; k < n; ++k) {
+            usernames[k] = "user" + random.nextInt(1000000) + "_" + k;
+            scores[k] = random.nextInt(4) == 0 ? Leaderboard.NO_SCORE
+                    : Leaderboard.SCORE_SCALE * (1 + random.nextInt(5));
+            updated.update(usernames[k], scores[k]);
+        }
+        Leaderboard built = new Leaderboard(usernames, scores);
+        assertEquals(LeaderboardTest.names(updated.get()), LeaderboardTest.names(built.get()));
+    }
+}
@@ -0,0 +1,110 @@
+package edu.riccardomori.wordle.server;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import java.nio.ByteBuffer;
+import java.util.List;
+import org.junit.Test;
+
+public class PackedGameTest {
+    private static GameDescriptor game(long gameId, int tries, int wordLen, int[][] correct,
+            int[][] partial) {
+        return new GameDescriptor(gameId, tries, WordleServer.WORD_TRIES, wordLen, correct,
+                partial);
+    }
+
+    private static void assertSameGame(GameDescriptor expected, GameDescriptor actual) {
+        assertEquals(expected.gameId, actual.gameId);
+        assertEquals(expected.tries, actual.tries);
+        assertEquals(expected.maxTries, actual.maxTries);
+        assertEquals(expected.wordLen, actual.wordLen);
+        assertEquals(expected.correct.length, actual.correct.length);
+        for (int k = 0; k < expected.correct.length; ++k) {
+            assertArrayEquals(expected.correct[k], actual.correct[k]);
+            assertArrayEquals(expected.partial[k], actual.partial[k]);
+        }
+    }
+
+    @Test
+    public void roundTrip() {
+        GameDescriptor won = PackedGameTest.game(123456789012L, 3, 10,
+                new int[][] {{}, {0, 4}, {0, 1, 2, 3, 4, 5, 6, 7, 8, 9}},
+                new int[][] {{1, 9}, {2}, {}});
+        assertSameGame(won, PackedGame.unpack(PackedGame.pack(won)));
+    }
+
+    @Test
+    public void lostGameKeepsNegativeTries() {
+        int rounds = WordleServer.WORD_TRIES;
+        int[][] correct = new int[rounds][];
+        int[][] partial = new int[rounds][];
+        for (int k = 0; k < rounds; ++k) {
+            correct[k] = new int[] {k % 5};
+            partial[k] = new int[] {};
+        }
+        GameDescriptor lost = PackedGameTest.game(7, -1, 5, correct, partial);
+        byte[] packed = PackedGame.pack(lost);
+        assertEquals(-1, PackedGame.tries(packed));
+        assertEquals(rounds, PackedGame.rounds(packed));
+        assertSameGame(lost, PackedGame.unpack(packed));
+    }
+
+    @Test
+    public void masksSpanSeveralBytes() {
+        int wordLen = WordleServer.WORD_MAX_SIZE;
+        GameDescriptor game = PackedGameTest.game(-5, 1, wordLen,
+                new int[][] {{0, 7, 8, 15, 16, 31, 32, 47}}, new int[][] {{1, 23, 40, 46}});
+        byte[] packed = PackedGame.pack(game);
+        assertEquals(1L | 1L << 7 | 1L << 8 | 1L << 15 | 1L << 16 | 1L << 31 | 1L << 32
+                | 1L << 47, PackedGame.correctMask(packed, 0));
+        assertSameGame(game, PackedGame.unpack(packed));
+    }
+
+    @Test
+    public void packsASession() {
+        UserSession session = new UserSession();
+        session.secretWord = "abcde";
+        session.gameId = 42;
+        session.addHint("axcxa"); // correct 0, 2; no partial left for the second a
+        session.addHint("edcba"); // correct 2; partial 0, 1, 3, 4
+        byte[] packed = PackedGame.pack(session, 2);
+        assertEquals(42, PackedGame.gameId(packed));
+        assertEquals(2, PackedGame.tries(packed));
+        assertEquals(5, PackedGame.wordLen(packed));
+        assertEquals(0b101, PackedGame.correctMask(packed, 0));
+        assertEquals(0, PackedGame.partialMask(packed, 0));
+        assertEquals(0b100, PackedGame.correctMask(packed, 1));
+        assertEquals(0b11011, PackedGame.partialMask(packed, 1));
+        assertEquals(List.of(0, 2), session.correctHints.get(0));
+    }
+
+    @Test
+    public void encodeMatchesTheProtocol() {
+        GameDescriptor game = PackedGameTest.game(99, 2, 5, new int[][] {{1}, {0, 1, 2, 3, 4}},
+                new int[][] {{0, 3}, {}});
+        byte[] packed = PackedGame.pack(game);
+        ByteBuffer msg = ByteBuffer.allocate(PackedGame.encodedSize(packed));
+        PackedGame.encode(packed, msg);
+        assertEquals(0, msg.remaining());
+        msg.flip();
+        assertEquals(99, msg.getLong());
+        assertEquals(2, msg.get());
+        assertEquals(WordleServer.WORD_TRIES, msg.get());
+        assertEquals(5, msg.get());
+        assertEquals(2, msg.get());
+        assertArrayEquals(new byte[] {1, 2, 1, 0, 3}, PackedGameTest.next(msg, 5));
+        assertArrayEquals(new byte[] {5, 0, 0, 1, 2, 3, 4}, PackedGameTest.next(msg, 7));
+    }
+
+    private static byte[] next(ByteBuffer msg, int n) {
+        byte[] ret = new byte[n];
+        msg.get(ret);
+        return ret;
+    }
+
+    @Test
+    public void positionsAreSorted() {
+        assertArrayEquals(new int[] {0, 3, 63}, PackedGame.positions(1L | 1L << 3 | 1L << 63));
+        assertArrayEquals(new int[] {}, PackedGame.positions(0));
+    }
+}
@@ -0,0 +1,139 @@
+package edu.riccardomori.wordle.server;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Map;
+import org.junit.Test;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+public class UserCodecTest {
+    private static String write(User... users) throws IOException {
+        StringWriter out = new StringWriter();
+        try (JsonWriter writer = new JsonWriter(out)) {
+            writer.beginObject();
+            for (User user : users) {
+                writer.name(user.getUsername());
+                UserCodec.writeUser(writer, user);
+            }
+            writer.endObject();
+        }
+        return out.toString();
+    }
+
+    private static Map<String, User> read(String json) throws IOException {
+        try (JsonReader reader = new JsonReader(new StringReader(json))) {
+            return UserCodec.readUsers(reader);
+        }
+    }
+
+    private static void assertSameUser(User expected, User actual) {
+        assertEquals(expected.getUsername(), actual.getUsername());
+        assertEquals(expected.getPasswordHash(), actual.getPasswordHash());
+        assertEquals(expected.getLegacyPassword(), actual.getLegacyPassword());
+        assertArrayEquals(expected.rawGuessDist(), actual.rawGuessDist());
+        assertArrayEquals(expected.rawLastGame(), actual.rawLastGame());
+        assertEquals(expected.getTotGames(), actual.getTotGames());
+        assertEquals(expected.getWonGames(), actual.getWonGames());
+        assertEquals(expected.getCurrStreak(), actual.getCurrStreak());
+        assertEquals(expected.getBestStreak(), actual.getBestStreak());
+        assertEquals(expected.fixedScore(), actual.fixedScore());
+    }
+
+    @Test
+    public void roundTripsAUserWithGames() throws IOException {
+        User user = new User("alice", "pbkdf2$1$salt$hash");
+        UserSession session = new UserSession();
+        session.secretWord = "abcde";
+        session.gameId = 10;
+        session.addHint("edcba");
+        session.addHint("abcde");
+        user.setSession(session);
+        user.winGame(2);
+        session.gameId = 11;
+        session.resetHints();
+        session.addHint("xxxxx");
+        user.loseGame();
+
+        User read = UserCodecTest.read(UserCodecTest.write(user)).get("alice");
+        UserCodecTest.assertSameUser(user, read);
+        assertEquals(11, read.getLastGame().gameId);
+        assertEquals(-1, read.getLastGame().tries);
+    }
+
+    @Test
+    public void roundTripsACheckpoint() throws IOException {
+        User user = new User("bob", "hash");
+        UserSession session = new UserSession();
+        session.secretWord = "abcde";
+        session.gameId = 12;
+        session.triesLeft = WordleServer.WORD_TRIES - 1;
+        session.addHint("edcba");
+        user.setSession(session);
+        user.checkpointGame();
+
+        User read = UserCodecTest.read(UserCodecTest.write(user)).get("bob");
+        UserCodecTest.assertSameUser(user, read);
+        GameCheckpoint checkpoint = read.getCheckpoint();
+        assertEquals(12, checkpoint.gameId());
+        assertEquals(WordleServer.WORD_TRIES - 1, checkpoint.triesLeft());
+        assertArrayEquals(user.getCheckpoint().game, checkpoint.game);
+        // The secret word is never written
+        assertFalse(UserCodecTest.write(user).contains("abcde"));
+
+        UserSession restored = new UserSession();
+        checkpoint.restore(restored, "abcde");
+        assertEquals("abcde", restored.secretWord);
+        assertEquals(12, restored.gameId);
+        assertEquals(session.correctHints, restored.correctHints);
+        assertEquals(session.partialHints, restored.partialHints);
+    }
+
+    @Test
+    public void readsALegacyCheckpoint() throws IOException {
+        String json = "{\"dave\": {\"username\": \"dave\", \"passwordHash\": \"hash\", "
+                + "\"currentGame\": {\"secretWord\": \"abcde\", \"gameId\": 7, "
+                + "\"triesLeft\": 11, \"correct\": [[0]], \"partial\": [[]]}}}";
+        GameCheckpoint checkpoint = UserCodecTest.read(json).get("dave").getCheckpoint();
+        assertEquals(7, checkpoint.gameId());
+        assertEquals(11, checkpoint.triesLeft());
+        assertEquals(5, PackedGame.wordLen(checkpoint.game));
+    }
+
+    @Test
+    public void roundTripsALegacyAccount() throws IOException {
+        User user = new User("carol", "plain", null, new int[WordleServer.WORD_TRIES + 1], null,
+                null, 0, 0, 0, 0);
+        User read = UserCodecTest.read(UserCodecTest.write(user)).get("carol");
+        UserCodecTest.assertSameUser(user, read);
+        assertNull(read.getPasswordHash());
+        assertNull(read.getLastGame());
+        assertNull(read.getCheckpoint());
+    }
+
+    @Test
+    public void readsTheReflectionFormat() throws IOException {
+        // The format written by Gson before the codec, with the hints as int arrays
+        String json = "{\"dave\": {\"username\": \"dave\", \"passwordHash\": \"h\", "
+                + "\"guessDist\": [0, 1, 0], \"lastGame\": {\"gameId\": 3, \"tries\": 1, "
+                + "\"maxTries\": 12, \"wordLen\": 5, \"correct\": [[0, 1, 2, 3, 4]], "
+                + "\"partial\": [[]]}, \"totGames\": 1, \"wonGames\": 1, \"currStreak\": 1, "
+                + "\"bestStreak\": 1, \"unknownField\": [1, 2]}}";
+        User read = UserCodecTest.read(json).get("dave");
+        assertEquals(WordleServer.WORD_TRIES + 1, read.rawGuessDist().length);
+        assertEquals(1, read.rawGuessDist()[1]);
+        assertEquals(3, read.getLastGame().gameId);
+        assertArrayEquals(new int[] {0, 1, 2, 3, 4}, read.getLastGame().correct[0]);
+        assertEquals(Leaderboard.SCORE_SCALE, read.fixedScore());
+    }
+
+    @Test
+    public void readsNullAsNoUsers() throws IOException {
+        assertEquals(0, UserCodecTest.read("null").size());
+    }
+}
@@ -0,0 +1,68 @@
+package edu.riccardomori.wordle.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.util.List;
+import org.junit.Test;
+
+public class ConsistentHashRingTest {
+    private static final int KEYS = 100000;
+
+    @Test
+    public void sameNodesSameOwners() {
+        ConsistentHashRing a = new ConsistentHashRing(List.of("a:1", "b:2", "c:3"));
+        ConsistentHashRing b = new ConsistentHashRing(List.of("a:1", "b:2", "c:3"));
+        for (int k = 0; k < 1000; ++k)
+            assertEquals(a.node("user" + k), b.node("user" + k));
+    }
+
+    @Test
+    public void hashDoesNotDependOnTheJvm() {
+        // FNV-1a of the empty string followed by the SplitMix64 finalizer
+        long h = 0xcbf29ce484222325L;
+        h = (h ^ (h >>> 30)) * 0xbf58476d1ce4e5b9L;
+        h = (h ^ (h >>> 27)) * 0x94d049bb133111ebL;
+        assertEquals(h ^ (h >>> 31), ConsistentHashRing.hash(""));
+    }
+
+    @Test
+    public void singleNodeOwnsEverything() {
+        ConsistentHashRing ring = new ConsistentHashRing(List.of("only"));
+        for (int k = 0; k < 1000; ++k)
+            assertEquals(0, ring.node("user" + k));
+    }
+
+    @Test
+    public void keysAreSpreadEvenly() {
+        int nodes = 4;
+        ConsistentHashRing ring = new ConsistentHashRing(List.of("n0", "n1", "n2", "n3"));
+        int[] owned = new int[nodes];
+        for (int k = 0; k < ConsistentHashRingTest.KEYS; ++k)
+            owned[ring.node("user" + k)]++;
+        for (int count : owned) {
+            double share = (double) count / ConsistentHashRingTest.KEYS;
+            assertTrue(String.valueOf(share), share > 0.15 && share < 0.35);
+        }
+    }
+
+    @Test
+    public void addingANodeOnlyMovesKeysToIt() {
+        ConsistentHashRing before = new ConsistentHashRing(List.of("n0", "n1", "n2"));
+        ConsistentHashRing after = new ConsistentHashRing(List.of("n0", "n1", "n2", "n3"));
+        int moved = 0;
+        for (int k = 0; k < ConsistentHashRingTest.KEYS; ++k) {
+            String key = "user" + k;
+            if (before.node(key) != after.node(key)) {
+                assertEquals(3, after.node(key));
+                ++moved;
+            }
+        }
+        double share = (double) moved / ConsistentHashRingTest.KEYS;
+        assertTrue(String.valueOf(share), share > 0.15 && share < 0.35);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsAnEmptyRing() {
+        new ConsistentHashRing(List.of());
+    }
+}
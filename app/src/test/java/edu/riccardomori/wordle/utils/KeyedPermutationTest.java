@@ -0,0 +1,62 @@
+package edu.riccardomori.wordle.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class KeyedPermutationTest {
+    @Test
+    public void isABijection() {
+        for (long n : new long[] {1, 2, 3, 7, 16, 17, 1000, 4097}) {
+            KeyedPermutation perm = new KeyedPermutation(n, 42);
+            boolean[] seen = new boolean[(int) n];
+            for (long x = 0; x < n; ++x) {
+                long y = perm.apply(x);
+                assertTrue(y >= 0 && y < n);
+                assertFalse("n=" + n + " repeats " + y, seen[(int) y]);
+                seen[(int) y] = true;
+            }
+        }
+    }
+
+    @Test
+    public void sameKeySamePermutation() {
+        KeyedPermutation a = new KeyedPermutation(5000, 7);
+        KeyedPermutation b = new KeyedPermutation(5000, 7);
+        for (long x = 0; x < 5000; ++x)
+            assertEquals(a.apply(x), b.apply(x));
+    }
+
+    @Test
+    public void differentKeysDifferentPermutations() {
+        KeyedPermutation a = new KeyedPermutation(5000, 7);
+        KeyedPermutation b = new KeyedPermutation(5000, 8);
+        int same = 0;
+        for (long x = 0; x < 5000; ++x)
+            if (a.apply(x) == b.apply(x))
+                ++same;
+        // Two unrelated permutations share about one fixed point
+        assertTrue(String.valueOf(same), same < 20);
+    }
+
+    @Test
+    public void shufflesTheDomain() {
+        KeyedPermutation perm = new KeyedPermutation(5000, 1);
+        int fixed = 0;
+        for (long x = 0; x < 5000; ++x)
+            if (perm.apply(x) == x)
+                ++fixed;
+        assertTrue(String.valueOf(fixed), fixed < 20);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void rejectsValuesOutsideTheDomain() {
+        new KeyedPermutation(10, 1).apply(10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsAnEmptyDomain() {
+        new KeyedPermutation(0, 1);
+    }
+}
@@ -0,0 +1,135 @@
+package edu.riccardomori.wordle.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.Test;
+
+public class SortedLongSetTest {
+    private static final int OPS = 50000;
+
+    private static long[] toArray(TreeSet<Long> set) {
+        return set.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    @Test
+    public void emptySet() {
+        SortedLongSet set = new SortedLongSet();
+        assertEquals(0, set.size());
+        assertEquals(0, set.rank(42));
+        assertFalse(set.contains(42));
+        assertFalse(set.remove(42));
+        assertArrayEquals(new long[] {}, set.head(10));
+    }
+
+    @Test
+    public void addAndRemove() {
+        SortedLongSet set = new SortedLongSet();
+        assertTrue(set.add(5));
+        assertTrue(set.add(-3));
+        assertTrue(set.add(10));
+        assertFalse(set.add(5));
+        assertEquals(3, set.size());
+        assertArrayEquals(new long[] {-3, 5, 10}, set.toArray());
+        assertTrue(set.remove(5));
+        assertFalse(set.remove(5));
+        assertFalse(set.contains(5));
+        assertArrayEquals(new long[] {-3, 10}, set.toArray());
+    }
+
+    @Test
+    public void rankCountsTheSmallerElements() {
+        SortedLongSet set = new SortedLongSet(new long[] {40, 10, 30, 20});
+        assertEquals(0, set.rank(10));
+        assertEquals(1, set.rank(15));
+        assertEquals(3, set.rank(40));
+        assertEquals(4, set.rank(Long.MAX_VALUE));
+        assertEquals(0, set.rank(Long.MIN_VALUE));
+    }
+
+    @Test
+    public void headIsBoundedBySize() {
+        SortedLongSet set = new SortedLongSet(new long[] {3, 1, 2});
+        assertArrayEquals(new long[] {1, 2}, set.head(2));
+        assertArrayEquals(new long[] {1, 2, 3}, set.head(10));
+        assertArrayEquals(new long[] {}, set.head(0));
+    }
+
+    @Test
+    public void buildRemovesDuplicates() {
+        SortedLongSet set = new SortedLongSet(new long[] {2, 1, 2, 3, 1});
+        assertEquals(3, set.size());
+        assertArrayEquals(new long[] {1, 2, 3}, set.toArray());
+    }
+
+    @Test
+    public void growsAndShrinksAcrossBlocks() {
+        // Ascending insertions split the last block, removals merge the underfull ones
+        SortedLongSet set = new SortedLongSet();
+        int n = 10000;
+        for (int k = 0; k < n; ++k)
+            assertTrue(set.add(k));
+        assertEquals(n, set.size());
+        for (int k = 0; k < n; k += 100)
+            assertEquals(k, set.rank(k));
+        for (int k = 0; k < n; k += 2)
+            assertTrue(set.remove(k));
+        assertEquals(n / 2, set.size());
+        assertEquals(n / 4, set.rank(n / 2 + 1));
+        for (int k = 1; k < n; k += 2)
+            assertTrue(set.remove(k));
+        assertEquals(0, set.size());
+        assertTrue(set.add(7));
+        assertArrayEquals(new long[] {7}, set.toArray());
+    }
+
+    @Test
+    public void matchesATreeSet() {
+        Random random = new Random(1);
+        SortedLongSet set = new SortedLongSet();
+        TreeSet<Long> expected = new TreeSet<>();
+        for (int k = 0; k < SortedLongSetTest.OPS; ++k) {
+            long e = random.nextInt(5000);
+            if (random.nextInt(3) == 0)
+                assertEquals(expected.remove(e), set.remove(e));
+            else
+                assertEquals(expected.add(e), set.add(e));
+            if (k % 1000 == 0)
+                assertEquals(expected.headSet(e).size(), set.rank(e));
+        }
+        assertEquals(expected.size(), set.size());
+        assertArrayEquals(SortedLongSetTest.toArray(expected), set.toArray());
+    }
+
+    @Test
+    public void followsTheGivenOrder() {
+        SortedLongSet.Order descending = (a, b) -> Long.compare(b, a);
+        SortedLongSet set = new SortedLongSet(new long[] {9, 5, 1}, descending);
+        set.add(7);
+        set.add(0);
+        assertArrayEquals(new long[] {9, 7, 5, 1, 0}, set.toArray());
+        assertEquals(1, set.rank(7));
+        assertEquals(5, set.rank(-1));
+    }
+
+    @Test
+    public void sortsARange() {
+        Random random = new Random(2);
+        long[] a = new long[1000];
+        for (int k = 0; k < a.length; ++k)
+            a[k] = random.nextInt(100);
+        long[] expected = a.clone();
+        Arrays.sort(expected, 100, 900);
+        SortedLongSet.sort(a, 100, 900, Long::compare);
+        assertArrayEquals(expected, a);
+
+        long[] b = {5, 4, 3, 2, 1};
+        SortedLongSet.sort(b, 0, 5, (x, y) -> Long.compare(x % 2, y % 2));
+        // The even elements first, in their original order: the sort is stable
+        assertArrayEquals(new long[] {4, 2, 5, 3, 1}, b);
+    }
+}
@@ -0,0 +1,75 @@
+package edu.riccardomori.wordle.utils;
+
+import static org.junit.Assert.assertEquals;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+
+public class StringIntMapTest {
+    @Test
+    public void missingKey() {
+        StringIntMap map = new StringIntMap(0);
+        assertEquals(StringIntMap.MISSING, map.get("a"));
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    public void putAndReplace() {
+        StringIntMap map = new StringIntMap(4);
+        map.put("a", 1);
+        map.put("b", 2);
+        map.put("a", 3);
+        assertEquals(3, map.get("a"));
+        assertEquals(2, map.get("b"));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    public void growsPastTheExpectedSize() {
+        StringIntMap map = new StringIntMap(1);
+        int n = 100000;
+        for (int k = 0; k < n; ++k)
+            map.put("user" + k, k);
+        assertEquals(n, map.size());
+        for (int k = 0; k < n; ++k)
+            assertEquals(k, map.get("user" + k));
+        assertEquals(StringIntMap.MISSING, map.get("user" + n));
+    }
+
+    @Test
+    public void collidingHashCodes() {
+        // "Aa" and "BB" have the same hashCode, and so do all their concatenations
+        String[] keys = {"AaAa", "AaBB", "BBAa", "BBBB"};
+        StringIntMap map = new StringIntMap(2);
+        for (int k = 0; k < keys.length; ++k)
+            map.put(keys[k], k);
+        for (int k = 0; k < keys.length; ++k)
+            assertEquals(k, map.get(keys[k]));
+        map.put("BBAa", 42);
+        assertEquals(42, map.get("BBAa"));
+        assertEquals(3, map.get("BBBB"));
+        assertEquals(keys.length, map.size());
+    }
+
+    @Test
+    public void matchesAHashMap() {
+        Random random = new Random(1);
+        StringIntMap map = new StringIntMap(16);
+        Map<String, Integer> expected = new HashMap<>();
+        for (int k = 0; k < 50000; ++k) {
+            String key = "k" + random.nextInt(10000);
+            int value = random.nextInt(Integer.MAX_VALUE);
+            map.put(key, value);
+            expected.put(key, value);
+        }
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<String, Integer> entry : expected.entrySet())
+            assertEquals((int) entry.getValue(), map.get(entry.getKey()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativeValues() {
+        new StringIntMap(1).put("a", -1);
+    }
+}
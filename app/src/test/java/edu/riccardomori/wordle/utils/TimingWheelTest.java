@@ -0,0 +1,124 @@
+package edu.riccardomori.wordle.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class TimingWheelTest {
+    private static final long MS = 1000000; // Nanoseconds in a millisecond
+
+    private long now = 0; // The time of the wheels, in nanoseconds
+
+    private TimingWheel wheel(long tickMillis) {
+        return new TimingWheel(tickMillis, () -> this.now);
+    }
+
+    @Test
+    public void firesAfterTheDelay() {
+        TimingWheel wheel = this.wheel(10);
+        List<String> fired = new ArrayList<>();
+        wheel.schedule(new TimingWheel.Timeout(() -> fired.add("a")), 50);
+        assertEquals(1, wheel.size());
+
+        this.now = 40 * TimingWheelTest.MS;
+        assertEquals(0, wheel.advance());
+        this.now = 50 * TimingWheelTest.MS;
+        assertEquals(1, wheel.advance());
+        assertEquals(List.of("a"), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void delayCountsFromNowWhenTheWheelIsBehind() {
+        TimingWheel wheel = this.wheel(10);
+        wheel.schedule(new TimingWheel.Timeout(() -> {}), 10000);
+        // The wheel is not advanced for a while, as when the selector loop is busy
+        this.now = 500 * TimingWheelTest.MS;
+        TimingWheel.Timeout timeout = new TimingWheel.Timeout(() -> {});
+        wheel.schedule(timeout, 100);
+
+        this.now = 590 * TimingWheelTest.MS;
+        assertEquals(0, wheel.advance());
+        assertTrue(timeout.isScheduled());
+        this.now = 600 * TimingWheelTest.MS;
+        assertEquals(1, wheel.advance());
+        assertFalse(timeout.isScheduled());
+    }
+
+    @Test
+    public void cascadesFromTheHigherLevels() {
+        TimingWheel wheel = this.wheel(1);
+        List<Long> fired = new ArrayList<>();
+        // One delay for every level of the wheel
+        long[] delays = {5, 100, 5000, 300000};
+        for (long delay : delays)
+            wheel.schedule(new TimingWheel.Timeout(() -> fired.add(this.now / TimingWheelTest.MS)),
+                    delay);
+
+        for (int k = 0; k < delays.length; ++k) {
+            this.now = (delays[k] - 1) * TimingWheelTest.MS;
+            wheel.advance();
+            assertEquals(k, fired.size());
+            this.now = delays[k] * TimingWheelTest.MS;
+            assertEquals(1, wheel.advance());
+            assertEquals(delays[k], (long) fired.get(k));
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void rescheduleAndCancel() {
+        TimingWheel wheel = this.wheel(10);
+        List<String> fired = new ArrayList<>();
+        TimingWheel.Timeout a = new TimingWheel.Timeout(() -> fired.add("a"));
+        TimingWheel.Timeout b = new TimingWheel.Timeout(() -> fired.add("b"));
+        wheel.schedule(a, 100);
+        wheel.schedule(b, 100);
+        wheel.schedule(a, 300); // Rescheduled, it is not scheduled twice
+        assertEquals(2, wheel.size());
+        wheel.cancel(b);
+        wheel.cancel(b);
+        assertEquals(1, wheel.size());
+
+        this.now = 200 * TimingWheelTest.MS;
+        assertEquals(0, wheel.advance());
+        this.now = 300 * TimingWheelTest.MS;
+        assertEquals(1, wheel.advance());
+        assertEquals(List.of("a"), fired);
+    }
+
+    @Test
+    public void aTaskCanScheduleATimeout() {
+        TimingWheel wheel = this.wheel(10);
+        List<Long> fired = new ArrayList<>();
+        TimingWheel.Timeout[] timeout = new TimingWheel.Timeout[1];
+        timeout[0] = new TimingWheel.Timeout(() -> {
+            fired.add(this.now / TimingWheelTest.MS);
+            if (fired.size() < 3)
+                wheel.schedule(timeout[0], 20);
+        });
+        wheel.schedule(timeout[0], 20);
+
+        for (int t = 10; t <= 100; t += 10) {
+            this.now = t * TimingWheelTest.MS;
+            wheel.advance();
+        }
+        assertEquals(List.of(20L, 40L, 60L), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void longDelaysAreClamped() {
+        TimingWheel wheel = this.wheel(1);
+        TimingWheel.Timeout timeout = new TimingWheel.Timeout(() -> {});
+        wheel.schedule(timeout, Long.MAX_VALUE / TimingWheelTest.MS);
+        long maxTicks = 1L << 24;
+        this.now = (maxTicks - 2) * TimingWheelTest.MS;
+        assertEquals(0, wheel.advance());
+        this.now = (maxTicks - 1) * TimingWheelTest.MS;
+        assertEquals(1, wheel.advance());
+    }
+}
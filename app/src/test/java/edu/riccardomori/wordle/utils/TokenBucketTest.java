@@ -0,0 +1,70 @@
+package edu.riccardomori.wordle.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class TokenBucketTest {
+    @Test
+    public void fullBucketGivesTheBurst() {
+        TokenBucket bucket = new TokenBucket(0.001, 5);
+        for (int k = 0; k < 5; ++k)
+            assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+    }
+
+    @Test
+    public void emptyBucketIsRefilled() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(100, 1); // A token every 10 ms
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+        Thread.sleep(50);
+        assertTrue(bucket.tryAcquire());
+    }
+
+    @Test
+    public void refillStopsAtTheBurst() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(1000, 3);
+        Thread.sleep(50); // Enough for 50 tokens, but it holds only 3
+        int taken = 0;
+        while (bucket.tryAcquire() && taken < 100)
+            ++taken;
+        // A token or two can be refilled while the loop runs
+        assertTrue(String.valueOf(taken), taken >= 3 && taken <= 5);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rateMustBePositive() {
+        new TokenBucket(0, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void burstMustBePositive() {
+        new TokenBucket(1, 0);
+    }
+
+    @Test
+    public void concurrentAcquiresNeverExceedTheBurst() throws InterruptedException {
+        int burst = 1000;
+        TokenBucket bucket = new TokenBucket(0.001, burst);
+        AtomicInteger taken = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; ++t) {
+            Thread thread = new Thread(() -> {
+                for (int k = 0; k < burst; ++k)
+                    if (bucket.tryAcquire())
+                        taken.incrementAndGet();
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+        assertEquals(burst, taken.get());
+    }
+}